@@ -4,36 +4,62 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 public class Appointment {
-    private static int idCounter = 1;
+    /** Display format for appointment times. */
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private static final IdAllocator IDS = new IdAllocator("appointment");
     private final int id;
     private final Patient patient;
     private final Doctor doctor;
     private LocalDateTime appointmentTime;
     private String purpose;
-    private String status; // "Scheduled", "Completed", "Cancelled"
-    private String notes;
+    private AppointmentStatus status;
+    // Handle of the notes in the shared off-heap TextStore; 0 = no notes
+    private int notesHandle;
+    /** Position in its bucket of an {@link AppointmentStatusIndex}, or -1 if not indexed. */
+    int statusSlot = -1;
+    /** Position in its day bucket of an {@link AppointmentCalendar}, or -1 if not indexed. */
+    int calendarSlot = -1;
+    /** Pending timer in an {@link AppointmentSweeper}, or null if not tracked. */
+    AppointmentSweeper.Timer sweepTimer;
 
     public Appointment(Patient patient, Doctor doctor, LocalDateTime appointmentTime, String purpose) {
+        this(0, patient, doctor, appointmentTime, purpose);
+    }
+
+    /**
+     * Constructs an Appointment with an explicit ID, used when restoring persisted data.
+     * Restored appointments may lie in the past; new ones (id 0) must be in the future.
+     * @param id the ID to use, or 0 to allocate the next one
+     */
+    Appointment(int id, Patient patient, Doctor doctor, LocalDateTime appointmentTime, String purpose) {
         if (patient == null) {
             throw new IllegalArgumentException("Patient cannot be null");
         }
         if (doctor == null) {
             throw new IllegalArgumentException("Doctor cannot be null");
         }
-        if (appointmentTime == null || appointmentTime.isBefore(LocalDateTime.now())) {
+        if (appointmentTime == null || (id <= 0 && appointmentTime.isBefore(LocalDateTime.now()))) {
             throw new IllegalArgumentException("Appointment time must be in the future");
         }
         if (purpose == null || purpose.trim().isEmpty()) {
             throw new IllegalArgumentException("Appointment purpose cannot be empty");
         }
 
-        this.id = idCounter++;
+        this.id = id > 0 ? IDS.claim(id) : IDS.reserve(1);
         this.patient = patient;
         this.doctor = doctor;
         this.appointmentTime = appointmentTime;
         this.purpose = purpose.trim();
-        this.status = "Scheduled";
-        this.notes = "";
+        this.status = AppointmentStatus.SCHEDULED;
+    }
+
+    /**
+     * Makes new appointment IDs start at {@code first} or later and stay below {@code limit};
+     * a shard node uses it to allocate from its own ID range.
+     */
+    static void startIdsAt(int first, int limit) {
+        IDS.startAt(first, limit);
     }
 
     // Getters
@@ -42,39 +68,140 @@ public class Appointment {
     public Doctor getDoctor() { return doctor; }
     public LocalDateTime getAppointmentTime() { return appointmentTime; }
     public String getPurpose() { return purpose; }
-    public String getStatus() { return status; }
-    public String getNotes() { return notes; }
+    public AppointmentStatus getStatus() { return status; }
+    public String getNotes() { return TextStore.readShared(notesHandle); }
 
-    // Setters with validation
-    public void setStatus(String status) {
-        if (status == null || (!status.equals("Scheduled") && !status.equals("Completed") && !status.equals("Cancelled"))) {
-            throw new IllegalArgumentException("Invalid status. Must be 'Scheduled', 'Completed', or 'Cancelled'");
+    /**
+     * Moves the appointment to a new status along a legal transition of
+     * {@link AppointmentStatus}. Callers go through {@link HospitalService} so the
+     * status index stays in step.
+     * @return the previous status
+     * @throws IllegalArgumentException if status is null
+     * @throws IllegalStateException if the transition is not allowed
+     */
+    AppointmentStatus transitionTo(AppointmentStatus status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Status cannot be null");
         }
-        this.status = status;
+        if (!this.status.canTransitionTo(status)) {
+            throw new IllegalStateException(transitionError(this.status, status));
+        }
+        return applyStatus(status);
     }
 
-    public void setNotes(String notes) {
-        if (notes == null) {
-            this.notes = "";
-        } else {
-            this.notes = notes.trim();
+    static String transitionError(AppointmentStatus from, AppointmentStatus to) {
+        return from == to
+                ? "Appointment is already " + to.getLabel().toLowerCase()
+                : "Cannot change a " + from.getLabel().toLowerCase() + " appointment to " + to.getLabel();
+    }
+
+    /**
+     * Sets the status without the transition check; used when replaying persisted
+     * history, whose order may predate the current rules. Setting the current status is a no-op.
+     * @return the previous status
+     */
+    AppointmentStatus applyStatus(AppointmentStatus status) {
+        AppointmentStatus oldStatus = this.status;
+        if (status == oldStatus) {
+            return oldStatus;
         }
+        AppointmentTimeline timeline = doctor.getTimeline();
+        if (!status.holdsSlot()) {
+            // Cancelling frees the doctor's slot
+            timeline.remove(this);
+        } else if (!oldStatus.holdsSlot()) {
+            // Reinstating a cancelled appointment books its slot again
+            timeline.add(this);
+        }
+        this.status = status;
+        MutationEvents.statusChanged(this, oldStatus);
+        return oldStatus;
+    }
+
+    /**
+     * Restores persisted status and notes without validation, timeline updates or change events.
+     * Only valid before the appointment is registered.
+     */
+    void restoreState(AppointmentStatus status, String notes) {
+        this.status = status;
+        this.notesHandle = TextStore.writeShared(notesHandle, notes);
     }
 
-    public void reschedule(LocalDateTime newTime) {
+    /**
+     * Replaces the notes; null or blank clears them. The text is kept off-heap.
+     */
+    public synchronized void setNotes(String notes) {
+        notesHandle = TextStore.writeShared(notesHandle, notes == null ? "" : notes.trim());
+        MutationEvents.notesChanged(this);
+    }
+
+    /**
+     * Moves the appointment to a future time. Only HospitalService calls this,
+     * under the doctor's lock, so the timeline and the journal see one change.
+     */
+    void reschedule(LocalDateTime newTime) {
         if (newTime == null || newTime.isBefore(LocalDateTime.now())) {
             throw new IllegalArgumentException("New appointment time must be in the future");
         }
-        if (status.equals("Completed") || status.equals("Cancelled")) {
-            throw new IllegalStateException("Cannot reschedule a " + status.toLowerCase() + " appointment");
+        moveTo(newTime);
+    }
+
+    /**
+     * Moves the appointment without the future-time check; used when replaying persisted history.
+     */
+    void moveTo(LocalDateTime newTime) {
+        if (newTime == null) {
+            throw new IllegalArgumentException("New appointment time cannot be null");
         }
+        if (status != AppointmentStatus.SCHEDULED) {
+            throw new IllegalStateException("Cannot reschedule a " + status.getLabel().toLowerCase() + " appointment");
+        }
+        AppointmentTimeline timeline = doctor.getTimeline();
+        if (timeline.contains(this)) {
+            timeline.move(this, newTime);
+        }
+        LocalDateTime oldTime = this.appointmentTime;
         this.appointmentTime = newTime;
+        MutationEvents.appointmentRescheduled(this, oldTime);
     }
 
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        return String.format("Appointment ID: %d | Patient: %s | Doctor: %s | Time: %s | Purpose: %s | Status: %s",
-                id, patient.getName(), doctor.getName(), appointmentTime.format(formatter), purpose, status);
+        return appendTo(new StringBuilder(128)).toString();
+    }
+
+    /**
+     * Appends the same text as {@link #toString()} to a caller-owned builder.
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append("Appointment ID: ").append(id)
+                .append(" | Patient: ").append(patient.getName())
+                .append(" | Doctor: ").append(doctor.getName())
+                .append(" | Time: ");
+        appendTime(sb, appointmentTime);
+        return sb.append(" | Purpose: ").append(purpose)
+                .append(" | Status: ").append(status.getLabel());
+    }
+
+    /**
+     * Appends a time in {@link #TIME_FORMAT} ("yyyy-MM-dd HH:mm") field by field,
+     * which is several times cheaper than going through the formatter.
+     */
+    static void appendTime(StringBuilder sb, LocalDateTime time) {
+        int year = time.getYear();
+        if (year < 1000 || year > 9999) {
+            TIME_FORMAT.formatTo(time, sb);
+            return;
+        }
+        sb.append(year).append('-');
+        appendTwoDigits(sb, time.getMonthValue()).append('-');
+        appendTwoDigits(sb, time.getDayOfMonth()).append(' ');
+        appendTwoDigits(sb, time.getHour()).append(':');
+        appendTwoDigits(sb, time.getMinute());
+    }
+
+    private static StringBuilder appendTwoDigits(StringBuilder sb, int value) {
+        return sb.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
     }
 }
@@ -0,0 +1,166 @@
+package com.example;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Appointments of every doctor bucketed by the day they start on.
+ *
+ * Buckets are keyed by epoch day in an {@link IntObjectMap}, so a range query
+ * only visits the days it covers, and within those only the appointments
+ * booked on them; "today" or "the next hour" costs the same with ten
+ * appointments on file as with ten million spread over the coming years.
+ * Days without appointments have no bucket.
+ *
+ * Like {@link AppointmentStatusIndex}, each bucket is a dense array and every
+ * appointment remembers its position in it, so rescheduling to another day is
+ * an O(1) swap-remove and append. Results are sorted by time, then id.
+ */
+public class AppointmentCalendar {
+    private static final Comparator<Appointment> BY_TIME =
+            Comparator.comparing(Appointment::getAppointmentTime).thenComparingInt(Appointment::getId);
+
+    private final IntObjectMap<Bucket> days = new IntObjectMap<>();
+    private int size;
+
+    /**
+     * Indexes a new appointment under the day of its current time.
+     * @throws IllegalStateException if it is already indexed
+     */
+    public synchronized void add(Appointment appointment) {
+        if (appointment.calendarSlot >= 0) {
+            throw new IllegalStateException("Appointment " + appointment.getId() + " is already in the calendar");
+        }
+        bucket(dayOf(appointment.getAppointmentTime())).add(appointment);
+        size++;
+    }
+
+    /**
+     * Moves an indexed appointment from the day of its old time to the day of
+     * its current time. Call after the time has changed.
+     */
+    public synchronized void moved(Appointment appointment, LocalDateTime oldTime) {
+        int oldDay = dayOf(oldTime);
+        int newDay = dayOf(appointment.getAppointmentTime());
+        if (oldDay == newDay || appointment.calendarSlot < 0) {
+            return;
+        }
+        Bucket old = days.get(oldDay);
+        old.remove(appointment);
+        if (old.size == 0) {
+            days.remove(oldDay);
+        }
+        bucket(newDay).add(appointment);
+    }
+
+    /**
+     * Returns the appointments starting in [from, to), in any status.
+     */
+    public List<Appointment> between(LocalDateTime from, LocalDateTime to) {
+        return between(from, to, null);
+    }
+
+    /**
+     * Returns the appointments starting in [from, to), optionally only those
+     * in one status. Only the buckets of the days in the range are visited.
+     * @param status the status to keep, or null for all
+     */
+    public synchronized List<Appointment> between(LocalDateTime from, LocalDateTime to, AppointmentStatus status) {
+        List<Appointment> result = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return result;
+        }
+        int firstDay = dayOf(from);
+        int lastDay = dayOf(to.minusNanos(1));
+        // A range wider than the number of booked days is cheaper to answer bucket by bucket
+        if ((long) lastDay - firstDay + 1 > days.size()) {
+            days.forEach((day, bucket) -> {
+                if (day >= firstDay && day <= lastDay) {
+                    bucket.collect(from, to, status, result);
+                }
+            });
+        } else {
+            for (int day = firstDay; day <= lastDay; day++) {
+                Bucket bucket = days.get(day);
+                if (bucket != null) {
+                    bucket.collect(from, to, status, result);
+                }
+            }
+        }
+        result.sort(BY_TIME);
+        return result;
+    }
+
+    /**
+     * Returns the appointments on a day, in any status.
+     */
+    public List<Appointment> onDay(LocalDate day) {
+        return between(day.atStartOfDay(), day.plusDays(1).atStartOfDay(), null);
+    }
+
+    /** Number of appointments starting on a day, in O(1). */
+    public synchronized int count(LocalDate day) {
+        Bucket bucket = days.get((int) day.toEpochDay());
+        return bucket == null ? 0 : bucket.size;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Number of days with at least one appointment. */
+    public synchronized int dayCount() {
+        return days.size();
+    }
+
+    // Caller holds the lock
+    private Bucket bucket(int day) {
+        Bucket bucket = days.get(day);
+        if (bucket == null) {
+            bucket = new Bucket();
+            days.put(day, bucket);
+        }
+        return bucket;
+    }
+
+    static int dayOf(LocalDateTime time) {
+        return (int) time.toLocalDate().toEpochDay();
+    }
+
+    private static final class Bucket {
+        Appointment[] entries = new Appointment[4];
+        int size;
+
+        void add(Appointment appointment) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            appointment.calendarSlot = size;
+            entries[size++] = appointment;
+        }
+
+        // Swap-remove: the last entry takes over the vacated slot
+        void remove(Appointment appointment) {
+            int slot = appointment.calendarSlot;
+            Appointment last = entries[--size];
+            entries[slot] = last;
+            last.calendarSlot = slot;
+            entries[size] = null;
+            appointment.calendarSlot = -1;
+        }
+
+        void collect(LocalDateTime from, LocalDateTime to, AppointmentStatus status, List<Appointment> result) {
+            for (int i = 0; i < size; i++) {
+                Appointment appointment = entries[i];
+                LocalDateTime time = appointment.getAppointmentTime();
+                if (!time.isBefore(from) && time.isBefore(to) && (status == null || appointment.getStatus() == status)) {
+                    result.add(appointment);
+                }
+            }
+        }
+    }
+}
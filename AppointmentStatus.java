@@ -0,0 +1,77 @@
+package com.example;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Lifecycle of an appointment and its legal transitions:
+ *
+ *   SCHEDULED -> COMPLETED (terminal)
+ *   SCHEDULED -> CANCELLED -> SCHEDULED (reinstated)
+ *   SCHEDULED -> MISSED -> COMPLETED (seen late)
+ *
+ * MISSED is set by the {@link AppointmentSweeper} sweep when an appointment is
+ * still scheduled after its slot has ended.
+ *
+ * All but cancelled appointments hold a slot in the doctor's timeline;
+ * cancelling frees it and reinstating books it again.
+ */
+public enum AppointmentStatus {
+    SCHEDULED("Scheduled"),
+    COMPLETED("Completed"),
+    CANCELLED("Cancelled"),
+    MISSED("Missed");
+
+    private static final AppointmentStatus[] VALUES = values();
+
+    static {
+        SCHEDULED.next = Collections.unmodifiableSet(EnumSet.of(COMPLETED, CANCELLED, MISSED));
+        COMPLETED.next = Collections.unmodifiableSet(EnumSet.noneOf(AppointmentStatus.class));
+        CANCELLED.next = Collections.unmodifiableSet(EnumSet.of(SCHEDULED));
+        MISSED.next = Collections.unmodifiableSet(EnumSet.of(COMPLETED));
+    }
+
+    private final String label;
+    private Set<AppointmentStatus> next;
+
+    AppointmentStatus(String label) {
+        this.label = label;
+    }
+
+    /** Display name, also the form stored in journals and snapshots. */
+    public String getLabel() { return label; }
+
+    /** Statuses this one may change to, in declaration order. */
+    public Set<AppointmentStatus> getNextStatuses() { return next; }
+
+    public boolean canTransitionTo(AppointmentStatus target) {
+        return next.contains(target);
+    }
+
+    /** True if the appointment occupies its slot in the doctor's timeline. */
+    public boolean holdsSlot() {
+        return this != CANCELLED;
+    }
+
+    /**
+     * Parses a label such as "Scheduled", ignoring case and surrounding whitespace.
+     * @throws IllegalArgumentException if it names no status
+     */
+    public static AppointmentStatus fromLabel(String label) {
+        if (label != null) {
+            String trimmed = label.trim();
+            for (AppointmentStatus status : VALUES) {
+                if (status.label.equalsIgnoreCase(trimmed)) {
+                    return status;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid status. Must be 'Scheduled', 'Completed', 'Cancelled', or 'Missed'");
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
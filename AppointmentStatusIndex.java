@@ -0,0 +1,91 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appointments grouped by {@link AppointmentStatus}, one bucket per status in an {@link EnumMap}.
+ *
+ * Each bucket is a dense array and every appointment remembers its position in
+ * its bucket, so moving an appointment on a status change is O(1): it is swapped
+ * with the last entry of its old bucket and appended to the new one. Counting a
+ * status is O(1) and listing it is O(k) in the number of matches, independent of
+ * the total number of appointments. Listings are in no particular order.
+ */
+public class AppointmentStatusIndex {
+    private final EnumMap<AppointmentStatus, Bucket> buckets = new EnumMap<>(AppointmentStatus.class);
+
+    public AppointmentStatusIndex() {
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            buckets.put(status, new Bucket());
+        }
+    }
+
+    /**
+     * Indexes a new appointment under its current status.
+     * @throws IllegalStateException if it is already indexed
+     */
+    public synchronized void add(Appointment appointment) {
+        if (appointment.statusSlot >= 0) {
+            throw new IllegalStateException("Appointment " + appointment.getId() + " is already indexed");
+        }
+        buckets.get(appointment.getStatus()).add(appointment);
+    }
+
+    /**
+     * Moves an indexed appointment from its previous status bucket to the one
+     * of its current status. Call after the status has changed.
+     */
+    public synchronized void moved(Appointment appointment, AppointmentStatus oldStatus) {
+        if (oldStatus == appointment.getStatus() || appointment.statusSlot < 0) {
+            return;
+        }
+        buckets.get(oldStatus).remove(appointment);
+        buckets.get(appointment.getStatus()).add(appointment);
+    }
+
+    public synchronized int count(AppointmentStatus status) {
+        return buckets.get(status).size;
+    }
+
+    /** Returns the number of appointments in every status, in lifecycle order. */
+    public synchronized Map<AppointmentStatus, Integer> counts() {
+        EnumMap<AppointmentStatus, Integer> counts = new EnumMap<>(AppointmentStatus.class);
+        buckets.forEach((status, bucket) -> counts.put(status, bucket.size));
+        return counts;
+    }
+
+    /** Returns a copy of the appointments currently in the given status. */
+    public synchronized List<Appointment> list(AppointmentStatus status) {
+        Bucket bucket = buckets.get(status);
+        List<Appointment> result = new ArrayList<>(bucket.size);
+        result.addAll(Arrays.asList(bucket.entries).subList(0, bucket.size));
+        return result;
+    }
+
+    private static final class Bucket {
+        Appointment[] entries = new Appointment[16];
+        int size;
+
+        void add(Appointment appointment) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            appointment.statusSlot = size;
+            entries[size++] = appointment;
+        }
+
+        // Swap-remove: the last entry takes over the vacated slot
+        void remove(Appointment appointment) {
+            int slot = appointment.statusSlot;
+            Appointment last = entries[--size];
+            entries[slot] = last;
+            last.statusSlot = slot;
+            entries[size] = null;
+            appointment.statusSlot = -1;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel over the scheduled appointments, used to send
+ * reminders shortly before an appointment and to find appointments still
+ * scheduled after their slot has ended.
+ *
+ * Time is counted in whole minutes. The wheel has {@value #LEVELS} levels of
+ * 64 slots: level 0 holds timers due within the next hour, one minute per slot,
+ * and each higher level covers 64 times the span of the one below (about 2.8
+ * days, 182 days and 31 years). Timers further out wait in the last slot of the
+ * top level. Advancing the clock by one minute fires one level-0 slot; when a
+ * level wraps, the current slot of the level above is emptied and its timers
+ * are re-inserted one level down. Tracking, untracking and firing a timer are
+ * therefore O(1), and a sweep only touches timers that are due or cascading,
+ * however many appointments are booked ahead.
+ *
+ * Every tracked appointment has one timer: first at its reminder time, then,
+ * once the reminder has fired, at the end of its slot. The timer is linked into
+ * its slot's list and referenced from {@link Appointment#sweepTimer}, so
+ * rescheduling or closing an appointment unlinks it directly.
+ */
+public class AppointmentSweeper {
+    static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final long HORIZON = 1L << (SLOT_BITS * LEVELS);
+
+    private final int reminderMinutes;
+    private final Timer[][] wheels = new Timer[LEVELS][SLOTS];
+    // Timers already due at insertion, fired on the next advance
+    private Timer due;
+    // Last minute processed
+    private long now;
+    private int size;
+
+    /**
+     * Creates an empty wheel.
+     * @param reminderMinutes how long before its start an appointment is reminded; 0 for no reminders
+     * @param start the current time; nothing at or before it fires until the next advance
+     */
+    public AppointmentSweeper(int reminderMinutes, LocalDateTime start) {
+        if (reminderMinutes < 0) {
+            throw new IllegalArgumentException("Reminder lead cannot be negative");
+        }
+        this.reminderMinutes = reminderMinutes;
+        this.now = AppointmentTimeline.toMinutes(start);
+    }
+
+    /**
+     * Sets or replaces the appointment's timer after it was booked, rescheduled
+     * or changed status. Only scheduled appointments keep a timer.
+     * An appointment that has already started gets no reminder.
+     */
+    public synchronized void track(Appointment appointment) {
+        untrack(appointment);
+        if (appointment.getStatus() != AppointmentStatus.SCHEDULED) {
+            return;
+        }
+        long start = AppointmentTimeline.toMinutes(appointment.getAppointmentTime());
+        Timer timer = new Timer(appointment, start);
+        if (reminderMinutes > 0 && start > now) {
+            timer.reminder = true;
+            timer.due = start - reminderMinutes;
+        } else {
+            timer.due = start + AppointmentTimeline.SLOT_MINUTES;
+        }
+        appointment.sweepTimer = timer;
+        insert(timer);
+        size++;
+    }
+
+    /**
+     * Removes the appointment's timer, if it has one.
+     */
+    public synchronized void untrack(Appointment appointment) {
+        Timer timer = appointment.sweepTimer;
+        if (timer == null) {
+            return;
+        }
+        unlink(timer);
+        appointment.sweepTimer = null;
+        size--;
+    }
+
+    /**
+     * Advances the clock minute by minute up to the given time and collects the
+     * appointments whose timers fire. A reminded appointment stays tracked until
+     * its slot ends; an overdue one is no longer tracked. Moving the clock
+     * backwards does nothing.
+     * @param reminders receives appointments whose reminder time has come
+     * @param overdue receives appointments whose slot has ended
+     */
+    public synchronized void advanceTo(LocalDateTime time, List<Appointment> reminders, List<Appointment> overdue) {
+        long target = AppointmentTimeline.toMinutes(time);
+        fireDue(reminders, overdue);
+        if (size == 0) {
+            now = Math.max(now, target);
+            return;
+        }
+        while (now < target) {
+            now++;
+            cascade();
+            int slot = (int) now & (SLOTS - 1);
+            Timer timer = wheels[0][slot];
+            wheels[0][slot] = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                timer.prev = timer.next = null;
+                fire(timer, reminders, overdue);
+                timer = next;
+            }
+            fireDue(reminders, overdue);
+        }
+    }
+
+    /** Number of appointments with a pending timer. */
+    public synchronized int size() {
+        return size;
+    }
+
+    // Caller holds the lock. On a level boundary, moves the current slot of every
+    // level that wrapped one level down (or into the due list).
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            if ((now & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            int slot = (int) (now >> shift) & (SLOTS - 1);
+            Timer timer = wheels[level][slot];
+            wheels[level][slot] = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                timer.prev = timer.next = null;
+                insert(timer);
+                timer = next;
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void fireDue(List<Appointment> reminders, List<Appointment> overdue) {
+        while (due != null) {
+            Timer timer = due;
+            unlink(timer);
+            fire(timer, reminders, overdue);
+        }
+    }
+
+    // Caller holds the lock; the timer is already unlinked
+    private void fire(Timer timer, List<Appointment> reminders, List<Appointment> overdue) {
+        if (timer.reminder) {
+            reminders.add(timer.appointment);
+            timer.reminder = false;
+            timer.due = timer.start + AppointmentTimeline.SLOT_MINUTES;
+            insert(timer);
+        } else {
+            overdue.add(timer.appointment);
+            timer.appointment.sweepTimer = null;
+            size--;
+        }
+    }
+
+    // Caller holds the lock
+    private void insert(Timer timer) {
+        long delta = timer.due - now;
+        if (delta <= 0) {
+            link(timer, LEVELS, 0);
+            return;
+        }
+        // Beyond the horizon: park in the furthest slot and re-place on cascade
+        long at = delta >= HORIZON ? now + HORIZON - 1 : timer.due;
+        int level = 0;
+        while (at - now >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        link(timer, level, (int) (at >> (SLOT_BITS * level)) & (SLOTS - 1));
+    }
+
+    // Caller holds the lock; level LEVELS is the due list
+    private void link(Timer timer, int level, int slot) {
+        Timer head = level == LEVELS ? due : wheels[level][slot];
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = head;
+        if (head != null) {
+            head.prev = timer;
+        }
+        if (level == LEVELS) {
+            due = timer;
+        } else {
+            wheels[level][slot] = timer;
+        }
+    }
+
+    // Caller holds the lock
+    private void unlink(Timer timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else if (timer.level == LEVELS) {
+            due = timer.next;
+        } else if (wheels[timer.level][timer.slot] == timer) {
+            wheels[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = timer.next = null;
+    }
+
+    /** An appointment's pending reminder or overdue check, linked into one slot. */
+    static final class Timer {
+        final Appointment appointment;
+        final long start;
+        long due;
+        boolean reminder;
+        int level;
+        int slot;
+        Timer prev;
+        Timer next;
+
+        Timer(Appointment appointment, long start) {
+            this.appointment = appointment;
+            this.start = start;
+        }
+    }
+}
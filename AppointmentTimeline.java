@@ -0,0 +1,131 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-doctor index of booked appointments ordered by start time.
+ * Keys are epoch minutes of {@link Appointment#getAppointmentTime()}; every
+ * appointment occupies a fixed slot of {@link #SLOT_MINUTES} minutes.
+ * Because booked slots never overlap, a conflict check only has to look at the
+ * nearest booking on each side, which makes double-booking detection O(log n).
+ * Cancelled appointments are removed from the timeline and free their slot.
+ */
+public class AppointmentTimeline {
+    /** Length of one appointment slot in minutes. */
+    public static final int SLOT_MINUTES = 30;
+
+    private final TreeMap<Long, Appointment> bookings = new TreeMap<>();
+
+    /**
+     * Checks whether a slot starting at the given time is free.
+     * @param start proposed start time
+     * @param ignore appointment to disregard (the one being moved), may be null
+     * @return true if no other booking overlaps the slot
+     */
+    public synchronized boolean isFree(LocalDateTime start, Appointment ignore) {
+        return conflictAt(toMinutes(start), ignore) == null;
+    }
+
+    /**
+     * Books an appointment into the timeline.
+     * @throws IllegalStateException if the slot overlaps another booking
+     */
+    public synchronized void add(Appointment appointment) {
+        long start = toMinutes(appointment.getAppointmentTime());
+        requireFree(start, appointment);
+        bookings.put(start, appointment);
+    }
+
+    /**
+     * Removes an appointment, freeing its slot.
+     * @return true if it was booked in this timeline
+     */
+    public synchronized boolean remove(Appointment appointment) {
+        return bookings.remove(toMinutes(appointment.getAppointmentTime()), appointment);
+    }
+
+    public synchronized boolean contains(Appointment appointment) {
+        return bookings.get(toMinutes(appointment.getAppointmentTime())) == appointment;
+    }
+
+    /**
+     * Moves a booked appointment from its current time to a new time.
+     * Must be called before the appointment's time field changes.
+     * @throws IllegalStateException if the new slot overlaps another booking
+     */
+    public synchronized void move(Appointment appointment, LocalDateTime newTime) {
+        long newStart = toMinutes(newTime);
+        requireFree(newStart, appointment);
+        bookings.remove(toMinutes(appointment.getAppointmentTime()), appointment);
+        bookings.put(newStart, appointment);
+    }
+
+    /**
+     * Finds the earliest free slot starting at or after the given time.
+     * Walks forward only across back-to-back bookings.
+     */
+    public synchronized LocalDateTime nextFreeSlot(LocalDateTime from) {
+        long candidate = toMinutes(from);
+        Map.Entry<Long, Appointment> previous = bookings.floorEntry(candidate);
+        if (previous != null && previous.getKey() + SLOT_MINUTES > candidate) {
+            candidate = previous.getKey() + SLOT_MINUTES;
+        }
+        for (Map.Entry<Long, Appointment> next : bookings.tailMap(candidate, true).entrySet()) {
+            if (next.getKey() >= candidate + SLOT_MINUTES) {
+                break;
+            }
+            candidate = next.getKey() + SLOT_MINUTES;
+        }
+        return fromMinutes(candidate);
+    }
+
+    /**
+     * Returns booked appointments starting in [from, to), ordered by time.
+     */
+    public synchronized List<Appointment> between(LocalDateTime from, LocalDateTime to) {
+        return new ArrayList<>(bookings.subMap(toMinutes(from), true, toMinutes(to), false).values());
+    }
+
+    public synchronized int size() {
+        return bookings.size();
+    }
+
+    private void requireFree(long start, Appointment ignore) {
+        Appointment conflict = conflictAt(start, ignore);
+        if (conflict != null) {
+            throw new IllegalStateException("Doctor already has appointment " + conflict.getId()
+                    + " at " + conflict.getAppointmentTime().format(Appointment.TIME_FORMAT));
+        }
+    }
+
+    private Appointment conflictAt(long start, Appointment ignore) {
+        Map.Entry<Long, Appointment> before = bookings.floorEntry(start);
+        if (before != null && before.getValue() == ignore) {
+            before = bookings.lowerEntry(before.getKey());
+        }
+        if (before != null && before.getKey() + SLOT_MINUTES > start) {
+            return before.getValue();
+        }
+        Map.Entry<Long, Appointment> after = bookings.higherEntry(start);
+        if (after != null && after.getValue() == ignore) {
+            after = bookings.higherEntry(after.getKey());
+        }
+        if (after != null && after.getKey() < start + SLOT_MINUTES) {
+            return after.getValue();
+        }
+        return null;
+    }
+
+    static long toMinutes(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    static LocalDateTime fromMinutes(long minutes) {
+        return LocalDateTime.ofEpochSecond(minutes * 60, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns patients to the least-loaded doctor of a specialization.
+ *
+ * A doctor's load is the size of their roster plus their open (scheduled)
+ * appointments. Each specialization keeps its doctors in a priority queue
+ * ({@link TreeSet}) ordered by load, so picking the target and re-queueing it
+ * after an assignment are O(log n).
+ *
+ * Loads follow every change, including manual assignments, through the
+ * {@link MutationListener} callbacks. The callbacks only update atomic counters
+ * and mark the doctor dirty; dirty doctors are re-queued under the scheduler's
+ * lock before the next pick. The callbacks never block, so the scheduler can call
+ * into {@link HospitalService} while holding its lock without risking deadlock.
+ *
+ * Loads are seeded from the service on construction; register the scheduler
+ * with {@link MutationEvents} right after creating it.
+ */
+public class AssignmentScheduler implements MutationListener {
+    private static final Comparator<Entry> BY_LOAD = Comparator
+            .comparingInt((Entry e) -> e.queuedLoad)
+            .thenComparingInt(e -> e.doctor.getId());
+
+    private final HospitalService service;
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> dirty = new ConcurrentLinkedQueue<>();
+    // Guarded by this
+    private final Map<String, TreeSet<Entry>> queues = new HashMap<>();
+
+    /**
+     * Creates a scheduler seeded with the service's current doctors, rosters
+     * and scheduled appointments.
+     */
+    public AssignmentScheduler(HospitalService service) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        this.service = service;
+        for (Doctor doctor : service.getDoctors()) {
+            Entry entry = track(doctor);
+            entry.roster.set(service.countAssignedPatients(doctor.getId()));
+        }
+        for (Appointment appointment : service.getAppointmentsByStatus(AppointmentStatus.SCHEDULED)) {
+            Entry entry = entryOf(appointment.getDoctor());
+            if (entry != null) {
+                entry.upcoming.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the least-loaded doctor of a specialization (case-insensitive)
+     * without assigning anyone.
+     * @throws IllegalArgumentException if no doctor has that specialization
+     */
+    public synchronized Doctor pick(String specialization) {
+        return requireQueue(specialization).first().doctor;
+    }
+
+    /**
+     * Assigns a patient to the least-loaded doctor of a specialization.
+     * @return the chosen doctor
+     * @throws IllegalArgumentException if the patient is unknown or no doctor has that specialization
+     */
+    public synchronized Doctor assign(int patientId, String specialization) {
+        Doctor doctor = requireQueue(specialization).first().doctor;
+        service.assignPatient(patientId, doctor.getId());
+        return doctor;
+    }
+
+    /**
+     * Assigns a waiting queue of patients in one batch. The whole batch is planned
+     * first, each patient going to the doctor that is least loaded at that point.
+     * Each doctor's share is then applied with one {@link HospitalService#assignPatients} call.
+     * @return the number of patients newly added to a roster
+     * @throws IllegalArgumentException if an id is unknown or no doctor has that specialization;
+     *         doctors whose share was applied before the failure keep their patients
+     */
+    public synchronized int assignAll(String specialization, List<Integer> patientIds) {
+        TreeSet<Entry> queue = requireQueue(specialization);
+        IdentityHashMap<Entry, List<Integer>> plan = new IdentityHashMap<>();
+        for (int patientId : patientIds) {
+            Entry entry = queue.pollFirst();
+            plan.computeIfAbsent(entry, e -> new ArrayList<>()).add(patientId);
+            entry.queuedLoad++;
+            queue.add(entry);
+        }
+        int added = 0;
+        try {
+            for (Map.Entry<Entry, List<Integer>> share : plan.entrySet()) {
+                added += service.assignPatients(share.getKey().doctor.getId(), share.getValue());
+            }
+        } finally {
+            // Planned loads are estimates; the next pick re-queues with the real counts
+            for (Entry entry : plan.keySet()) {
+                markDirty(entry);
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Current load of a doctor: roster size plus scheduled appointments.
+     * @return the load, or -1 if the doctor is not tracked by this scheduler
+     */
+    public int getLoad(Doctor doctor) {
+        Entry entry = entryOf(doctor);
+        return entry == null ? -1 : entry.load();
+    }
+
+    /** Specializations with at least one doctor, in lower case and sorted. */
+    public synchronized List<String> getSpecializations() {
+        drain();
+        List<String> result = new ArrayList<>(queues.keySet());
+        result.sort(null);
+        return result;
+    }
+
+    /** Doctors of a specialization from least to most loaded. */
+    public synchronized List<Doctor> getDoctors(String specialization) {
+        List<Doctor> result = new ArrayList<>();
+        for (Entry entry : requireQueue(specialization)) {
+            result.add(entry.doctor);
+        }
+        return result;
+    }
+
+    private TreeSet<Entry> requireQueue(String specialization) {
+        drain();
+        TreeSet<Entry> queue = specialization == null ? null : queues.get(key(specialization));
+        if (queue == null || queue.isEmpty()) {
+            throw new IllegalArgumentException("No doctors with specialization '" + specialization + "'");
+        }
+        return queue;
+    }
+
+    // Re-queues doctors whose load changed since the last pick; caller holds this
+    private void drain() {
+        Entry entry;
+        while ((entry = dirty.poll()) != null) {
+            entry.dirty.set(false);
+            TreeSet<Entry> queue = queues.computeIfAbsent(key(entry.doctor.getSpecialization()), k -> new TreeSet<>(BY_LOAD));
+            queue.remove(entry);
+            entry.queuedLoad = entry.load();
+            queue.add(entry);
+        }
+    }
+
+    private Entry track(Doctor doctor) {
+        Entry entry = entries.computeIfAbsent(doctor.getId(), id -> new Entry(doctor));
+        markDirty(entry);
+        return entry;
+    }
+
+    // Null for doctors of another service that share this JVM's event stream
+    private Entry entryOf(Doctor doctor) {
+        Entry entry = entries.get(doctor.getId());
+        return entry != null && entry.doctor == doctor ? entry : null;
+    }
+
+    private void markDirty(Entry entry) {
+        if (entry.dirty.compareAndSet(false, true)) {
+            dirty.add(entry);
+        }
+    }
+
+    private static String key(String specialization) {
+        return specialization.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Listener callbacks: update counters only, never block
+
+    @Override
+    public void doctorAdded(Doctor doctor) {
+        if (service.findDoctor(doctor.getId()) == doctor) {
+            track(doctor);
+        }
+    }
+
+    @Override
+    public void patientAssigned(Doctor doctor, Patient patient) {
+        adjust(doctor, 1, 0);
+    }
+
+    @Override
+    public void patientRemoved(Doctor doctor, Patient patient) {
+        adjust(doctor, -1, 0);
+    }
+
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        if (appointment.getStatus() == AppointmentStatus.SCHEDULED) {
+            adjust(appointment.getDoctor(), 0, 1);
+        }
+    }
+
+    @Override
+    public void statusChanged(Appointment appointment, AppointmentStatus oldStatus) {
+        boolean wasOpen = oldStatus == AppointmentStatus.SCHEDULED;
+        boolean isOpen = appointment.getStatus() == AppointmentStatus.SCHEDULED;
+        if (wasOpen != isOpen) {
+            adjust(appointment.getDoctor(), 0, isOpen ? 1 : -1);
+        }
+    }
+
+    private void adjust(Doctor doctor, int rosterDelta, int upcomingDelta) {
+        Entry entry = entryOf(doctor);
+        if (entry != null) {
+            entry.roster.addAndGet(rosterDelta);
+            entry.upcoming.addAndGet(upcomingDelta);
+            markDirty(entry);
+        }
+    }
+
+    private static final class Entry {
+        final Doctor doctor;
+        final AtomicInteger roster = new AtomicInteger();
+        final AtomicInteger upcoming = new AtomicInteger();
+        final AtomicBoolean dirty = new AtomicBoolean();
+        // Sort key while queued; changed only off the queue, under the scheduler's lock
+        int queuedLoad;
+
+        Entry(Doctor doctor) {
+            this.doctor = doctor;
+        }
+
+        int load() {
+            return roster.get() + upcoming.get();
+        }
+    }
+}
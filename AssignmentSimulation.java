@@ -0,0 +1,133 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulates triage with {@link AssignmentScheduler}: a hospital whose existing
+ * rosters and appointments are deliberately uneven receives a stream of single
+ * walk-in assignments followed by a batch assignment of the waiting queue.
+ * Reports assignment throughput and how evenly the load ends up spread per
+ * specialization (max/mean and coefficient of variation; 1.00 and 0 are perfect).
+ *
+ * Run: java -Xmx4g -cp bin com.example.AssignmentSimulation
+ * Options (system properties):
+ *   -Dsim.patients=1000000 -Dsim.doctors=5000 -Dsim.specializations=10
+ *   -Dsim.walkIns=100000        patients assigned one at a time before the batch
+ *   -Dsim.preassigned=0.10      share of patients assigned at random up front
+ *   -Dsim.appointments=20000    scheduled appointments booked with random doctors up front
+ */
+public class AssignmentSimulation {
+    private static final String[] SPECIALIZATIONS = {
+        "Cardiology", "Pediatrics", "Neurology", "Oncology", "Orthopedics",
+        "Dermatology", "Radiology", "Psychiatry", "Surgery", "General"
+    };
+
+    public static void main(String[] args) {
+        int patientCount = Integer.getInteger("sim.patients", 1_000_000);
+        int doctorCount = Integer.getInteger("sim.doctors", 5_000);
+        int specializationCount = Math.min(SPECIALIZATIONS.length, Integer.getInteger("sim.specializations", 10));
+        int walkIns = Math.min(patientCount, Integer.getInteger("sim.walkIns", 100_000));
+        double preassigned = Double.parseDouble(System.getProperty("sim.preassigned", "0.10"));
+        int appointmentCount = Integer.getInteger("sim.appointments", 20_000);
+        Random random = new Random(42);
+
+        HospitalService service = new HospitalService();
+        Doctor[] doctors = new Doctor[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            doctors[i] = service.registerDoctor("Dr. Sim " + i, SPECIALIZATIONS[i % specializationCount]);
+        }
+        long start = System.nanoTime();
+        int[] patientIds = new int[patientCount];
+        for (int i = 0; i < patientCount; i++) {
+            patientIds[i] = service.registerPatient("Patient " + i, i % 100).getId();
+        }
+        System.out.printf("Registered %,d patients and %,d doctors in %d ms%n",
+                patientCount, doctorCount, elapsedMs(start));
+
+        // Uneven starting point: random rosters skewed towards low doctor ids, random appointments
+        List<Integer> waiting = new ArrayList<>(patientCount);
+        for (int id : patientIds) {
+            if (random.nextDouble() < preassigned) {
+                int skewed = (int) (doctorCount * Math.pow(random.nextDouble(), 3));
+                service.assignPatient(id, doctors[skewed].getId());
+            } else {
+                waiting.add(id);
+            }
+        }
+        LocalDateTime first = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+        int[] booked = new int[doctorCount];
+        for (int i = 0; i < appointmentCount; i++) {
+            int d = random.nextInt(doctorCount);
+            LocalDateTime slot = first.plusMinutes((long) AppointmentTimeline.SLOT_MINUTES * booked[d]++);
+            service.scheduleAppointment(patientIds[random.nextInt(patientCount)], doctors[d].getId(), slot, "Follow-up");
+        }
+
+        AssignmentScheduler scheduler = new AssignmentScheduler(service);
+        MutationEvents.register(scheduler);
+        try {
+            report("Before", scheduler);
+
+            int singles = Math.min(walkIns, waiting.size());
+            start = System.nanoTime();
+            for (int i = 0; i < singles; i++) {
+                scheduler.assign(waiting.get(i), SPECIALIZATIONS[i % specializationCount]);
+            }
+            long singleNanos = System.nanoTime() - start;
+            System.out.printf("%nSingle assignments: %,d in %d ms (%,.0f assignments/s)%n",
+                    singles, TimeUnit.NANOSECONDS.toMillis(singleNanos), singles * 1e9 / Math.max(1, singleNanos));
+
+            // The rest of the waiting queue, split by requested specialization, one batch each
+            List<List<Integer>> queues = new ArrayList<>();
+            for (int s = 0; s < specializationCount; s++) {
+                queues.add(new ArrayList<>());
+            }
+            for (int i = singles; i < waiting.size(); i++) {
+                queues.get(i % specializationCount).add(waiting.get(i));
+            }
+            int batched = waiting.size() - singles;
+            start = System.nanoTime();
+            for (int s = 0; s < specializationCount; s++) {
+                scheduler.assignAll(SPECIALIZATIONS[s], queues.get(s));
+            }
+            long batchNanos = System.nanoTime() - start;
+            System.out.printf("Batch assignment:   %,d in %d ms (%,.0f assignments/s)%n",
+                    batched, TimeUnit.NANOSECONDS.toMillis(batchNanos), batched * 1e9 / Math.max(1, batchNanos));
+
+            report("After", scheduler);
+            System.out.printf("%nUnassigned patients left: %,d%n", service.countUnassignedPatients());
+        } finally {
+            MutationEvents.unregister(scheduler);
+        }
+    }
+
+    // Per specialization: min / mean / max load, max/mean and coefficient of variation
+    private static void report(String title, AssignmentScheduler scheduler) {
+        System.out.printf("%n%s: load per doctor (roster + scheduled appointments)%n", title);
+        System.out.printf("  %-14s %8s %10s %8s %9s %7s%n", "specialization", "min", "mean", "max", "max/mean", "cv");
+        for (String specialization : scheduler.getSpecializations()) {
+            List<Doctor> doctors = scheduler.getDoctors(specialization);
+            long sum = 0;
+            double squares = 0;
+            int min = Integer.MAX_VALUE, max = 0;
+            for (Doctor doctor : doctors) {
+                int load = scheduler.getLoad(doctor);
+                sum += load;
+                squares += (double) load * load;
+                min = Math.min(min, load);
+                max = Math.max(max, load);
+            }
+            double mean = (double) sum / doctors.size();
+            double deviation = Math.sqrt(Math.max(0, squares / doctors.size() - mean * mean));
+            System.out.printf("  %-14s %8d %10.1f %8d %9.2f %7.3f%n", specialization, min, mean, max,
+                    mean == 0 ? 0 : max / mean, mean == 0 ? 0 : deviation / mean);
+        }
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
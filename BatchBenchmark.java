@@ -0,0 +1,330 @@
+package com.example;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of the same mixed workload applied three ways: one service call
+ * per operation, as a single {@link CommandBatch}, and as a stream of smaller
+ * batches through a {@link BatchPipeline}. Each configuration runs once in
+ * memory and once with a {@link MutationJournal} in synchronous-commit mode,
+ * where a per-call mutation waits for its own fsync and a batch waits once.
+ *
+ * Mix: 20% registrations, 30% assignments, 25% diagnosis updates, 15% bookings
+ * and 10% status changes of appointments booked earlier in the same batch.
+ * Every run starts from an identical, freshly populated service; the final
+ * counts of each run are compared with the per-call run, and a batch whose last
+ * command fails is checked to leave the service unchanged.
+ *
+ * Run: java -cp bin com.example.BatchBenchmark
+ * Options (system properties):
+ *   -Dbench.ops=100000 -Dbench.batchSize=10000 -Dbench.rounds=3
+ *   -Dbench.journalCallOps=5000   per-call operations timed with the journal (each waits for an fsync)
+ */
+public class BatchBenchmark {
+    private static final int REGISTER = 0, ASSIGN = 1, DIAGNOSIS = 2, SCHEDULE = 3, STATUS = 4;
+    private static final int[] MIX = {20, 30, 25, 15, 10};
+    private static final String[] DIAGNOSES = {"Flu", "Asthma", "Diabetes", "Hypertension", "Migraine", "Fracture"};
+    private static final int EXISTING_PATIENTS = 20_000;
+    private static final int DOCTORS = 200;
+
+    public static void main(String[] args) throws Exception {
+        int ops = Integer.getInteger("bench.ops", 100_000);
+        int batchSize = Integer.getInteger("bench.batchSize", 10_000);
+        int rounds = Integer.getInteger("bench.rounds", 3);
+        int journalCallOps = Math.min(ops, Integer.getInteger("bench.journalCallOps", 5_000));
+        if (ops <= 0 || batchSize <= 0 || rounds <= 0) {
+            System.out.println("❌ bench.ops, bench.batchSize and bench.rounds must be positive");
+            System.exit(1);
+        }
+        Plan plan = new Plan(ops, batchSize, new Random(42));
+        System.out.printf("%,d operations, pipelined in batches of %,d, best of %d rounds%n", ops, batchSize, rounds);
+        System.out.printf("  %-24s %-8s %10s %10s %14s %9s%n", "mode", "journal", "ops", "ms", "ops/s", "speedup");
+
+        boolean ok = true;
+        for (boolean journaled : new boolean[] {false, true}) {
+            int callOps = journaled ? journalCallOps : ops;
+            Run perCall = best(rounds, () -> run(plan, journaled, Mode.PER_CALL, callOps));
+            Run batch = best(rounds, () -> run(plan, journaled, Mode.BATCH, ops));
+            Run pipelined = best(rounds, () -> run(plan, journaled, Mode.PIPELINED, ops));
+            String journal = journaled ? "sync" : "off";
+            row("per call", journal, perCall, perCall);
+            row("one batch", journal, batch, perCall);
+            row("pipelined batches", journal, pipelined, perCall);
+            if (callOps == ops) {
+                ok &= same("one batch", perCall, batch) & same("pipelined batches", perCall, pipelined);
+            }
+        }
+        ok &= rollbackLeavesNoTrace(plan);
+        if (!ok) {
+            System.exit(1);
+        }
+        System.out.println("✓ Batched and per-call runs end in the same state; a rejected batch changes nothing");
+    }
+
+    private enum Mode { PER_CALL, BATCH, PIPELINED }
+
+    private interface Measured {
+        Run run() throws Exception;
+    }
+
+    private static Run best(int rounds, Measured measured) throws Exception {
+        Run best = null;
+        for (int i = 0; i < rounds; i++) {
+            Run run = measured.run();
+            if (best == null || run.nanos < best.nanos) {
+                best = run;
+            }
+        }
+        return best;
+    }
+
+    // Populates a fresh service, then times the first `ops` operations of the plan
+    private static Run run(Plan plan, boolean journaled, Mode mode, int ops) throws Exception {
+        HospitalService service = new HospitalService();
+        int[] patients = new int[EXISTING_PATIENTS];
+        int[] doctors = new int[DOCTORS];
+        populate(service, patients, doctors);
+
+        Path dir = null;
+        MutationJournal journal = null;
+        if (journaled) {
+            dir = Files.createTempDirectory("batch-bench");
+            journal = MutationJournal.open(dir.resolve("bench.journal"), service, true);
+            MutationEvents.register(journal);
+        }
+        long elapsed;
+        try {
+            long start = System.nanoTime();
+            switch (mode) {
+                case PER_CALL -> perCall(service, plan, ops, patients, doctors);
+                case BATCH -> service.execute(plan.batch(0, ops, patients, doctors));
+                case PIPELINED -> {
+                    List<CompletableFuture<CommandBatch.Result>> results = new ArrayList<>();
+                    try (BatchPipeline pipeline = new BatchPipeline(service, 4, 2)) {
+                        for (int from = 0; from < ops; from += plan.batchSize) {
+                            int to = Math.min(ops, from + plan.batchSize);
+                            results.add(pipeline.submit(plan.batch(from, to, patients, doctors)));
+                        }
+                    }
+                    for (CompletableFuture<CommandBatch.Result> result : results) {
+                        result.join();
+                    }
+                }
+            }
+            elapsed = System.nanoTime() - start;
+        } finally {
+            if (journal != null) {
+                MutationEvents.unregister(journal);
+                journal.close();
+                try (Stream<Path> files = Files.list(dir)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+                Files.deleteIfExists(dir);
+            }
+        }
+        return new Run(ops, elapsed, service);
+    }
+
+    private static void populate(HospitalService service, int[] patients, int[] doctors) {
+        for (int i = 0; i < patients.length; i++) {
+            patients[i] = service.registerPatient("Existing Patient " + i, i % 100).getId();
+        }
+        for (int i = 0; i < doctors.length; i++) {
+            doctors[i] = service.registerDoctor("Dr. Bench " + i, i % 2 == 0 ? "Cardiology" : "General").getId();
+        }
+    }
+
+    private static void perCall(HospitalService service, Plan plan, int ops, int[] patients, int[] doctors) {
+        int[] appointmentIds = new int[ops];
+        for (int i = 0; i < ops; i++) {
+            switch (plan.kind[i]) {
+                case REGISTER -> service.registerPatient(plan.name(i), plan.arg[i] % 100);
+                case ASSIGN -> service.assignPatient(patients[plan.arg[i]], doctors[plan.doctor[i]]);
+                case DIAGNOSIS -> service.updateDiagnosis(patients[plan.arg[i]], DIAGNOSES[plan.doctor[i]]);
+                case SCHEDULE -> appointmentIds[i] = service.scheduleAppointment(patients[plan.arg[i]],
+                        doctors[plan.doctor[i]], plan.time(i), "Checkup").getId();
+                default -> service.updateAppointmentStatus(appointmentIds[plan.arg[i]], plan.status(i));
+            }
+        }
+    }
+
+    // Applies the plan's first window as one batch that ends with a second booking of
+    // a slot the batch already took, so the whole batch must be refused
+    private static boolean rollbackLeavesNoTrace(Plan plan) {
+        HospitalService service = new HospitalService();
+        int[] patients = new int[EXISTING_PATIENTS];
+        int[] doctors = new int[DOCTORS];
+        populate(service, patients, doctors);
+        int to = Math.min(plan.kind.length, plan.batchSize);
+        CommandBatch batch = plan.batch(0, to, patients, doctors);
+        int booking = -1;
+        for (int i = 0; i < to && booking < 0; i++) {
+            booking = plan.kind[i] == SCHEDULE ? i : -1;
+        }
+        if (booking < 0) {
+            return true; // nothing to double-book in so small a plan
+        }
+        batch.scheduleAppointment(patients[plan.arg[booking]], doctors[plan.doctor[booking]], plan.time(booking), "Twice");
+        Run before = new Run(0, 0, service);
+        try {
+            service.execute(batch);
+            System.out.println("❌ A batch with a double booking was applied");
+            return false;
+        } catch (IllegalStateException e) {
+            boolean diagnosesUnchanged = true;
+            for (int id : patients) {
+                diagnosesUnchanged &= service.findPatient(id).getDiagnosis().equals("Pending");
+            }
+            if (!diagnosesUnchanged) {
+                System.out.println("❌ A rejected batch changed diagnoses");
+            }
+            return same("rejected batch", before, new Run(0, 0, service)) && diagnosesUnchanged;
+        }
+    }
+
+    private static void row(String mode, String journal, Run run, Run baseline) {
+        System.out.printf("  %-24s %-8s %,10d %,10.1f %,14.0f %8.1fx%n", mode, journal, run.ops, run.nanos / 1e6,
+                run.opsPerSecond(), run.opsPerSecond() / baseline.opsPerSecond());
+    }
+
+    private static boolean same(String mode, Run expected, Run actual) {
+        if (expected.patients == actual.patients && expected.unassigned == actual.unassigned
+                && expected.appointments.equals(actual.appointments)) {
+            return true;
+        }
+        System.out.printf("❌ %s ended with %d patients, %d unassigned, %s; expected %d, %d, %s%n", mode,
+                actual.patients, actual.unassigned, actual.appointments,
+                expected.patients, expected.unassigned, expected.appointments);
+        return false;
+    }
+
+    private static final class Run {
+        final int ops;
+        final long nanos;
+        final int patients;
+        final int unassigned;
+        final Map<AppointmentStatus, Integer> appointments;
+
+        // Times a run and records the counts it ended with
+        Run(int ops, long nanos, HospitalService service) {
+            this.ops = ops;
+            this.nanos = nanos;
+            this.patients = service.getPatients().size();
+            this.unassigned = service.countUnassignedPatients();
+            this.appointments = service.getAppointmentCounts();
+        }
+
+        double opsPerSecond() {
+            return ops / (nanos / 1e9);
+        }
+    }
+
+    /**
+     * The workload, drawn once so every mode applies exactly the same operations.
+     * Status changes only target bookings in the same window of batchSize
+     * operations, so a pipelined batch never depends on an earlier one's ids.
+     */
+    private static final class Plan {
+        final int batchSize;
+        final int[] kind;
+        // Patient index, or for a status change the index of the booking operation
+        final int[] arg;
+        // Doctor index, or diagnosis index for a diagnosis update, or 1 = cancel / 0 = complete for a status change
+        final int[] doctor;
+        final LocalDateTime[] times;
+
+        Plan(int ops, int batchSize, Random random) {
+            this.batchSize = batchSize;
+            this.kind = new int[ops];
+            this.arg = new int[ops];
+            this.doctor = new int[ops];
+            this.times = new LocalDateTime[ops];
+            LocalDateTime base = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+            int[] booked = new int[DOCTORS];
+            int[] open = new int[batchSize];
+            int openCount = 0;
+            for (int i = 0; i < ops; i++) {
+                if (i % batchSize == 0) {
+                    openCount = 0;
+                }
+                int k = pick(random.nextInt(100));
+                if (k == STATUS && openCount == 0) {
+                    k = DIAGNOSIS;
+                }
+                kind[i] = k;
+                switch (k) {
+                    case REGISTER -> arg[i] = i;
+                    case ASSIGN -> {
+                        arg[i] = random.nextInt(EXISTING_PATIENTS);
+                        doctor[i] = random.nextInt(DOCTORS);
+                    }
+                    case DIAGNOSIS -> {
+                        arg[i] = random.nextInt(EXISTING_PATIENTS);
+                        doctor[i] = random.nextInt(DIAGNOSES.length);
+                    }
+                    case SCHEDULE -> {
+                        arg[i] = random.nextInt(EXISTING_PATIENTS);
+                        doctor[i] = random.nextInt(DOCTORS);
+                        times[i] = base.plusMinutes((long) AppointmentTimeline.SLOT_MINUTES * booked[doctor[i]]++);
+                        open[openCount++] = i;
+                    }
+                    default -> {
+                        // Close a random open booking of this window
+                        int at = random.nextInt(openCount);
+                        arg[i] = open[at];
+                        open[at] = open[--openCount];
+                        doctor[i] = random.nextInt(2);
+                    }
+                }
+            }
+        }
+
+        String name(int i) {
+            return "New Patient " + i;
+        }
+
+        LocalDateTime time(int i) {
+            return times[i];
+        }
+
+        AppointmentStatus status(int i) {
+            return doctor[i] == 1 ? AppointmentStatus.CANCELLED : AppointmentStatus.COMPLETED;
+        }
+
+        CommandBatch batch(int from, int to, int[] patients, int[] doctors) {
+            CommandBatch batch = new CommandBatch(to - from);
+            int[] refs = new int[to - from];
+            for (int i = from; i < to; i++) {
+                switch (kind[i]) {
+                    case REGISTER -> batch.registerPatient(name(i), arg[i] % 100);
+                    case ASSIGN -> batch.assignPatient(patients[arg[i]], doctors[doctor[i]]);
+                    case DIAGNOSIS -> batch.updateDiagnosis(patients[arg[i]], DIAGNOSES[doctor[i]]);
+                    case SCHEDULE -> refs[i - from] = batch.scheduleAppointment(patients[arg[i]], doctors[doctor[i]],
+                            time(i), "Checkup");
+                    default -> batch.updateAppointmentStatus(refs[arg[i] - from], status(i));
+                }
+            }
+            return batch;
+        }
+
+        private static int pick(int roll) {
+            for (int i = 0; i < MIX.length; i++) {
+                roll -= MIX[i];
+                if (roll < 0) {
+                    return i;
+                }
+            }
+            return MIX.length - 1;
+        }
+    }
+}
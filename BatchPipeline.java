@@ -0,0 +1,139 @@
+package com.example;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs {@link CommandBatch}es through a {@link HospitalService} without making
+ * the caller wait for each result.
+ *
+ * {@link #submit} returns a future at once. Each batch is prepared (ids resolved,
+ * new entities built and validated) on a pool thread, so several batches can be
+ * prepared in parallel, while one committer thread checks and applies them
+ * strictly in submission order. Each batch is still all-or-nothing; a rejected
+ * batch completes its future exceptionally and the batches after it go ahead.
+ * At most {@code maxInFlight} batches are pending; {@code submit} blocks
+ * beyond that, so a fast producer cannot queue unbounded work.
+ */
+public class BatchPipeline implements AutoCloseable {
+    private static final Pending END = new Pending(null, null);
+
+    private final HospitalService service;
+    private final ExecutorService preparers;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Semaphore slots;
+    private final Thread committer;
+    private boolean closed;
+
+    /**
+     * @param maxInFlight batches that may be submitted but not yet applied
+     * @param prepareThreads threads preparing batches ahead of the committer
+     */
+    public BatchPipeline(HospitalService service, int maxInFlight, int prepareThreads) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        if (maxInFlight <= 0 || prepareThreads <= 0) {
+            throw new IllegalArgumentException("In-flight batches and prepare threads must be positive");
+        }
+        this.service = service;
+        this.slots = new Semaphore(maxInFlight);
+        this.preparers = Executors.newFixedThreadPool(prepareThreads, r -> {
+            Thread t = new Thread(r, "batch-prepare");
+            t.setDaemon(true);
+            return t;
+        });
+        this.committer = new Thread(this::commitLoop, "batch-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Queues a batch behind those already submitted.
+     * @return completes with the batch's result once it is applied, or with the
+     *         exception {@link HospitalService#execute} would have thrown
+     * @throws InterruptedException if interrupted while waiting for a free slot
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public CompletableFuture<CommandBatch.Result> submit(CommandBatch batch) throws InterruptedException {
+        if (batch == null) {
+            throw new IllegalArgumentException("Batch cannot be null");
+        }
+        slots.acquire();
+        synchronized (this) {
+            if (closed) {
+                slots.release();
+                throw new IllegalStateException("Pipeline is closed");
+            }
+            Pending pending = new Pending(CompletableFuture.supplyAsync(() -> service.prepare(batch), preparers),
+                    new CompletableFuture<>());
+            queue.add(pending);
+            return pending.result;
+        }
+    }
+
+    private void commitLoop() {
+        while (true) {
+            Pending pending;
+            try {
+                pending = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (pending == END) {
+                return;
+            }
+            try {
+                pending.result.complete(service.commit(pending.prepared.join()));
+            } catch (CompletionException e) {
+                pending.result.completeExceptionally(e.getCause());
+            } catch (RuntimeException e) {
+                pending.result.completeExceptionally(e);
+            } finally {
+                slots.release();
+            }
+        }
+    }
+
+    /**
+     * Stops accepting batches and waits until every submitted one has been applied.
+     * An interrupt does not cut the wait short; it is restored once the batches are in.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(END);
+        }
+        boolean interrupted = false;
+        while (committer.isAlive()) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        preparers.shutdown();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Pending {
+        final CompletableFuture<CommandBatch.Prepared> prepared;
+        final CompletableFuture<CommandBatch.Result> result;
+
+        Pending(CompletableFuture<CommandBatch.Prepared> prepared, CompletableFuture<CommandBatch.Result> result) {
+            this.prepared = prepared;
+            this.result = result;
+        }
+    }
+}
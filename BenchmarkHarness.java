@@ -0,0 +1,197 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal, dependency-free micro-benchmark harness.
+ *
+ * Each benchmark runs timed warm-up rounds, then several measurement rounds;
+ * the score is the mean time per operation across rounds (like JMH's
+ * average-time mode) and the error is the standard deviation between rounds.
+ * Results are written as JSON in the same shape as JMH's JSON output so they
+ * can be diffed against a saved baseline in regression runs.
+ */
+public class BenchmarkHarness {
+    private static final Pattern RESULT = Pattern.compile(
+            "\"benchmark\"\\s*:\\s*\"([^\"]*)\".*?\"params\"\\s*:\\s*\\{([^}]*)\\}.*?\"score\"\\s*:\\s*([0-9.eE+-]+)",
+            Pattern.DOTALL);
+
+    private final int warmupRounds;
+    private final int measureRounds;
+    private final long roundNanos;
+    private final List<Result> results = new ArrayList<>();
+    private int sink;
+
+    /**
+     * @param warmupRounds rounds run before measuring
+     * @param measureRounds rounds that contribute to the score
+     * @param roundMillis minimum duration of each round
+     */
+    public BenchmarkHarness(int warmupRounds, int measureRounds, long roundMillis) {
+        if (warmupRounds < 0 || measureRounds <= 0 || roundMillis <= 0) {
+            throw new IllegalArgumentException("Invalid benchmark settings");
+        }
+        this.warmupRounds = warmupRounds;
+        this.measureRounds = measureRounds;
+        this.roundNanos = roundMillis * 1_000_000L;
+    }
+
+    /**
+     * Measures an operation. The operation's return value is consumed so the
+     * JIT cannot eliminate the work.
+     * @param name benchmark name
+     * @param params parameters shown with the result (e.g. dataset size)
+     * @param op one operation
+     * @return the recorded result
+     */
+    public Result run(String name, Map<String, String> params, IntSupplier op) {
+        for (int i = 0; i < warmupRounds; i++) {
+            round(op);
+        }
+        double[] scores = new double[measureRounds];
+        double sum = 0;
+        for (int i = 0; i < measureRounds; i++) {
+            scores[i] = round(op);
+            sum += scores[i];
+        }
+        double mean = sum / measureRounds;
+        double variance = 0;
+        for (double s : scores) {
+            variance += (s - mean) * (s - mean);
+        }
+        double error = measureRounds > 1 ? Math.sqrt(variance / (measureRounds - 1)) : 0;
+        // Sorted so that the JSON, and therefore baseline keys, do not depend on map order
+        Result result = new Result(name, new TreeMap<>(params), mean, error);
+        results.add(result);
+        System.out.printf(Locale.ROOT, "%-36s %-30s %14.1f +/- %10.1f ns/op%n", name, params, mean, error);
+        return result;
+    }
+
+    // Runs the operation repeatedly for at least one round duration; returns ns/op
+    private double round(IntSupplier op) {
+        long ops = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            for (int i = 0; i < 64; i++) {
+                sink += op.getAsInt();
+            }
+            ops += 64;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < roundNanos);
+        return (double) elapsed / ops;
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    /**
+     * Writes all results as a JMH-style JSON array.
+     */
+    public void writeJson(Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            out.write("[\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                out.write("  {\n");
+                out.write("    \"benchmark\" : \"" + escape(r.name) + "\",\n");
+                out.write("    \"mode\" : \"avgt\",\n");
+                out.write("    \"params\" : {");
+                int p = 0;
+                for (Map.Entry<String, String> e : r.params.entrySet()) {
+                    out.write((p++ > 0 ? ", " : " ") + "\"" + escape(e.getKey()) + "\" : \"" + escape(e.getValue()) + "\"");
+                }
+                out.write(" },\n");
+                out.write("    \"primaryMetric\" : {\n");
+                out.write(String.format(Locale.ROOT, "      \"score\" : %.3f,%n", r.score));
+                out.write(String.format(Locale.ROOT, "      \"scoreError\" : %.3f,%n", r.error));
+                out.write("      \"scoreUnit\" : \"ns/op\"\n");
+                out.write("    }\n");
+                out.write(i + 1 < results.size() ? "  },\n" : "  }\n");
+            }
+            out.write("]\n");
+        }
+        if (sink == 42) {
+            System.out.print(""); // keep benchmark results live
+        }
+    }
+
+    /**
+     * Compares the results with a baseline JSON file written by {@link #writeJson}.
+     * @param tolerance allowed slowdown, e.g. 0.10 for 10%
+     * @return number of benchmarks slower than the baseline by more than the tolerance
+     */
+    public int compareWithBaseline(Path baseline, double tolerance) throws IOException {
+        Map<String, Double> previous = new LinkedHashMap<>();
+        Matcher m = RESULT.matcher(Files.readString(baseline, StandardCharsets.UTF_8));
+        while (m.find()) {
+            previous.put(m.group(1) + " {" + m.group(2).replaceAll("\\s", "") + "}", Double.parseDouble(m.group(3)));
+        }
+        int regressions = 0;
+        System.out.println("\nComparison with baseline " + baseline + ":");
+        for (Result r : results) {
+            Double before = previous.get(r.key());
+            if (before == null) {
+                System.out.printf("  %-70s new%n", r.key());
+                continue;
+            }
+            double change = (r.score - before) / before;
+            boolean regressed = change > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf(Locale.ROOT, "  %-70s %+7.1f%%%s%n", r.key(), change * 100, regressed ? "  REGRESSION" : "");
+        }
+        return regressions;
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * One benchmark result: mean ns/op and its standard deviation across rounds.
+     */
+    public static final class Result {
+        final String name;
+        final Map<String, String> params;
+        final double score;
+        final double error;
+
+        Result(String name, Map<String, String> params, double score, double error) {
+            this.name = name;
+            this.params = params;
+            this.score = score;
+            this.error = error;
+        }
+
+        public String getName() { return name; }
+        public double getScore() { return score; }
+        public double getError() { return error; }
+
+        // Matches the key built from the baseline file
+        String key() {
+            StringBuilder sb = new StringBuilder(name).append(" {");
+            int p = 0;
+            for (Map.Entry<String, String> e : params.entrySet()) {
+                sb.append(p++ > 0 ? "," : "").append('"').append(escape(e.getKey())).append("\":\"")
+                        .append(escape(e.getValue())).append('"');
+            }
+            return sb.append('}').toString();
+        }
+    }
+}
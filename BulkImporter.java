@@ -0,0 +1,636 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams patients, doctors, assignments and appointments from a CSV or
+ * JSON-lines file into a {@link HospitalService}.
+ *
+ * CSV rows start with the record type (a header row starting with "type",
+ * blank lines and lines starting with '#' are skipped; fields may be quoted):
+ * <pre>
+ * patient,key,name,age[,diagnosis]
+ * doctor,key,name[,specialization]
+ * assign,patientKey,doctorKey
+ * appointment,patientKey,doctorKey,yyyy-MM-dd HH:mm,purpose
+ * </pre>
+ * JSON lines are flat objects with the same field names, e.g.
+ * {@code {"type":"patient","key":"P1","name":"Ann Lee","age":42}}.
+ * Keys are the source system's identifiers; assignments and appointments
+ * refer to patients and doctors defined earlier in the same file.
+ *
+ * The reader hands chunks of lines to a thread pool, where they are parsed and
+ * validated with {@link InputValidator}. Chunks are then applied in file order
+ * on the calling thread, each as one journal batch; patients and doctors are
+ * built there, so their IDs follow file order and a row rejected for a
+ * duplicate key takes no ID.
+ * Rows that fail validation are written to a rejects file, preceded by a
+ * comment with the line number and reason, so the file can be fixed and
+ * imported again.
+ */
+public class BulkImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    private static final int PROGRESS_INTERVAL = 100_000;
+
+    /**
+     * Receives progress updates while an import runs.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(long rows, long rejected);
+    }
+
+    private final HospitalService service;
+    private final int threads;
+    private final int chunkSize;
+    private final Map<String, Integer> patientKeys = new HashMap<>();
+    private final Map<String, Integer> doctorKeys = new HashMap<>();
+
+    public BulkImporter(HospitalService service) {
+        this(service, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param threads number of parsing threads
+     * @param chunkSize lines per parsing task
+     */
+    public BulkImporter(HospitalService service, int threads, int chunkSize) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        if (threads <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Thread count and chunk size must be positive");
+        }
+        this.service = service;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Default rejects file: the input path with ".rejects" appended.
+     */
+    public static Path rejectsPathFor(Path input) {
+        return Paths.get(input.toString() + ".rejects");
+    }
+
+    /**
+     * Imports a file; files ending in .jsonl, .ndjson or .json are read as JSON lines, others as CSV.
+     * @param progress optional listener, called about every 100,000 rows
+     * @return the import counts
+     * @throws IOException if the input cannot be read or the rejects file cannot be written
+     */
+    public Result importFile(Path input, Path rejects, ProgressListener progress) throws IOException {
+        String fileName = input.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean json = fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson") || fileName.endsWith(".json");
+        long start = System.nanoTime();
+        Result result = new Result();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "bulk-import");
+            t.setDaemon(true);
+            return t;
+        });
+        try (BufferedReader in = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter rejectsOut = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8)) {
+            ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstLine = 1;
+            long lineNumber = 0;
+            long nextReport = PROGRESS_INTERVAL;
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                lines.add(line);
+                if (lines.size() == chunkSize) {
+                    inFlight.add(submit(pool, lines, firstLine, json));
+                    lines = new ArrayList<>(chunkSize);
+                    firstLine = lineNumber + 1;
+                    // Bound the lines held in memory: apply the oldest chunk before reading on
+                    if (inFlight.size() >= threads * 2) {
+                        apply(await(inFlight.poll()), result, rejectsOut);
+                    }
+                }
+                if (progress != null && result.rows >= nextReport) {
+                    progress.progress(result.rows, result.rejected);
+                    nextReport = result.rows + PROGRESS_INTERVAL;
+                }
+            }
+            if (!lines.isEmpty()) {
+                inFlight.add(submit(pool, lines, firstLine, json));
+            }
+            while (!inFlight.isEmpty()) {
+                apply(await(inFlight.poll()), result, rejectsOut);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        if (progress != null) {
+            progress.progress(result.rows, result.rejected);
+        }
+        return result;
+    }
+
+    private Future<Chunk> submit(ExecutorService pool, List<String> lines, long firstLine, boolean json) {
+        return pool.submit(() -> parse(lines, firstLine, json));
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // Parsing and validation, run on the pool
+
+    private static Chunk parse(List<String> lines, long firstLine, boolean json) {
+        Chunk chunk = new Chunk();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            long lineNumber = firstLine + i;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            try {
+                String[] fields = json ? JsonLine.toFields(trimmed) : splitCsv(line);
+                String type = fields[0].trim().toLowerCase(Locale.ROOT);
+                if (type.equals("type")) {
+                    continue; // header
+                }
+                chunk.rows++;
+                Row row = new Row(lineNumber, line, fields);
+                switch (type) {
+                    case "patient" -> {
+                        require(fields, 4, "patient,key,name,age[,diagnosis]");
+                        long age = InputValidator.tryParseInt(fields[3]);
+                        if (!InputValidator.isValidAge(age)) {
+                            throw new IllegalArgumentException("Invalid age '" + fields[3].trim() + "'");
+                        }
+                        if (!InputValidator.isValidString(fields[2])) {
+                            throw new IllegalArgumentException("Patient name cannot be null or empty");
+                        }
+                        row.number = (int) age;
+                        String diagnosis = field(fields, 4);
+                        row.diagnosis = InputValidator.isValidString(diagnosis) ? diagnosis.trim() : null;
+                        chunk.patients.add(row);
+                    }
+                    case "doctor" -> {
+                        require(fields, 3, "doctor,key,name[,specialization]");
+                        if (!InputValidator.isValidString(fields[2])) {
+                            throw new IllegalArgumentException("Doctor name cannot be null or empty");
+                        }
+                        chunk.doctors.add(row);
+                    }
+                    case "assign" -> {
+                        require(fields, 3, "assign,patientKey,doctorKey");
+                        requireKeys(fields);
+                        chunk.assignments.add(row);
+                    }
+                    case "appointment" -> {
+                        require(fields, 5, "appointment,patientKey,doctorKey,time,purpose");
+                        requireKeys(fields);
+                        LocalDateTime time = InputValidator.parseDateTime(fields[3]);
+                        if (time == null) {
+                            throw new IllegalArgumentException("Invalid time '" + fields[3].trim() + "' (expected yyyy-MM-dd HH:mm)");
+                        }
+                        if (time.isBefore(LocalDateTime.now())) {
+                            throw new IllegalArgumentException("Appointment time must be in the future");
+                        }
+                        if (!InputValidator.isValidString(fields[4])) {
+                            throw new IllegalArgumentException("Appointment purpose cannot be empty");
+                        }
+                        row.time = time;
+                        chunk.appointments.add(row);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown record type '" + fields[0].trim() + "'");
+                }
+            } catch (IllegalArgumentException e) {
+                chunk.rejects.add(new Reject(lineNumber, line, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    private static void require(String[] fields, int count, String layout) {
+        if (fields.length < count) {
+            throw new IllegalArgumentException("Expected " + layout);
+        }
+    }
+
+    private static void requireKeys(String[] fields) {
+        if (!InputValidator.isValidString(fields[1]) || !InputValidator.isValidString(fields[2])) {
+            throw new IllegalArgumentException("Patient and doctor keys cannot be empty");
+        }
+    }
+
+    private static String field(String[] fields, int index) {
+        return index < fields.length ? fields[index] : null;
+    }
+
+    // Application, on the calling thread in file order
+
+    private void apply(Chunk chunk, Result result, BufferedWriter rejectsOut) throws IOException {
+        List<Reject> rejects = chunk.rejects;
+        MutationEvents.batchStarted();
+        try {
+            List<Patient> patients = new ArrayList<>(chunk.patients.size());
+            List<Row> diagnosed = new ArrayList<>();
+            for (Row row : chunk.patients) {
+                if (!isDuplicateKey(patientKeys, row, rejects)) {
+                    // The rows were validated while parsing; built here so IDs follow file order
+                    row.patient = new Patient(row.fields[2], row.number);
+                    addKey(patientKeys, row, row.patient.getId());
+                    patients.add(row.patient);
+                    if (row.diagnosis != null) {
+                        diagnosed.add(row);
+                    }
+                }
+            }
+            service.restorePatients(patients);
+            result.patients += patients.size();
+            // Set after registration so the change is journaled like any other diagnosis update
+            for (Row row : diagnosed) {
+                service.updateDiagnosis(row.patient.getId(), row.diagnosis);
+            }
+
+            List<Doctor> doctors = new ArrayList<>(chunk.doctors.size());
+            for (Row row : chunk.doctors) {
+                if (!isDuplicateKey(doctorKeys, row, rejects)) {
+                    row.doctor = new Doctor(row.fields[2], field(row.fields, 3));
+                    addKey(doctorKeys, row, row.doctor.getId());
+                    doctors.add(row.doctor);
+                }
+            }
+            service.restoreDoctors(doctors);
+            result.doctors += doctors.size();
+
+            for (Row row : chunk.assignments) {
+                try {
+                    service.assignPatient(resolve(patientKeys, row.fields[1], "patient"),
+                            resolve(doctorKeys, row.fields[2], "doctor"));
+                    result.assignments++;
+                } catch (IllegalArgumentException e) {
+                    rejects.add(new Reject(row.lineNumber, row.line, e.getMessage()));
+                }
+            }
+            for (Row row : chunk.appointments) {
+                try {
+                    service.scheduleAppointment(resolve(patientKeys, row.fields[1], "patient"),
+                            resolve(doctorKeys, row.fields[2], "doctor"), row.time, row.fields[4]);
+                    result.appointments++;
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    rejects.add(new Reject(row.lineNumber, row.line, e.getMessage()));
+                }
+            }
+        } finally {
+            MutationEvents.batchFinished();
+        }
+        rejects.sort((a, b) -> Long.compare(a.lineNumber, b.lineNumber));
+        for (Reject reject : rejects) {
+            rejectsOut.write("# line " + reject.lineNumber + ": " + reject.reason);
+            rejectsOut.newLine();
+            rejectsOut.write(reject.line);
+            rejectsOut.newLine();
+        }
+        result.rows += chunk.rows;
+        result.rejected += rejects.size();
+    }
+
+    // A blank key is allowed (the entity just cannot be referenced); a repeated key is rejected
+    private static boolean isDuplicateKey(Map<String, Integer> keys, Row row, List<Reject> rejects) {
+        String key = key(row);
+        if (!key.isEmpty() && keys.containsKey(key)) {
+            rejects.add(new Reject(row.lineNumber, row.line, "Duplicate key '" + key + "'"));
+            return true;
+        }
+        return false;
+    }
+
+    private static void addKey(Map<String, Integer> keys, Row row, int id) {
+        String key = key(row);
+        if (!key.isEmpty()) {
+            keys.put(key, id);
+        }
+    }
+
+    private static String key(Row row) {
+        return row.fields[1].trim();
+    }
+
+    private static int resolve(Map<String, Integer> keys, String key, String kind) {
+        Integer id = keys.get(key.trim());
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown " + kind + " key '" + key.trim() + "'");
+        }
+        return id;
+    }
+
+    /**
+     * Splits one CSV line; quoted fields may contain commas and doubled quotes.
+     * @throws IllegalArgumentException on an unterminated quote
+     */
+    static String[] splitCsv(String line) {
+        if (line.indexOf('"') < 0) {
+            return splitPlain(line);
+        }
+        List<String> fields = new ArrayList<>(6);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    // Fast path for the common unquoted line: count the commas, then cut substrings
+    private static String[] splitPlain(String line) {
+        int count = 1;
+        for (int i = line.indexOf(','); i >= 0; i = line.indexOf(',', i + 1)) {
+            count++;
+        }
+        String[] fields = new String[count];
+        int start = 0;
+        for (int f = 0; f < count - 1; f++) {
+            int comma = line.indexOf(',', start);
+            fields[f] = line.substring(start, comma);
+            start = comma + 1;
+        }
+        fields[count - 1] = line.substring(start);
+        return fields;
+    }
+
+    /**
+     * Counts of one import run.
+     */
+    public static final class Result {
+        long rows;
+        long rejected;
+        long patients;
+        long doctors;
+        long assignments;
+        long appointments;
+        long elapsedNanos;
+
+        public long getRows() { return rows; }
+        public long getRejected() { return rejected; }
+        public long getPatients() { return patients; }
+        public long getDoctors() { return doctors; }
+        public long getAssignments() { return assignments; }
+        public long getAppointments() { return appointments; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public long getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000L / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows in %d ms (%d rows/s): %d patients, %d doctors, %d assignments, "
+                            + "%d appointments, %d rejected",
+                    rows, getElapsedMillis(), getRowsPerSecond(), patients, doctors, assignments, appointments, rejected);
+        }
+    }
+
+    private static final class Chunk {
+        int rows;
+        final List<Row> patients = new ArrayList<>();
+        final List<Row> doctors = new ArrayList<>();
+        final List<Row> assignments = new ArrayList<>();
+        final List<Row> appointments = new ArrayList<>();
+        final List<Reject> rejects = new ArrayList<>();
+    }
+
+    private static final class Row {
+        final long lineNumber;
+        final String line;
+        final String[] fields;
+        int number;
+        LocalDateTime time;
+        String diagnosis;
+        Patient patient;
+        Doctor doctor;
+
+        Row(long lineNumber, String line, String[] fields) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.fields = fields;
+        }
+    }
+
+    private static final class Reject {
+        final long lineNumber;
+        final String line;
+        final String reason;
+
+        Reject(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+    }
+
+    /**
+     * Minimal parser for flat JSON objects with string, number, boolean and null
+     * values, mapped onto the CSV field layout of the record type.
+     */
+    static final class JsonLine {
+        private static final Map<String, String[]> COLUMNS = Map.of(
+                "patient", new String[] {"type", "key", "name", "age", "diagnosis"},
+                "doctor", new String[] {"type", "key", "name", "specialization"},
+                "assign", new String[] {"type", "patient", "doctor"},
+                "appointment", new String[] {"type", "patient", "doctor", "time", "purpose"});
+
+        private final String s;
+        private int pos;
+
+        private JsonLine(String s) {
+            this.s = s;
+        }
+
+        /**
+         * Parses one flat JSON object into field values (numbers and booleans as
+         * their literal text, null as absent).
+         */
+        static Map<String, String> parseObject(String json) {
+            return new JsonLine(json).object();
+        }
+
+        static String[] toFields(String line) {
+            Map<String, String> values = new JsonLine(line).object();
+            String type = values.get("type");
+            if (type == null) {
+                throw new IllegalArgumentException("Missing \"type\"");
+            }
+            String[] columns = COLUMNS.get(type.trim().toLowerCase(Locale.ROOT));
+            if (columns == null) {
+                return new String[] {type};
+            }
+            // Trailing absent fields are dropped so the CSV arity checks apply unchanged
+            int length = columns.length;
+            while (length > 1 && values.get(columns[length - 1]) == null) {
+                length--;
+            }
+            String[] fields = new String[length];
+            for (int i = 0; i < length; i++) {
+                String value = values.get(columns[i]);
+                fields[i] = value == null ? "" : value;
+            }
+            return fields;
+        }
+
+        private Map<String, String> object() {
+            Map<String, String> values = new HashMap<>();
+            expect('{');
+            skipSpace();
+            if (peek() == '}') {
+                pos++;
+            } else {
+                while (true) {
+                    skipSpace();
+                    String name = string();
+                    skipSpace();
+                    expect(':');
+                    skipSpace();
+                    values.put(name, value());
+                    skipSpace();
+                    char c = next();
+                    if (c == '}') {
+                        break;
+                    }
+                    if (c != ',') {
+                        throw new IllegalArgumentException("Malformed JSON at column " + pos);
+                    }
+                }
+            }
+            skipSpace();
+            if (pos != s.length()) {
+                throw new IllegalArgumentException("Unexpected content after JSON object");
+            }
+            return values;
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            int start = pos;
+            while (pos < s.length() && ",} \t".indexOf(s.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = s.substring(start, pos);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty() || c == '{' || c == '[') {
+                throw new IllegalArgumentException("Only flat JSON objects are supported");
+            }
+            return literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = next();
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 't' -> sb.append('\t');
+                    case 'r' -> sb.append('\r');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) {
+                            throw new IllegalArgumentException("Malformed JSON escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException ex) {
+                            throw new IllegalArgumentException("Malformed JSON escape");
+                        }
+                        pos += 4;
+                    }
+                    default -> sb.append(e); // \" \\ \/
+                }
+            }
+        }
+
+        private void skipSpace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= s.length()) {
+                throw new IllegalArgumentException("Unexpected end of JSON");
+            }
+            return s.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw new IllegalArgumentException("Malformed JSON: expected '" + c + "' at column " + pos);
+            }
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures {@link RecordCache} on a skewed front-desk mix: rendering patients,
+ * doctors and appointments, name searches and roster pages, with 1% of the
+ * operations changing diagnoses, assignments and appointment statuses.
+ * Nine lookups in ten go to the hottest 1% of the records.
+ *
+ * Each kind of read is first timed on its own, then the whole sequence runs,
+ * once without the cache and once with it. Afterwards every cached record,
+ * search and roster is compared with a fresh one, and the
+ * size and time-to-live eviction of {@link LruCache} is checked with a fake clock.
+ * Exits with status 1 if a check fails.
+ *
+ * Run: java -cp bin com.example.CacheBenchmark [-Dbench.patients=100000] [-Dbench.ops=300000]
+ */
+public class CacheBenchmark {
+    private static final int PATIENTS = Integer.getInteger("bench.patients", 100_000);
+    private static final int DOCTORS = 200;
+    private static final int APPOINTMENTS = 20_000;
+    private static final int OPS = Integer.getInteger("bench.ops", 300_000);
+    private static final int ROSTER_PAGE = 20;
+    private static final String[] TERMS = {"smith", "an", "Olivia Ngu", "son", "Emma", "Patel", "mok", "Aisha K"};
+
+    // Operation codes; the reads come first and are timed separately
+    private static final int PATIENT = 0, DOCTOR = 1, APPOINTMENT = 2, SEARCH = 3, ROSTER = 4,
+            DIAGNOSIS = 5, ASSIGN = 6, STATUS = 7;
+    private static final String[] KINDS = {"patient", "doctor", "appt", "search", "roster"};
+    // Calls per timed read, by kind; an uncached search of a short term takes milliseconds
+    private static final int[] READ_ITERATIONS = {500_000, 500_000, 500_000, 300, 20_000};
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        int[][] ops = workload(new Random(7));
+        StringBuilder header = new StringBuilder(String.format(Locale.ROOT, "%-10s", "ns/op"));
+        for (String kind : KINDS) {
+            header.append(String.format(Locale.ROOT, " %10s", kind));
+        }
+        System.out.printf(Locale.ROOT, "%s %12s %10s%n", header, "mix ops/s", "hit rate");
+        // Each read is timed alone on a skewed target sequence, then the mix with its writes runs
+        // Both runs apply the same mutations, so each gets its own copy of the data
+        run("uncached", new Data(), ops, null);
+        Data data = new Data();
+        RecordCache cache = new RecordCache(data.service, 10_000, 1_000, Duration.ofMinutes(5));
+        MutationEvents.register(cache);
+        try {
+            run("cached", data, ops, cache);
+            verify(data, cache);
+        } finally {
+            MutationEvents.unregister(cache);
+        }
+        checkEviction();
+
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    /** A service filled with assigned patients and scheduled appointments. */
+    private static final class Data {
+        final HospitalService service = new HospitalService();
+        final List<Patient> patients = new ArrayList<>(PATIENTS);
+        final List<Doctor> doctors = new ArrayList<>(DOCTORS);
+        final List<Appointment> appointments = new ArrayList<>(APPOINTMENTS);
+
+        Data() {
+            for (Patient p : SearchBenchmark.generate(PATIENTS, new Random(42))) {
+                patients.add(service.registerPatient(p.getName(), p.getAge()));
+            }
+            for (int i = 0; i < DOCTORS; i++) {
+                doctors.add(service.registerDoctor("Dr. Doctor " + i, "General"));
+            }
+            for (int i = 0; i < PATIENTS; i++) {
+                service.assignPatient(patients.get(i).getId(), doctors.get(i % DOCTORS).getId());
+            }
+            LocalDateTime start = LocalDateTime.now().plusDays(1).withMinute(0).withSecond(0).withNano(0);
+            for (int i = 0; i < APPOINTMENTS; i++) {
+                appointments.add(service.scheduleAppointment(patients.get(i).getId(), doctors.get(i % DOCTORS).getId(),
+                        start.plusHours(i / DOCTORS), "Checkup"));
+            }
+        }
+    }
+
+    /**
+     * Builds the operation sequence: {code, target, doctor} triples, where the
+     * target is an index into the patient, doctor, appointment or term list and
+     * the doctor is where an assignment moves the patient.
+     */
+    private static int[][] workload(Random random) {
+        int[][] ops = new int[OPS][];
+        int nextAppointment = 0;
+        for (int i = 0; i < OPS; i++) {
+            int roll = random.nextInt(100);
+            int code;
+            if (roll == 0) {
+                code = DIAGNOSIS + random.nextInt(3);
+            } else if (roll < 60) {
+                code = PATIENT;
+            } else if (roll < 75) {
+                code = DOCTOR;
+            } else if (roll < 85) {
+                code = APPOINTMENT;
+            } else if (roll < 95) {
+                code = SEARCH;
+            } else {
+                code = ROSTER;
+            }
+            // Each appointment changes status once
+            int target = code == STATUS ? nextAppointment++ % APPOINTMENTS : target(random, code);
+            ops[i] = new int[] {code, target, random.nextInt(DOCTORS)};
+        }
+        return ops;
+    }
+
+    private static int target(Random random, int code) {
+        return switch (code) {
+            case PATIENT, DIAGNOSIS, ASSIGN -> skewed(random, PATIENTS);
+            case DOCTOR, ROSTER -> skewed(random, DOCTORS);
+            case APPOINTMENT -> skewed(random, APPOINTMENTS);
+            default -> random.nextInt(TERMS.length);
+        };
+    }
+
+    // 90% of the picks land in the first 1% of the range
+    private static int skewed(Random random, int size) {
+        int hot = Math.max(1, size / 100);
+        return random.nextInt(10) < 9 ? random.nextInt(hot) : random.nextInt(size);
+    }
+
+    private static void run(String mode, Data data, int[][] ops, RecordCache cache) {
+        StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%-10s", mode));
+        Random random = new Random(11);
+        for (int kind = 0; kind < KINDS.length; kind++) {
+            int[] targets = new int[1 << 16];
+            for (int i = 0; i < targets.length; i++) {
+                targets[i] = target(random, kind);
+            }
+            int code = kind;
+            int[] next = {0};
+            row.append(String.format(Locale.ROOT, " %10d", SearchBenchmark.time(READ_ITERATIONS[kind],
+                    () -> read(code, targets[next[0]++ & (targets.length - 1)], data, cache))));
+        }
+
+        long[] before = totals(cache);
+        long startNanos = System.nanoTime();
+        for (int[] op : ops) {
+            if (op[0] < KINDS.length) {
+                read(op[0], op[1], data, cache);
+            } else {
+                mutate(op, data);
+            }
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long[] after = totals(cache);
+        String hitRate = cache == null ? "-"
+                : String.format(Locale.ROOT, "%.1f%%", 100.0 * (after[0] - before[0]) / (after[1] - before[1]));
+        System.out.printf(Locale.ROOT, "%s %12.0f %10s%n", row, ops.length / seconds, hitRate);
+        if (cache != null) {
+            print("records", cache.getRecords());
+            print("searches", cache.getSearches());
+            print("rosters", cache.getRosters());
+        }
+    }
+
+    // Hits and lookups over the three caches
+    private static long[] totals(RecordCache cache) {
+        long[] totals = new long[2];
+        if (cache != null) {
+            for (LruCache<?, ?> c : List.of(cache.getRecords(), cache.getSearches(), cache.getRosters())) {
+                totals[0] += c.getHits();
+                totals[1] += c.getHits() + c.getMisses();
+            }
+        }
+        return totals;
+    }
+
+    private static int read(int code, int target, Data data, RecordCache cache) {
+        return switch (code) {
+            case PATIENT -> render(cache, data.patients.get(target)).length();
+            case DOCTOR -> render(cache, data.doctors.get(target)).length();
+            case APPOINTMENT -> render(cache, data.appointments.get(target)).length();
+            case SEARCH -> (cache == null ? data.service.searchPatients(TERMS[target])
+                    : cache.searchPatients(TERMS[target])).size();
+            default -> {
+                Doctor doctor = data.doctors.get(target);
+                List<Patient> roster = cache == null ? data.service.getAssignedPatients(doctor)
+                        : cache.getAssignedPatients(doctor);
+                int length = 0;
+                for (int i = 0; i < Math.min(ROSTER_PAGE, roster.size()); i++) {
+                    length += render(cache, roster.get(i)).length();
+                }
+                yield length;
+            }
+        };
+    }
+
+    private static void mutate(int[] op, Data data) {
+        HospitalService service = data.service;
+        int target = op[1];
+        switch (op[0]) {
+            case DIAGNOSIS -> service.updateDiagnosis(data.patients.get(target).getId(), "Diagnosis " + (target & 15));
+            case ASSIGN -> service.assignPatient(data.patients.get(target).getId(),
+                    data.doctors.get(op[2]).getId());
+            default -> {
+                Appointment appointment = data.appointments.get(target);
+                if (appointment.getStatus() == AppointmentStatus.SCHEDULED) {
+                    service.updateAppointmentStatus(appointment.getId(), AppointmentStatus.COMPLETED);
+                }
+            }
+        }
+    }
+
+    private static String render(RecordCache cache, Patient patient) {
+        return cache == null ? patient.toString() : cache.render(patient);
+    }
+
+    private static String render(RecordCache cache, Doctor doctor) {
+        return cache == null ? doctor.toString() : cache.render(doctor);
+    }
+
+    private static String render(RecordCache cache, Appointment appointment) {
+        return cache == null ? appointment.toString() : cache.render(appointment);
+    }
+
+    private static void print(String name, LruCache<?, ?> cache) {
+        System.out.printf(Locale.ROOT, "  %-9s size %6d  hits %9d  misses %8d  evictions %7d  invalidations %6d%n",
+                name, cache.size(), cache.getHits(), cache.getMisses(), cache.getEvictions(), cache.getInvalidations());
+    }
+
+    // Every cached entry must match what the service returns now
+    private static void verify(Data data, RecordCache cache) {
+        HospitalService service = data.service;
+        int stale = 0;
+        for (Patient p : data.patients) {
+            stale += cache.render(p).equals(p.toString()) ? 0 : 1;
+        }
+        for (Doctor d : data.doctors) {
+            stale += cache.render(d).equals(d.toString()) ? 0 : 1;
+            stale += cache.getAssignedPatients(d).equals(service.getAssignedPatients(d)) ? 0 : 1;
+        }
+        for (Appointment a : data.appointments) {
+            stale += cache.render(a).equals(a.toString()) ? 0 : 1;
+        }
+        for (String term : TERMS) {
+            stale += cache.searchPatients(term).equals(service.searchPatients(term)) ? 0 : 1;
+        }
+        check(stale == 0, "cached records, rosters and searches match the service (" + stale + " stale)");
+
+        Patient patient = data.patients.get(0);
+        String before = cache.render(patient);
+        service.updateDiagnosis(patient.getId(), "Checked diagnosis");
+        check(!cache.render(patient).equals(before) && cache.render(patient).equals(patient.toString()),
+                "a diagnosis change is visible on the next render");
+        Patient added = service.registerPatient("Zyxw Unique", 30);
+        check(cache.searchPatients("zyxw").equals(List.of(added)), "a new patient shows up in cached searches");
+    }
+
+    private static void checkEviction() {
+        long[] now = {0};
+        LruCache<Integer, String> lru = new LruCache<>(4, Duration.ofSeconds(10), () -> now[0]);
+        for (int i = 0; i < 4; i++) {
+            lru.get(i, String::valueOf);
+        }
+        lru.get(0, String::valueOf); // 0 becomes the most recently used
+        lru.get(4, String::valueOf);
+        check(lru.size() == 4 && lru.getEvictions() == 1, "a full cache evicts one entry per insert");
+        now[0] = Duration.ofSeconds(11).toNanos();
+        lru.get(0, String::valueOf);
+        check(lru.getExpirations() == 1 && lru.getMisses() == 6, "an entry past its time to live is reloaded");
+        lru.invalidate(0);
+        check(lru.getInvalidations() == 1 && lru.size() == 3, "an invalidated entry is dropped");
+    }
+
+    private static void check(boolean ok, String what) {
+        System.out.println((ok ? "✓ " : "✗ ") + what);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example;
+
+import java.time.LocalDateTime;
+
+/**
+ * One change published on a {@link ChangeStream}, with the values as they were
+ * when the change happened.
+ *
+ * Events live in the stream's ring buffer and are overwritten once every
+ * subscriber has passed them, so an event is only valid during the
+ * {@link ChangeStream.Handler} call that receives it; call {@link #copy()} to keep one.
+ */
+public final class ChangeEvent {
+
+    /** What changed; the javadoc of each type lists the fields it sets. */
+    public enum Type {
+        /** patientId; value is the name. */
+        PATIENT_ADDED,
+        /** doctorId; value is the name, previousValue the specialization. */
+        DOCTOR_ADDED,
+        /** patientId, doctorId. */
+        PATIENT_ASSIGNED,
+        /** patientId, doctorId of the roster it left. */
+        PATIENT_REMOVED,
+        /** patientId; value and previousValue are the diagnoses (previous may be null). */
+        DIAGNOSIS_CHANGED,
+        /** patientId; value is the contact number. */
+        PATIENT_DETAILS_CHANGED,
+        /** doctorId. */
+        DOCTOR_DETAILS_CHANGED,
+        /** patientId; the text itself is not carried. */
+        MEDICAL_HISTORY_CHANGED,
+        /** appointmentId, patientId, doctorId, time; value is the status label. */
+        APPOINTMENT_CREATED,
+        /** appointmentId, patientId, doctorId; value and previousValue are status labels. */
+        STATUS_CHANGED,
+        /** appointmentId, patientId, doctorId; time and previousTime. */
+        APPOINTMENT_RESCHEDULED,
+        /** appointmentId, patientId, doctorId; the text itself is not carried. */
+        NOTES_CHANGED
+    }
+
+    private Type type;
+    private long sequence;
+    private long timestamp;
+    private int patientId;
+    private int doctorId;
+    private int appointmentId;
+    private String value;
+    private String previousValue;
+    private LocalDateTime time;
+    private LocalDateTime previousTime;
+
+    ChangeEvent() {}
+
+    public Type getType() { return type; }
+    /** Position in the stream, starting at 0 and increasing by one per event. */
+    public long getSequence() { return sequence; }
+    /** Wall-clock time of the change in epoch milliseconds. */
+    public long getTimestamp() { return timestamp; }
+    /** 0 when the event does not concern a patient. */
+    public int getPatientId() { return patientId; }
+    /** 0 when the event does not concern a doctor. */
+    public int getDoctorId() { return doctorId; }
+    /** 0 when the event does not concern an appointment. */
+    public int getAppointmentId() { return appointmentId; }
+    public String getValue() { return value; }
+    public String getPreviousValue() { return previousValue; }
+    public LocalDateTime getTime() { return time; }
+    public LocalDateTime getPreviousTime() { return previousTime; }
+
+    /**
+     * Fills the event in place; the stream reuses events, so every field is set.
+     */
+    void set(Type type, long sequence, long timestamp, int patientId, int doctorId, int appointmentId,
+             String value, String previousValue, LocalDateTime time, LocalDateTime previousTime) {
+        this.type = type;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.appointmentId = appointmentId;
+        this.value = value;
+        this.previousValue = previousValue;
+        this.time = time;
+        this.previousTime = previousTime;
+    }
+
+    /** A detached copy that stays valid after the handler returns. */
+    public ChangeEvent copy() {
+        ChangeEvent copy = new ChangeEvent();
+        copy.set(type, sequence, timestamp, patientId, doctorId, appointmentId, value, previousValue, time, previousTime);
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(96).append('#').append(sequence).append(' ').append(type);
+        if (patientId != 0) {
+            sb.append(" patient=").append(patientId);
+        }
+        if (doctorId != 0) {
+            sb.append(" doctor=").append(doctorId);
+        }
+        if (appointmentId != 0) {
+            sb.append(" appointment=").append(appointmentId);
+        }
+        if (value != null) {
+            sb.append(" value=").append(value);
+        }
+        if (previousValue != null) {
+            sb.append(" previous=").append(previousValue);
+        }
+        if (time != null) {
+            sb.append(" time=");
+            Appointment.appendTime(sb, time);
+        }
+        if (previousTime != null) {
+            sb.append(" previousTime=");
+            Appointment.appendTime(sb, previousTime);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,418 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+/**
+ * In-process change-data-capture stream: every mutation reported through
+ * {@link MutationEvents} becomes a typed {@link ChangeEvent} that subscribers,
+ * such as billing or bed management, consume on their own threads.
+ *
+ * The events sit in a ring buffer of preallocated slots, in the style of the
+ * LMAX Disruptor. A mutating thread claims a sequence number with one atomic
+ * increment, fills the slot in place and marks it published; it takes no lock
+ * and allocates nothing. Each subscriber runs a thread that reads every slot
+ * published since its last pass as one batch, then records how far it got.
+ *
+ * A producer may only reuse a slot once every subscriber has read it. When the
+ * slowest subscriber is a full ring behind, producers wait for it (spinning,
+ * then parking), so a stalled consumer slows writers down instead of losing
+ * events or growing memory. {@link #getProducerWaits()} counts those waits.
+ *
+ * Subscribers see the events published after they subscribed, in sequence
+ * order. A filter (event types plus an optional predicate) is applied on the
+ * subscriber's thread, so filtering costs the producers nothing.
+ *
+ * Like {@link HospitalStatistics}, register the stream with {@link MutationEvents}
+ * after creating it.
+ */
+public class ChangeStream implements MutationListener, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int DEFAULT_MAX_BATCH = 1024;
+
+    // Idle consumers spin this many times before parking
+    private static final int SPIN_TRIES = 200;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final long FULL_PARK_NANOS = 10_000;
+
+    /**
+     * Receives a subscriber's events on its consumer thread. Producers wait for
+     * slow handlers while holding the service's locks, so a handler must not
+     * call back into {@link HospitalService}.
+     */
+    public interface Handler {
+        /**
+         * Called once per matching event. The event is reused after the call returns.
+         */
+        void onEvent(ChangeEvent event);
+
+        /**
+         * Called after each batch in which at least one event was delivered,
+         * e.g. to flush writes made by {@link #onEvent}.
+         */
+        default void onBatchEnd() {}
+    }
+
+    private final ChangeEvent[] ring;
+    private final int mask;
+    private final int shift;
+    // Per slot, the lap (sequence / capacity) of the event last published there
+    private final AtomicIntegerArray published;
+    // Next sequence to claim
+    private final AtomicLong cursor = new AtomicLong();
+    // Lowest subscriber position seen by a producer; a hint that saves rescanning the subscribers
+    private volatile long gatingHint;
+    private final int maxBatch;
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder producerWaits = new LongAdder();
+    private volatile boolean closed;
+
+    public ChangeStream() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * @param capacity events the ring holds; rounded up to a power of two
+     * @param maxBatch most events a subscriber handles before recording its position
+     */
+    public ChangeStream(int capacity, int maxBatch) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new ChangeEvent[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new ChangeEvent();
+        }
+        this.mask = size - 1;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * Starts a consumer thread delivering every event to the handler.
+     */
+    public Subscription subscribe(String name, Handler handler) {
+        return subscribe(name, EnumSet.allOf(ChangeEvent.Type.class), null, handler);
+    }
+
+    /**
+     * Starts a consumer thread delivering the events that pass the filter.
+     * @param types event types to deliver
+     * @param filter further condition on those events, or null for none
+     * @throws IllegalStateException if the stream is closed
+     */
+    public Subscription subscribe(String name, Set<ChangeEvent.Type> types, Predicate<ChangeEvent> filter,
+                                  Handler handler) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Subscription name cannot be empty");
+        }
+        if (types == null || handler == null) {
+            throw new IllegalArgumentException("Types and handler cannot be null");
+        }
+        Subscription subscription;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Change stream is closed");
+            }
+            subscription = new Subscription(name, types.isEmpty() ? EnumSet.noneOf(ChangeEvent.Type.class)
+                    : EnumSet.copyOf(types), filter, handler, cursor.get());
+            subscriptions.add(subscription);
+            // Start after every sequence claimed by a producer that may not have seen the new subscription
+            subscription.position.set(cursor.get());
+        }
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /** Active subscriptions in subscription order. */
+    public List<Subscription> getSubscriptions() {
+        return List.copyOf(subscriptions);
+    }
+
+    /** Events published so far. */
+    public long getPublished() { return cursor.get(); }
+
+    public int getCapacity() { return ring.length; }
+
+    /** Events that had to wait for a slow subscriber before they could be published. */
+    public long getProducerWaits() { return producerWaits.sum(); }
+
+    /**
+     * Registers {@code cdc.published}, {@code cdc.producerWaits} and, per current
+     * subscription, {@code cdc.<name>.consumed}, {@code .lag} and {@code .errors} gauges.
+     */
+    public void registerMetrics(MetricsRegistry metrics) {
+        metrics.gauge("cdc.published", this::getPublished);
+        metrics.gauge("cdc.producerWaits", this::getProducerWaits);
+        for (Subscription s : subscriptions) {
+            metrics.gauge("cdc." + s.name + ".consumed", s::getPosition);
+            metrics.gauge("cdc." + s.name + ".lag", s::getLag);
+            metrics.gauge("cdc." + s.name + ".errors", s::getErrors);
+        }
+    }
+
+    /**
+     * Stops every subscription after it has handled the events already published.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        for (Subscription s : subscriptions) {
+            s.close();
+        }
+    }
+
+    // MutationListener callbacks: one event per mutation
+
+    @Override
+    public void patientAdded(Patient patient) {
+        publish(ChangeEvent.Type.PATIENT_ADDED, patient.getId(), 0, 0, patient.getName(), null, null, null);
+    }
+
+    @Override
+    public void doctorAdded(Doctor doctor) {
+        publish(ChangeEvent.Type.DOCTOR_ADDED, 0, doctor.getId(), 0, doctor.getName(), doctor.getSpecialization(),
+                null, null);
+    }
+
+    @Override
+    public void patientAssigned(Doctor doctor, Patient patient) {
+        publish(ChangeEvent.Type.PATIENT_ASSIGNED, patient.getId(), doctor.getId(), 0, null, null, null, null);
+    }
+
+    @Override
+    public void patientRemoved(Doctor doctor, Patient patient) {
+        publish(ChangeEvent.Type.PATIENT_REMOVED, patient.getId(), doctor.getId(), 0, null, null, null, null);
+    }
+
+    @Override
+    public void diagnosisChanged(Patient patient, String oldDiagnosis) {
+        publish(ChangeEvent.Type.DIAGNOSIS_CHANGED, patient.getId(), 0, 0, patient.getDiagnosis(), oldDiagnosis,
+                null, null);
+    }
+
+    @Override
+    public void patientDetailsChanged(Patient patient) {
+        publish(ChangeEvent.Type.PATIENT_DETAILS_CHANGED, patient.getId(), 0, 0, patient.getContactNumber(), null,
+                null, null);
+    }
+
+    @Override
+    public void doctorDetailsChanged(Doctor doctor) {
+        publish(ChangeEvent.Type.DOCTOR_DETAILS_CHANGED, 0, doctor.getId(), 0, null, null, null, null);
+    }
+
+    @Override
+    public void medicalHistoryChanged(Patient patient) {
+        publish(ChangeEvent.Type.MEDICAL_HISTORY_CHANGED, patient.getId(), 0, 0, null, null, null, null);
+    }
+
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        publish(ChangeEvent.Type.APPOINTMENT_CREATED, appointment.getPatient().getId(),
+                appointment.getDoctor().getId(), appointment.getId(), appointment.getStatus().getLabel(), null,
+                appointment.getAppointmentTime(), null);
+    }
+
+    @Override
+    public void statusChanged(Appointment appointment, AppointmentStatus oldStatus) {
+        publish(ChangeEvent.Type.STATUS_CHANGED, appointment.getPatient().getId(), appointment.getDoctor().getId(),
+                appointment.getId(), appointment.getStatus().getLabel(), oldStatus.getLabel(), null, null);
+    }
+
+    @Override
+    public void appointmentRescheduled(Appointment appointment, LocalDateTime oldTime) {
+        publish(ChangeEvent.Type.APPOINTMENT_RESCHEDULED, appointment.getPatient().getId(),
+                appointment.getDoctor().getId(), appointment.getId(), null, null, appointment.getAppointmentTime(),
+                oldTime);
+    }
+
+    @Override
+    public void notesChanged(Appointment appointment) {
+        publish(ChangeEvent.Type.NOTES_CHANGED, appointment.getPatient().getId(), appointment.getDoctor().getId(),
+                appointment.getId(), null, null, null, null);
+    }
+
+    /**
+     * Claims the next slot, waiting while the slowest subscriber is a full ring
+     * behind, fills it and marks it published.
+     */
+    void publish(ChangeEvent.Type type, int patientId, int doctorId, int appointmentId, String value,
+                 String previousValue, LocalDateTime time, LocalDateTime previousTime) {
+        long sequence = cursor.getAndIncrement();
+        long wrapPoint = sequence - ring.length;
+        if (wrapPoint >= gatingHint) {
+            awaitSlot(sequence, wrapPoint);
+        }
+        int index = (int) sequence & mask;
+        ring[index].set(type, sequence, System.currentTimeMillis(), patientId, doctorId, appointmentId, value,
+                previousValue, time, previousTime);
+        published.lazySet(index, (int) (sequence >>> shift));
+    }
+
+    private void awaitSlot(long sequence, long wrapPoint) {
+        boolean waited = false;
+        for (int tries = 0; ; tries++) {
+            long min = sequence;
+            for (Subscription s : subscriptions) {
+                min = Math.min(min, s.position.get());
+            }
+            gatingHint = min;
+            if (wrapPoint < min) {
+                break;
+            }
+            if (!waited) {
+                producerWaits.increment();
+                waited = true;
+            }
+            if (tries < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == (int) (sequence >>> shift);
+    }
+
+    /**
+     * One subscriber: its filter, handler, consumer thread and position in the stream.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final String name;
+        private final Set<ChangeEvent.Type> types;
+        private final Predicate<ChangeEvent> filter;
+        private final Handler handler;
+        // Next sequence to read; the slots before it are free for producers
+        private final AtomicLong position;
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final Thread thread;
+        // Sequence the consumer stops at once close() is called
+        private volatile long stopAt = Long.MAX_VALUE;
+
+        private Subscription(String name, Set<ChangeEvent.Type> types, Predicate<ChangeEvent> filter, Handler handler,
+                             long start) {
+            this.name = name;
+            this.types = types;
+            this.filter = filter;
+            this.handler = handler;
+            this.position = new AtomicLong(start);
+            this.thread = new Thread(this::consume, "cdc-" + name);
+            thread.setDaemon(true);
+        }
+
+        public String getName() { return name; }
+        /** Sequence of the next event this subscriber will read. */
+        public long getPosition() { return position.get(); }
+        /** Events published but not yet read by this subscriber. */
+        public long getLag() { return Math.max(0, cursor.get() - position.get()); }
+        /** Events that passed the filter and were handed to the handler. */
+        public long getDelivered() { return delivered.sum(); }
+        /** Handler calls that threw. */
+        public long getErrors() { return errors.sum(); }
+
+        private void consume() {
+            long next = position.get();
+            int idle = 0;
+            while (true) {
+                long limit = Math.min(next + maxBatch, stopAt);
+                if (next >= limit) {
+                    return;
+                }
+                long end = next;
+                while (end < limit && isPublished(end)) {
+                    end++;
+                }
+                if (end == next) {
+                    if (++idle < SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    }
+                    continue;
+                }
+                idle = 0;
+                int handled = 0;
+                for (long s = next; s < end; s++) {
+                    ChangeEvent event = ring[(int) s & mask];
+                    if (types.contains(event.getType()) && (filter == null || filter.test(event))) {
+                        deliver(event);
+                        handled++;
+                    }
+                }
+                if (handled > 0) {
+                    try {
+                        handler.onBatchEnd();
+                    } catch (RuntimeException e) {
+                        failed(e);
+                    }
+                }
+                next = end;
+                position.lazySet(next);
+            }
+        }
+
+        private void deliver(ChangeEvent event) {
+            try {
+                handler.onEvent(event);
+                delivered.increment();
+            } catch (RuntimeException e) {
+                failed(e);
+            }
+        }
+
+        private void failed(RuntimeException e) {
+            errors.increment();
+            System.err.println("Change subscriber " + name + " failed: " + e);
+        }
+
+        /**
+         * Stops the consumer once it has handled the events already published,
+         * and releases its hold on the ring. An interrupt does not cut the wait
+         * short; it is restored once the consumer has stopped.
+         */
+        @Override
+        public void close() {
+            if (stopAt == Long.MAX_VALUE) {
+                stopAt = cursor.get();
+            }
+            LockSupport.unpark(thread);
+            boolean interrupted = false;
+            while (Thread.currentThread() != thread && thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            subscriptions.remove(this);
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures {@link ChangeStream} throughput with one and several producer
+ * threads, and what publishing adds to a mutation ({@code updateDiagnosis}
+ * with and without a stream registered).
+ *
+ * Also checks that every subscriber sees every event in order, that filters
+ * deliver exactly the matching events, that a slow subscriber makes producers
+ * wait rather than lose events, and that the service's mutations arrive as the
+ * expected event types. Exits with status 1 if a check fails.
+ *
+ * Run: java -cp bin com.example.ChangeStreamBenchmark [-Dbench.events=5000000]
+ */
+public class ChangeStreamBenchmark {
+    private static final int EVENTS = Integer.getInteger("bench.events", 5_000_000);
+    private static final int MUTATIONS = 1_000_000;
+
+    private static int failures;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%-34s %14s %12s%n", "run", "events/s", "producer waits");
+        for (int producers : new int[] {1, 4}) {
+            throughput(producers);
+        }
+        overhead();
+        checkBackpressure();
+        checkServiceEvents();
+
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    /**
+     * Producers publish diagnosis events for patients 1..EVENTS; one subscriber
+     * takes everything and checks the order, one takes only even patients.
+     */
+    private static void throughput(int producers) throws InterruptedException {
+        ChangeStream stream = new ChangeStream();
+        OrderCheck all = new OrderCheck();
+        AtomicLong even = new AtomicLong();
+        stream.subscribe("all", all);
+        stream.subscribe("even", EnumSet.of(ChangeEvent.Type.DIAGNOSIS_CHANGED), e -> e.getPatientId() % 2 == 0,
+                e -> even.incrementAndGet());
+        int perThread = EVENTS / producers;
+        Thread[] threads = new Thread[producers];
+        long start = System.nanoTime();
+        for (int t = 0; t < producers; t++) {
+            int first = t * perThread + 1;
+            threads[t] = new Thread(() -> {
+                for (int id = first; id < first + perThread; id++) {
+                    stream.publish(ChangeEvent.Type.DIAGNOSIS_CHANGED, id, 0, 0, "Flu", null, null, null);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        stream.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long total = (long) perThread * producers;
+        System.out.printf(Locale.ROOT, "%-34s %14.0f %12d%n", producers + " producer(s), 2 subscribers",
+                total / seconds, stream.getProducerWaits());
+        check(all.count == total && all.inOrder, producers + " producer(s): every event delivered once, in order");
+        check(even.get() == total / 2, producers + " producer(s): the filtered subscriber got exactly the even patients");
+    }
+
+    private static void overhead() throws InterruptedException {
+        HospitalService service = new HospitalService();
+        Patient patient = service.registerPatient("Overhead Test", 40);
+        String[] diagnoses = {"Flu", "Asthma", "Migraine", "Fracture"};
+        long without = timeDiagnoses(service, patient, diagnoses);
+        ChangeStream stream = new ChangeStream();
+        AtomicLong seen = new AtomicLong();
+        stream.subscribe("counter", e -> seen.incrementAndGet());
+        MutationEvents.register(stream);
+        long with;
+        try {
+            with = timeDiagnoses(service, patient, diagnoses);
+        } finally {
+            MutationEvents.unregister(stream);
+            stream.close();
+        }
+        System.out.printf(Locale.ROOT, "updateDiagnosis: %d ns/op without a stream, %d ns/op with one%n", without, with);
+        check(seen.get() == 2L * MUTATIONS, "every diagnosis change reached the subscriber");
+    }
+
+    // One warm-up pass, then the mean time of a timed pass
+    private static long timeDiagnoses(HospitalService service, Patient patient, String[] diagnoses) {
+        long elapsed = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MUTATIONS; i++) {
+                service.updateDiagnosis(patient.getId(), diagnoses[i & 3]);
+            }
+            elapsed = System.nanoTime() - start;
+        }
+        return elapsed / MUTATIONS;
+    }
+
+    private static void checkBackpressure() throws InterruptedException {
+        ChangeStream stream = new ChangeStream(256, 16);
+        AtomicLong delivered = new AtomicLong();
+        stream.subscribe("slow", new ChangeStream.Handler() {
+            @Override
+            public void onEvent(ChangeEvent event) {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void onBatchEnd() {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        for (int i = 1; i <= 5_000; i++) {
+            stream.publish(ChangeEvent.Type.PATIENT_ASSIGNED, i, 1, 0, null, null, null, null);
+        }
+        stream.close();
+        check(stream.getProducerWaits() > 0 && delivered.get() == 5_000,
+                "a slow subscriber makes producers wait (" + stream.getProducerWaits() + " waits) without losing events");
+    }
+
+    private static void checkServiceEvents() throws InterruptedException {
+        HospitalService service = new HospitalService();
+        ChangeStream stream = new ChangeStream(1024, 64);
+        List<ChangeEvent> events = new ArrayList<>();
+        stream.subscribe("log", e -> events.add(e.copy()));
+        MutationEvents.register(stream);
+        try {
+            Patient patient = service.registerPatient("Stream Test", 50);
+            Doctor doctor = service.registerDoctor("Dr. Stream", "Cardiology");
+            service.assignPatient(patient.getId(), doctor.getId());
+            service.updateDiagnosis(patient.getId(), "Arrhythmia");
+            LocalDateTime time = LocalDateTime.now().plusDays(2).withSecond(0).withNano(0);
+            Appointment appointment = service.scheduleAppointment(patient.getId(), doctor.getId(), time, "Follow-up");
+            service.rescheduleAppointment(appointment.getId(), time.plusDays(1));
+            service.updateAppointmentStatus(appointment.getId(), AppointmentStatus.COMPLETED);
+        } finally {
+            MutationEvents.unregister(stream);
+            stream.close();
+        }
+        List<ChangeEvent.Type> types = new ArrayList<>();
+        for (ChangeEvent e : events) {
+            types.add(e.getType());
+        }
+        check(types.equals(List.of(ChangeEvent.Type.PATIENT_ADDED, ChangeEvent.Type.DOCTOR_ADDED,
+                ChangeEvent.Type.PATIENT_ASSIGNED, ChangeEvent.Type.DIAGNOSIS_CHANGED,
+                ChangeEvent.Type.APPOINTMENT_CREATED, ChangeEvent.Type.APPOINTMENT_RESCHEDULED,
+                ChangeEvent.Type.STATUS_CHANGED)), "service mutations arrive as typed events " + types);
+        ChangeEvent status = events.get(events.size() - 1);
+        check("Completed".equals(status.getValue()) && "Scheduled".equals(status.getPreviousValue()),
+                "a status event carries the old and new status: " + status);
+    }
+
+    private static void check(boolean ok, String what) {
+        System.out.println((ok ? "✓ " : "✗ ") + what);
+        if (!ok) {
+            failures++;
+        }
+    }
+
+    // Counts events and checks the sequences arrive as 0, 1, 2, ...
+    private static final class OrderCheck implements ChangeStream.Handler {
+        long count;
+        boolean inOrder = true;
+
+        @Override
+        public void onEvent(ChangeEvent event) {
+            if (event.getSequence() != count) {
+                inOrder = false;
+            }
+            count++;
+        }
+    }
+}
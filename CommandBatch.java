@@ -0,0 +1,221 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A list of mutations applied to a {@link HospitalService} as one unit with
+ * {@link HospitalService#execute(CommandBatch)}: either every command takes
+ * effect or none does.
+ *
+ * Commands name existing entities by id. Entities created earlier in the same
+ * batch are named by the reference the creating call returned, a negative
+ * number, so a batch can register a patient and assign it in one go:
+ * <pre>
+ *   CommandBatch batch = new CommandBatch();
+ *   int patient = batch.registerPatient("Ann Lee", 42);
+ *   batch.assignPatient(patient, doctorId).updateDiagnosis(patient, "Asthma");
+ *   CommandBatch.Result result = service.execute(batch);
+ *   int id = result.getPatient(patient).getId();
+ * </pre>
+ * A batch is not thread-safe while it is being built; once submitted it must
+ * not be changed.
+ */
+public final class CommandBatch {
+
+    /** The mutations a batch can hold, named after the service methods they mirror. */
+    enum Kind {
+        REGISTER_PATIENT("registerPatient"),
+        REGISTER_DOCTOR("registerDoctor"),
+        ASSIGN_PATIENT("assignPatient"),
+        UPDATE_DIAGNOSIS("updateDiagnosis"),
+        SCHEDULE_APPOINTMENT("scheduleAppointment"),
+        UPDATE_STATUS("updateAppointmentStatus");
+
+        final String label;
+
+        Kind(String label) {
+            this.label = label;
+        }
+    }
+
+    static final class Command {
+        final Kind kind;
+        final int patient;
+        final int doctor;
+        final int appointment;
+        // Name, diagnosis or purpose
+        final String text;
+        // Age of a new patient
+        final int age;
+        final String specialization;
+        final LocalDateTime time;
+        final AppointmentStatus status;
+
+        Command(Kind kind, int patient, int doctor, int appointment, String text, int age, String specialization,
+                LocalDateTime time, AppointmentStatus status) {
+            this.kind = kind;
+            this.patient = patient;
+            this.doctor = doctor;
+            this.appointment = appointment;
+            this.text = text;
+            this.age = age;
+            this.specialization = specialization;
+            this.time = time;
+            this.status = status;
+        }
+    }
+
+    final List<Command> commands;
+
+    public CommandBatch() {
+        this.commands = new ArrayList<>();
+    }
+
+    /**
+     * @param expectedSize number of commands the batch will hold
+     */
+    public CommandBatch(int expectedSize) {
+        this.commands = new ArrayList<>(expectedSize);
+    }
+
+    /**
+     * Adds a patient registration.
+     * @return the reference naming the new patient in later commands
+     */
+    public int registerPatient(String name, int age) {
+        return add(new Command(Kind.REGISTER_PATIENT, 0, 0, 0, name, age, null, null, null));
+    }
+
+    /**
+     * Adds a doctor registration.
+     * @return the reference naming the new doctor in later commands
+     */
+    public int registerDoctor(String name, String specialization) {
+        return add(new Command(Kind.REGISTER_DOCTOR, 0, 0, 0, name, 0, specialization, null, null));
+    }
+
+    /**
+     * Adds an assignment; the patient moves off any roster it is on.
+     * @param patient patient id or batch reference
+     * @param doctor doctor id or batch reference
+     */
+    public CommandBatch assignPatient(int patient, int doctor) {
+        add(new Command(Kind.ASSIGN_PATIENT, patient, doctor, 0, null, 0, null, null, null));
+        return this;
+    }
+
+    /**
+     * @param patient patient id or batch reference
+     */
+    public CommandBatch updateDiagnosis(int patient, String diagnosis) {
+        add(new Command(Kind.UPDATE_DIAGNOSIS, patient, 0, 0, diagnosis, 0, null, null, null));
+        return this;
+    }
+
+    /**
+     * Adds a booking.
+     * @param patient patient id or batch reference
+     * @param doctor doctor id or batch reference
+     * @return the reference naming the new appointment in later commands
+     */
+    public int scheduleAppointment(int patient, int doctor, LocalDateTime time, String purpose) {
+        return add(new Command(Kind.SCHEDULE_APPOINTMENT, patient, doctor, 0, purpose, 0, null, time, null));
+    }
+
+    /**
+     * @param appointment appointment id or batch reference
+     */
+    public CommandBatch updateAppointmentStatus(int appointment, AppointmentStatus status) {
+        add(new Command(Kind.UPDATE_STATUS, 0, 0, appointment, null, 0, null, null, status));
+        return this;
+    }
+
+    public int size() { return commands.size(); }
+
+    /** True if the value is a batch reference rather than an entity id. */
+    public static boolean isReference(int idOrReference) {
+        return idOrReference < 0;
+    }
+
+    // References count down from -1 in command order
+    private int add(Command command) {
+        commands.add(command);
+        return -commands.size();
+    }
+
+    static int indexOf(int reference) {
+        return -reference - 1;
+    }
+
+    /**
+     * A batch with its ids resolved and its new entities built and validated,
+     * ready for {@link HospitalService} to check against current state and apply.
+     * Per command, the patient, doctor and appointment it acts on; for
+     * registrations and bookings, the entity it creates.
+     */
+    static final class Prepared {
+        final List<Command> commands;
+        final Patient[] patients;
+        final Doctor[] doctors;
+        final Appointment[] appointments;
+        final Object[] created;
+        final List<Patient> newPatients = new ArrayList<>();
+        final List<Doctor> newDoctors = new ArrayList<>();
+
+        Prepared(CommandBatch batch) {
+            this.commands = List.copyOf(batch.commands);
+            int size = commands.size();
+            this.patients = new Patient[size];
+            this.doctors = new Doctor[size];
+            this.appointments = new Appointment[size];
+            this.created = new Object[size];
+        }
+    }
+
+    /**
+     * Outcome of an executed batch: the entities its registrations and bookings created.
+     */
+    public static final class Result {
+        private final Object[] created;
+
+        Result(Object[] created) {
+            this.created = created;
+        }
+
+        /** Number of commands applied. */
+        public int size() { return created.length; }
+
+        /**
+         * @throws IllegalArgumentException if the reference is not a patient registration of this batch
+         */
+        public Patient getPatient(int reference) {
+            return created(reference, Patient.class);
+        }
+
+        /**
+         * @throws IllegalArgumentException if the reference is not a doctor registration of this batch
+         */
+        public Doctor getDoctor(int reference) {
+            return created(reference, Doctor.class);
+        }
+
+        /**
+         * @throws IllegalArgumentException if the reference is not a booking of this batch
+         */
+        public Appointment getAppointment(int reference) {
+            return created(reference, Appointment.class);
+        }
+
+        private <T> T created(int reference, Class<T> type) {
+            int index = indexOf(reference);
+            if (index < 0 || index >= created.length || !type.isInstance(created[index])) {
+                throw new IllegalArgumentException("No " + type.getSimpleName().toLowerCase(Locale.ROOT) + " was created by reference "
+                        + reference);
+            }
+            return type.cast(created[index]);
+        }
+    }
+}
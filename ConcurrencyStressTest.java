@@ -0,0 +1,172 @@
+package com.example;
+
+import java.util.BitSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Multi-threaded stress test for {@link HospitalService}.
+ * 64 threads register patients at the same time and assign them to a small
+ * pool of doctors; the test then checks that no id was lost or duplicated
+ * and every roster is consistent. A second phase moves and unassigns the same
+ * patients from pairs of threads at once and checks that every patient ends up
+ * on exactly the roster of the doctor it points to.
+ *
+ * Run: java -cp bin com.example.ConcurrencyStressTest [patientsPerThread]
+ * Exits with status 1 if any check fails.
+ */
+public class ConcurrencyStressTest {
+    private static final int THREADS = 64;
+    private static final int DOCTORS = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        int perThread = args.length > 0 ? InputValidator.parseInteger(args[0]) : 2_000;
+        if (perThread <= 0) {
+            System.out.println("❌ patientsPerThread must be a positive integer");
+            System.exit(1);
+        }
+
+        HospitalService service = new HospitalService();
+        int[] doctorIds = new int[DOCTORS];
+        for (int i = 0; i < DOCTORS; i++) {
+            doctorIds[i] = service.registerDoctor("Dr. Stress " + i, "General").getId();
+        }
+
+        int[][] issuedIds = new int[THREADS][perThread];
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long begin = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        Patient p = service.registerPatient("Patient " + thread + "-" + i, i % 100);
+                        issuedIds[thread][i] = p.getId();
+                        service.assignPatient(p.getId(), doctorIds[(thread + i) % DOCTORS]);
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    System.err.println("Worker " + thread + " failed: " + e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        if (!pool.awaitTermination(5, TimeUnit.MINUTES)) {
+            System.out.println("❌ Workers did not finish in time");
+            System.exit(1);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        int expected = THREADS * perThread;
+        check(failures.get() == 0, failures.get() + " worker(s) threw");
+        check(service.getPatients().size() == expected,
+                "registry holds " + service.getPatients().size() + " patients, expected " + expected);
+
+        BitSet seen = new BitSet();
+        int duplicates = 0;
+        int missing = 0;
+        for (int[] ids : issuedIds) {
+            for (int id : ids) {
+                if (seen.get(id)) {
+                    duplicates++;
+                }
+                seen.set(id);
+                if (service.findPatient(id) == null) {
+                    missing++;
+                }
+            }
+        }
+        check(duplicates == 0, duplicates + " duplicate patient id(s)");
+        check(missing == 0, missing + " issued id(s) not found in the registry");
+
+        int assigned = 0;
+        for (int doctorId : doctorIds) {
+            assigned += service.getAssignedPatients(service.findDoctor(doctorId)).size();
+        }
+        check(assigned == expected, "rosters hold " + assigned + " patients, expected " + expected);
+
+        System.out.printf("✓ %d threads registered and assigned %d patients in %d ms, no ids lost or duplicated%n",
+                THREADS, expected, elapsedMs);
+
+        reassign(service, doctorIds, issuedIds);
+    }
+
+    // Each thread works through its own patients and its neighbour's, so every
+    // patient is moved by two threads concurrently; every 7th one is unassigned
+    private static void reassign(HospitalService service, int[] doctorIds, int[][] issuedIds) throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long begin = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < 2; round++) {
+                        int[] ids = issuedIds[(thread + round) % THREADS];
+                        for (int i = 0; i < ids.length; i++) {
+                            Doctor current = service.getDoctorOf(ids[i]);
+                            if (i % 7 == 0 && current != null) {
+                                service.unassignPatient(ids[i], current.getId());
+                            } else {
+                                service.assignPatient(ids[i], doctorIds[(thread + i + round) % DOCTORS]);
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                    System.err.println("Worker " + thread + " failed: " + e);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        if (!pool.awaitTermination(5, TimeUnit.MINUTES)) {
+            System.out.println("❌ Workers did not finish in time");
+            System.exit(1);
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        check(failures.get() == 0, failures.get() + " worker(s) threw");
+
+        int onRosters = 0;
+        for (int doctorId : doctorIds) {
+            Doctor doctor = service.findDoctor(doctorId);
+            for (Patient p : service.getAssignedPatients(doctor)) {
+                check(p.getAssignedDoctor() == doctor, "patient " + p.getId() + " is on the roster of "
+                        + doctor.getName() + " but points to " + p.getAssignedDoctorName());
+                onRosters++;
+            }
+            check(service.countAssignedPatients(doctorId) == doctor.getAssignedPatients().size(),
+                    "per-doctor count of " + doctor.getName() + " is out of step");
+        }
+        int unassigned = 0;
+        for (Patient p : service.getPatients()) {
+            if (p.getAssignedDoctor() == null) {
+                unassigned++;
+            }
+        }
+        int total = service.getPatients().size();
+        check(onRosters + unassigned == total, onRosters + " patients on rosters and " + unassigned
+                + " unassigned, expected " + total + " in all (a patient is on two rosters or none)");
+        check(service.countUnassignedPatients() == unassigned,
+                "unassigned count is " + service.countUnassignedPatients() + ", expected " + unassigned);
+
+        System.out.printf("✓ %d threads moved and unassigned patients concurrently in %d ms, rosters and links agree%n",
+                THREADS, elapsedMs);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            System.out.println("❌ " + message);
+            System.exit(1);
+        }
+    }
+}
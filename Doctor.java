@@ -1,17 +1,31 @@
 package com.example;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 
 /**
  * Represents a doctor in the Hospital Management System.
  * Manages doctor information and their assigned patients.
+ * The roster is keyed by patient id in assignment order, so membership checks
+ * and removals are O(1) regardless of how many patients a doctor has.
+ * Together with {@link Patient#getAssignedDoctor()} it forms a bidirectional
+ * assignment index: a patient is on at most one roster, the one of the doctor
+ * it points to, and assigning it elsewhere moves it. Rosters change only
+ * through {@link HospitalService}, which holds the doctors' locks and
+ * journals each change as one batch, so the roster mutators here are
+ * package-private.
  */
 public class Doctor {
-    private static int idCounter = 1;
+    private static final IdAllocator IDS = new IdAllocator("doctor");
+    // Specializations repeat across doctors; each distinct value is stored once
+    static final StringDictionary SPECIALIZATIONS = new StringDictionary();
     private final int id;
     private final String name;
     private final String specialization;
-    private final ArrayList<Patient> assignedPatients;
+    private final LinkedHashMap<Integer, Patient> assignedPatients;
+    private final Collection<Patient> rosterView;
+    private final AppointmentTimeline timeline;
     private String licenseNumber;
     private String contactNumber;
     private int yearsOfExperience;
@@ -21,8 +35,18 @@ public class Doctor {
      * @param name Doctor's name (non-empty)
      * @param specialization Doctor's specialization (defaults to "General" if null)
      * @throws IllegalArgumentException if name is empty
+     * @throws IllegalStateException if this node has no doctor IDs left
      */
     public Doctor(String name, String specialization) {
+        this(0, name, specialization);
+    }
+
+    /**
+     * Constructs a Doctor with an explicit ID, used when restoring persisted data.
+     * The ID counter is advanced past the given ID so new doctors never reuse it.
+     * @param id the ID to use, or 0 to allocate the next one
+     */
+    Doctor(int id, String name, String specialization) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Doctor name cannot be null or empty");
         }
@@ -30,47 +54,118 @@ public class Doctor {
             specialization = "General";
         }
 
-        this.id = idCounter++;
+        this.id = id > 0 ? IDS.claim(id) : IDS.reserve(1);
         this.name = name.trim();
-        this.specialization = specialization.trim();
-        this.assignedPatients = new ArrayList<>();
+        this.specialization = SPECIALIZATIONS.intern(specialization.trim());
+        this.assignedPatients = new LinkedHashMap<>();
+        this.rosterView = Collections.unmodifiableCollection(assignedPatients.values());
+        this.timeline = new AppointmentTimeline();
         this.licenseNumber = "";
         this.contactNumber = "";
         this.yearsOfExperience = 0;
     }
 
+    /**
+     * Makes new doctor IDs start at {@code first} or later and stay below {@code limit};
+     * a shard node uses it to allocate from its own ID range.
+     */
+    static void startIdsAt(int first, int limit) {
+        IDS.startAt(first, limit);
+    }
+
     // Getters
     public int getId() { return id; }
     public String getName() { return name; }
     public String getSpecialization() { return specialization; }
-    public ArrayList<Patient> getAssignedPatients() { return assignedPatients; }
+    /** Read-only live view of the roster in assignment order; use HospitalService for a thread-safe copy. */
+    public Collection<Patient> getAssignedPatients() { return rosterView; }
+    public AppointmentTimeline getTimeline() { return timeline; }
     public String getLicenseNumber() { return licenseNumber; }
     public String getContactNumber() { return contactNumber; }
     public int getYearsOfExperience() { return yearsOfExperience; }
 
     /**
-     * Assigns a patient to this doctor.
+     * Assigns a patient to this doctor, first removing it from the roster of the
+     * doctor it was assigned to. The caller holds both doctors' locks
+     * (see HospitalService).
      * @param patient the patient to assign
+     * @return true if the patient was not already on this roster
      * @throws IllegalArgumentException if patient is null
      */
-    public void assignPatient(Patient patient) {
+    boolean assignPatient(Patient patient) {
         if (patient == null) {
             throw new IllegalArgumentException("Patient cannot be null");
         }
-        if (!assignedPatients.contains(patient)) {
-            assignedPatients.add(patient);
-            patient.setAssignedDoctor(this.name);
+        Doctor previous = patient.getAssignedDoctor();
+        if (previous == this) {
+            return false;
+        }
+        if (previous != null) {
+            previous.detach(patient);
+        }
+        assignedPatients.put(patient.getId(), patient);
+        patient.linkDoctor(this);
+        MutationEvents.patientAssigned(this, patient);
+        return true;
+    }
+
+    /**
+     * Moves every patient on one doctor's roster to another doctor's roster.
+     * Each patient is moved in O(1); the source roster is left empty.
+     * @return the number of patients moved
+     * @throws IllegalArgumentException if either doctor is null
+     */
+    static int transferPatients(Doctor from, Doctor to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Doctor cannot be null");
+        }
+        if (from == to) {
+            return 0;
+        }
+        int moved = 0;
+        for (Patient patient : from.assignedPatients.values()) {
+            MutationEvents.patientRemoved(from, patient);
+            to.assignedPatients.put(patient.getId(), patient);
+            patient.linkDoctor(to);
+            MutationEvents.patientAssigned(to, patient);
+            moved++;
         }
+        from.assignedPatients.clear();
+        return moved;
     }
 
     /**
-     * Removes a patient from this doctor's list.
+     * Restores a persisted roster entry. Older snapshots could list a patient on
+     * several rosters; the last one restored wins.
+     */
+    void restoreAssignment(Patient patient) {
+        Doctor previous = patient.getAssignedDoctor();
+        if (previous != null && previous != this) {
+            previous.assignedPatients.remove(patient.getId());
+        }
+        assignedPatients.put(patient.getId(), patient);
+        patient.linkDoctor(this);
+        MutationEvents.patientAssigned(this, patient);
+    }
+
+    /**
+     * Removes a patient from this doctor's list; the patient becomes unassigned.
      * @param patient the patient to remove
      * @return true if removed, false if not found
      */
-    public boolean removePatient(Patient patient) {
-        if (patient == null) return false;
-        return assignedPatients.remove(patient);
+    boolean removePatient(Patient patient) {
+        if (patient == null || patient.getAssignedDoctor() != this) {
+            return false;
+        }
+        detach(patient);
+        patient.linkDoctor(null);
+        return true;
+    }
+
+    // Drops a patient from the roster as the first half of a move or a removal
+    private void detach(Patient patient) {
+        assignedPatients.remove(patient.getId());
+        MutationEvents.patientRemoved(this, patient);
     }
 
     public void setLicenseNumber(String licenseNumber) {
@@ -78,13 +173,15 @@ public class Doctor {
             throw new IllegalArgumentException("License number cannot be null or empty");
         }
         this.licenseNumber = licenseNumber.trim();
+        MutationEvents.doctorDetailsChanged(this);
     }
 
     public void setContactNumber(String contactNumber) {
-        if (contactNumber == null || !contactNumber.matches("^[\\d\\s\\-\\+\\(\\)]{10,}$")) {
+        if (!InputValidator.isValidContactNumber(contactNumber)) {
             throw new IllegalArgumentException("Invalid contact number format");
         }
         this.contactNumber = contactNumber.trim();
+        MutationEvents.doctorDetailsChanged(this);
     }
 
     public void setYearsOfExperience(int years) {
@@ -92,11 +189,32 @@ public class Doctor {
             throw new IllegalArgumentException("Years of experience must be between 0 and 70");
         }
         this.yearsOfExperience = years;
+        MutationEvents.doctorDetailsChanged(this);
+    }
+
+    /**
+     * Restores persisted details without validation.
+     */
+    void restoreDetails(String licenseNumber, String contactNumber, int yearsOfExperience) {
+        this.licenseNumber = licenseNumber;
+        this.contactNumber = contactNumber;
+        this.yearsOfExperience = yearsOfExperience;
     }
 
     @Override
     public String toString() {
-        return String.format("Doctor ID: %d | Name: %s | Specialization: %s | Experience: %d years | Patients: %d",
-                id, name, specialization, yearsOfExperience, assignedPatients.size());
+        return appendTo(new StringBuilder(128)).toString();
+    }
+
+    /**
+     * Appends the same text as {@link #toString()} to a caller-owned builder.
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        return sb.append("Doctor ID: ").append(id)
+                .append(" | Name: ").append(name)
+                .append(" | Specialization: ").append(specialization)
+                .append(" | Experience: ").append(yearsOfExperience).append(" years")
+                .append(" | Patients: ").append(assignedPatients.size());
     }
 }
\ No newline at end of file
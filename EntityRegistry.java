@@ -0,0 +1,188 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Thread-safe registry of hospital entities with constant-time lookup by id.
+ * Keeps entities in registration order for listings and indexes them
+ * in an {@link IntObjectMap} for O(1) id lookups.
+ * Lookups and listings share a read lock; registrations take the write lock.
+ *
+ * @param <T> the entity type (Patient, Doctor, Appointment)
+ */
+public class EntityRegistry<T> implements Iterable<T> {
+    private final ArrayList<T> entities;
+    private final IntObjectMap<T> byId;
+    private final ToIntFunction<T> idOf;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates an empty registry.
+     * @param idOf function extracting the unique id from an entity
+     */
+    public EntityRegistry(ToIntFunction<T> idOf) {
+        if (idOf == null) {
+            throw new IllegalArgumentException("Id function cannot be null");
+        }
+        this.entities = new ArrayList<>();
+        this.byId = new IntObjectMap<>();
+        this.idOf = idOf;
+    }
+
+    /**
+     * Registers an entity.
+     * @param entity the entity to add
+     * @throws IllegalArgumentException if entity is null or its id is already registered
+     */
+    public void add(T entity) {
+        if (entity == null) {
+            throw new IllegalArgumentException("Entity cannot be null");
+        }
+        int id = idOf.applyAsInt(entity);
+        lock.writeLock().lock();
+        try {
+            if (byId.containsKey(id)) {
+                throw new IllegalArgumentException("Duplicate id: " + id);
+            }
+            byId.put(id, entity);
+            entities.add(entity);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Registers many entities under a single lock acquisition, e.g. when loading a snapshot.
+     * @throws IllegalArgumentException if an entity is null or an id is already registered;
+     *         entities before the offending one remain registered
+     */
+    public void addAll(Collection<? extends T> batch) {
+        lock.writeLock().lock();
+        try {
+            entities.ensureCapacity(entities.size() + batch.size());
+            byId.ensureCapacity(byId.size() + batch.size());
+            for (T entity : batch) {
+                if (entity == null) {
+                    throw new IllegalArgumentException("Entity cannot be null");
+                }
+                int id = idOf.applyAsInt(entity);
+                if (byId.containsKey(id)) {
+                    throw new IllegalArgumentException("Duplicate id: " + id);
+                }
+                byId.put(id, entity);
+                entities.add(entity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up an entity by id.
+     * @param id the entity id
+     * @return the entity, or null if not registered
+     */
+    public T get(int id) {
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Removes an entity by id. The id lookup is O(1); removal from the
+     * ordered listing is linear, which is acceptable for rare deletions.
+     * @return the removed entity, or null if not registered
+     */
+    public T remove(int id) {
+        lock.writeLock().lock();
+        try {
+            T removed = byId.remove(id);
+            if (removed != null) {
+                entities.remove(removed);
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entities.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Visits every entity in registration order while holding the read lock.
+     * The action must not register or remove entities in this registry.
+     */
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        lock.readLock().lock();
+        try {
+            for (T entity : entities) {
+                action.accept(entity);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a read-only copy of the entities in registration order,
+     * safe to iterate while other threads keep registering.
+     */
+    public List<T> snapshot() {
+        lock.readLock().lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(entities));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of up to {@code limit} entities starting at {@code offset}
+     * in registration order; empty past the end.
+     * @throws IllegalArgumentException if offset or limit is negative
+     */
+    public List<T> page(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit cannot be negative");
+        }
+        lock.readLock().lock();
+        try {
+            int from = Math.min(offset, entities.size());
+            int to = (int) Math.min((long) from + limit, entities.size());
+            return new ArrayList<>(entities.subList(from, to));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return snapshot().iterator();
+    }
+}
@@ -0,0 +1,168 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Measures {@link FullTextIndex}: the time to build it over generated
+ * diagnoses, medical histories and appointment notes, and the latency of
+ * word, AND and OR queries through the index against the parallel scan.
+ *
+ * Also checks that the index returns exactly what the scan returns, that
+ * diagnosis, history, notes and new-patient changes are picked up
+ * incrementally, and that malformed queries are rejected. Exits with status 1
+ * if a check fails.
+ *
+ * Run: java -Xmx2g -cp bin com.example.FullTextBenchmark [-Dbench.patients=200000]
+ */
+public class FullTextBenchmark {
+    private static final int PATIENTS = Integer.getInteger("bench.patients", 200_000);
+    private static final int DOCTORS = 100;
+    private static final int APPOINTMENTS_PER_DOCTOR = 200;
+    private static final String[] DIAGNOSES = {"Type 2 diabetes", "Hypertension", "Asthma", "COPD", "Migraine",
+            "Coronary artery disease", "Chronic kidney disease", "Osteoarthritis", "Depression", "Hypothyroidism"};
+    // Earlier words are drawn more often, so lists range from most patients to a handful
+    private static final String[] VOCABULARY = {"smoker", "allergy", "penicillin", "insulin", "metformin",
+            "obesity", "statin", "surgery", "appendectomy", "fracture", "asthma", "inhaler", "hypertension",
+            "lisinopril", "family", "history", "cancer", "stroke", "anemia", "pregnancy", "warfarin", "pacemaker",
+            "dialysis", "transplant", "hepatitis", "tuberculosis", "measles", "shingles", "gout", "psoriasis",
+            "eczema", "sleep", "apnea", "glaucoma", "cataract", "scoliosis", "lupus", "sarcoidosis"};
+    private static final String[] QUERIES = {"insulin", "diabetes AND insulin", "asthma OR copd",
+            "hypertension (smoker OR obesity)", "lupus sarcoidosis", "dialysis OR transplant OR pacemaker", "zzzz"};
+    private static final String[] NOTE_QUERIES = {"follow", "blood AND pressure", "x-ray OR mri"};
+    private static final String[] NOTES = {"Follow-up in two weeks", "Blood pressure elevated", "Ordered X-ray",
+            "MRI scheduled", "Blood pressure normal, follow-up in six months", "Referred to physiotherapy"};
+
+    private static int failures;
+
+    public static void main(String[] args) {
+        HospitalService service = generate(new Random(42));
+        System.out.printf("%d patients, %d appointments%n", service.getPatients().size(), service.getAppointments().size());
+
+        FullTextIndex index = null;
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            index = new FullTextIndex(service);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf(Locale.ROOT, "build: %.1f ms (best of 3), %d distinct words%n", best / 1e6, index.getWordCount());
+
+        System.out.printf("%-38s %14s %14s %10s%n", "query", "scan ns/op", "index ns/op", "matches");
+        FullTextIndex idx = index;
+        Function<Patient, String> text = p -> p.getDiagnosis() + " " + p.getMedicalHistory();
+        for (String query : QUERIES) {
+            compare(query, () -> idx.searchPatients(query), () -> idx.scanPatients(query, text));
+        }
+        for (String query : NOTE_QUERIES) {
+            compare("notes: " + query, () -> idx.searchAppointments(query),
+                    () -> idx.scanAppointments(query, Appointment::getNotes));
+        }
+
+        checkIncremental(service, index);
+        checkSyntax(index);
+
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All checks passed");
+    }
+
+    private static <T> void compare(String label, Supplier<List<T>> indexed,
+                                    Supplier<List<T>> scanned) {
+        List<T> expected = scanned.get();
+        List<T> actual = indexed.get();
+        int iterations = Math.max(5, 2_000_000 / PATIENTS);
+        long scan = SearchBenchmark.time(iterations, () -> scanned.get().size());
+        long index = SearchBenchmark.time(iterations * 10, () -> indexed.get().size());
+        System.out.printf("%-38s %14d %14d %10d%n", label, scan, index, actual.size());
+        check(actual.equals(expected), label + ": index and scan agree");
+    }
+
+    private static void checkIncremental(HospitalService service, FullTextIndex index) {
+        MutationEvents.register(index);
+        try {
+            Patient patient = service.getPatients().snapshot().get(6);
+            service.updateDiagnosis(patient.getId(), "Kawasaki disease");
+            check(index.searchPatients("kawasaki").equals(List.of(patient)), "a new diagnosis is searchable");
+
+            patient.setMedicalHistory("Childhood varicella; allergy to latex");
+            check(index.searchPatients("varicella latex").equals(List.of(patient)), "a new history is searchable");
+            check(!index.searchPatients("kawasaki OR varicella").isEmpty()
+                    && index.searchPatients("varicella AND lupus").isEmpty(), "AND/OR over the updated fields");
+            patient.setMedicalHistory("Seasonal hay fever");
+            check(index.searchPatients("varicella").isEmpty() && index.searchPatients("hay fever").equals(List.of(patient)),
+                    "a replaced history is no longer found by its old words");
+
+            Appointment appointment = service.getAppointments().snapshot().get(0);
+            appointment.setNotes("Suspected Lyme borreliosis");
+            check(index.searchAppointments("lyme").equals(List.of(appointment)), "new notes are searchable");
+            check(index.searchPatients("borreliosis", EnumSet.of(FullTextIndex.Field.NOTES))
+                            .equals(List.of(appointment.getPatient())), "notes hits map to the appointment's patient");
+
+            Patient added = service.registerPatient("Late Arrival", 30);
+            service.updateDiagnosis(added.getId(), "Kawasaki disease");
+            check(index.searchPatients("kawasaki").equals(List.of(patient, added)), "a new patient is indexed");
+        } finally {
+            MutationEvents.unregister(index);
+        }
+        Patient patient = service.getPatients().snapshot().get(6);
+        service.updateDiagnosis(patient.getId(), "Takayasu arteritis");
+        check(index.searchPatients("takayasu").isEmpty(), "an unregistered index no longer follows changes");
+    }
+
+    private static void checkSyntax(FullTextIndex index) {
+        for (String query : new String[] {"", "AND", "(asthma OR copd", "asthma)", "--"}) {
+            try {
+                index.searchPatients(query);
+                check(false, "query '" + query + "' is rejected");
+            } catch (IllegalArgumentException e) {
+                check(true, "query '" + query + "' is rejected: " + e.getMessage());
+            }
+        }
+        check(index.searchPatients("ASTHMA or Copd").equals(index.searchPatients("asthma OR copd")),
+                "words and operators are case-insensitive");
+        check(index.searchPatients("type-2 diabetes").equals(index.searchPatients("type AND 2 AND diabetes")),
+                "a hyphenated word requires all its parts");
+    }
+
+    private static HospitalService generate(Random random) {
+        HospitalService service = new HospitalService();
+        for (int i = 0; i < PATIENTS; i++) {
+            Patient patient = service.registerPatient("Patient " + i, random.nextInt(100));
+            if (random.nextInt(3) > 0) {
+                service.updateDiagnosis(patient.getId(), DIAGNOSES[random.nextInt(DIAGNOSES.length)]);
+            }
+            StringBuilder history = new StringBuilder();
+            for (int w = 4 + random.nextInt(12); w > 0; w--) {
+                history.append(VOCABULARY[random.nextInt(random.nextInt(VOCABULARY.length) + 1)]).append(' ');
+            }
+            patient.setMedicalHistory(history.toString());
+        }
+        List<Patient> patients = service.getPatients().snapshot();
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+        for (int d = 0; d < DOCTORS; d++) {
+            Doctor doctor = service.registerDoctor("Dr. Index " + d, "General");
+            for (int a = 0; a < APPOINTMENTS_PER_DOCTOR; a++) {
+                int patientId = patients.get(random.nextInt(patients.size())).getId();
+                Appointment appointment = service.scheduleAppointment(patientId, doctor.getId(), start.plusHours(a), "Check-up");
+                appointment.setNotes(NOTES[random.nextInt(NOTES.length)]);
+            }
+        }
+        return service;
+    }
+
+    private static void check(boolean ok, String what) {
+        System.out.println((ok ? "✓ " : "✗ ") + what);
+        if (!ok) {
+            failures++;
+        }
+    }
+}
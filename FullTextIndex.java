@@ -0,0 +1,682 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Word-level inverted index over patients' diagnoses and medical histories and
+ * appointments' notes, for clinical searches such as
+ * {@code diabetes AND (insulin OR metformin)}.
+ *
+ * Texts are split into lower-cased runs of letters and digits. Each distinct
+ * word of a field has a sorted {@link PostingList} of the ids whose text contains
+ * it, and a forward map keeps each document's words so an edit removes exactly
+ * the postings the old text added. A query is answered by intersecting and
+ * merging posting lists; no text is read.
+ *
+ * Query syntax: words separated by spaces must all occur (AND is implied and
+ * may be written), {@code OR} joins alternatives and binds looser than AND,
+ * parentheses group. Operators are case-insensitive. A word that splits into
+ * several (e.g. "type-2") requires all of its parts.
+ *
+ * The {@link MutationListener} callbacks keep the index current: a new patient
+ * or appointment is indexed, and a diagnosis, history or notes change re-indexes
+ * that one field. The new text is read under the write lock, so two quick edits
+ * of one field cannot be applied out of order.
+ *
+ * Fields that are not indexed, such as appointment purposes, are searched with
+ * the same syntax by {@link #scanPatients} and {@link #scanAppointments}, which
+ * check ranges of the registry in parallel on the common fork-join pool.
+ *
+ * Like {@link HospitalStatistics}, the index is built from the service on
+ * construction; register it with {@link MutationEvents} right after creating it.
+ */
+public class FullTextIndex implements MutationListener {
+    // Records per fork-join leaf when building or scanning
+    private static final int SPLIT_THRESHOLD = 1024;
+    private static final String[] NO_WORDS = new String[0];
+
+    /** The indexed texts. */
+    public enum Field {
+        DIAGNOSIS, MEDICAL_HISTORY, NOTES
+    }
+
+    private static final Set<Field> PATIENT_FIELDS = EnumSet.of(Field.DIAGNOSIS, Field.MEDICAL_HISTORY);
+    private static final int FIELDS = Field.values().length;
+
+    private final HospitalService service;
+    private final Map<String, Term> dictionary = new HashMap<>();
+    // Per field, document id (patient or appointment) -> the distinct terms indexed for it
+    private final IntObjectMap<Term[]>[] documents;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates an index of the service's current patients and appointments.
+     * The texts are split into words in parallel, then added in id order.
+     */
+    public FullTextIndex(HospitalService service) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        this.service = service;
+        @SuppressWarnings("unchecked")
+        IntObjectMap<Term[]>[] created = (IntObjectMap<Term[]>[]) new IntObjectMap<?>[FIELDS];
+        this.documents = created;
+        for (int f = 0; f < FIELDS; f++) {
+            documents[f] = new IntObjectMap<>();
+        }
+        List<Patient> patients = service.getPatients().snapshot();
+        List<Appointment> appointments = service.getAppointments().snapshot();
+        String[][] diagnoses = new String[patients.size()][];
+        String[][] histories = new String[patients.size()][];
+        String[][] notes = new String[appointments.size()][];
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        pool.invoke(new ForRange(0, patients.size(), i -> {
+            diagnoses[i] = words(patients.get(i).getDiagnosis());
+            histories[i] = words(patients.get(i).getMedicalHistory());
+        }));
+        pool.invoke(new ForRange(0, appointments.size(), i -> notes[i] = words(appointments.get(i).getNotes())));
+        lock.writeLock().lock();
+        try {
+            documents[Field.DIAGNOSIS.ordinal()].ensureCapacity(patients.size());
+            documents[Field.MEDICAL_HISTORY.ordinal()].ensureCapacity(patients.size());
+            for (int i = 0; i < diagnoses.length; i++) {
+                int id = patients.get(i).getId();
+                index(Field.DIAGNOSIS, id, diagnoses[i]);
+                index(Field.MEDICAL_HISTORY, id, histories[i]);
+            }
+            for (int i = 0; i < notes.length; i++) {
+                index(Field.NOTES, appointments.get(i).getId(), notes[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the patients whose diagnosis or medical history matches the query.
+     * @return matches in ascending id order
+     * @throws IllegalArgumentException if the query is malformed or has no words
+     */
+    public List<Patient> searchPatients(String query) {
+        return searchPatients(query, PATIENT_FIELDS);
+    }
+
+    /**
+     * Finds the patients whose text in any of the fields matches the query;
+     * each word may occur in a different field. A patient's notes are the notes
+     * of all their appointments.
+     * @return matches in ascending id order
+     * @throws IllegalArgumentException if the query is malformed or has no words
+     */
+    public List<Patient> searchPatients(String query, Set<Field> fields) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("At least one field is required");
+        }
+        Node node = parse(query);
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            ids = node.ids(word -> patientIds(word, fields));
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Patient> results = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Patient patient = service.findPatient(id);
+            if (patient != null) {
+                results.add(patient);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Finds the appointments whose notes match the query.
+     * @return matches in ascending id order
+     * @throws IllegalArgumentException if the query is malformed or has no words
+     */
+    public List<Appointment> searchAppointments(String query) {
+        Node node = parse(query);
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            ids = node.ids(word -> postings(word, Field.NOTES));
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Appointment> results = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Appointment appointment = service.findAppointment(id);
+            if (appointment != null) {
+                results.add(appointment);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Checks every patient's text in a field that is not indexed, in parallel.
+     * @param field the text to search, e.g. {@code Patient::getContactNumber}
+     * @return matches in registration order
+     */
+    public List<Patient> scanPatients(String query, Function<Patient, String> field) {
+        return scan(parse(query), service.getPatients().snapshot(), field);
+    }
+
+    /**
+     * Checks every appointment's text in a field that is not indexed, in parallel.
+     * @param field the text to search, e.g. {@code Appointment::getPurpose}
+     * @return matches in registration order
+     */
+    public List<Appointment> scanAppointments(String query, Function<Appointment, String> field) {
+        return scan(parse(query), service.getAppointments().snapshot(), field);
+    }
+
+    /** Number of distinct words indexed across all fields. */
+    public int getWordCount() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of documents with at least one word in the field. */
+    public int getDocumentCount(Field field) {
+        lock.readLock().lock();
+        try {
+            return documents[field.ordinal()].size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Incremental updates ---
+
+    @Override
+    public void patientAdded(Patient patient) {
+        if (service.findPatient(patient.getId()) != patient) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            index(Field.DIAGNOSIS, patient.getId(), words(patient.getDiagnosis()));
+            index(Field.MEDICAL_HISTORY, patient.getId(), words(patient.getMedicalHistory()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void diagnosisChanged(Patient patient, String oldDiagnosis) {
+        if (service.findPatient(patient.getId()) == patient) {
+            reindex(Field.DIAGNOSIS, patient.getId(), patient::getDiagnosis);
+        }
+    }
+
+    @Override
+    public void medicalHistoryChanged(Patient patient) {
+        if (service.findPatient(patient.getId()) == patient) {
+            reindex(Field.MEDICAL_HISTORY, patient.getId(), patient::getMedicalHistory);
+        }
+    }
+
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        if (service.findAppointment(appointment.getId()) == appointment) {
+            reindex(Field.NOTES, appointment.getId(), appointment::getNotes);
+        }
+    }
+
+    @Override
+    public void notesChanged(Appointment appointment) {
+        if (service.findAppointment(appointment.getId()) == appointment) {
+            reindex(Field.NOTES, appointment.getId(), appointment::getNotes);
+        }
+    }
+
+    private void reindex(Field field, int id, Supplier<String> text) {
+        lock.writeLock().lock();
+        try {
+            index(field, id, words(text.get()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Replaces the document's words in the field; caller holds the write lock
+    private void index(Field field, int id, String[] words) {
+        int f = field.ordinal();
+        IntObjectMap<Term[]> docs = documents[f];
+        Term[] old = docs.get(id);
+        if (old != null) {
+            for (Term term : old) {
+                term.postings[f].remove(id);
+                if (term.isEmpty()) {
+                    dictionary.remove(term.word);
+                }
+            }
+        }
+        if (words.length == 0) {
+            if (old != null) {
+                docs.remove(id);
+            }
+            return;
+        }
+        Term[] terms = new Term[words.length];
+        for (int i = 0; i < words.length; i++) {
+            Term term = dictionary.get(words[i]);
+            if (term == null) {
+                term = new Term(words[i]);
+                dictionary.put(words[i], term);
+            }
+            if (term.postings[f] == null) {
+                term.postings[f] = new PostingList();
+            }
+            term.postings[f].add(id);
+            terms[i] = term;
+        }
+        docs.put(id, terms);
+    }
+
+    // --- Lookups; caller holds the read lock ---
+
+    private int[] postings(String word, Field field) {
+        Term term = dictionary.get(word);
+        PostingList list = term == null ? null : term.postings[field.ordinal()];
+        return list == null ? new int[0] : list.toArray();
+    }
+
+    // Patients with the word in any of the fields; notes hits are mapped to the appointment's patient
+    private int[] patientIds(String word, Set<Field> fields) {
+        int[] ids = new int[0];
+        for (Field field : fields) {
+            int[] hits = postings(word, field);
+            if (field == Field.NOTES) {
+                int count = 0;
+                for (int appointmentId : hits) {
+                    Appointment appointment = service.findAppointment(appointmentId);
+                    if (appointment != null) {
+                        hits[count++] = appointment.getPatient().getId();
+                    }
+                }
+                Arrays.sort(hits, 0, count);
+                hits = distinct(hits, count);
+            }
+            ids = union(ids, hits);
+        }
+        return ids;
+    }
+
+    // --- Words ---
+
+    /**
+     * The distinct lower-cased runs of letters and digits in a text.
+     */
+    static String[] words(String text) {
+        if (text == null || text.isEmpty()) {
+            return NO_WORDS;
+        }
+        Set<String> words = null;
+        int n = text.length();
+        for (int i = 0; i < n; ) {
+            while (i < n && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < n && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                if (words == null) {
+                    words = new HashSet<>();
+                }
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return words == null ? NO_WORDS : words.toArray(NO_WORDS);
+    }
+
+    private static <T> List<T> scan(Node query, List<T> records, Function<T, String> field) {
+        boolean[] hits = new boolean[records.size()];
+        ForkJoinPool.commonPool().invoke(new ForRange(0, records.size(),
+                i -> hits[i] = query.matches(Set.of(words(field.apply(records.get(i)))))));
+        List<T> results = new ArrayList<>();
+        for (int i = 0; i < hits.length; i++) {
+            if (hits[i]) {
+                results.add(records.get(i));
+            }
+        }
+        return results;
+    }
+
+    // --- Query parsing and evaluation ---
+
+    /**
+     * Parses a query into AND/OR nodes.
+     * @throws IllegalArgumentException if the query is malformed or has no words
+     */
+    static Node parse(String query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        Parser parser = new Parser(query);
+        Node node = parser.or();
+        if (parser.pos < parser.tokens.size()) {
+            throw new IllegalArgumentException("Unbalanced parentheses in query");
+        }
+        if (node == null) {
+            throw new IllegalArgumentException("Query has no searchable words");
+        }
+        return node;
+    }
+
+    private static final class Parser {
+        final List<String> tokens = new ArrayList<>();
+        int pos;
+
+        // Splits into "(", ")" and space-separated words
+        Parser(String query) {
+            int n = query.length();
+            for (int i = 0; i < n; ) {
+                char c = query.charAt(i);
+                if (c == '(' || c == ')') {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else if (Character.isWhitespace(c)) {
+                    i++;
+                } else {
+                    int start = i;
+                    while (i < n && !Character.isWhitespace(query.charAt(i))
+                            && query.charAt(i) != '(' && query.charAt(i) != ')') {
+                        i++;
+                    }
+                    tokens.add(query.substring(start, i));
+                }
+            }
+        }
+
+        // or := and ("OR" and)*
+        Node or() {
+            List<Node> parts = new ArrayList<>();
+            add(parts, and());
+            while (accept("OR")) {
+                add(parts, and());
+            }
+            return parts.isEmpty() ? null : parts.size() == 1 ? parts.get(0) : new Or(parts.toArray(new Node[0]));
+        }
+
+        // and := unary (["AND"] unary)*
+        Node and() {
+            List<Node> parts = new ArrayList<>();
+            while (pos < tokens.size() && !peek(")") && !peek("OR")) {
+                if (accept("AND")) {
+                    continue;
+                }
+                add(parts, unary());
+            }
+            return parts.isEmpty() ? null : parts.size() == 1 ? parts.get(0) : new And(parts.toArray(new Node[0]));
+        }
+
+        // unary := "(" or ")" | word
+        Node unary() {
+            if (accept("(")) {
+                Node inner = or();
+                if (!accept(")")) {
+                    throw new IllegalArgumentException("Unbalanced parentheses in query");
+                }
+                return inner;
+            }
+            String[] parts = words(tokens.get(pos++));
+            if (parts.length == 0) {
+                return null;
+            }
+            if (parts.length == 1) {
+                return new Word(parts[0]);
+            }
+            Node[] all = new Node[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                all[i] = new Word(parts[i]);
+            }
+            return new And(all);
+        }
+
+        private boolean peek(String token) {
+            return pos < tokens.size() && tokens.get(pos).equalsIgnoreCase(token);
+        }
+
+        private boolean accept(String token) {
+            if (peek(token)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private static void add(List<Node> parts, Node node) {
+            if (node != null) {
+                parts.add(node);
+            }
+        }
+    }
+
+    abstract static class Node {
+        /** Sorted ids matching this node, given the sorted ids of each word. */
+        abstract int[] ids(Function<String, int[]> lookup);
+
+        /** True if a document with these words matches. */
+        abstract boolean matches(Set<String> words);
+    }
+
+    private static final class Word extends Node {
+        final String word;
+
+        Word(String word) {
+            this.word = word;
+        }
+
+        @Override
+        int[] ids(Function<String, int[]> lookup) {
+            return lookup.apply(word);
+        }
+
+        @Override
+        boolean matches(Set<String> words) {
+            return words.contains(word);
+        }
+    }
+
+    private static final class And extends Node {
+        final Node[] parts;
+
+        And(Node[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        int[] ids(Function<String, int[]> lookup) {
+            int[][] lists = new int[parts.length][];
+            for (int i = 0; i < parts.length; i++) {
+                lists[i] = parts[i].ids(lookup);
+                if (lists[i].length == 0) {
+                    return lists[i];
+                }
+            }
+            // Shortest first, so every intersection is at most as long as it
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+            int[] result = lists[0];
+            for (int i = 1; i < lists.length && result.length > 0; i++) {
+                result = intersect(result, lists[i]);
+            }
+            return result;
+        }
+
+        @Override
+        boolean matches(Set<String> words) {
+            for (Node part : parts) {
+                if (!part.matches(words)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Or extends Node {
+        final Node[] parts;
+
+        Or(Node[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        int[] ids(Function<String, int[]> lookup) {
+            int[] result = new int[0];
+            for (Node part : parts) {
+                result = union(result, part.ids(lookup));
+            }
+            return result;
+        }
+
+        @Override
+        boolean matches(Set<String> words) {
+            for (Node part : parts) {
+                if (part.matches(words)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Sorted intersection; binary-searches the long list when the short one is much shorter
+    private static int[] intersect(int[] shorter, int[] longer) {
+        int[] result = new int[shorter.length];
+        int count = 0;
+        if (shorter.length * 16 < longer.length) {
+            int from = 0;
+            for (int id : shorter) {
+                int at = Arrays.binarySearch(longer, from, longer.length, id);
+                if (at >= 0) {
+                    result[count++] = id;
+                    from = at + 1;
+                } else {
+                    from = -at - 1;
+                }
+            }
+        } else {
+            for (int i = 0, j = 0; i < shorter.length && j < longer.length; ) {
+                if (shorter[i] < longer[j]) {
+                    i++;
+                } else if (shorter[i] > longer[j]) {
+                    j++;
+                } else {
+                    result[count++] = shorter[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[count++] = a[i++];
+        }
+        while (j < b.length) {
+            result[count++] = b[j++];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Drops repeats from the first count entries of a sorted array
+    private static int[] distinct(int[] sorted, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (kept == 0 || sorted[kept - 1] != sorted[i]) {
+                sorted[kept++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, kept);
+    }
+
+    /** One indexed word with its posting list per field (null where it never occurs). */
+    private static final class Term {
+        final String word;
+        final PostingList[] postings = new PostingList[FIELDS];
+
+        Term(String word) {
+            this.word = word;
+        }
+
+        boolean isEmpty() {
+            for (PostingList list : postings) {
+                if (list != null && list.size > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /** Runs the body for every index of a range, splitting it across the fork-join pool. */
+    private static final class ForRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        ForRange(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ForRange(from, mid, body), new ForRange(mid, to, body));
+        }
+    }
+}
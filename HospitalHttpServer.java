@@ -0,0 +1,563 @@
+package com.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/JSON API over {@link HospitalService}, on the JDK's built-in
+ * {@code com.sun.net.httpserver}. Every request runs on its own virtual thread
+ * when the JVM has them (Java 21+); older JVMs use a fixed pool of platform
+ * threads ({@code -Dhms.httpThreads}, default 256). All state lives in the
+ * thread-safe service, so handlers need no locking of their own.
+ *
+ * Routes (request and response bodies are JSON objects):
+ * <pre>
+ *   GET  /patients?offset=0&amp;limit=100        POST /patients {"name","age"[,"diagnosis"]}
+ *   GET  /patients/{id}                        PUT  /patients/{id}/diagnosis {"diagnosis"}
+ *   PUT  /patients/{id}/doctor {"doctorId"}    DELETE /patients/{id}/doctor
+ *   GET  /patients/search?q=smith&amp;limit=20
+ *   GET  /doctors?offset=0&amp;limit=100         POST /doctors {"name","specialization"}
+ *   GET  /doctors/{id}                         (includes the roster's patient ids)
+ *   GET  /appointments?status=Scheduled        POST /appointments {"patientId","doctorId","time","purpose"}
+ *   GET  /appointments?from=2026-01-05 08:00&amp;to=2026-01-05 12:00[&amp;status=Scheduled]  (by time, from the calendar)
+ *   GET  /appointments/{id}                    PUT  /appointments/{id}/status {"status"}
+ *   GET  /metrics                              (text table)
+ * </pre>
+ * Unknown ids give 404, invalid input (including a malformed id) 400 and rule violations (a taken slot,
+ * an illegal status change) 409; error bodies are {"error": "..."}.
+ */
+public class HospitalHttpServer implements AutoCloseable {
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    static {
+        // Headers and body go out in separate writes; without TCP_NODELAY every small
+        // response waits ~40 ms on Nagle's algorithm and the client's delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HospitalService service;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final OperationStats requestStats;
+    private volatile boolean readOnly;
+
+    /**
+     * Binds the server; call {@link #start()} to begin serving.
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public HospitalHttpServer(HospitalService service, int port) throws IOException {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        this.service = service;
+        this.requestStats = service.getMetrics().operation("http.request");
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(Integer.getInteger("hms.httpThreads", 256));
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() { return server.getAddress().getPort(); }
+
+    /**
+     * Rejects every request but GET with 405, as on a replica whose data only
+     * changes through replication.
+     */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /** True if requests run on virtual threads rather than a platform thread pool. */
+    public boolean usesVirtualThreads() { return virtualThreads; }
+
+    /**
+     * Stops accepting requests, gives running ones up to a second to finish,
+     * then shuts down the executor.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when running on Java 21+, else null
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Response response;
+            try {
+                response = readOnly && !exchange.getRequestMethod().equals("GET")
+                        ? Response.error(405, "Read-only replica; send changes to the shard leader")
+                        : route(exchange);
+            } catch (NotFoundException e) {
+                response = Response.error(404, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                response = Response.error(400, e.getMessage());
+            } catch (IllegalStateException e) {
+                response = Response.error(409, e.getMessage());
+            } catch (RuntimeException e) {
+                requestStats.recordError();
+                response = Response.error(500, e.toString());
+            }
+            send(exchange, response);
+        } finally {
+            exchange.close();
+            requestStats.record(start);
+        }
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        // path[0] is the empty string before the leading slash
+        String resource = path.length > 1 ? path[1] : "";
+        String id = path.length > 2 ? path[2] : null;
+        String sub = path.length > 3 ? path[3] : null;
+        if (path.length > 4) {
+            throw new NotFoundException("No such resource");
+        }
+
+        switch (resource) {
+            case "patients" -> {
+                if (id == null) {
+                    if (method.equals("GET")) {
+                        return listPatients(query);
+                    }
+                    if (method.equals("POST")) {
+                        return createPatient(body(exchange));
+                    }
+                } else if (id.equals("search") && sub == null) {
+                    if (method.equals("GET")) {
+                        return searchPatients(query);
+                    }
+                } else if (sub == null) {
+                    if (method.equals("GET")) {
+                        return Response.json(200, patientJson(new StringBuilder(), requirePatient(id)));
+                    }
+                } else if (sub.equals("diagnosis")) {
+                    if (method.equals("PUT")) {
+                        return updateDiagnosis(requirePatient(id), body(exchange));
+                    }
+                } else if (sub.equals("doctor")) {
+                    if (method.equals("PUT")) {
+                        return assign(requirePatient(id), body(exchange));
+                    }
+                    if (method.equals("DELETE")) {
+                        return unassign(requirePatient(id));
+                    }
+                } else {
+                    throw new NotFoundException("No such resource");
+                }
+            }
+            case "doctors" -> {
+                if (id == null) {
+                    if (method.equals("GET")) {
+                        return listDoctors(query);
+                    }
+                    if (method.equals("POST")) {
+                        return createDoctor(body(exchange));
+                    }
+                } else if (sub == null) {
+                    if (method.equals("GET")) {
+                        return doctorDetails(requireDoctor(id));
+                    }
+                } else {
+                    throw new NotFoundException("No such resource");
+                }
+            }
+            case "appointments" -> {
+                if (id == null) {
+                    if (method.equals("GET")) {
+                        return listAppointments(query);
+                    }
+                    if (method.equals("POST")) {
+                        return createAppointment(body(exchange));
+                    }
+                } else if (sub == null) {
+                    if (method.equals("GET")) {
+                        return Response.json(200, appointmentJson(new StringBuilder(), requireAppointment(id)));
+                    }
+                } else if (sub.equals("status")) {
+                    if (method.equals("PUT")) {
+                        return updateStatus(requireAppointment(id), body(exchange));
+                    }
+                } else {
+                    throw new NotFoundException("No such resource");
+                }
+            }
+            case "metrics" -> {
+                if (id == null && method.equals("GET")) {
+                    return new Response(200, "text/plain; charset=utf-8", service.getMetrics().dump());
+                }
+            }
+            default -> throw new NotFoundException("No such resource");
+        }
+        return Response.error(405, "Method " + method + " not allowed here");
+    }
+
+    // --- Patients ---
+
+    private Response listPatients(Map<String, String> query) {
+        List<Patient> page = service.getPatients().page(intParam(query, "offset", 0), limitParam(query));
+        StringBuilder sb = new StringBuilder(128 + page.size() * 128).append("{\"total\":")
+                .append(service.getPatients().size()).append(",\"patients\":[");
+        for (int i = 0; i < page.size(); i++) {
+            patientJson(i == 0 ? sb : sb.append(','), page.get(i));
+        }
+        return Response.json(200, sb.append("]}"));
+    }
+
+    private Response createPatient(Map<String, String> body) {
+        String name = required(body, "name");
+        long age = InputValidator.tryParseIntInRange(required(body, "age"), 0, 150);
+        if (age == InputValidator.INVALID) {
+            throw new IllegalArgumentException("Age must be between 0 and 150");
+        }
+        String diagnosis = body.get("diagnosis");
+        if (diagnosis == null) {
+            return Response.json(201, patientJson(new StringBuilder(), service.registerPatient(name.trim(), (int) age)));
+        }
+        // One batch, so a rejected diagnosis leaves no patient behind for a retry to duplicate
+        CommandBatch batch = new CommandBatch(2);
+        int reference = batch.registerPatient(name.trim(), (int) age);
+        batch.updateDiagnosis(reference, diagnosis);
+        Patient patient;
+        try {
+            patient = service.execute(batch).getPatient(reference);
+        } catch (IllegalArgumentException e) {
+            // Report the field's own message, not the position of a command the client never sent
+            throw e.getCause() instanceof IllegalArgumentException cause ? cause : e;
+        }
+        return Response.json(201, patientJson(new StringBuilder(), patient));
+    }
+
+    private Response searchPatients(Map<String, String> query) {
+        String term = query.get("q");
+        if (!InputValidator.isValidString(term)) {
+            throw new IllegalArgumentException("Query parameter q is required");
+        }
+        List<Patient> matches = service.searchPatientsRanked(term, limitParam(query));
+        StringBuilder sb = new StringBuilder(64 + matches.size() * 128).append("{\"patients\":[");
+        for (int i = 0; i < matches.size(); i++) {
+            patientJson(i == 0 ? sb : sb.append(','), matches.get(i));
+        }
+        return Response.json(200, sb.append("]}"));
+    }
+
+    private Response updateDiagnosis(Patient patient, Map<String, String> body) {
+        service.updateDiagnosis(patient.getId(), required(body, "diagnosis"));
+        return Response.json(200, patientJson(new StringBuilder(), patient));
+    }
+
+    private Response assign(Patient patient, Map<String, String> body) {
+        Doctor doctor = requireDoctor(required(body, "doctorId"));
+        Doctor previous = service.assignPatient(patient.getId(), doctor.getId());
+        StringBuilder sb = new StringBuilder(192).append("{\"patient\":");
+        patientJson(sb, patient).append(",\"previousDoctorId\":");
+        return Response.json(200, (previous == null ? sb.append("null") : sb.append(previous.getId())).append('}'));
+    }
+
+    private Response unassign(Patient patient) {
+        Doctor doctor = patient.getAssignedDoctor();
+        if (doctor == null || !service.unassignPatient(patient.getId(), doctor.getId())) {
+            throw new IllegalStateException("Patient is not assigned to a doctor");
+        }
+        return Response.json(200, patientJson(new StringBuilder(), patient));
+    }
+
+    // --- Doctors ---
+
+    private Response listDoctors(Map<String, String> query) {
+        List<Doctor> page = service.getDoctors().page(intParam(query, "offset", 0), limitParam(query));
+        StringBuilder sb = new StringBuilder(128 + page.size() * 96).append("{\"total\":")
+                .append(service.getDoctors().size()).append(",\"doctors\":[");
+        for (int i = 0; i < page.size(); i++) {
+            doctorJson(i == 0 ? sb : sb.append(','), page.get(i));
+        }
+        return Response.json(200, sb.append("]}"));
+    }
+
+    private Response createDoctor(Map<String, String> body) {
+        Doctor doctor = service.registerDoctor(required(body, "name").trim(), required(body, "specialization").trim());
+        return Response.json(201, doctorJson(new StringBuilder(), doctor));
+    }
+
+    private Response doctorDetails(Doctor doctor) {
+        StringBuilder sb = doctorJson(new StringBuilder(256), doctor);
+        sb.setLength(sb.length() - 1);
+        sb.append(",\"patientIds\":[");
+        int[] first = {1};
+        service.forEachAssignedPatient(doctor, p -> {
+            if (first[0] == 0) {
+                sb.append(',');
+            }
+            first[0] = 0;
+            sb.append(p.getId());
+        });
+        return Response.json(200, sb.append("]}"));
+    }
+
+    // --- Appointments ---
+
+    private Response listAppointments(Map<String, String> query) {
+        String status = query.get("status");
+        List<Appointment> list;
+        if (query.containsKey("from") || query.containsKey("to")) {
+            list = page(service.getAppointmentsBetween(timeParam(query, "from"), timeParam(query, "to"),
+                    status == null ? null : AppointmentStatus.fromLabel(status)), query);
+        } else if (status != null) {
+            list = page(service.getAppointmentsByStatus(AppointmentStatus.fromLabel(status)), query);
+        } else {
+            list = service.getAppointments().page(intParam(query, "offset", 0), limitParam(query));
+        }
+        StringBuilder sb = new StringBuilder(64 + list.size() * 160).append("{\"appointments\":[");
+        for (int i = 0; i < list.size(); i++) {
+            appointmentJson(i == 0 ? sb : sb.append(','), list.get(i));
+        }
+        return Response.json(200, sb.append("]}"));
+    }
+
+    private Response createAppointment(Map<String, String> body) {
+        Patient patient = requirePatient(required(body, "patientId"));
+        Doctor doctor = requireDoctor(required(body, "doctorId"));
+        LocalDateTime time = InputValidator.parseDateTime(required(body, "time"));
+        if (time == null) {
+            throw new IllegalArgumentException("Invalid time, use yyyy-MM-dd HH:mm");
+        }
+        Appointment appointment = service.scheduleAppointment(patient.getId(), doctor.getId(), time, required(body, "purpose"));
+        return Response.json(201, appointmentJson(new StringBuilder(), appointment));
+    }
+
+    private Response updateStatus(Appointment appointment, Map<String, String> body) {
+        service.updateAppointmentStatus(appointment.getId(), AppointmentStatus.fromLabel(required(body, "status")));
+        return Response.json(200, appointmentJson(new StringBuilder(), appointment));
+    }
+
+    private List<Appointment> page(List<Appointment> all, Map<String, String> query) {
+        int from = Math.min(intParam(query, "offset", 0), all.size());
+        return all.subList(from, (int) Math.min((long) from + limitParam(query), all.size()));
+    }
+
+    // --- Lookups and parameters ---
+
+    private Patient requirePatient(String id) {
+        Patient patient = service.findPatient(idParam(id));
+        if (patient == null) {
+            throw new NotFoundException("Patient not found: " + id);
+        }
+        return patient;
+    }
+
+    private Doctor requireDoctor(String id) {
+        Doctor doctor = service.findDoctor(idParam(id));
+        if (doctor == null) {
+            throw new NotFoundException("Doctor not found: " + id);
+        }
+        return doctor;
+    }
+
+    private Appointment requireAppointment(String id) {
+        Appointment appointment = service.findAppointment(idParam(id));
+        if (appointment == null) {
+            throw new NotFoundException("Appointment not found: " + id);
+        }
+        return appointment;
+    }
+
+    private static int idParam(String id) {
+        long value = InputValidator.tryParseIntInRange(id, 1, Integer.MAX_VALUE);
+        if (value == InputValidator.INVALID) {
+            throw new IllegalArgumentException("Invalid id: " + id);
+        }
+        return (int) value;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String text = query.get(name);
+        if (text == null) {
+            return defaultValue;
+        }
+        long value = InputValidator.tryParseIntInRange(text, 0, Integer.MAX_VALUE);
+        if (value == InputValidator.INVALID) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + text);
+        }
+        return (int) value;
+    }
+
+    private static LocalDateTime timeParam(Map<String, String> query, String name) {
+        LocalDateTime time = InputValidator.parseDateTime(required(query, name));
+        if (time == null) {
+            throw new IllegalArgumentException("Invalid " + name + ", use yyyy-MM-dd HH:mm");
+        }
+        return time;
+    }
+
+    private static int limitParam(Map<String, String> query) {
+        return Math.min(intParam(query, "limit", DEFAULT_LIMIT), MAX_LIMIT);
+    }
+
+    private static String required(Map<String, String> body, String field) {
+        String value = body.get(field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Field \"" + field + "\" is required");
+        }
+        return value;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static Map<String, String> body(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            String json = new String(bytes, StandardCharsets.UTF_8).trim();
+            if (json.isEmpty()) {
+                throw new IllegalArgumentException("A JSON object body is required");
+            }
+            return BulkImporter.JsonLine.parseObject(json);
+        }
+    }
+
+    // --- JSON rendering ---
+
+    static StringBuilder patientJson(StringBuilder sb, Patient p) {
+        Doctor doctor = p.getAssignedDoctor();
+        sb.append("{\"id\":").append(p.getId()).append(",\"name\":");
+        string(sb, p.getName()).append(",\"age\":").append(p.getAge()).append(",\"diagnosis\":");
+        string(sb, p.getDiagnosis()).append(",\"doctorId\":");
+        return (doctor == null ? sb.append("null") : sb.append(doctor.getId())).append('}');
+    }
+
+    static StringBuilder doctorJson(StringBuilder sb, Doctor d) {
+        sb.append("{\"id\":").append(d.getId()).append(",\"name\":");
+        string(sb, d.getName()).append(",\"specialization\":");
+        return string(sb, d.getSpecialization()).append(",\"patients\":").append(d.getAssignedPatients().size()).append('}');
+    }
+
+    static StringBuilder appointmentJson(StringBuilder sb, Appointment a) {
+        sb.append("{\"id\":").append(a.getId())
+                .append(",\"patientId\":").append(a.getPatient().getId())
+                .append(",\"doctorId\":").append(a.getDoctor().getId())
+                .append(",\"time\":");
+        string(sb, a.getAppointmentTime().format(Appointment.TIME_FORMAT)).append(",\"purpose\":");
+        string(sb, a.getPurpose()).append(",\"status\":");
+        string(sb, a.getStatus().getLabel()).append(",\"notes\":");
+        return string(sb, a.getNotes()).append('}');
+    }
+
+    static StringBuilder string(StringBuilder sb, String value) {
+        if (value == null) {
+            return sb.append("null");
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"');
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", response.contentType);
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final String contentType;
+        final String body;
+
+        Response(int status, String contentType, String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        static Response json(int status, CharSequence body) {
+            return new Response(status, "application/json; charset=utf-8", body.toString());
+        }
+
+        static Response error(int status, String message) {
+            return json(status, string(new StringBuilder("{\"error\":"), message).append('}'));
+        }
+    }
+
+    // An unknown id or path, answered with 404
+    private static final class NotFoundException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+}
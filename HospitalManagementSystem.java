@@ -1,7 +1,23 @@
 package com.example;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Hospital Management System - Main application class
@@ -14,49 +30,254 @@ import java.util.Scanner;
  * - Comprehensive error handling
  */
 public class HospitalManagementSystem {
-    // Lists to store data
-    private static final ArrayList<Patient> patients = new ArrayList<>();
-    private static final ArrayList<Doctor> doctors = new ArrayList<>();
-    private static final ArrayList<Appointment> appointments = new ArrayList<>();
+    // Thread-safe service layer holding all data and performing every mutation
+    private static final HospitalService service = new HospitalService();
+
+    // Registries to store data (registration order + O(1) lookup by id)
+    private static final EntityRegistry<Patient> patients = service.getPatients();
+    private static final EntityRegistry<Doctor> doctors = service.getDoctors();
+    private static final EntityRegistry<Appointment> appointments = service.getAppointments();
+
+    // Persistence files (override with -Dhms.journal=path and -Dhms.snapshot=path)
+    private static final Path JOURNAL_PATH = Paths.get(System.getProperty("hms.journal", "hospital.journal"));
+    private static final Path SNAPSHOT_PATH = Paths.get(System.getProperty("hms.snapshot", "hospital.snapshot"));
+    private static final long SNAPSHOT_INTERVAL_MINUTES = 5;
+
+    private static MutationJournal journal;
+    private static SnapshotManager snapshots;
+    private static AssignmentScheduler scheduler;
+    private static HospitalStatistics statistics;
+
+    // Rendered records, searches and rosters (override with -Dhms.cacheSize=records and -Dhms.cacheTtl=seconds)
+    private static final int CACHE_SIZE = Integer.getInteger("hms.cacheSize", 10_000);
+    private static final long CACHE_TTL_SECONDS = Long.getLong("hms.cacheTtl", 300);
+    private static RecordCache recordCache;
+    private static FullTextIndex textIndex;
+
+    // Metrics dump file and interval (override with -Dhms.metricsFile=path and -Dhms.metricsInterval=seconds)
+    private static final Path METRICS_PATH = Paths.get(System.getProperty("hms.metricsFile", "hospital-metrics.txt"));
+    private static final long METRICS_INTERVAL_SECONDS = Long.getLong("hms.metricsInterval", 60);
+    private static final String METRICS_MBEAN = "com.example:type=Metrics";
+
+    // Per menu action, indexed by choice; latency includes the time spent at the prompts
+    private static final String[] MENU_ACTIONS = {
+        "addPatient", "addDoctor", "viewPatients", "viewDoctors", "assign", "updateDiagnosis",
+        "search", "doctorDetails", "schedule", "viewAppointments", "updateStatus", "bulkImport", "statistics"
+    };
+    private static final OperationStats[] menuStats = new OperationStats[MENU_ACTIONS.length + 1];
+
+    // Reminders raised by the appointment sweeper, shown before the next menu
+    private static final Queue<Appointment> pendingReminders = new ConcurrentLinkedQueue<>();
+
+    // Port of the HTTP API started with the --http [port] argument
+    private static final int DEFAULT_HTTP_PORT = 8080;
+
+    // Listings stream through one buffered writer instead of a println per row
+    private static final Writer console = new BufferedWriter(new OutputStreamWriter(System.out, Charset.defaultCharset()));
 
     public static void main(String[] args) {
         System.out.println("\n╔════════════════════════════════════════╗");
         System.out.println("║   Welcome to Hospital Management System   ║");
         System.out.println("╚════════════════════════════════════════╝\n");
 
+        startPersistence();
+        // Seeded after the restore so it sees the saved rosters and appointments
+        scheduler = new AssignmentScheduler(service);
+        MutationEvents.register(scheduler);
+        statistics = new HospitalStatistics(service);
+        MutationEvents.register(statistics);
+        recordCache = new RecordCache(service, CACHE_SIZE, Math.max(1, CACHE_SIZE / 10), Duration.ofSeconds(CACHE_TTL_SECONDS));
+        MutationEvents.register(recordCache);
+        textIndex = new FullTextIndex(service);
+        MutationEvents.register(textIndex);
+        startMetrics();
+        // After the restore, so appointments whose slot ended while stopped are marked missed
+        service.setReminderListener(pendingReminders::add);
+        service.startSweeper(1, TimeUnit.MINUTES);
+        if (args.length > 0 && args[0].equals("--http")) {
+            serveHttp(args.length > 1 ? InputValidator.parseInteger(args[1]) : DEFAULT_HTTP_PORT);
+            return;
+        }
         try (Scanner sc = new Scanner(System.in)) {
             int choice;
 
             do {
+                showReminders();
                 displayMainMenu();
                 String line = sc.nextLine();
                 choice = InputValidator.parseInteger(line);
+                OperationStats stats = choice > 0 && choice < menuStats.length ? menuStats[choice] : null;
+                long start = System.nanoTime();
 
                 try {
                     switch (choice) {
                         case 1 -> addPatient(sc);
                         case 2 -> addDoctor(sc);
-                        case 3 -> viewPatients();
-                        case 4 -> viewDoctors();
+                        case 3 -> viewPatients(sc);
+                        case 4 -> viewDoctors(sc);
                         case 5 -> assignPatientToDoctor(sc);
                         case 6 -> updatePatientDiagnosis(sc);
                         case 7 -> searchPatient(sc);
                         case 8 -> viewDoctorDetails(sc);
                         case 9 -> scheduleAppointment(sc);
-                        case 10 -> viewAppointments();
+                        case 10 -> viewAppointments(sc);
                         case 11 -> updateAppointmentStatus(sc);
-                        case 12 -> {
+                        case 12 -> bulkImport(sc);
+                        case 13 -> showStatistics();
+                        case 14 -> {
                             System.out.println("\n✓ Thank you for using Hospital Management System. Goodbye!");
                         }
-                        default -> System.out.println("❌ Invalid choice! Please try again (1-12).");
+                        default -> System.out.println("❌ Invalid choice! Please try again (1-14).");
                     }
                 } catch (Exception e) {
+                    if (stats != null) {
+                        stats.recordError();
+                    }
                     System.out.println("❌ An error occurred: " + e.getMessage());
+                } finally {
+                    if (stats != null) {
+                        stats.record(start);
+                    }
                 }
-            } while (choice != 12);
+            } while (choice != 14);
         } catch (Exception e) {
             System.out.println("❌ Fatal error: " + e.getMessage());
             System.err.println("Error details: " + e.toString());
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Stops the sweeper, detaches the mutation listeners, then saves the data
+     * and the final metrics dump. Shared by the menu's exit, a failed HTTP
+     * start and the HTTP shutdown hook.
+     */
+    private static void shutdown() {
+        service.stopSweeper();
+        MutationEvents.unregister(scheduler);
+        MutationEvents.unregister(statistics);
+        MutationEvents.unregister(recordCache);
+        MutationEvents.unregister(textIndex);
+        stopPersistence();
+        stopMetrics();
+    }
+
+    /**
+     * Serves the HTTP API instead of the menu until the process is stopped
+     * (Ctrl+C); a shutdown hook then saves the data as the menu's Exit does.
+     */
+    private static void serveHttp(int port) {
+        HospitalHttpServer server;
+        try {
+            server = new HospitalHttpServer(service, port);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("❌ Could not start the HTTP API on port " + port + ": " + e.getMessage());
+            shutdown();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            shutdown();
+            System.out.println("✓ HTTP API stopped, data saved.");
+        }, "http-shutdown"));
+        // No menu to show them before: print reminders as they come
+        service.setReminderListener(appointment -> System.out.println("🔔 Reminder: " + appointment));
+        server.start();
+        System.out.println("✓ HTTP API listening on http://localhost:" + server.getPort() + "/ ("
+                + (server.usesVirtualThreads() ? "virtual threads" : "thread pool") + "); press Ctrl+C to stop.");
+    }
+
+    /**
+     * Registers the menu actions, exposes the metrics over JMX and starts the
+     * periodic dump file.
+     */
+    private static void startMetrics() {
+        MetricsRegistry metrics = service.getMetrics();
+        for (int i = 0; i < MENU_ACTIONS.length; i++) {
+            menuStats[i + 1] = metrics.operation("menu." + MENU_ACTIONS[i]);
+        }
+        recordCache.registerMetrics(metrics);
+        try {
+            metrics.registerMBean(METRICS_MBEAN);
+        } catch (IllegalStateException e) {
+            System.out.println("❌ " + e.getMessage());
+        }
+        if (METRICS_INTERVAL_SECONDS > 0) {
+            metrics.scheduleDump(METRICS_PATH, METRICS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Writes a final metrics dump and unregisters the MBean.
+     */
+    private static void stopMetrics() {
+        MetricsRegistry metrics = service.getMetrics();
+        metrics.close();
+        try {
+            metrics.writeDump(METRICS_PATH);
+        } catch (IOException e) {
+            System.out.println("❌ Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads the latest snapshot, replays newer journal records, then starts
+     * journaling new mutations and writing periodic background snapshots.
+     */
+    private static void startPersistence() {
+        try {
+            long start = System.nanoTime();
+            MutationJournal.Checkpoint checkpoint = SnapshotManager.load(SNAPSHOT_PATH, service);
+            journal = MutationJournal.open(JOURNAL_PATH, service, true, checkpoint);
+            MutationEvents.register(journal);
+            if (checkpoint != null || journal.getReplayedRecords() > 0) {
+                System.out.printf("✓ Restored %d patients, %d doctors and %d appointments in %d ms%n",
+                        patients.size(), doctors.size(), appointments.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            snapshots = new SnapshotManager(SNAPSHOT_PATH, service, journal);
+            snapshots.schedulePeriodic(SNAPSHOT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("❌ Could not restore saved data: " + e.getMessage());
+            System.out.println("   Changes in this session will not be saved.");
+            if (journal != null) {
+                MutationEvents.unregister(journal);
+                closeQuietly(journal);
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Writes a final snapshot so the next start is fast, then closes the journal.
+     */
+    private static void stopPersistence() {
+        if (journal == null) {
+            return;
+        }
+        snapshots.close();
+        try {
+            snapshots.write();
+        } catch (IOException e) {
+            System.out.println("❌ Error writing snapshot: " + e.getMessage());
+        }
+        MutationEvents.unregister(journal);
+        closeQuietly(journal);
+    }
+
+    private static void closeQuietly(MutationJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.out.println("❌ Error closing journal: " + e.getMessage());
+        }
+    }
+
+    private static void showReminders() {
+        Appointment appointment;
+        while ((appointment = pendingReminders.poll()) != null) {
+            System.out.println("🔔 Reminder: " + appointment);
         }
     }
 
@@ -73,7 +294,9 @@ public class HospitalManagementSystem {
         System.out.println("│ 9.  Schedule Appointment                │");
         System.out.println("│ 10. View Appointments                   │");
         System.out.println("│ 11. Update Appointment Status           │");
-        System.out.println("│ 12. Exit                                │");
+        System.out.println("│ 12. Bulk Import (CSV / JSON lines)      │");
+        System.out.println("│ 13. Statistics Dashboard                │");
+        System.out.println("│ 14. Exit                                │");
         System.out.println("└─────────────────────────────────────────┘");
         System.out.print("Enter your choice: ");
     }
@@ -95,8 +318,7 @@ public class HospitalManagementSystem {
                 return;
             }
 
-            Patient patient = new Patient(name, age);
-            patients.add(patient);
+            Patient patient = service.registerPatient(name, age);
             System.out.println("✓ Patient added successfully! (ID: " + patient.getId() + ")");
         } catch (IllegalArgumentException e) {
             System.out.println("❌ Error: " + e.getMessage());
@@ -118,47 +340,109 @@ public class HospitalManagementSystem {
                 spec = "General";
             }
 
-            Doctor doctor = new Doctor(name, spec);
-            doctors.add(doctor);
+            Doctor doctor = service.registerDoctor(name, spec);
             System.out.println("✓ Doctor added successfully! (ID: " + doctor.getId() + ")");
         } catch (IllegalArgumentException e) {
             System.out.println("❌ Error: " + e.getMessage());
         }
     }
 
-    private static void viewPatients() {
+    private static void viewPatients(Scanner sc) {
         System.out.println("\n╔════ Patient List ═════╗");
         if (patients.isEmpty()) {
             System.out.println("║ No patients registered yet!     ║");
             System.out.println("╚═════════════════════════════════╝");
             return;
         }
-        for (Patient p : patients) {
-            System.out.println(p);
-        }
+        System.out.println("Total: " + patients.size() + " | Unassigned: " + service.countUnassignedPatients());
+        browse(sc, ListingRenderer.patients(), patients);
         System.out.println("╚════════════════════════════════════╝");
     }
 
-    private static void viewDoctors() {
+    private static void viewDoctors(Scanner sc) {
         System.out.println("\n╔════ Doctor List ══════╗");
         if (doctors.isEmpty()) {
             System.out.println("║ No doctors registered yet!      ║");
             System.out.println("╚═════════════════════════════════╝");
             return;
         }
-        for (Doctor d : doctors) {
-            System.out.println(d);
-        }
+        browse(sc, ListingRenderer.doctors(), doctors);
         System.out.println("╚════════════════════════════════════╝");
     }
 
+    /**
+     * Shows a listing one page at a time. Between pages the user can sort,
+     * filter, export the whole listing to a file, or go back. Without a
+     * scanner only the first page is printed, for the flows that ask for an
+     * ID right after the listing.
+     */
+    private static <T> void browse(Scanner sc, ListingRenderer<T> renderer, EntityRegistry<T> registry) {
+        renderer.open(registry);
+        boolean showPage = true;
+        while (true) {
+            try {
+                if (showPage) {
+                    if (renderer.getRowCount() == 0) {
+                        System.out.println("  (no matching records)");
+                    }
+                    renderer.writeNextPage(console);
+                    System.out.printf("── Showing %d of %d ──%n", renderer.getPosition(), renderer.getRowCount());
+                }
+                if (sc == null) {
+                    if (renderer.hasNextPage()) {
+                        System.out.println("(more records: page through them from the main menu)");
+                    }
+                    return;
+                }
+                showPage = true;
+                System.out.println("[Enter] next page | s <field> [desc] sort | f <field> <text> filter (f alone clears)");
+                System.out.println("e <file> export | q back   (fields: " + String.join(", ", renderer.getFieldNames()) + ")");
+                System.out.print("> ");
+                String[] command = sc.nextLine().trim().split("\\s+", 3);
+                switch (command[0].toLowerCase()) {
+                    case "", "n" -> {
+                        if (!renderer.hasNextPage()) {
+                            return;
+                        }
+                    }
+                    case "q" -> {
+                        return;
+                    }
+                    case "s" -> renderer.sortBy(command.length > 1 ? command[1] : null,
+                            command.length > 2 && command[2].equalsIgnoreCase("desc"));
+                    case "f" -> renderer.filter(command.length > 1 ? command[1] : null, command.length > 2 ? command[2] : "");
+                    case "e" -> {
+                        showPage = false;
+                        if (command.length < 2) {
+                            System.out.println("❌ Please give a file name.");
+                        } else {
+                            String file = command.length > 2 ? command[1] + " " + command[2] : command[1];
+                            int rows = renderer.exportTo(Paths.get(file));
+                            System.out.println("✓ Exported " + rows + " records to " + file);
+                        }
+                    }
+                    default -> {
+                        showPage = false;
+                        System.out.println("❌ Unknown command.");
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                showPage = false;
+                System.out.println("❌ Error: " + e.getMessage());
+            } catch (IOException e) {
+                showPage = false;
+                System.out.println("❌ Error writing listing: " + e.getMessage());
+            }
+        }
+    }
+
     private static void viewDoctorDetails(Scanner sc) {
         if (doctors.isEmpty()) {
             System.out.println("❌ No doctors registered yet!");
             return;
         }
 
-        viewDoctors();
+        viewDoctors(null);
         System.out.print("Enter doctor ID to view details: ");
         String didLine = sc.nextLine();
         int doctorId = InputValidator.parseInteger(didLine);
@@ -174,18 +458,46 @@ public class HospitalManagementSystem {
         }
 
         System.out.println("\n╔════ Doctor Details ═══╗");
-        System.out.println(doctor);
+        System.out.println(recordCache.render(doctor));
+        StringBuilder counts = new StringBuilder("Appointments:");
+        statistics.getAppointmentCounts(doctor.getId()).forEach((status, count) ->
+                counts.append(' ').append(status.getLabel()).append(' ').append(count).append(','));
+        counts.setLength(counts.length() - 1);
+        System.out.println(counts);
         System.out.println("Assigned Patients:");
-        if (doctor.getAssignedPatients().isEmpty()) {
+        List<Patient> roster = recordCache.getAssignedPatients(doctor);
+        if (roster.isEmpty()) {
             System.out.println("  (none)");
         } else {
-            for (Patient p : doctor.getAssignedPatients()) {
-                System.out.println("  " + p);
+            for (Patient p : roster) {
+                System.out.println("  " + recordCache.render(p));
             }
         }
         System.out.println("╚════════════════════════════════════╝");
     }
 
+    /**
+     * Prints the incrementally maintained aggregates; reading them does not
+     * touch the patient, doctor or appointment lists.
+     */
+    private static void showStatistics() {
+        System.out.println("\n╔════ Statistics ═══════╗");
+        System.out.printf("Patients: %d | Unassigned: %d | Average age: %.1f%n",
+                statistics.getPatientCount(), statistics.getUnassignedCount(), statistics.getAverageAge());
+        System.out.println("Patients by diagnosis:");
+        statistics.getDiagnosisCounts().forEach((diagnosis, count) -> System.out.println("  " + diagnosis + ": " + count));
+        System.out.println("Doctors by specialization:");
+        statistics.getSpecializationCounts().forEach((specialization, count) ->
+                System.out.println("  " + specialization + ": " + count));
+        StringBuilder counts = new StringBuilder("Appointments:");
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            counts.append(' ').append(status.getLabel()).append(' ').append(statistics.countAppointments(status)).append(',');
+        }
+        counts.setLength(counts.length() - 1);
+        System.out.println(counts);
+        System.out.println("╚════════════════════════════════════╝");
+    }
+
     private static void assignPatientToDoctor(Scanner sc) {
         try {
             if (patients.isEmpty() || doctors.isEmpty()) {
@@ -193,30 +505,50 @@ public class HospitalManagementSystem {
                 return;
             }
 
-            viewPatients();
-            System.out.print("Enter patient ID: ");
+            viewPatients(null);
+            System.out.print("Enter patient ID (or 'all' to auto-assign every unassigned patient): ");
             String pidLine = sc.nextLine();
+            if (pidLine.trim().equalsIgnoreCase("all")) {
+                autoAssignUnassigned(sc);
+                return;
+            }
             int patientId = InputValidator.parseInteger(pidLine);
             if (patientId == -1) {
                 System.out.println("❌ Invalid patient ID.");
                 return;
             }
 
-            viewDoctors();
-            System.out.print("Enter doctor ID: ");
+            viewDoctors(null);
+            System.out.print("Enter doctor ID (or a specialization to pick its least-loaded doctor): ");
             String didLine = sc.nextLine();
-            int doctorId = InputValidator.parseInteger(didLine);
-            if (doctorId == -1) {
-                System.out.println("❌ Invalid doctor ID.");
+            long doctorId = InputValidator.tryParseInt(didLine);
+            if (doctorId == InputValidator.INVALID) {
+                if (!InputValidator.isValidString(didLine)) {
+                    System.out.println("❌ Invalid doctor ID.");
+                    return;
+                }
+                if (findPatientById(patientId) == null) {
+                    System.out.println("❌ Patient not found!");
+                    return;
+                }
+                Doctor chosen = scheduler.assign(patientId, didLine.trim());
+                System.out.println("✓ Patient assigned to " + chosen.getName() + " (ID " + chosen.getId()
+                        + ", load " + scheduler.getLoad(chosen) + ")!");
                 return;
             }
 
             Patient patient = findPatientById(patientId);
-            Doctor doctor = findDoctorById(doctorId);
+            Doctor doctor = findDoctorById((int) doctorId);
 
             if (patient != null && doctor != null) {
-                doctor.assignPatient(patient);
-                System.out.println("✓ Patient assigned successfully!");
+                Doctor previous = service.assignPatient(patient.getId(), doctor.getId());
+                if (previous == doctor) {
+                    System.out.println("✓ Patient is already assigned to " + doctor.getName() + ".");
+                } else if (previous != null) {
+                    System.out.println("✓ Patient moved from " + previous.getName() + " (ID " + previous.getId() + ")!");
+                } else {
+                    System.out.println("✓ Patient assigned successfully!");
+                }
             } else {
                 System.out.println("❌ Invalid patient or doctor ID!");
             }
@@ -225,6 +557,23 @@ public class HospitalManagementSystem {
         }
     }
 
+    private static void autoAssignUnassigned(Scanner sc) {
+        List<Integer> waiting = new ArrayList<>();
+        patients.forEach(p -> {
+            if (p.getAssignedDoctor() == null) {
+                waiting.add(p.getId());
+            }
+        });
+        if (waiting.isEmpty()) {
+            System.out.println("✓ Every patient already has a doctor.");
+            return;
+        }
+        System.out.println("Specializations: " + String.join(", ", scheduler.getSpecializations()));
+        String specialization = InputValidator.getValidString(sc, "Assign " + waiting.size() + " patient(s) to specialization: ");
+        int added = scheduler.assignAll(specialization, waiting);
+        System.out.println("✓ Assigned " + added + " patient(s) across the least-loaded " + specialization + " doctors.");
+    }
+
     private static void updatePatientDiagnosis(Scanner sc) {
         try {
             if (patients.isEmpty()) {
@@ -232,7 +581,7 @@ public class HospitalManagementSystem {
                 return;
             }
 
-            viewPatients();
+            viewPatients(null);
             System.out.print("Enter patient ID: ");
             String pidLine = sc.nextLine();
             int patientId = InputValidator.parseInteger(pidLine);
@@ -249,7 +598,7 @@ public class HospitalManagementSystem {
                     System.out.println("❌ Invalid diagnosis. Please enter a non-empty value.");
                     return;
                 }
-                patient.setDiagnosis(diagnosis);
+                service.updateDiagnosis(patient.getId(), diagnosis);
                 System.out.println("✓ Diagnosis updated successfully!");
             } else {
                 System.out.println("❌ Patient not found!");
@@ -265,24 +614,32 @@ public class HospitalManagementSystem {
             return;
         }
 
-        System.out.print("Enter patient name to search (partial match supported): ");
-        String searchName = sc.nextLine().toLowerCase();
+        System.out.println("Search by: 1. Name  2. Diagnosis, history and notes (AND/OR, parentheses)");
+        System.out.print("Enter choice: ");
+        boolean byText = sc.nextLine().trim().equals("2");
+        System.out.print(byText ? "Enter words to search: " : "Enter patient name to search (partial match supported): ");
+        String searchName = sc.nextLine();
 
         if (!InputValidator.isValidString(searchName)) {
             System.out.println("❌ Invalid search term.");
             return;
         }
 
-        boolean found = false;
+        List<Patient> results;
+        try {
+            results = byText
+                    ? textIndex.searchPatients(searchName, EnumSet.allOf(FullTextIndex.Field.class))
+                    : recordCache.searchPatients(searchName);
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ Error: " + e.getMessage());
+            return;
+        }
         System.out.println("\n╔════ Search Results ═══╗");
-        for (Patient p : patients) {
-            if (p.getName().toLowerCase().contains(searchName)) {
-                System.out.println(p);
-                found = true;
-            }
+        for (Patient p : results) {
+            System.out.println(recordCache.render(p));
         }
-        if (!found) {
-            System.out.println("❌ No patients found with that name!");
+        if (results.isEmpty()) {
+            System.out.println(byText ? "❌ No patients found with those words!" : "❌ No patients found with that name!");
         }
         System.out.println("╚════════════════════════════════════╝");
     }
@@ -294,7 +651,7 @@ public class HospitalManagementSystem {
                 return;
             }
 
-            viewPatients();
+            viewPatients(null);
             System.out.print("Enter patient ID: ");
             String pidLine = sc.nextLine();
             int patientId = InputValidator.parseInteger(pidLine);
@@ -309,7 +666,7 @@ public class HospitalManagementSystem {
                 return;
             }
 
-            viewDoctors();
+            viewDoctors(null);
             System.out.print("Enter doctor ID: ");
             String didLine = sc.nextLine();
             int doctorId = InputValidator.parseInteger(didLine);
@@ -324,6 +681,13 @@ public class HospitalManagementSystem {
                 return;
             }
 
+            System.out.print("Enter appointment date and time (yyyy-MM-dd HH:mm): ");
+            LocalDateTime time = InputValidator.parseDateTime(sc.nextLine());
+            if (time == null) {
+                System.out.println("❌ Invalid date/time. Use the format yyyy-MM-dd HH:mm.");
+                return;
+            }
+
             System.out.print("Enter appointment purpose: ");
             String purpose = sc.nextLine().trim();
             if (!InputValidator.isValidString(purpose)) {
@@ -331,22 +695,27 @@ public class HospitalManagementSystem {
                 return;
             }
 
-            System.out.println("✓ Appointment scheduled successfully!");
-        } catch (IllegalArgumentException e) {
+            Appointment appointment = service.scheduleAppointment(patient.getId(), doctor.getId(), time, purpose);
+            System.out.println("✓ Appointment scheduled successfully! (ID: " + appointment.getId() + ")");
+        } catch (IllegalArgumentException | IllegalStateException e) {
             System.out.println("❌ Error: " + e.getMessage());
         }
     }
 
-    private static void viewAppointments() {
+    private static void viewAppointments(Scanner sc) {
         System.out.println("\n╔════ Appointments ═════╗");
         if (appointments.isEmpty()) {
             System.out.println("║ No appointments scheduled yet!  ║");
             System.out.println("╚═════════════════════════════════╝");
             return;
         }
-        for (Appointment a : appointments) {
-            System.out.println(a);
-        }
+        StringBuilder counts = new StringBuilder("Total: ").append(appointments.size());
+        service.getAppointmentCounts().forEach((status, count) ->
+                counts.append(" | ").append(status.getLabel()).append(": ").append(count));
+        System.out.println(counts);
+        System.out.println("Today: " + service.getAppointmentsOn(LocalDate.now()).size()
+                + " | Scheduled in the next hour: " + service.getUpcomingAppointments(Duration.ofHours(1)).size());
+        browse(sc, ListingRenderer.appointments(), appointments);
         System.out.println("╚════════════════════════════════════╝");
     }
 
@@ -356,7 +725,7 @@ public class HospitalManagementSystem {
             return;
         }
 
-        viewAppointments();
+        viewAppointments(null);
         System.out.print("Enter appointment ID: ");
         String aidLine = sc.nextLine();
         int appointmentId = InputValidator.parseInteger(aidLine);
@@ -372,23 +741,23 @@ public class HospitalManagementSystem {
                 return;
             }
 
-            System.out.println("\nCurrent Status: " + appointment.getStatus());
-            System.out.println("1. Scheduled");
-            System.out.println("2. Completed");
-            System.out.println("3. Cancelled");
-            System.out.print("Enter new status (1-3): ");
+            AppointmentStatus current = appointment.getStatus();
+            System.out.println("\nCurrent Status: " + current.getLabel());
+            // Offer only the transitions the status allows
+            AppointmentStatus[] options = current.getNextStatuses().toArray(new AppointmentStatus[0]);
+            if (options.length == 0) {
+                System.out.println("❌ A " + current.getLabel().toLowerCase() + " appointment cannot change status.");
+                return;
+            }
+            for (int i = 0; i < options.length; i++) {
+                System.out.println((i + 1) + ". " + options[i].getLabel());
+            }
+            System.out.print("Enter new status (1-" + options.length + "): ");
             String choice = sc.nextLine();
-            int statusChoice = InputValidator.parseIntegerInRange(choice, 1, 3);
-
-            String newStatus = switch (statusChoice) {
-                case 1 -> "Scheduled";
-                case 2 -> "Completed";
-                case 3 -> "Cancelled";
-                default -> null;
-            };
+            int statusChoice = InputValidator.parseIntegerInRange(choice, 1, options.length);
 
-            if (newStatus != null) {
-                appointment.setStatus(newStatus);
+            if (statusChoice != -1) {
+                service.updateAppointmentStatus(appointment.getId(), options[statusChoice - 1]);
                 System.out.println("✓ Appointment status updated successfully!");
             } else {
                 System.out.println("❌ Invalid status choice.");
@@ -398,24 +767,43 @@ public class HospitalManagementSystem {
         }
     }
 
+    private static void bulkImport(Scanner sc) {
+        System.out.print("Enter path of the CSV or JSON-lines file to import: ");
+        String file = sc.nextLine().trim();
+        if (!InputValidator.isValidString(file)) {
+            System.out.println("❌ Invalid file name.");
+            return;
+        }
+        Path input = Paths.get(file);
+        if (!Files.isRegularFile(input)) {
+            System.out.println("❌ File not found: " + file);
+            return;
+        }
+        Path rejects = BulkImporter.rejectsPathFor(input);
+        try {
+            BulkImporter.Result result = new BulkImporter(service).importFile(input, rejects,
+                    (rows, rejected) -> System.out.printf("  ... %,d rows processed, %,d rejected%n", rows, rejected));
+            System.out.printf("✓ Imported %,d patients, %,d doctors, %,d assignments and %,d appointments "
+                            + "from %,d rows in %,d ms (%,d rows/s)%n",
+                    result.getPatients(), result.getDoctors(), result.getAssignments(), result.getAppointments(),
+                    result.getRows(), result.getElapsedMillis(), result.getRowsPerSecond());
+            if (result.getRejected() > 0) {
+                System.out.printf("❌ %,d rows were rejected; see %s%n", result.getRejected(), rejects);
+            }
+        } catch (IOException e) {
+            System.out.println("❌ Import failed: " + e.getMessage());
+        }
+    }
+
     private static Patient findPatientById(int id) {
-        return patients.stream()
-                .filter(p -> p.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return service.findPatient(id);
     }
 
     private static Doctor findDoctorById(int id) {
-        return doctors.stream()
-                .filter(d -> d.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return service.findDoctor(id);
     }
 
     private static Appointment findAppointmentById(int id) {
-        return appointments.stream()
-                .filter(a -> a.getId() == id)
-                .findFirst()
-                .orElse(null);
+        return service.findAppointment(id);
     }
 }
\ No newline at end of file
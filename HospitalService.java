@@ -0,0 +1,1053 @@
+package com.example;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe service layer behind the console menu.
+ * Holds the patient, doctor and appointment registries and performs every
+ * mutation so that several front desks can share one JVM.
+ *
+ * Concurrency model:
+ * - IDs come from the atomic counters in Patient, Doctor and Appointment
+ * - registries are guarded by their own read/write locks
+ * - mutations of a doctor's roster or appointments take that doctor's striped lock;
+ *   patient mutations take the patient's striped lock (always after the doctor lock)
+ * - moving a patient between doctors takes both doctors' locks in stripe order
+ * - each mutation is one journal batch, so a synchronous journal waits for its
+ *   records once, after the locks are released
+ *
+ * Assignments are tracked by reference in both directions (patient to doctor and
+ * the doctor's id-keyed roster), with a running count of assigned patients.
+ *
+ * Appointments are indexed by status, by day ({@link AppointmentCalendar}) and
+ * by their next reminder or end of slot ({@link AppointmentSweeper}); all three
+ * are updated under the doctor's lock.
+ */
+public class HospitalService {
+    private static final int LOCK_STRIPES = 64;
+    // Minutes before its start that an appointment is reminded (-Dhms.reminderMinutes)
+    private static final int REMINDER_MINUTES = Integer.getInteger("hms.reminderMinutes", 60);
+
+    private final EntityRegistry<Patient> patients = new EntityRegistry<>(Patient::getId);
+    private final EntityRegistry<Doctor> doctors = new EntityRegistry<>(Doctor::getId);
+    private final EntityRegistry<Appointment> appointments = new EntityRegistry<>(Appointment::getId);
+    private final NameIndex nameIndex = new NameIndex();
+    private final AppointmentStatusIndex statusIndex = new AppointmentStatusIndex();
+    private final AppointmentCalendar calendar = new AppointmentCalendar();
+    private final AppointmentSweeper sweeper = new AppointmentSweeper(REMINDER_MINUTES, LocalDateTime.now());
+    private final StripedLocks doctorLocks = new StripedLocks(LOCK_STRIPES);
+    private final StripedLocks patientLocks = new StripedLocks(LOCK_STRIPES);
+    private final AtomicInteger assignedCount = new AtomicInteger();
+    private volatile Consumer<Appointment> reminderListener = appointment -> { };
+    private ScheduledExecutorService sweepExecutor;
+
+    // Latency and error metrics of the public operations, always on
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final OperationStats registerPatientStats = metrics.operation("service.registerPatient");
+    private final OperationStats registerDoctorStats = metrics.operation("service.registerDoctor");
+    private final OperationStats assignStats = metrics.operation("service.assignPatient");
+    private final OperationStats assignBatchStats = metrics.operation("service.assignPatients");
+    private final OperationStats executeStats = metrics.operation("service.execute");
+    private final OperationStats searchStats = metrics.operation("service.searchPatients");
+    private final OperationStats searchRankedStats = metrics.operation("service.searchPatientsRanked");
+    private final OperationStats scheduleStats = metrics.operation("service.scheduleAppointment");
+    private final OperationStats statusStats = metrics.operation("service.updateAppointmentStatus");
+    private final OperationStats sweepStats = metrics.operation("service.sweepAppointments");
+
+    public HospitalService() {
+        metrics.gauge("registry.patients", patients::size);
+        metrics.gauge("registry.doctors", doctors::size);
+        metrics.gauge("registry.appointments", appointments::size);
+        metrics.gauge("patients.unassigned", this::countUnassignedPatients);
+        for (AppointmentStatus status : AppointmentStatus.values()) {
+            metrics.gauge("appointments." + status.name().toLowerCase(), () -> statusIndex.count(status));
+        }
+        metrics.gauge("appointments.timers", sweeper::size);
+    }
+
+    /** Operation counts, errors and latencies plus registry sizes. */
+    public MetricsRegistry getMetrics() { return metrics; }
+
+    // Registries (read access for listings)
+    public EntityRegistry<Patient> getPatients() { return patients; }
+    public EntityRegistry<Doctor> getDoctors() { return doctors; }
+    public EntityRegistry<Appointment> getAppointments() { return appointments; }
+
+    public Patient findPatient(int id) { return patients.get(id); }
+    public Doctor findDoctor(int id) { return doctors.get(id); }
+    public Appointment findAppointment(int id) { return appointments.get(id); }
+
+    /**
+     * Creates and registers a patient.
+     * @throws IllegalArgumentException if name or age is invalid
+     */
+    public Patient registerPatient(String name, int age) {
+        long start = System.nanoTime();
+        try {
+            return addPatient(new Patient(name, age));
+        } catch (RuntimeException e) {
+            registerPatientStats.recordError();
+            throw e;
+        } finally {
+            registerPatientStats.record(start);
+        }
+    }
+
+    /**
+     * Creates and registers a doctor.
+     * @throws IllegalArgumentException if name is invalid
+     */
+    public Doctor registerDoctor(String name, String specialization) {
+        long start = System.nanoTime();
+        try {
+            return addDoctor(new Doctor(name, specialization));
+        } catch (RuntimeException e) {
+            registerDoctorStats.recordError();
+            throw e;
+        } finally {
+            registerDoctorStats.record(start);
+        }
+    }
+
+    // Restore paths used when replaying persisted data: explicit IDs, no future-time check
+
+    Patient restorePatient(int id, String name, int age) {
+        return addPatient(new Patient(id, name, age));
+    }
+
+    Doctor restoreDoctor(int id, String name, String specialization) {
+        return addDoctor(new Doctor(id, name, specialization));
+    }
+
+    Appointment restoreAppointment(int id, int patientId, int doctorId, LocalDateTime time, String purpose) {
+        Patient patient = requirePatient(patientId);
+        Doctor doctor = requireDoctor(doctorId);
+        ReentrantLock lock = doctorLocks.lockFor(doctorId);
+        lock.lock();
+        try {
+            return addAppointment(new Appointment(id, patient, doctor, time, purpose));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void restoreAppointmentStatus(int appointmentId, AppointmentStatus status) {
+        Appointment appointment = requireAppointment(appointmentId);
+        ReentrantLock lock = doctorLocks.lockFor(appointment.getDoctor().getId());
+        lock.lock();
+        try {
+            statusIndex.moved(appointment, appointment.applyStatus(status));
+            sweeper.track(appointment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void restoreReschedule(int appointmentId, LocalDateTime newTime) {
+        Appointment appointment = requireAppointment(appointmentId);
+        ReentrantLock lock = doctorLocks.lockFor(appointment.getDoctor().getId());
+        lock.lock();
+        try {
+            LocalDateTime oldTime = appointment.getAppointmentTime();
+            appointment.moveTo(newTime);
+            moved(appointment, oldTime);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Registration paths for fully built entities loaded from a snapshot, a bulk import or a command batch
+
+    void restorePatients(List<Patient> batch) {
+        patients.addAll(batch);
+        nameIndex.addAll(batch);
+        for (Patient patient : batch) {
+            MutationEvents.patientAdded(patient);
+        }
+    }
+
+    void restoreDoctors(List<Doctor> batch) {
+        doctors.addAll(batch);
+        for (Doctor doctor : batch) {
+            MutationEvents.doctorAdded(doctor);
+        }
+    }
+
+    void restoreAssignment(Doctor doctor, Patient patient) {
+        if (patient.getAssignedDoctor() == null) {
+            assignedCount.incrementAndGet();
+        }
+        doctor.restoreAssignment(patient);
+    }
+
+    Appointment restoreAppointment(Appointment appointment) {
+        ReentrantLock lock = doctorLocks.lockFor(appointment.getDoctor().getId());
+        lock.lock();
+        try {
+            return addAppointment(appointment);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Patient addPatient(Patient patient) {
+        patients.add(patient);
+        nameIndex.add(patient);
+        MutationEvents.patientAdded(patient);
+        return patient;
+    }
+
+    private Doctor addDoctor(Doctor doctor) {
+        doctors.add(doctor);
+        MutationEvents.doctorAdded(doctor);
+        return doctor;
+    }
+
+    // Caller holds the doctor's lock; cancelled appointments hold no slot
+    private Appointment addAppointment(Appointment appointment) {
+        if (appointment.getStatus().holdsSlot()) {
+            appointment.getDoctor().getTimeline().add(appointment);
+        }
+        appointments.add(appointment);
+        statusIndex.add(appointment);
+        calendar.add(appointment);
+        sweeper.track(appointment);
+        MutationEvents.appointmentCreated(appointment);
+        return appointment;
+    }
+
+    // Caller holds the doctor's lock
+    private void moved(Appointment appointment, LocalDateTime oldTime) {
+        calendar.moved(appointment, oldTime);
+        sweeper.track(appointment);
+    }
+
+    /**
+     * Assigns a patient to a doctor, atomically moving it off the roster of the
+     * doctor it was assigned to before.
+     * @return the previous doctor, or null if the patient was unassigned
+     * @throws IllegalArgumentException if either id is unknown
+     */
+    public Doctor assignPatient(int patientId, int doctorId) {
+        long start = System.nanoTime();
+        try {
+            return movePatient(requirePatient(patientId), requireDoctor(doctorId));
+        } catch (RuntimeException e) {
+            assignStats.recordError();
+            throw e;
+        } finally {
+            assignStats.record(start);
+        }
+    }
+
+    /**
+     * Assigns several patients to a doctor. Unassigned patients are added under one
+     * acquisition of the doctor's lock; patients assigned elsewhere are then moved
+     * one by one, since each move also needs the previous doctor's lock.
+     * All ids are resolved first, so an unknown id assigns nothing.
+     * @return the number of patients newly added to the roster
+     * @throws IllegalArgumentException if any id is unknown
+     */
+    public int assignPatients(int doctorId, Collection<Integer> patientIds) {
+        long start = System.nanoTime();
+        MutationEvents.batchStarted();
+        try {
+            return assignBatch(doctorId, patientIds);
+        } catch (RuntimeException e) {
+            assignBatchStats.recordError();
+            throw e;
+        } finally {
+            MutationEvents.batchFinished();
+            assignBatchStats.record(start);
+        }
+    }
+
+    private int assignBatch(int doctorId, Collection<Integer> patientIds) {
+        Doctor doctor = requireDoctor(doctorId);
+        List<Patient> batch = new ArrayList<>(patientIds.size());
+        for (int patientId : patientIds) {
+            batch.add(requirePatient(patientId));
+        }
+        List<Patient> moves = new ArrayList<>();
+        int added = 0;
+        ReentrantLock lock = doctorLocks.lockFor(doctorId);
+        lock.lock();
+        try {
+            for (Patient patient : batch) {
+                ReentrantLock patientLock = patientLocks.lockFor(patient.getId());
+                patientLock.lock();
+                try {
+                    Doctor previous = patient.getAssignedDoctor();
+                    if (previous == null) {
+                        doctor.assignPatient(patient);
+                        assignedCount.incrementAndGet();
+                        added++;
+                    } else if (previous != doctor) {
+                        moves.add(patient);
+                    }
+                } finally {
+                    patientLock.unlock();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Patient patient : moves) {
+            if (movePatient(patient, doctor) != doctor) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    // Locks the patient's current doctor (if any) and the target in stripe order, then
+    // the patient. If another thread moved the patient before the locks were held, retry.
+    // Returns the previous doctor (the target itself if the patient was already there).
+    private Doctor movePatient(Patient patient, Doctor doctor) {
+        // The removal and the assignment are journaled as one batch, so a synchronous
+        // journal waits once for both, after the locks are released
+        MutationEvents.batchStarted();
+        try {
+            while (true) {
+                Doctor previous = patient.getAssignedDoctor();
+                if (previous == doctor) {
+                    return doctor;
+                }
+                ReentrantLock[] locks = previous == null
+                        ? new ReentrantLock[] {doctorLocks.lockFor(doctor.getId())}
+                        : doctorLocks.lockPair(previous.getId(), doctor.getId());
+                for (ReentrantLock lock : locks) {
+                    lock.lock();
+                }
+                try {
+                    ReentrantLock patientLock = patientLocks.lockFor(patient.getId());
+                    patientLock.lock();
+                    try {
+                        if (patient.getAssignedDoctor() != previous) {
+                            continue;
+                        }
+                        doctor.assignPatient(patient);
+                        if (previous == null) {
+                            assignedCount.incrementAndGet();
+                        }
+                        return previous;
+                    } finally {
+                        patientLock.unlock();
+                    }
+                } finally {
+                    for (int i = locks.length - 1; i >= 0; i--) {
+                        locks[i].unlock();
+                    }
+                }
+            }
+        } finally {
+            MutationEvents.batchFinished();
+        }
+    }
+
+    /**
+     * Removes a patient from a doctor's roster under the doctor's striped lock.
+     * @return true if the patient was on the roster
+     * @throws IllegalArgumentException if either id is unknown
+     */
+    public boolean unassignPatient(int patientId, int doctorId) {
+        Patient patient = requirePatient(patientId);
+        Doctor doctor = requireDoctor(doctorId);
+        ReentrantLock doctorLock = doctorLocks.lockFor(doctorId);
+        ReentrantLock patientLock = patientLocks.lockFor(patientId);
+        MutationEvents.batchStarted();
+        doctorLock.lock();
+        try {
+            patientLock.lock();
+            try {
+                if (!doctor.removePatient(patient)) {
+                    return false;
+                }
+                assignedCount.decrementAndGet();
+                return true;
+            } finally {
+                patientLock.unlock();
+            }
+        } finally {
+            doctorLock.unlock();
+            MutationEvents.batchFinished();
+        }
+    }
+
+    /**
+     * Moves a doctor's whole roster to another doctor, holding both doctors'
+     * locks (taken in stripe order) for the duration of the move.
+     * @return the number of patients moved
+     * @throws IllegalArgumentException if either id is unknown
+     */
+    public int transferPatients(int fromDoctorId, int toDoctorId) {
+        Doctor from = requireDoctor(fromDoctorId);
+        Doctor to = requireDoctor(toDoctorId);
+        ReentrantLock[] locks = doctorLocks.lockPair(fromDoctorId, toDoctorId);
+        MutationEvents.batchStarted();
+        locks[0].lock();
+        try {
+            locks[1].lock();
+            try {
+                return Doctor.transferPatients(from, to);
+            } finally {
+                locks[1].unlock();
+            }
+        } finally {
+            locks[0].unlock();
+            MutationEvents.batchFinished();
+        }
+    }
+
+    /**
+     * Returns the doctor a patient is assigned to, in O(1).
+     * @return the doctor, or null if the patient is unassigned
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public Doctor getDoctorOf(int patientId) {
+        return requirePatient(patientId).getAssignedDoctor();
+    }
+
+    /**
+     * Number of patients on a doctor's roster, in O(1).
+     * @throws IllegalArgumentException if the id is unknown
+     */
+    public int countAssignedPatients(int doctorId) {
+        Doctor doctor = requireDoctor(doctorId);
+        ReentrantLock lock = doctorLocks.lockFor(doctorId);
+        lock.lock();
+        try {
+            return doctor.getAssignedPatients().size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of registered patients without a doctor, in O(1).
+     */
+    public int countUnassignedPatients() {
+        return patients.size() - assignedCount.get();
+    }
+
+    /**
+     * Returns a copy of the doctor's roster taken under the doctor's lock.
+     */
+    public List<Patient> getAssignedPatients(Doctor doctor) {
+        ReentrantLock lock = doctorLocks.lockFor(doctor.getId());
+        lock.lock();
+        try {
+            return new ArrayList<>(doctor.getAssignedPatients());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Visits the doctor's roster in assignment order under the doctor's lock,
+     * without copying it. The action must not change any roster.
+     */
+    public void forEachAssignedPatient(Doctor doctor, Consumer<Patient> action) {
+        ReentrantLock lock = doctorLocks.lockFor(doctor.getId());
+        lock.lock();
+        try {
+            doctor.getAssignedPatients().forEach(action);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Updates a patient's diagnosis under the patient's striped lock.
+     * @throws IllegalArgumentException if the id is unknown or the diagnosis is empty
+     */
+    public void updateDiagnosis(int patientId, String diagnosis) {
+        Patient patient = requirePatient(patientId);
+        ReentrantLock lock = patientLocks.lockFor(patientId);
+        MutationEvents.batchStarted();
+        lock.lock();
+        try {
+            patient.setDiagnosis(diagnosis);
+        } finally {
+            lock.unlock();
+            MutationEvents.batchFinished();
+        }
+    }
+
+    /**
+     * Books an appointment after checking the doctor's timeline for overlaps.
+     * The check and the booking happen under the doctor's striped lock.
+     * @throws IllegalArgumentException if an id is unknown or the details are invalid
+     * @throws IllegalStateException if the doctor is already booked at that time
+     */
+    public Appointment scheduleAppointment(int patientId, int doctorId, LocalDateTime time, String purpose) {
+        long start = System.nanoTime();
+        try {
+            return schedule(patientId, doctorId, time, purpose);
+        } catch (RuntimeException e) {
+            scheduleStats.recordError();
+            throw e;
+        } finally {
+            scheduleStats.record(start);
+        }
+    }
+
+    private Appointment schedule(int patientId, int doctorId, LocalDateTime time, String purpose) {
+        Patient patient = requirePatient(patientId);
+        Doctor doctor = requireDoctor(doctorId);
+        ReentrantLock lock = doctorLocks.lockFor(doctorId);
+        MutationEvents.batchStarted();
+        lock.lock();
+        try {
+            if (time != null && !doctor.getTimeline().isFree(time, null)) {
+                throw new IllegalStateException("Doctor is not available at " + time.format(Appointment.TIME_FORMAT)
+                        + " (next free slot: " + doctor.getTimeline().nextFreeSlot(time).format(Appointment.TIME_FORMAT) + ")");
+            }
+            return addAppointment(new Appointment(patient, doctor, time, purpose));
+        } finally {
+            lock.unlock();
+            MutationEvents.batchFinished();
+        }
+    }
+
+    /**
+     * Moves an appointment to a new time under its doctor's striped lock.
+     * @throws IllegalArgumentException if the id is unknown or the time is in the past
+     * @throws IllegalStateException if the appointment is closed or the new slot is taken
+     */
+    public void rescheduleAppointment(int appointmentId, LocalDateTime newTime) {
+        Appointment appointment = requireAppointment(appointmentId);
+        ReentrantLock lock = doctorLocks.lockFor(appointment.getDoctor().getId());
+        MutationEvents.batchStarted();
+        lock.lock();
+        try {
+            LocalDateTime oldTime = appointment.getAppointmentTime();
+            appointment.reschedule(newTime);
+            moved(appointment, oldTime);
+        } finally {
+            lock.unlock();
+            MutationEvents.batchFinished();
+        }
+    }
+
+    /**
+     * Returns the doctor's booked appointments starting in [from, to).
+     */
+    public List<Appointment> getDoctorAppointments(int doctorId, LocalDateTime from, LocalDateTime to) {
+        return requireDoctor(doctorId).getTimeline().between(from, to);
+    }
+
+    /**
+     * Returns the doctor's earliest free slot at or after the given time.
+     */
+    public LocalDateTime nextFreeSlot(int doctorId, LocalDateTime from) {
+        return requireDoctor(doctorId).getTimeline().nextFreeSlot(from);
+    }
+
+    /**
+     * Moves an appointment to a new status under its doctor's striped lock and
+     * updates the per-status index.
+     * @throws IllegalArgumentException if the id is unknown or the status is null
+     * @throws IllegalStateException if {@link AppointmentStatus} does not allow the transition
+     */
+    public void updateAppointmentStatus(int appointmentId, AppointmentStatus status) {
+        long start = System.nanoTime();
+        try {
+            Appointment appointment = requireAppointment(appointmentId);
+            ReentrantLock lock = doctorLocks.lockFor(appointment.getDoctor().getId());
+            MutationEvents.batchStarted();
+            lock.lock();
+            try {
+                statusIndex.moved(appointment, appointment.transitionTo(status));
+                sweeper.track(appointment);
+            } finally {
+                lock.unlock();
+                MutationEvents.batchFinished();
+            }
+        } catch (RuntimeException e) {
+            statusStats.recordError();
+            throw e;
+        } finally {
+            statusStats.record(start);
+        }
+    }
+
+    /** Number of appointments in the given status, in O(1). */
+    public int countAppointments(AppointmentStatus status) {
+        return statusIndex.count(status);
+    }
+
+    /** Number of appointments in every status, in lifecycle order. */
+    public Map<AppointmentStatus, Integer> getAppointmentCounts() {
+        return statusIndex.counts();
+    }
+
+    /**
+     * Returns the appointments in the given status, in ascending id order.
+     * Only the matching appointments are visited.
+     */
+    public List<Appointment> getAppointmentsByStatus(AppointmentStatus status) {
+        List<Appointment> result = statusIndex.list(status);
+        result.sort(Comparator.comparingInt(Appointment::getId));
+        return result;
+    }
+
+    /**
+     * Returns the appointments starting in [from, to), in any status, ordered by
+     * time. Only the calendar days in the range are visited.
+     */
+    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        return calendar.between(from, to);
+    }
+
+    /**
+     * Returns the appointments in the given status starting in [from, to), ordered by time.
+     */
+    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to, AppointmentStatus status) {
+        return calendar.between(from, to, status);
+    }
+
+    /** Returns the appointments on a day, ordered by time. */
+    public List<Appointment> getAppointmentsOn(LocalDate day) {
+        return calendar.onDay(day);
+    }
+
+    /** Returns the appointments in the Monday-to-Sunday week containing the day, ordered by time. */
+    public List<Appointment> getAppointmentsInWeek(LocalDate day) {
+        LocalDate monday = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return calendar.between(monday.atStartOfDay(), monday.plusWeeks(1).atStartOfDay());
+    }
+
+    /** Returns the scheduled appointments starting within the given time from now, ordered by time. */
+    public List<Appointment> getUpcomingAppointments(Duration within) {
+        LocalDateTime now = LocalDateTime.now();
+        return calendar.between(now, now.plus(within), AppointmentStatus.SCHEDULED);
+    }
+
+    /**
+     * Receives each scheduled appointment once its reminder time has come
+     * ({@code -Dhms.reminderMinutes} before its start, default 60), on the
+     * sweeping thread. Replaces the previous listener.
+     */
+    public void setReminderListener(Consumer<Appointment> listener) {
+        reminderListener = listener == null ? appointment -> { } : listener;
+    }
+
+    /**
+     * Advances the appointment timers to the given time: passes due reminders to
+     * the reminder listener and marks appointments still scheduled after their
+     * slot has ended as {@link AppointmentStatus#MISSED}. Only due timers are
+     * visited.
+     * @return the number of appointments marked missed
+     */
+    public int sweepAppointments(LocalDateTime now) {
+        long start = System.nanoTime();
+        try {
+            List<Appointment> reminders = new ArrayList<>();
+            List<Appointment> overdue = new ArrayList<>();
+            sweeper.advanceTo(now, reminders, overdue);
+            Consumer<Appointment> listener = reminderListener;
+            for (Appointment appointment : reminders) {
+                listener.accept(appointment);
+            }
+            int missed = 0;
+            for (Appointment appointment : overdue) {
+                if (markMissed(appointment, now)) {
+                    missed++;
+                }
+            }
+            return missed;
+        } catch (RuntimeException e) {
+            sweepStats.recordError();
+            throw e;
+        } finally {
+            sweepStats.record(start);
+        }
+    }
+
+    // The timer fired without the doctor's lock, so check again that the slot is really over
+    private boolean markMissed(Appointment appointment, LocalDateTime now) {
+        ReentrantLock lock = doctorLocks.lockFor(appointment.getDoctor().getId());
+        MutationEvents.batchStarted();
+        lock.lock();
+        try {
+            LocalDateTime end = appointment.getAppointmentTime().plusMinutes(AppointmentTimeline.SLOT_MINUTES);
+            if (appointment.getStatus() != AppointmentStatus.SCHEDULED || end.isAfter(now)) {
+                return false;
+            }
+            statusIndex.moved(appointment, appointment.transitionTo(AppointmentStatus.MISSED));
+            sweeper.track(appointment);
+            return true;
+        } finally {
+            lock.unlock();
+            MutationEvents.batchFinished();
+        }
+    }
+
+    /**
+     * Sweeps the appointments on a background thread every interval until
+     * {@link #stopSweeper()}.
+     */
+    public synchronized void startSweeper(long interval, TimeUnit unit) {
+        if (sweepExecutor != null) {
+            return;
+        }
+        sweepExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "appointment-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweepExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                sweepAppointments(LocalDateTime.now());
+            } catch (RuntimeException e) {
+                System.err.println("Appointment sweep failed: " + e);
+            }
+        }, 0, interval, unit);
+    }
+
+    public synchronized void stopSweeper() {
+        if (sweepExecutor != null) {
+            sweepExecutor.shutdownNow();
+            sweepExecutor = null;
+        }
+    }
+
+    /**
+     * Applies a batch of mutations as one unit. Ids are resolved once and new
+     * entities are built and validated first. Then, with the locks of every doctor
+     * and patient the batch touches held, status changes and bookings are checked against the state the
+     * earlier commands of the batch leave behind. Only when every command passes
+     * is anything applied, as one journal batch, so a rejected batch changes nothing.
+     * Ids taken by the new entities of a rejected batch are not reused.
+     * @throws IllegalArgumentException if an id or reference is unknown or a value is invalid
+     * @throws IllegalStateException if a slot is taken or a status change is not allowed
+     *         (both name the first failing command)
+     */
+    public CommandBatch.Result execute(CommandBatch batch) {
+        return commit(prepare(batch));
+    }
+
+    /**
+     * First half of {@link #execute}: everything that needs no lock.
+     */
+    CommandBatch.Prepared prepare(CommandBatch batch) {
+        CommandBatch.Prepared prepared = new CommandBatch.Prepared(batch);
+        IntObjectMap<Patient> patientCache = new IntObjectMap<>();
+        IntObjectMap<Doctor> doctorCache = new IntObjectMap<>();
+        IntObjectMap<Appointment> appointmentCache = new IntObjectMap<>();
+        Object[] created = prepared.created;
+        for (int i = 0; i < created.length; i++) {
+            CommandBatch.Command command = prepared.commands.get(i);
+            try {
+                switch (command.kind) {
+                    case REGISTER_PATIENT -> {
+                        Patient patient = new Patient(command.text, command.age);
+                        created[i] = patient;
+                        prepared.newPatients.add(patient);
+                    }
+                    case REGISTER_DOCTOR -> {
+                        Doctor doctor = new Doctor(command.text, command.specialization);
+                        created[i] = doctor;
+                        prepared.newDoctors.add(doctor);
+                    }
+                    case ASSIGN_PATIENT -> {
+                        prepared.patients[i] = resolve(command.patient, i, created, Patient.class, patientCache, patients);
+                        prepared.doctors[i] = resolve(command.doctor, i, created, Doctor.class, doctorCache, doctors);
+                    }
+                    case UPDATE_DIAGNOSIS -> {
+                        prepared.patients[i] = resolve(command.patient, i, created, Patient.class, patientCache, patients);
+                        if (!InputValidator.isValidString(command.text)) {
+                            throw new IllegalArgumentException("Diagnosis cannot be null or empty");
+                        }
+                    }
+                    case SCHEDULE_APPOINTMENT -> created[i] = new Appointment(
+                            resolve(command.patient, i, created, Patient.class, patientCache, patients),
+                            resolve(command.doctor, i, created, Doctor.class, doctorCache, doctors),
+                            command.time, command.text);
+                    case UPDATE_STATUS -> {
+                        prepared.appointments[i] = resolve(command.appointment, i, created, Appointment.class,
+                                appointmentCache, appointments);
+                        if (command.status == null) {
+                            throw new IllegalArgumentException("Status cannot be null");
+                        }
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                executeStats.recordError();
+                throw rejected(i, command, e);
+            }
+        }
+        return prepared;
+    }
+
+    /**
+     * Second half of {@link #execute}: checks and applies a prepared batch under
+     * the stripes of the doctors and patients it touches, so operations on other
+     * entities keep running. The journal wait happens after the locks are released.
+     */
+    CommandBatch.Result commit(CommandBatch.Prepared prepared) {
+        long start = System.nanoTime();
+        MutationEvents.batchStarted();
+        try {
+            // Like movePatient: the doctors a patient is moved off are read before
+            // their locks are held, so retry if one of them changed meanwhile
+            while (true) {
+                ReentrantLock[] doctorStripes = batchDoctorLocks(prepared);
+                ReentrantLock[] patientStripes = batchPatientLocks(prepared);
+                lockInOrder(doctorStripes);
+                try {
+                    lockInOrder(patientStripes);
+                    try {
+                        if (!holdsPreviousDoctors(prepared)) {
+                            continue;
+                        }
+                        check(prepared);
+                        apply(prepared);
+                        return new CommandBatch.Result(prepared.created);
+                    } finally {
+                        unlockInReverse(patientStripes);
+                    }
+                } finally {
+                    unlockInReverse(doctorStripes);
+                }
+            }
+        } catch (RuntimeException e) {
+            executeStats.recordError();
+            throw e;
+        } finally {
+            MutationEvents.batchFinished();
+            executeStats.record(start);
+        }
+    }
+
+    // Doctors whose rosters or timelines the batch changes or checks, including
+    // the current doctors of the patients it assigns and the doctors it registers
+    private ReentrantLock[] batchDoctorLocks(CommandBatch.Prepared prepared) {
+        int[] ids = new int[prepared.created.length * 2];
+        int count = 0;
+        for (int i = 0; i < prepared.created.length; i++) {
+            switch (prepared.commands.get(i).kind) {
+                case REGISTER_DOCTOR -> ids[count++] = ((Doctor) prepared.created[i]).getId();
+                case ASSIGN_PATIENT -> {
+                    ids[count++] = prepared.doctors[i].getId();
+                    Doctor previous = prepared.patients[i].getAssignedDoctor();
+                    if (previous != null) {
+                        ids[count++] = previous.getId();
+                    }
+                }
+                case SCHEDULE_APPOINTMENT -> ids[count++] = ((Appointment) prepared.created[i]).getDoctor().getId();
+                case UPDATE_STATUS -> ids[count++] = prepared.appointments[i].getDoctor().getId();
+                default -> { }
+            }
+        }
+        return doctorLocks.locksFor(ids, count);
+    }
+
+    private ReentrantLock[] batchPatientLocks(CommandBatch.Prepared prepared) {
+        int[] ids = new int[prepared.created.length];
+        int count = 0;
+        for (int i = 0; i < prepared.created.length; i++) {
+            if (prepared.patients[i] != null) {
+                ids[count++] = prepared.patients[i].getId();
+            }
+        }
+        return patientLocks.locksFor(ids, count);
+    }
+
+    // Caller holds the batch's patient locks, so the doctors read here cannot change
+    private boolean holdsPreviousDoctors(CommandBatch.Prepared prepared) {
+        for (int i = 0; i < prepared.created.length; i++) {
+            if (prepared.commands.get(i).kind == CommandBatch.Kind.ASSIGN_PATIENT) {
+                Doctor previous = prepared.patients[i].getAssignedDoctor();
+                if (previous != null && !doctorLocks.lockFor(previous.getId()).isHeldByCurrentThread()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void lockInOrder(ReentrantLock[] locks) {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private static void unlockInReverse(ReentrantLock[] locks) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    // Caller holds the batch's locks. Replays the batch's status changes and bookings on
+    // scratch copies of the affected statuses and timelines, so a later command is
+    // checked against what the earlier ones will have done. Conservative in one
+    // case: a slot freed by a cancellation in the batch cannot be rebooked in it.
+    private void check(CommandBatch.Prepared prepared) {
+        Map<Appointment, AppointmentStatus> statuses = new IdentityHashMap<>();
+        Map<Doctor, AppointmentTimeline> booked = new IdentityHashMap<>();
+        for (int i = 0; i < prepared.created.length; i++) {
+            CommandBatch.Command command = prepared.commands.get(i);
+            try {
+                if (command.kind == CommandBatch.Kind.SCHEDULE_APPOINTMENT) {
+                    requireSlot((Appointment) prepared.created[i], booked);
+                } else if (command.kind == CommandBatch.Kind.UPDATE_STATUS) {
+                    Appointment appointment = prepared.appointments[i];
+                    AppointmentStatus current = statuses.getOrDefault(appointment, appointment.getStatus());
+                    if (!current.canTransitionTo(command.status)) {
+                        throw new IllegalStateException(Appointment.transitionError(current, command.status));
+                    }
+                    if (command.status.holdsSlot() && !current.holdsSlot()) {
+                        requireSlot(appointment, booked);
+                    }
+                    statuses.put(appointment, command.status);
+                }
+            } catch (IllegalStateException e) {
+                throw rejected(i, command, e);
+            }
+        }
+    }
+
+    private static void requireSlot(Appointment appointment, Map<Doctor, AppointmentTimeline> booked) {
+        Doctor doctor = appointment.getDoctor();
+        LocalDateTime time = appointment.getAppointmentTime();
+        AppointmentTimeline batchSlots = booked.computeIfAbsent(doctor, d -> new AppointmentTimeline());
+        if (!doctor.getTimeline().isFree(time, appointment) || !batchSlots.isFree(time, appointment)) {
+            throw new IllegalStateException("Doctor is not available at " + time.format(Appointment.TIME_FORMAT));
+        }
+        batchSlots.add(appointment);
+    }
+
+    // Caller holds the batch's locks and the batch has passed check(), so nothing here can be rejected.
+    // New entities are registered first, as none of them depends on another command.
+    private void apply(CommandBatch.Prepared prepared) {
+        restoreDoctors(prepared.newDoctors);
+        restorePatients(prepared.newPatients);
+        for (int i = 0; i < prepared.created.length; i++) {
+            CommandBatch.Command command = prepared.commands.get(i);
+            switch (command.kind) {
+                case ASSIGN_PATIENT -> {
+                    Patient patient = prepared.patients[i];
+                    Doctor previous = patient.getAssignedDoctor();
+                    if (prepared.doctors[i].assignPatient(patient) && previous == null) {
+                        assignedCount.incrementAndGet();
+                    }
+                }
+                case UPDATE_DIAGNOSIS -> prepared.patients[i].setDiagnosis(command.text);
+                case SCHEDULE_APPOINTMENT -> addAppointment((Appointment) prepared.created[i]);
+                case UPDATE_STATUS -> {
+                    Appointment appointment = prepared.appointments[i];
+                    statusIndex.moved(appointment, appointment.transitionTo(command.status));
+                    sweeper.track(appointment);
+                }
+                default -> { } // registrations were applied above
+            }
+        }
+    }
+
+    // Resolves an entity id, looking it up once per batch, or a reference to an
+    // entity created by an earlier command of the batch
+    private static <T> T resolve(int idOrReference, int index, Object[] created, Class<T> type,
+                                 IntObjectMap<T> cache, EntityRegistry<T> registry) {
+        String name = type.getSimpleName();
+        if (CommandBatch.isReference(idOrReference)) {
+            int at = CommandBatch.indexOf(idOrReference);
+            if (at >= index || !type.isInstance(created[at])) {
+                throw new IllegalArgumentException("Reference " + idOrReference + " does not name a "
+                        + name.toLowerCase(Locale.ROOT) + " created earlier in the batch");
+            }
+            return type.cast(created[at]);
+        }
+        T entity = cache.get(idOrReference);
+        if (entity == null) {
+            entity = registry.get(idOrReference);
+            if (entity == null) {
+                throw new IllegalArgumentException(name + " not found: " + idOrReference);
+            }
+            cache.put(idOrReference, entity);
+        }
+        return entity;
+    }
+
+    private static RuntimeException rejected(int index, CommandBatch.Command command, RuntimeException e) {
+        String message = "Command " + (index + 1) + " (" + command.kind.label + "): " + e.getMessage()
+                + "; nothing was applied";
+        return e instanceof IllegalStateException
+                ? new IllegalStateException(message, e)
+                : new IllegalArgumentException(message, e);
+    }
+
+    /**
+     * Finds patients whose name contains the term (case-insensitive) using the trigram index.
+     * @return matches in ascending id order
+     */
+    public List<Patient> searchPatients(String term) {
+        long start = System.nanoTime();
+        try {
+            return nameIndex.search(term);
+        } catch (RuntimeException e) {
+            searchStats.recordError();
+            throw e;
+        } finally {
+            searchStats.record(start);
+        }
+    }
+
+    /**
+     * Returns the best matches first (exact, prefix, word prefix, substring).
+     * @param limit maximum number of results
+     */
+    public List<Patient> searchPatientsRanked(String term, int limit) {
+        long start = System.nanoTime();
+        try {
+            return nameIndex.searchRanked(term, limit);
+        } catch (RuntimeException e) {
+            searchRankedStats.recordError();
+            throw e;
+        } finally {
+            searchRankedStats.record(start);
+        }
+    }
+
+    private Patient requirePatient(int id) {
+        Patient patient = patients.get(id);
+        if (patient == null) {
+            throw new IllegalArgumentException("Patient not found: " + id);
+        }
+        return patient;
+    }
+
+    private Doctor requireDoctor(int id) {
+        Doctor doctor = doctors.get(id);
+        if (doctor == null) {
+            throw new IllegalArgumentException("Doctor not found: " + id);
+        }
+        return doctor;
+    }
+
+    private Appointment requireAppointment(int id) {
+        Appointment appointment = appointments.get(id);
+        if (appointment == null) {
+            throw new IllegalArgumentException("Appointment not found: " + id);
+        }
+        return appointment;
+    }
+}
@@ -0,0 +1,440 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dashboard aggregates kept up to date incrementally: patients by diagnosis,
+ * average age, doctors by specialization, roster sizes and appointments by
+ * status per doctor.
+ *
+ * Every {@link MutationListener} callback adjusts a few atomic counters, so the
+ * readers are O(1) (the map-returning ones are O(number of keys)) however many
+ * records there are. Nothing is locked; a reader running alongside writers may
+ * see one change applied to one counter and not yet to another.
+ *
+ * {@link #recompute()} rebuilds the same figures from scratch with a fork-join
+ * pass over the registries, and {@link #verify()} compares the two; both are
+ * meant for checks while the data is quiet.
+ *
+ * Like {@link AssignmentScheduler}, the statistics are seeded from the service on
+ * construction; register them with {@link MutationEvents} right after creating them.
+ */
+public class HospitalStatistics implements MutationListener {
+    // Records per fork-join leaf
+    private static final int SPLIT_THRESHOLD = 8192;
+    private static final AppointmentStatus[] STATUSES = AppointmentStatus.values();
+
+    private final HospitalService service;
+    private final AtomicInteger patients = new AtomicInteger();
+    private final AtomicLong ageSum = new AtomicLong();
+    private final AtomicInteger assigned = new AtomicInteger();
+    private final ConcurrentHashMap<String, AtomicInteger> diagnoses = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> specializations = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray appointments = new AtomicIntegerArray(STATUSES.length);
+    private final ConcurrentHashMap<Integer, DoctorCounts> doctors = new ConcurrentHashMap<>();
+
+    /**
+     * Creates statistics seeded with a full {@link #recompute()} of the service.
+     */
+    public HospitalStatistics(HospitalService service) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        this.service = service;
+        Report seed = recompute();
+        patients.set(seed.patients);
+        ageSum.set(seed.ageSum);
+        assigned.set(seed.assigned);
+        seed.diagnoses.forEach((diagnosis, count) -> diagnoses.put(diagnosis, new AtomicInteger(count)));
+        seed.specializations.forEach((specialization, count) -> specializations.put(specialization, new AtomicInteger(count)));
+        for (int i = 0; i < STATUSES.length; i++) {
+            appointments.set(i, seed.appointments[i]);
+        }
+        for (Doctor doctor : service.getDoctors()) {
+            DoctorCounts counts = doctors.computeIfAbsent(doctor.getId(), id -> new DoctorCounts(doctor));
+            Integer roster = seed.rosters.get(doctor.getId());
+            counts.roster.set(roster == null ? 0 : roster);
+            int[] byStatus = seed.doctorAppointments.get(doctor.getId());
+            for (int i = 0; byStatus != null && i < STATUSES.length; i++) {
+                counts.appointments.set(i, byStatus[i]);
+            }
+        }
+    }
+
+    // --- O(1) reads ---
+
+    public int getPatientCount() {
+        return patients.get();
+    }
+
+    /** Mean patient age, 0 if there are no patients. */
+    public double getAverageAge() {
+        int count = patients.get();
+        return count == 0 ? 0 : (double) ageSum.get() / count;
+    }
+
+    public int getUnassignedCount() {
+        return patients.get() - assigned.get();
+    }
+
+    /** Number of patients with exactly this diagnosis. */
+    public int countByDiagnosis(String diagnosis) {
+        AtomicInteger count = diagnosis == null ? null : diagnoses.get(diagnosis);
+        return count == null ? 0 : count.get();
+    }
+
+    /** Number of doctors with exactly this specialization. */
+    public int countBySpecialization(String specialization) {
+        AtomicInteger count = specialization == null ? null : specializations.get(specialization);
+        return count == null ? 0 : count.get();
+    }
+
+    public int countAppointments(AppointmentStatus status) {
+        return appointments.get(status.ordinal());
+    }
+
+    /**
+     * Number of a doctor's appointments in the given status.
+     * @return the count, 0 for an unknown doctor
+     */
+    public int countAppointments(int doctorId, AppointmentStatus status) {
+        DoctorCounts counts = doctors.get(doctorId);
+        return counts == null ? 0 : counts.appointments.get(status.ordinal());
+    }
+
+    /** Roster size of a doctor, 0 for an unknown doctor. */
+    public int countAssignedPatients(int doctorId) {
+        DoctorCounts counts = doctors.get(doctorId);
+        return counts == null ? 0 : counts.roster.get();
+    }
+
+    /** Patients per diagnosis, sorted by diagnosis, without zero counts. */
+    public Map<String, Integer> getDiagnosisCounts() {
+        return sortedCounts(diagnoses);
+    }
+
+    /** Doctors per specialization, sorted by specialization. */
+    public Map<String, Integer> getSpecializationCounts() {
+        return sortedCounts(specializations);
+    }
+
+    /** A doctor's appointments per status, in lifecycle order. */
+    public Map<AppointmentStatus, Integer> getAppointmentCounts(int doctorId) {
+        DoctorCounts counts = doctors.get(doctorId);
+        EnumMap<AppointmentStatus, Integer> result = new EnumMap<>(AppointmentStatus.class);
+        for (AppointmentStatus status : STATUSES) {
+            result.put(status, counts == null ? 0 : counts.appointments.get(status.ordinal()));
+        }
+        return result;
+    }
+
+    private static Map<String, Integer> sortedCounts(ConcurrentHashMap<String, AtomicInteger> counts) {
+        TreeMap<String, Integer> result = new TreeMap<>();
+        counts.forEach((key, count) -> {
+            int value = count.get();
+            if (value != 0) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    /** The incremental figures as a {@link Report}, for comparison with {@link #recompute()}. */
+    public Report current() {
+        Report report = new Report();
+        report.patients = patients.get();
+        report.ageSum = ageSum.get();
+        report.assigned = assigned.get();
+        report.diagnoses.putAll(getDiagnosisCounts());
+        report.specializations.putAll(getSpecializationCounts());
+        for (int i = 0; i < STATUSES.length; i++) {
+            report.appointments[i] = appointments.get(i);
+        }
+        doctors.forEach((id, counts) -> {
+            if (counts.roster.get() != 0) {
+                report.rosters.put(id, counts.roster.get());
+            }
+            int[] byStatus = new int[STATUSES.length];
+            boolean any = false;
+            for (int i = 0; i < STATUSES.length; i++) {
+                byStatus[i] = counts.appointments.get(i);
+                any |= byStatus[i] != 0;
+            }
+            if (any) {
+                report.doctorAppointments.put(id, byStatus);
+            }
+        });
+        return report;
+    }
+
+    // --- Full recompute ---
+
+    /**
+     * Recomputes every figure from the registries on the common fork-join pool:
+     * each registry snapshot is split into ranges that are counted in parallel
+     * and merged.
+     */
+    public Report recompute() {
+        Patient[] patientArray = service.getPatients().snapshot().toArray(new Patient[0]);
+        Doctor[] doctorArray = service.getDoctors().snapshot().toArray(new Doctor[0]);
+        Appointment[] appointmentArray = service.getAppointments().snapshot().toArray(new Appointment[0]);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Report report = pool.invoke(new Count<>(patientArray, 0, patientArray.length, HospitalStatistics::countPatient));
+        report.merge(pool.invoke(new Count<>(doctorArray, 0, doctorArray.length, HospitalStatistics::countDoctor)));
+        report.merge(pool.invoke(new Count<>(appointmentArray, 0, appointmentArray.length,
+                HospitalStatistics::countAppointment)));
+        return report;
+    }
+
+    /**
+     * Compares the incremental figures with a full recompute.
+     * @return one line per figure that differs; empty if they agree
+     */
+    public List<String> verify() {
+        return current().differences(recompute());
+    }
+
+    private static void countPatient(Report report, Patient patient) {
+        report.patients++;
+        report.ageSum += patient.getAge();
+        report.diagnoses.merge(patient.getDiagnosis(), 1, Integer::sum);
+        Doctor doctor = patient.getAssignedDoctor();
+        if (doctor != null) {
+            report.assigned++;
+            report.rosters.merge(doctor.getId(), 1, Integer::sum);
+        }
+    }
+
+    private static void countDoctor(Report report, Doctor doctor) {
+        report.specializations.merge(doctor.getSpecialization(), 1, Integer::sum);
+    }
+
+    private static void countAppointment(Report report, Appointment appointment) {
+        int status = appointment.getStatus().ordinal();
+        report.appointments[status]++;
+        report.doctorAppointments.computeIfAbsent(appointment.getDoctor().getId(), id -> new int[STATUSES.length])[status]++;
+    }
+
+    private interface Counter<T> {
+        void count(Report report, T record);
+    }
+
+    private static final class Count<T> extends RecursiveTask<Report> {
+        private static final long serialVersionUID = 1L;
+        private final T[] records;
+        private final int from;
+        private final int to;
+        private final Counter<T> counter;
+
+        Count(T[] records, int from, int to, Counter<T> counter) {
+            this.records = records;
+            this.from = from;
+            this.to = to;
+            this.counter = counter;
+        }
+
+        @Override
+        protected Report compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                Report report = new Report();
+                for (int i = from; i < to; i++) {
+                    counter.count(report, records[i]);
+                }
+                return report;
+            }
+            int mid = (from + to) >>> 1;
+            Count<T> left = new Count<>(records, from, mid, counter);
+            left.fork();
+            Report right = new Count<>(records, mid, to, counter).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    // --- Listener callbacks: atomic counter updates only ---
+
+    @Override
+    public void patientAdded(Patient patient) {
+        if (service.findPatient(patient.getId()) != patient) {
+            return;
+        }
+        patients.incrementAndGet();
+        ageSum.addAndGet(patient.getAge());
+        counter(diagnoses, patient.getDiagnosis()).incrementAndGet();
+    }
+
+    @Override
+    public void diagnosisChanged(Patient patient, String oldDiagnosis) {
+        if (service.findPatient(patient.getId()) != patient) {
+            return;
+        }
+        counter(diagnoses, oldDiagnosis).decrementAndGet();
+        counter(diagnoses, patient.getDiagnosis()).incrementAndGet();
+    }
+
+    @Override
+    public void doctorAdded(Doctor doctor) {
+        if (service.findDoctor(doctor.getId()) != doctor) {
+            return;
+        }
+        doctors.computeIfAbsent(doctor.getId(), id -> new DoctorCounts(doctor));
+        counter(specializations, doctor.getSpecialization()).incrementAndGet();
+    }
+
+    @Override
+    public void patientAssigned(Doctor doctor, Patient patient) {
+        DoctorCounts counts = countsOf(doctor);
+        if (counts != null) {
+            counts.roster.incrementAndGet();
+            assigned.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void patientRemoved(Doctor doctor, Patient patient) {
+        DoctorCounts counts = countsOf(doctor);
+        if (counts != null) {
+            counts.roster.decrementAndGet();
+            assigned.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        DoctorCounts counts = countsOf(appointment.getDoctor());
+        if (counts != null) {
+            int status = appointment.getStatus().ordinal();
+            counts.appointments.incrementAndGet(status);
+            appointments.incrementAndGet(status);
+        }
+    }
+
+    @Override
+    public void statusChanged(Appointment appointment, AppointmentStatus oldStatus) {
+        DoctorCounts counts = countsOf(appointment.getDoctor());
+        if (counts != null) {
+            counts.appointments.decrementAndGet(oldStatus.ordinal());
+            counts.appointments.incrementAndGet(appointment.getStatus().ordinal());
+            appointments.decrementAndGet(oldStatus.ordinal());
+            appointments.incrementAndGet(appointment.getStatus().ordinal());
+        }
+    }
+
+    private static AtomicInteger counter(ConcurrentHashMap<String, AtomicInteger> counts, String key) {
+        AtomicInteger count = counts.get(key);
+        return count != null ? count : counts.computeIfAbsent(key, k -> new AtomicInteger());
+    }
+
+    // Null for doctors of another service that share this JVM's event stream
+    private DoctorCounts countsOf(Doctor doctor) {
+        DoctorCounts counts = doctors.get(doctor.getId());
+        return counts != null && counts.doctor == doctor ? counts : null;
+    }
+
+    private static final class DoctorCounts {
+        final Doctor doctor;
+        final AtomicInteger roster = new AtomicInteger();
+        final AtomicIntegerArray appointments = new AtomicIntegerArray(STATUSES.length);
+
+        DoctorCounts(Doctor doctor) {
+            this.doctor = doctor;
+        }
+    }
+
+    /**
+     * A plain, mutable set of the figures, produced by {@link #current()} and
+     * {@link #recompute()}. Zero counts are left out of the maps.
+     */
+    public static final class Report {
+        int patients;
+        long ageSum;
+        int assigned;
+        final Map<String, Integer> diagnoses = new HashMap<>();
+        final Map<String, Integer> specializations = new HashMap<>();
+        final int[] appointments = new int[STATUSES.length];
+        // Per doctor id
+        final Map<Integer, Integer> rosters = new HashMap<>();
+        final Map<Integer, int[]> doctorAppointments = new HashMap<>();
+
+        public int getPatients() { return patients; }
+        public int getAssigned() { return assigned; }
+        public double getAverageAge() { return patients == 0 ? 0 : (double) ageSum / patients; }
+
+        Report merge(Report other) {
+            patients += other.patients;
+            ageSum += other.ageSum;
+            assigned += other.assigned;
+            other.diagnoses.forEach((key, count) -> diagnoses.merge(key, count, Integer::sum));
+            other.specializations.forEach((key, count) -> specializations.merge(key, count, Integer::sum));
+            for (int i = 0; i < appointments.length; i++) {
+                appointments[i] += other.appointments[i];
+            }
+            other.rosters.forEach((id, count) -> rosters.merge(id, count, Integer::sum));
+            other.doctorAppointments.forEach((id, counts) -> {
+                int[] mine = doctorAppointments.computeIfAbsent(id, k -> new int[STATUSES.length]);
+                for (int i = 0; i < mine.length; i++) {
+                    mine[i] += counts[i];
+                }
+            });
+            return this;
+        }
+
+        /**
+         * Lists the figures that differ from another report, as "name: this != other".
+         */
+        public List<String> differences(Report other) {
+            List<String> result = new ArrayList<>();
+            compare(result, "patients", patients, other.patients);
+            compare(result, "ageSum", ageSum, other.ageSum);
+            compare(result, "assigned", assigned, other.assigned);
+            compare(result, "diagnoses", diagnoses, other.diagnoses);
+            compare(result, "specializations", specializations, other.specializations);
+            for (AppointmentStatus status : STATUSES) {
+                compare(result, "appointments." + status.getLabel(),
+                        appointments[status.ordinal()], other.appointments[status.ordinal()]);
+            }
+            compare(result, "rosters", rosters, other.rosters);
+            for (Integer id : union(doctorAppointments, other.doctorAppointments)) {
+                int[] mine = doctorAppointments.getOrDefault(id, new int[STATUSES.length]);
+                int[] theirs = other.doctorAppointments.getOrDefault(id, new int[STATUSES.length]);
+                for (AppointmentStatus status : STATUSES) {
+                    compare(result, "doctor " + id + " appointments." + status.getLabel(),
+                            mine[status.ordinal()], theirs[status.ordinal()]);
+                }
+            }
+            return result;
+        }
+
+        private static <K> void compare(List<String> result, String name, Map<K, Integer> mine, Map<K, Integer> theirs) {
+            for (K key : union(mine, theirs)) {
+                compare(result, name + "[" + key + "]", mine.getOrDefault(key, 0), theirs.getOrDefault(key, 0));
+            }
+        }
+
+        private static void compare(List<String> result, String name, long mine, long theirs) {
+            if (mine != theirs) {
+                result.add(name + ": " + mine + " != " + theirs);
+            }
+        }
+
+        private static <K> List<K> union(Map<K, ?> a, Map<K, ?> b) {
+            List<K> keys = new ArrayList<>(a.keySet());
+            for (K key : b.keySet()) {
+                if (!a.containsKey(key)) {
+                    keys.add(key);
+                }
+            }
+            return keys;
+        }
+    }
+}
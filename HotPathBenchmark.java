@@ -0,0 +1,180 @@
+package com.example;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmarks the hot paths of the system at configurable dataset sizes:
+ * id lookups, status counts, patient name search, doctor roster assignment, the
+ * toString rendering used by every listing and the cost of recording a metric.
+ *
+ * Results go to a JMH-style JSON file; pass a previous file as baseline
+ * to flag regressions (the exit status is 1 if any are found). This runs
+ * without any dependencies; the JMH version of these benchmarks is
+ * {@code HotPathJmh} in jmh/ (built with {@code mvn -Pjmh package}).
+ *
+ * Run: java -Xmx4g -cp bin com.example.HotPathBenchmark
+ * Options (system properties):
+ *   -Dbench.sizes=10000,100000   dataset sizes (patients; doctors and appointments scale with it)
+ *   -Dbench.out=bench-results.json
+ *   -Dbench.baseline=old.json    compare with a previous run
+ *   -Dbench.tolerance=0.10       allowed slowdown before a result counts as a regression
+ *   -Dbench.rounds=5 -Dbench.warmup=3 -Dbench.roundMillis=200
+ */
+public class HotPathBenchmark {
+    private static final int PATIENTS_PER_DOCTOR = 100;
+    private static final int APPOINTMENTS_PER_PATIENT_DIVISOR = 2;
+    private static final String[] QUERIES = {"smith", "an", "zzzz"};
+    // Random ids are drawn from a fixed table so the benchmarks do not time Random
+    private static final int PICKS = 4096;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkHarness harness = new BenchmarkHarness(
+                Integer.getInteger("bench.warmup", 3),
+                Integer.getInteger("bench.rounds", 5),
+                Long.getLong("bench.roundMillis", 200L));
+        for (String size : System.getProperty("bench.sizes", "10000,100000").split(",")) {
+            run(harness, Integer.parseInt(size.trim()));
+        }
+
+        Path out = Paths.get(System.getProperty("bench.out", "bench-results.json"));
+        harness.writeJson(out);
+        System.out.println("\nResults written to " + out);
+
+        String baseline = System.getProperty("bench.baseline");
+        if (baseline != null) {
+            double tolerance = Double.parseDouble(System.getProperty("bench.tolerance", "0.10"));
+            int regressions = harness.compareWithBaseline(Paths.get(baseline), tolerance);
+            if (regressions > 0) {
+                System.out.println(regressions + " benchmark(s) regressed by more than " + (int) (tolerance * 100) + "%");
+                System.exit(1);
+            }
+        }
+    }
+
+    private static void run(BenchmarkHarness harness, int size) {
+        Random random = new Random(42);
+        HospitalService service = new HospitalService();
+        List<Patient> patients = populate(service, size, random);
+        Doctor[] doctors = service.getDoctors().snapshot().toArray(new Doctor[0]);
+        Appointment[] appointments = service.getAppointments().snapshot().toArray(new Appointment[0]);
+        Patient[] patientArray = patients.toArray(new Patient[0]);
+        Map<String, String> params = Map.of("patients", Integer.toString(size));
+
+        int[] patientPicks = picks(patientArray.length, random);
+        int[] doctorPicks = picks(doctors.length, random);
+        int[] appointmentPicks = picks(appointments.length, random);
+        int[] cursor = new int[1];
+
+        harness.run("findPatientById", params,
+                () -> service.findPatient(patientArray[patientPicks[next(cursor)]].getId()).getAge());
+        harness.run("findDoctorById", params,
+                () -> service.findDoctor(doctors[doctorPicks[next(cursor)]].getId()).getId());
+        harness.run("findAppointmentById", params,
+                () -> service.findAppointment(appointments[appointmentPicks[next(cursor)]].getId()).getId());
+
+        // "How many open appointments": full scan versus the per-status index
+        harness.run("countByStatus.scan", params, () -> {
+            int open = 0;
+            for (Appointment a : appointments) {
+                if (a.getStatus() == AppointmentStatus.SCHEDULED) {
+                    open++;
+                }
+            }
+            return open;
+        });
+        harness.run("countByStatus.index", params, () -> service.countAppointments(AppointmentStatus.SCHEDULED));
+
+        for (String query : QUERIES) {
+            Map<String, String> queryParams = Map.of("patients", Integer.toString(size), "query", query);
+            harness.run("searchPatient.scan", queryParams, () -> SearchBenchmark.scan(patients, query).size());
+            harness.run("searchPatient.index", queryParams, () -> service.searchPatients(query).size());
+        }
+
+        // A doctor whose roster holds a copy of every patient, the worst case for roster
+        // membership checks (copies, so the registered patients keep their doctors)
+        Doctor busy = new Doctor("Dr. Busy", "General");
+        Patient last = null;
+        for (Patient p : patientArray) {
+            last = new Patient(p.getName(), p.getAge());
+            busy.restoreAssignment(last);
+        }
+        Patient lastOnRoster = last;
+        harness.run("Doctor.assignPatient.duplicate", params, () -> {
+            busy.assignPatient(lastOnRoster);
+            return busy.getAssignedPatients().size();
+        });
+        Patient outsider = new Patient("Outside Patient", 30);
+        harness.run("Doctor.assignPatient.newThenRemove", params, () -> {
+            busy.assignPatient(outsider);
+            busy.removePatient(outsider);
+            return busy.getAssignedPatients().size();
+        });
+
+        harness.run("Patient.toString", params, () -> patientArray[patientPicks[next(cursor)]].toString().length());
+        harness.run("Doctor.toString", params, () -> doctors[doctorPicks[next(cursor)]].toString().length());
+        harness.run("Appointment.toString", params,
+                () -> appointments[appointmentPicks[next(cursor)]].toString().length());
+
+        // The listing renderer's path: append into one reused builder
+        StringBuilder line = new StringBuilder(160);
+        harness.run("Patient.appendTo", params, () -> {
+            line.setLength(0);
+            return patientArray[patientPicks[next(cursor)]].appendTo(line).length();
+        });
+        harness.run("Appointment.appendTo", params, () -> {
+            line.setLength(0);
+            return appointments[appointmentPicks[next(cursor)]].appendTo(line).length();
+        });
+
+        // What instrumentation adds to every service call: a clock read and one recording
+        OperationStats stats = new MetricsRegistry().operation("bench");
+        harness.run("OperationStats.record", params, () -> {
+            stats.record(System.nanoTime());
+            return (int) stats.getCalls();
+        });
+    }
+
+    // Registers the patients, one doctor per PATIENTS_PER_DOCTOR patients, assigns them round-robin
+    // and books appointments for every other patient in consecutive slots per doctor
+    static List<Patient> populate(HospitalService service, int size, Random random) {
+        List<Patient> generated = SearchBenchmark.generate(size, random);
+        List<Patient> patients = new ArrayList<>(size);
+        for (Patient p : generated) {
+            patients.add(service.registerPatient(p.getName(), p.getAge()));
+        }
+        int doctorCount = Math.max(1, size / PATIENTS_PER_DOCTOR);
+        int[] doctorIds = new int[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            doctorIds[i] = service.registerDoctor("Dr. Doctor " + i, i % 2 == 0 ? "Cardiology" : "Pediatrics").getId();
+        }
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+        int[] booked = new int[doctorCount];
+        for (int i = 0; i < patients.size(); i++) {
+            int doctor = i % doctorCount;
+            service.assignPatient(patients.get(i).getId(), doctorIds[doctor]);
+            if (i % APPOINTMENTS_PER_PATIENT_DIVISOR == 0) {
+                LocalDateTime slot = start.plusMinutes((long) AppointmentTimeline.SLOT_MINUTES * booked[doctor]++);
+                service.scheduleAppointment(patients.get(i).getId(), doctorIds[doctor], slot, "Checkup");
+            }
+        }
+        return patients;
+    }
+
+    private static int[] picks(int bound, Random random) {
+        int[] picks = new int[PICKS];
+        for (int i = 0; i < PICKS; i++) {
+            picks[i] = random.nextInt(bound);
+        }
+        return picks;
+    }
+
+    private static int next(int[] cursor) {
+        return cursor[0] = (cursor[0] + 1) & (PICKS - 1);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator for {@link HospitalHttpServer}. Starts the API in-process on a
+ * free port (or targets {@code -Dload.url}), seeds doctors and patients over HTTP,
+ * then runs concurrent clients issuing a mixed workload for a fixed time and
+ * reports throughput and latency percentiles per request type.
+ *
+ * Mix: 50% patient lookup, 20% name search, 10% registration, 10% assignment,
+ * 5% appointment booking and 5% doctor details. Bookings that hit a taken slot
+ * are answered 409 and counted as expected rejections, not failures.
+ *
+ * Run: java -cp bin com.example.HttpLoadTest
+ * Options (system properties):
+ *   -Dload.url=http://localhost:8080   target a running server instead of an in-process one
+ *   -Dload.clients=64 -Dload.seconds=10 -Dload.patients=10000 -Dload.doctors=100
+ */
+public class HttpLoadTest {
+    private static final String[] NAMES = {"Smith", "Johnson", "Brown", "Garcia", "Miller", "Davis", "Wilson", "Anderson"};
+    private static final String[] SPECIALIZATIONS = {"Cardiology", "Pediatrics", "Neurology", "General"};
+    private static final String[] OPS = {"GET /patients/{id}", "GET /patients/search", "POST /patients",
+        "PUT /patients/{id}/doctor", "POST /appointments", "GET /doctors/{id}"};
+    private static final int[] MIX = {50, 20, 10, 10, 5, 5};
+
+    public static void main(String[] args) throws Exception {
+        int clients = Integer.getInteger("load.clients", 64);
+        int seconds = Integer.getInteger("load.seconds", 10);
+        int patientCount = Integer.getInteger("load.patients", 10_000);
+        int doctorCount = Integer.getInteger("load.doctors", 100);
+        String url = System.getProperty("load.url");
+
+        HospitalHttpServer server = null;
+        if (url == null) {
+            server = new HospitalHttpServer(new HospitalService(), 0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+            System.out.println("In-process server on " + url + " ("
+                    + (server.usesVirtualThreads() ? "virtual threads" : "thread pool") + ")");
+        }
+        String base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5)).build();
+        try {
+            long start = System.nanoTime();
+            int[] doctorIds = new int[doctorCount];
+            for (int i = 0; i < doctorCount; i++) {
+                doctorIds[i] = idOf(send(client, post(base + "/doctors",
+                        "{\"name\":\"Dr. Load " + i + "\",\"specialization\":\"" + SPECIALIZATIONS[i % SPECIALIZATIONS.length] + "\"}")));
+            }
+            List<Integer> patientIds = new ArrayList<>(patientCount);
+            for (int i = 0; i < patientCount; i++) {
+                patientIds.add(idOf(send(client, post(base + "/patients", patientBody(i)))));
+            }
+            System.out.printf("Seeded %,d doctors and %,d patients in %d ms%n", doctorCount, patientCount,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            LatencyHistogram[] latency = new LatencyHistogram[OPS.length];
+            LongAdder[] rejected = new LongAdder[OPS.length];
+            for (int i = 0; i < OPS.length; i++) {
+                latency[i] = new LatencyHistogram();
+                rejected[i] = new LongAdder();
+            }
+            LatencyHistogram all = new LatencyHistogram();
+            LongAdder failures = new LongAdder();
+            AtomicInteger bookings = new AtomicInteger();
+            LocalDateTime firstSlot = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            String target = base;
+
+            Thread[] threads = new Thread[clients];
+            for (int t = 0; t < clients; t++) {
+                threads[t] = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        int op = pick(random.nextInt(100));
+                        int patientId = patientIds.get(random.nextInt(patientIds.size()));
+                        int doctorId = doctorIds[random.nextInt(doctorIds.length)];
+                        HttpRequest request = switch (op) {
+                            case 0 -> get(target + "/patients/" + patientId);
+                            case 1 -> get(target + "/patients/search?q=" + NAMES[random.nextInt(NAMES.length)].toLowerCase() + "&limit=20");
+                            case 2 -> post(target + "/patients", patientBody(random.nextInt(1_000_000)));
+                            case 3 -> put(target + "/patients/" + patientId + "/doctor", "{\"doctorId\":" + doctorId + "}");
+                            case 4 -> post(target + "/appointments", "{\"patientId\":" + patientId + ",\"doctorId\":" + doctorId
+                                    + ",\"time\":\"" + firstSlot.plusMinutes((long) AppointmentTimeline.SLOT_MINUTES
+                                            * (bookings.getAndIncrement() % 2_000)).format(Appointment.TIME_FORMAT)
+                                    + "\",\"purpose\":\"Load test\"}");
+                            default -> get(target + "/doctors/" + doctorId);
+                        };
+                        long begin = System.nanoTime();
+                        try {
+                            int status = client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+                            long elapsed = System.nanoTime() - begin;
+                            latency[op].record(elapsed);
+                            all.record(elapsed);
+                            if (status == 409) {
+                                rejected[op].increment();
+                            } else if (status >= 300) {
+                                failures.increment();
+                            }
+                        } catch (Exception e) {
+                            failures.increment();
+                        }
+                    }
+                }, "load-client-" + t);
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            System.out.printf("%n%d clients for %d s: %,d requests, %,.0f requests/s, %,d failed%n",
+                    clients, seconds, all.getCount(), all.getCount() / (double) seconds, failures.sum());
+            System.out.printf("  %-28s %10s %9s %9s %9s %9s %9s%n", "request", "count", "409", "p50_ms", "p99_ms", "p999_ms", "max_ms");
+            for (int i = 0; i < OPS.length; i++) {
+                row(OPS[i], latency[i], rejected[i].sum());
+            }
+            row("all", all, -1);
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+
+    private static void row(String name, LatencyHistogram h, long rejected) {
+        System.out.printf("  %-28s %,10d %9s %9.2f %9.2f %9.2f %9.2f%n", name, h.getCount(),
+                rejected < 0 ? "" : Long.toString(rejected), h.getValueAtPercentile(50) / 1e6,
+                h.getValueAtPercentile(99) / 1e6, h.getValueAtPercentile(99.9) / 1e6, h.getMax() / 1e6);
+    }
+
+    private static int pick(int roll) {
+        for (int i = 0; i < MIX.length; i++) {
+            roll -= MIX[i];
+            if (roll < 0) {
+                return i;
+            }
+        }
+        return MIX.length - 1;
+    }
+
+    private static String patientBody(int n) {
+        return "{\"name\":\"Patient " + NAMES[n % NAMES.length] + " " + n + "\",\"age\":" + (n % 100) + "}";
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).GET().build();
+    }
+
+    private static HttpRequest post(String uri, String json) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+
+    private static HttpRequest put(String uri, String json) {
+        return HttpRequest.newBuilder(URI.create(uri)).header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+
+    private static String send(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " failed: " + response.body());
+        }
+        return response.body();
+    }
+
+    // The "id" of a created entity, always the first field of the response
+    private static int idOf(String json) {
+        int start = json.indexOf("\"id\":") + 5;
+        int end = start;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(json.substring(start, end));
+    }
+}
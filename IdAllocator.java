@@ -0,0 +1,55 @@
+package com.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out positive ids for one entity type from a counter, below an
+ * optional limit. Patients, doctors and appointments each hold one.
+ *
+ * Thread-safe: a block of ids is taken in one atomic step.
+ */
+final class IdAllocator {
+    private final String kind;
+    private final AtomicInteger next = new AtomicInteger(1);
+    // New ids stay below this; a shard node sets it to the start of the next shard's range
+    private volatile int limit = Integer.MAX_VALUE;
+
+    /**
+     * @param kind the entity name used in the exhaustion message, e.g. "patient"
+     */
+    IdAllocator(String kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * Takes an explicit id, e.g. one restored from disk, and moves the counter
+     * past it so later allocations never reuse it.
+     * @return the id
+     */
+    int claim(int id) {
+        next.accumulateAndGet(id + 1, Math::max);
+        return id;
+    }
+
+    /**
+     * Makes new ids start at {@code first} or later and stay below {@code limit}.
+     */
+    void startAt(int first, int limit) {
+        this.limit = limit;
+        next.accumulateAndGet(first, Math::max);
+    }
+
+    /**
+     * Takes {@code count} consecutive ids, or none if they would reach the limit.
+     * @return the first id taken
+     * @throws IllegalStateException if fewer than count ids are left
+     */
+    int reserve(int count) {
+        int limit = this.limit;
+        int first = next.getAndUpdate(n -> limit - n >= count ? n + count : n);
+        if (limit - first < count) {
+            throw new IllegalStateException("No " + kind + " IDs left: this node's range ends at " + (limit - 1));
+        }
+        return first;
+    }
+}
@@ -1,40 +1,267 @@
 package com.example;
 
+import java.text.ParsePosition;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.Scanner;
 
+/**
+ * Input parsing and validation rules shared by the menu, the models and the bulk importer.
+ *
+ * The checks are hand-written character scanners: they do not compile regular
+ * expressions, throw exceptions for bad input or create trimmed copies, so they
+ * are cheap enough to run millions of times. Parsing methods return
+ * {@link #INVALID} rather than a value that could also be legitimate input.
+ */
 public class InputValidator {
+    /** Returned by the {@code tryParse} methods when the input is not a valid number. */
+    public static final long INVALID = Long.MIN_VALUE;
 
+    /** Minimum length of a contact number. */
+    public static final int MIN_CONTACT_LENGTH = 10;
+
+    /**
+     * Parses an integer, ignoring surrounding whitespace.
+     * @return the value, or -1 if the input is not a valid integer
+     * @see #tryParseInt(CharSequence) to tell "-1" apart from invalid input
+     */
     public static int parseInteger(String input) {
+        long value = tryParseInt(input);
+        return value == INVALID ? -1 : (int) value;
+    }
+
+    /**
+     * @return the value, or -1 if the input is not an integer between min and max
+     */
+    public static int parseIntegerInRange(String input, int min, int max) {
+        long value = tryParseIntInRange(input, min, max);
+        return value == INVALID ? -1 : (int) value;
+    }
+
+    /**
+     * Parses an integer, ignoring surrounding whitespace, without throwing.
+     * @return the value, or {@link #INVALID} if the input is null, empty,
+     *         not a number or outside the int range
+     */
+    public static long tryParseInt(CharSequence input) {
+        return input == null ? INVALID : tryParseInt(input, 0, input.length());
+    }
+
+    /**
+     * Parses the integer in input[from, to), ignoring surrounding whitespace.
+     * @return the value, or {@link #INVALID}
+     */
+    public static long tryParseInt(CharSequence input, int from, int to) {
+        while (from < to && input.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && input.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return INVALID;
+        }
+        boolean negative = false;
+        char first = input.charAt(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) {
+                return INVALID;
+            }
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = input.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return INVALID;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? INVALID : value;
+    }
+
+    /**
+     * Parses the ASCII integer in bytes[from, to), ignoring surrounding whitespace,
+     * e.g. a field of a raw input line.
+     * @return the value, or {@link #INVALID}
+     */
+    public static long tryParseInt(byte[] ascii, int from, int to) {
+        while (from < to && (ascii[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        while (to > from && (ascii[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        if (from == to) {
+            return INVALID;
+        }
+        boolean negative = false;
+        byte first = ascii[from];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) {
+                return INVALID;
+            }
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = ascii[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return INVALID;
+            }
+        }
+        value = negative ? -value : value;
+        return value > Integer.MAX_VALUE ? INVALID : value;
+    }
+
+    /**
+     * @return the value, or {@link #INVALID} if it is not an integer between min and max
+     */
+    public static long tryParseIntInRange(CharSequence input, int min, int max) {
+        long value = tryParseInt(input);
+        return value != INVALID && value >= min && value <= max ? value : INVALID;
+    }
+
+    /**
+     * Parses a date and time in {@link Appointment#TIME_FORMAT} ("yyyy-MM-dd HH:mm"),
+     * ignoring surrounding whitespace.
+     * @return the time, or null if the input is invalid
+     */
+    public static LocalDateTime parseDateTime(String input) {
+        if (input == null) {
+            return null;
+        }
+        int from = 0, to = input.length();
+        while (from < to && input.charAt(from) <= ' ') {
+            from++;
+        }
+        while (to > from && input.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        // Fast path for the exact shape dddd-dd-dd dd:dd with in-range fields
+        if (to - from == 16 && input.charAt(from + 4) == '-' && input.charAt(from + 7) == '-'
+                && input.charAt(from + 10) == ' ' && input.charAt(from + 13) == ':') {
+            int year = digits(input, from, 4);
+            int month = digits(input, from + 5, 2);
+            int day = digits(input, from + 8, 2);
+            int hour = digits(input, from + 11, 2);
+            int minute = digits(input, from + 14, 2);
+            if ((year | month | day | hour | minute) >= 0 && year >= 1 && month >= 1 && month <= 12 && day >= 1
+                    && day <= YearMonth.of(year, month).lengthOfMonth() && hour <= 23 && minute <= 59) {
+                return LocalDateTime.of(year, month, day, hour, minute);
+            }
+            // Fields the formatter's resolver never accepts, rejected without its exception
+            if ((year | month | day | hour | minute) >= 0 && (year == 0 || month == 0 || month > 12
+                    || day == 0 || day > 31 || hour > 24 || minute > 59)) {
+                return null;
+            }
+        }
+        // Anything else goes through the formatter, so the accepted syntax is unchanged;
+        // parseUnresolved rejects malformed text without throwing
+        String text = input.substring(from, to);
+        ParsePosition position = new ParsePosition(0);
+        if (Appointment.TIME_FORMAT.parseUnresolved(text, position) == null || position.getIndex() != text.length()) {
+            return null;
+        }
         try {
-            return Integer.parseInt(input.trim());
-        } catch (NumberFormatException e) {
-            return -1;
+            return LocalDateTime.parse(text, Appointment.TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null; // well-formed but out of range, e.g. month 13
         }
     }
 
-    public static int parseIntegerInRange(String input, int min, int max) {
-        int value = parseInteger(input);
-        if (value >= min && value <= max) {
-            return value;
+    // Value of count decimal digits at s[from], or -1 if any is not a digit
+    private static int digits(CharSequence s, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
         }
-        return -1;
+        return value;
     }
 
-    public static boolean isValidString(String input) {
-        return input != null && !input.trim().isEmpty();
+    /**
+     * @return true if the input contains at least one non-whitespace character
+     */
+    public static boolean isValidString(CharSequence input) {
+        if (input == null) {
+            return false;
+        }
+        for (int i = 0, n = input.length(); i < n; i++) {
+            if (input.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
     }
 
-    public static boolean isValidContactNumber(String contactNumber) {
-        if (contactNumber == null || contactNumber.trim().isEmpty()) {
+    /**
+     * Checks a contact number: at least {@value #MIN_CONTACT_LENGTH} characters,
+     * each a digit, space, '-', '+', '(' or ')', and not blank.
+     */
+    public static boolean isValidContactNumber(CharSequence contactNumber) {
+        if (contactNumber == null || contactNumber.length() < MIN_CONTACT_LENGTH) {
             return false;
         }
-        return contactNumber.matches("^[\\d\\s\\-\\+\\(\\)]{10,}$");
+        boolean blank = true;
+        for (int i = 0, n = contactNumber.length(); i < n; i++) {
+            char c = contactNumber.charAt(i);
+            if (c >= '0' && c <= '9' || c == '-' || c == '+' || c == '(' || c == ')') {
+                blank = false;
+            } else if (!isSpace(c)) {
+                return false;
+            }
+        }
+        return !blank;
+    }
+
+    /**
+     * Checks the ASCII contact number in bytes[from, to) with the same rules.
+     */
+    public static boolean isValidContactNumber(byte[] ascii, int from, int to) {
+        if (to - from < MIN_CONTACT_LENGTH) {
+            return false;
+        }
+        boolean blank = true;
+        for (int i = from; i < to; i++) {
+            char c = (char) (ascii[i] & 0xFF);
+            if (c >= '0' && c <= '9' || c == '-' || c == '+' || c == '(' || c == ')') {
+                blank = false;
+            } else if (!isSpace(c)) {
+                return false;
+            }
+        }
+        return !blank;
+    }
+
+    // The characters matched by the regex class \s
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 
     public static boolean isValidAge(int age) {
         return age >= 0 && age <= 150;
     }
 
+    /**
+     * @return true if value is a parsed integer (not {@link #INVALID}) that is a valid age
+     */
+    public static boolean isValidAge(long value) {
+        return value != INVALID && value >= 0 && value <= 150;
+    }
+
     public static String getValidString(Scanner scanner, String prompt) {
         while (true) {
             System.out.print(prompt);
@@ -50,9 +277,9 @@ public class InputValidator {
         while (true) {
             System.out.print(prompt);
             String input = scanner.nextLine();
-            int value = parseInteger(input);
-            if (value != -1) {
-                return value;
+            long value = tryParseInt(input);
+            if (value != INVALID) {
+                return (int) value;
             }
             System.out.println("Invalid input. Please enter a valid integer.");
         }
@@ -62,9 +289,9 @@ public class InputValidator {
         while (true) {
             System.out.print(prompt);
             String input = scanner.nextLine();
-            int value = parseIntegerInRange(input, min, max);
-            if (value != -1) {
-                return value;
+            long value = tryParseIntInRange(input, min, max);
+            if (value != INVALID) {
+                return (int) value;
             }
             System.out.println(String.format("Invalid input. Please enter a number between %d and %d.", min, max));
         }
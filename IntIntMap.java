@@ -0,0 +1,116 @@
+package com.example;
+
+/**
+ * Open-addressing hash map from {@code int} to {@code int}, the primitive
+ * counterpart of {@link IntObjectMap} for values that would otherwise be
+ * boxed. Uses linear probing; entries are never removed, only overwritten.
+ * Key 0 marks an empty slot, so keys must be non-zero (ids start at 1).
+ *
+ * Not thread-safe; the owner guards it.
+ */
+final class IntIntMap {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    IntIntMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a map sized to hold the expected number of entries without resizing.
+     */
+    IntIntMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative");
+        }
+        allocate(tableSizeFor((int) Math.ceil(expectedSize / LOAD_FACTOR)));
+    }
+
+    int size() { return size; }
+
+    /** Slots in the table, for footprint estimates. */
+    int capacity() { return keys.length; }
+
+    /**
+     * Returns the value mapped to the key, or {@code absent} if there is none.
+     */
+    int get(int key, int absent) {
+        int slot = mix(key) & mask;
+        int k;
+        while ((k = keys[slot]) != 0) {
+            if (k == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return absent;
+    }
+
+    /**
+     * Maps the key to the value, replacing any previous value.
+     * @throws IllegalArgumentException if the key is 0
+     */
+    void put(int key, int value) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key cannot be 0");
+        }
+        int slot = mix(key) & mask;
+        int k;
+        while ((k = keys[slot]) != 0) {
+            if (k == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != 0) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int minimum) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < minimum) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // Same multiplicative mix as IntObjectMap, so sequential ids do not cluster
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,235 @@
+package com.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Paginated, streaming renderer for patient, doctor and appointment listings.
+ *
+ * Rows are formatted with the models' {@code appendTo(StringBuilder)} into one
+ * reused builder and copied to the {@link Writer} through a reused char buffer,
+ * so no per-row string is created. The listing works on a snapshot of the
+ * registry taken by {@link #open}; a cursor remembers the position between
+ * pages. Sorting and filtering by field restart the cursor at the first page.
+ *
+ * @param <T> the entity type
+ */
+public class ListingRenderer<T> {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final BiConsumer<T, StringBuilder> format;
+    private final Map<String, Field<T>> fields = new LinkedHashMap<>();
+    private final StringBuilder line = new StringBuilder(160);
+    private char[] chars = new char[256];
+    private final int pageSize;
+
+    private List<T> source = List.of();
+    private List<T> rows = List.of();
+    private Field<T> sortField;
+    private boolean descending;
+    private Field<T> filterField;
+    private String filterText;
+    private int cursor;
+
+    /**
+     * @param format appends one row to the builder
+     * @param pageSize rows per page
+     */
+    public ListingRenderer(BiConsumer<T, StringBuilder> format, int pageSize) {
+        if (format == null) {
+            throw new IllegalArgumentException("Format cannot be null");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.format = format;
+        this.pageSize = pageSize;
+    }
+
+    public static ListingRenderer<Patient> patients() {
+        return new ListingRenderer<Patient>(Patient::appendTo, DEFAULT_PAGE_SIZE)
+                .field("id", Comparator.comparingInt(Patient::getId), p -> Integer.toString(p.getId()))
+                .field("name", Comparator.comparing(Patient::getName, String.CASE_INSENSITIVE_ORDER), Patient::getName)
+                .field("age", Comparator.comparingInt(Patient::getAge), p -> Integer.toString(p.getAge()))
+                .field("diagnosis", Comparator.comparing(Patient::getDiagnosis, String.CASE_INSENSITIVE_ORDER),
+                        Patient::getDiagnosis)
+                .field("doctor", Comparator.comparing(Patient::getAssignedDoctorName, String.CASE_INSENSITIVE_ORDER),
+                        Patient::getAssignedDoctorName)
+                .field("contact", Comparator.comparing(Patient::getContactNumber), Patient::getContactNumber);
+    }
+
+    public static ListingRenderer<Doctor> doctors() {
+        return new ListingRenderer<Doctor>(Doctor::appendTo, DEFAULT_PAGE_SIZE)
+                .field("id", Comparator.comparingInt(Doctor::getId), d -> Integer.toString(d.getId()))
+                .field("name", Comparator.comparing(Doctor::getName, String.CASE_INSENSITIVE_ORDER), Doctor::getName)
+                .field("specialization", Comparator.comparing(Doctor::getSpecialization, String.CASE_INSENSITIVE_ORDER),
+                        Doctor::getSpecialization)
+                .field("experience", Comparator.comparingInt(Doctor::getYearsOfExperience),
+                        d -> Integer.toString(d.getYearsOfExperience()))
+                .field("patients", Comparator.comparingInt(d -> d.getAssignedPatients().size()),
+                        d -> Integer.toString(d.getAssignedPatients().size()));
+    }
+
+    public static ListingRenderer<Appointment> appointments() {
+        return new ListingRenderer<Appointment>(Appointment::appendTo, DEFAULT_PAGE_SIZE)
+                .field("id", Comparator.comparingInt(Appointment::getId), a -> Integer.toString(a.getId()))
+                .field("patient", Comparator.comparing(a -> a.getPatient().getName(), String.CASE_INSENSITIVE_ORDER),
+                        a -> a.getPatient().getName())
+                .field("doctor", Comparator.comparing(a -> a.getDoctor().getName(), String.CASE_INSENSITIVE_ORDER),
+                        a -> a.getDoctor().getName())
+                .field("time", Comparator.comparing(Appointment::getAppointmentTime),
+                        a -> a.getAppointmentTime().format(Appointment.TIME_FORMAT))
+                .field("purpose", Comparator.comparing(Appointment::getPurpose, String.CASE_INSENSITIVE_ORDER),
+                        Appointment::getPurpose)
+                .field("status", Comparator.comparing(Appointment::getStatus), a -> a.getStatus().getLabel());
+    }
+
+    /**
+     * Declares a field that listings can be sorted and filtered by.
+     * @param order sort order of the field
+     * @param text the field's text, matched by filters
+     * @return this renderer
+     */
+    public ListingRenderer<T> field(String name, Comparator<T> order, Function<T, String> text) {
+        fields.put(name.toLowerCase(Locale.ROOT), new Field<>(order, text));
+        return this;
+    }
+
+    public List<String> getFieldNames() {
+        return new ArrayList<>(fields.keySet());
+    }
+
+    /**
+     * Starts a listing over a snapshot of the registry, keeping the current
+     * sort and filter.
+     */
+    public void open(EntityRegistry<T> registry) {
+        source = registry.snapshot();
+        refresh();
+    }
+
+    /**
+     * Sorts by a field, or restores registration order when field is null.
+     * @throws IllegalArgumentException if the field is unknown
+     */
+    public void sortBy(String field, boolean descending) {
+        this.sortField = field == null ? null : requireField(field);
+        this.descending = descending;
+        refresh();
+    }
+
+    /**
+     * Keeps only rows whose field contains the text (case-insensitive);
+     * a null field clears the filter.
+     * @throws IllegalArgumentException if the field is unknown
+     */
+    public void filter(String field, String text) {
+        if (field == null) {
+            filterField = null;
+            filterText = null;
+        } else {
+            filterField = requireField(field);
+            filterText = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+        }
+        refresh();
+    }
+
+    public int getRowCount() { return rows.size(); }
+    public int getPosition() { return cursor; }
+
+    public boolean hasNextPage() {
+        return cursor < rows.size();
+    }
+
+    /**
+     * Writes the next page, one row per line, and advances the cursor.
+     * The writer is flushed but not closed.
+     * @return the number of rows written
+     */
+    public int writeNextPage(Writer out) throws IOException {
+        int end = Math.min(rows.size(), cursor + pageSize);
+        int written = end - cursor;
+        for (; cursor < end; cursor++) {
+            writeRow(out, rows.get(cursor));
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Streams every row of the current listing to a UTF-8 file, independent of the cursor.
+     * @return the number of rows written
+     */
+    public int exportTo(Path path) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (T row : rows) {
+                writeRow(out, row);
+            }
+        }
+        return rows.size();
+    }
+
+    // Format into the reused builder and copy through the reused char buffer
+    private void writeRow(Writer out, T row) throws IOException {
+        line.setLength(0);
+        format.accept(row, line);
+        line.append(System.lineSeparator());
+        int length = line.length();
+        if (length > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(length, chars.length * 2));
+        }
+        line.getChars(0, length, chars, 0);
+        out.write(chars, 0, length);
+    }
+
+    private void refresh() {
+        List<T> result = source;
+        if (filterField != null) {
+            result = new ArrayList<>();
+            for (T row : source) {
+                if (filterField.text.apply(row).toLowerCase(Locale.ROOT).contains(filterText)) {
+                    result.add(row);
+                }
+            }
+        }
+        if (sortField != null) {
+            if (result == source) {
+                result = new ArrayList<>(source);
+            }
+            result.sort(descending ? sortField.order.reversed() : sortField.order);
+        }
+        rows = result;
+        cursor = 0;
+    }
+
+    private Field<T> requireField(String name) {
+        Field<T> field = fields.get(name.toLowerCase(Locale.ROOT));
+        if (field == null) {
+            throw new IllegalArgumentException("Unknown field '" + name + "'. Fields: " + String.join(", ", fields.keySet()));
+        }
+        return field;
+    }
+
+    private static final class Field<T> {
+        final Comparator<T> order;
+        final Function<T, String> text;
+
+        Field(Comparator<T> order, Function<T, String> text) {
+            this.order = order;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded read-through cache with least-recently-used and time-to-live eviction.
+ *
+ * Keys are spread over segments, each an access-ordered {@link LinkedHashMap}
+ * under its own lock, so readers of different keys rarely contend. LRU order is
+ * kept per segment, which approximates a global LRU. An entry older than the
+ * time to live is reloaded on its next read.
+ *
+ * {@link #get} runs the loader outside the lock. If the key's segment is
+ * invalidated while the value loads, the value is returned but not stored, so
+ * a slow reader cannot put back data an invalidation has just dropped.
+ *
+ * @param <K> the key type; keys are compared with {@code equals}
+ * @param <V> the value type
+ */
+public class LruCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final Segment[] segments;
+    private final int mask;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param capacity maximum number of entries
+     * @param ttl how long an entry is served after it was loaded
+     */
+    public LruCache(int capacity, Duration ttl) {
+        this(capacity, ttl, System::nanoTime);
+    }
+
+    /**
+     * @param clock nanosecond time source, replaceable in tests
+     */
+    LruCache(int capacity, Duration ttl, LongSupplier clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive");
+        }
+        // Small caches get one segment, so their LRU order is exact
+        int count = Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(1, capacity / MIN_SEGMENT_CAPACITY)));
+        @SuppressWarnings("unchecked")
+        Segment[] created = (Segment[]) new LruCache<?, ?>.Segment[count];
+        this.segments = created;
+        // Spread the remainder so the segment capacities add up to exactly capacity
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+        this.mask = count - 1;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached value, or loads, caches and returns it.
+     * @param loader computes the value on a miss; a null result is returned but not cached
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment segment = segmentFor(key);
+        long stamp;
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry != null) {
+                if (clock.getAsLong() - entry.loadedAt < ttlNanos) {
+                    hits.increment();
+                    return entry.value;
+                }
+                segment.remove(key);
+                expirations.increment();
+            }
+            stamp = segment.generation;
+        }
+        misses.increment();
+        long loadedAt = clock.getAsLong();
+        V value = loader.apply(key);
+        if (value != null) {
+            synchronized (segment) {
+                if (segment.generation == stamp) {
+                    segment.put(key, new Entry<>(value, loadedAt));
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Drops the key's entry, and any value for it still loading.
+     */
+    public void invalidate(K key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.generation++;
+            if (segment.remove(key) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Drops every entry, and every value still loading.
+     */
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                invalidations.add(segment.size());
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    /** Entries dropped to make room for newer ones. */
+    public long getEvictions() { return evictions.sum(); }
+    /** Entries dropped because they outlived the time to live. */
+    public long getExpirations() { return expirations.sum(); }
+    /** Entries dropped because the data behind them changed. */
+    public long getInvalidations() { return invalidations.sum(); }
+
+    /**
+     * Registers size, hit, miss, eviction, expiration and invalidation gauges
+     * named {@code prefix.size}, {@code prefix.hits} and so on.
+     */
+    public void registerGauges(MetricsRegistry metrics, String prefix) {
+        metrics.gauge(prefix + ".size", this::size);
+        metrics.gauge(prefix + ".hits", this::getHits);
+        metrics.gauge(prefix + ".misses", this::getMisses);
+        metrics.gauge(prefix + ".evictions", this::getEvictions);
+        metrics.gauge(prefix + ".expirations", this::getExpirations);
+        metrics.gauge(prefix + ".invalidations", this::getInvalidations);
+    }
+
+    private Segment segmentFor(K key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & mask];
+    }
+
+    private final class Segment extends LinkedHashMap<K, Entry<V>> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+        // Bumped by every invalidation, so loads that overlap one are not stored
+        long generation;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long loadedAt;
+
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Named {@link OperationStats} and gauges (e.g. registry sizes), readable as a
+ * text table, through a periodic dump file and as a JMX MBean.
+ *
+ * Recording goes straight to the {@link OperationStats} a component looked up
+ * once at construction, so the registry itself is off the hot path. Reads
+ * (dumps, JMX) compute percentiles on demand.
+ */
+public class MetricsRegistry implements AutoCloseable {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final Map<String, OperationStats> operations = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService dumper;
+    private ObjectName mbeanName;
+
+    /**
+     * Returns the stats of an operation, creating them on first use.
+     */
+    public OperationStats operation(String name) {
+        return operations.computeIfAbsent(name, OperationStats::new);
+    }
+
+    /**
+     * Registers a value sampled when metrics are read, replacing any gauge of that name.
+     */
+    public void gauge(String name, LongSupplier value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Gauge cannot be null");
+        }
+        gauges.put(name, value);
+    }
+
+    /** Operations in name order. */
+    public List<OperationStats> getOperations() {
+        return new ArrayList<>(operations.values());
+    }
+
+    /**
+     * Renders every operation (calls, errors, mean and percentile latencies in
+     * microseconds) and every gauge as a text table.
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder(2048);
+        sb.append("# Hospital metrics at ")
+                .append(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append('\n');
+        sb.append(String.format("%-32s %10s %8s %10s", "operation", "calls", "errors", "mean_us"));
+        for (String percentile : PERCENTILE_NAMES) {
+            sb.append(String.format(" %10s", percentile + "_us"));
+        }
+        sb.append(String.format(" %10s%n", "max_us"));
+        for (OperationStats op : operations.values()) {
+            LatencyHistogram latency = op.getLatency();
+            sb.append(String.format("%-32s %10d %8d %10.1f", op.getName(), op.getCalls(), op.getErrors(),
+                    latency.getMean() / 1000));
+            for (double percentile : PERCENTILES) {
+                sb.append(String.format(" %10.1f", latency.getValueAtPercentile(percentile) / 1000.0));
+            }
+            sb.append(String.format(" %10.1f%n", latency.getMax() / 1000.0));
+        }
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            sb.append(String.format("%-32s %10d%n", gauge.getKey(), gauge.getValue().getAsLong()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes {@link #dump()} to a file, replacing it atomically.
+     */
+    public void writeDump(Path path) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, dump().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Rewrites the dump file in the background every interval until {@link #close()}.
+     */
+    public synchronized void scheduleDump(Path path, long interval, TimeUnit unit) {
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "metrics-dump");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        dumper.scheduleWithFixedDelay(() -> {
+            try {
+                writeDump(path);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Metrics dump failed: " + e);
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Exposes the metrics on the platform MBean server under the given name,
+     * e.g. "com.example:type=Metrics". Each operation has the attributes
+     * {@code <op>.calls}, {@code .errors}, {@code .meanMicros}, {@code .p50Micros} to
+     * {@code .p999Micros} and {@code .maxMicros}; each gauge is an attribute of its own.
+     * The {@code dump} operation returns the text table.
+     * @throws IllegalStateException if registration fails, e.g. the name is taken
+     */
+    public synchronized void registerMBean(String objectName) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            server.registerMBean(new JmxView(), name);
+            mbeanName = name;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics MBean " + objectName + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stops the background dump and unregisters the MBean.
+     */
+    @Override
+    public synchronized void close() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            } catch (JMException e) {
+                // Already gone
+            }
+            mbeanName = null;
+        }
+    }
+
+    // Attribute value for a JMX name, or null if there is no such attribute
+    private Object attribute(String attribute) {
+        LongSupplier gauge = gauges.get(attribute);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        int dot = attribute.lastIndexOf('.');
+        OperationStats op = dot < 0 ? null : operations.get(attribute.substring(0, dot));
+        if (op == null) {
+            return null;
+        }
+        String field = attribute.substring(dot + 1);
+        LatencyHistogram latency = op.getLatency();
+        if (field.equals("calls")) {
+            return op.getCalls();
+        }
+        if (field.equals("errors")) {
+            return op.getErrors();
+        }
+        if (field.equals("meanMicros")) {
+            return latency.getMean() / 1000;
+        }
+        if (field.equals("maxMicros")) {
+            return latency.getMax() / 1000.0;
+        }
+        for (int i = 0; i < PERCENTILE_NAMES.length; i++) {
+            if (field.equals(PERCENTILE_NAMES[i] + "Micros")) {
+                return latency.getValueAtPercentile(PERCENTILES[i]) / 1000.0;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read-only dynamic MBean; the attribute list follows the operations and
+     * gauges registered so far.
+     */
+    private final class JmxView implements DynamicMBean {
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Object value = attribute(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Object value = attribute(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            if ("dump".equals(actionName)) {
+                return dump();
+            }
+            throw new ReflectionException(new NoSuchMethodException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (String op : operations.keySet()) {
+                attributes.add(new MBeanAttributeInfo(op + ".calls", "long", "Calls", true, false, false));
+                attributes.add(new MBeanAttributeInfo(op + ".errors", "long", "Failed calls", true, false, false));
+                attributes.add(new MBeanAttributeInfo(op + ".meanMicros", "double", "Mean latency", true, false, false));
+                for (String percentile : PERCENTILE_NAMES) {
+                    attributes.add(new MBeanAttributeInfo(op + "." + percentile + "Micros", "double",
+                            percentile + " latency", true, false, false));
+                }
+                attributes.add(new MBeanAttributeInfo(op + ".maxMicros", "double", "Max latency", true, false, false));
+            }
+            for (String gauge : gauges.keySet()) {
+                attributes.add(new MBeanAttributeInfo(gauge, "long", "Gauge", true, false, false));
+            }
+            MBeanOperationInfo dump = new MBeanOperationInfo("dump", "Metrics as a text table",
+                    null, "java.lang.String", MBeanOperationInfo.INFO);
+            return new MBeanInfo(MetricsRegistry.class.getName(), "Hospital operation metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null,
+                    new MBeanOperationInfo[] {dump}, null);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Central dispatcher for {@link MutationListener} notifications.
+ * The model classes and {@link HospitalService} publish here; persistence and
+ * indexing components subscribe. Listener registration is rare, so a
+ * copy-on-write list keeps publishing lock-free.
+ */
+public final class MutationEvents {
+    private static final CopyOnWriteArrayList<MutationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private MutationEvents() {}
+
+    public static void register(MutationListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.addIfAbsent(listener);
+    }
+
+    public static void unregister(MutationListener listener) {
+        listeners.remove(listener);
+    }
+
+    static void patientAdded(Patient patient) {
+        for (MutationListener l : listeners) {
+            l.patientAdded(patient);
+        }
+    }
+
+    static void doctorAdded(Doctor doctor) {
+        for (MutationListener l : listeners) {
+            l.doctorAdded(doctor);
+        }
+    }
+
+    static void patientAssigned(Doctor doctor, Patient patient) {
+        for (MutationListener l : listeners) {
+            l.patientAssigned(doctor, patient);
+        }
+    }
+
+    static void patientRemoved(Doctor doctor, Patient patient) {
+        for (MutationListener l : listeners) {
+            l.patientRemoved(doctor, patient);
+        }
+    }
+
+    static void diagnosisChanged(Patient patient, String oldDiagnosis) {
+        for (MutationListener l : listeners) {
+            l.diagnosisChanged(patient, oldDiagnosis);
+        }
+    }
+
+    static void appointmentCreated(Appointment appointment) {
+        for (MutationListener l : listeners) {
+            l.appointmentCreated(appointment);
+        }
+    }
+
+    static void statusChanged(Appointment appointment, AppointmentStatus oldStatus) {
+        for (MutationListener l : listeners) {
+            l.statusChanged(appointment, oldStatus);
+        }
+    }
+
+    static void appointmentRescheduled(Appointment appointment, LocalDateTime oldTime) {
+        for (MutationListener l : listeners) {
+            l.appointmentRescheduled(appointment, oldTime);
+        }
+    }
+
+    static void patientDetailsChanged(Patient patient) {
+        for (MutationListener l : listeners) {
+            l.patientDetailsChanged(patient);
+        }
+    }
+
+    static void doctorDetailsChanged(Doctor doctor) {
+        for (MutationListener l : listeners) {
+            l.doctorDetailsChanged(doctor);
+        }
+    }
+
+    static void medicalHistoryChanged(Patient patient) {
+        for (MutationListener l : listeners) {
+            l.medicalHistoryChanged(patient);
+        }
+    }
+
+    static void notesChanged(Appointment appointment) {
+        for (MutationListener l : listeners) {
+            l.notesChanged(appointment);
+        }
+    }
+
+    static void batchStarted() {
+        for (MutationListener l : listeners) {
+            l.batchStarted();
+        }
+    }
+
+    static void batchFinished() {
+        for (MutationListener l : listeners) {
+            l.batchFinished();
+        }
+    }
+}
@@ -0,0 +1,865 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary write-ahead journal of every mutation.
+ * Register it with {@link MutationEvents} and each event is appended as one record.
+ *
+ * Writes use group commit: records are buffered in memory and a single flusher
+ * thread writes everything buffered so far with one {@link FileChannel#write}
+ * and one fsync, so concurrent writers share the cost of each fsync.
+ * In synchronous mode a mutation returns only once its record is on disk;
+ * inside a batch ({@link #batchStarted}) the wait happens once, when the batch finishes.
+ *
+ * Record layout (big-endian):
+ * [int length][byte type][long sequence][payload...][int crc32]
+ * where length counts everything after the length field and the CRC covers
+ * type, sequence and payload. A torn or corrupt tail left by a crash is
+ * detected by the CRC and truncated on the next open.
+ *
+ * The journal is a sequence of segment files next to the journal path, each
+ * named after the journal position of its first byte
+ * ({@code hospital.journal.00000000000000000000}, ...). A position is a byte
+ * offset into the concatenation of all segments, so positions stay valid as
+ * segments are added. The flusher starts a new segment once the current one
+ * holds {@code -Dhms.journalSegmentBytes} (default 64 MiB); records never span
+ * segments. A journal written as one file by an earlier version becomes the
+ * first segment when it is opened.
+ *
+ * A {@link Checkpoint} taken by a snapshot lets {@link #open} start replay at
+ * the segment holding it, past everything the snapshot already contains.
+ * Replay reads through a bounded window, so the journal's size does not matter.
+ * Once the snapshot is safely on disk, {@link #compact} deletes the segments
+ * it has made unnecessary, except those a reader such as a replication sender
+ * still needs.
+ */
+public class MutationJournal implements MutationListener, AutoCloseable {
+    static final byte PATIENT_ADDED = 1;
+    static final byte DOCTOR_ADDED = 2;
+    static final byte PATIENT_ASSIGNED = 3;
+    static final byte DIAGNOSIS_CHANGED = 4;
+    static final byte APPOINTMENT_CREATED = 5;
+    static final byte STATUS_CHANGED = 6;
+    static final byte APPOINTMENT_RESCHEDULED = 7;
+    static final byte PATIENT_REMOVED = 8;
+
+    private static final int HEADER_BYTES = 4 + 1 + 8;
+    private static final int CRC_BYTES = 4;
+    private static final int INITIAL_BUFFER = 64 * 1024;
+    // Bytes read from a segment at a time during replay; grown only for a larger record
+    private static final int READ_WINDOW = 1 << 20;
+    private static final long SEGMENT_BYTES = Long.getLong("hms.journalSegmentBytes", 64L << 20);
+    private static final int POSITION_DIGITS = 20;
+
+    private final Path path;
+    private final boolean syncCommits;
+    private final long segmentBytes;
+    private final Object lock = new Object();
+    private final Thread flusher;
+    private final ThreadLocal<Record> scratch = ThreadLocal.withInitial(Record::new);
+    private final CRC32 crc = new CRC32();
+    // Oldest position each reader still needs; compaction keeps the segments holding them
+    private final List<LongSupplier> readers = new CopyOnWriteArrayList<>();
+
+    // The segment being appended to; written and replaced only by the flusher
+    private FileChannel channel;
+    private long segmentStart;
+
+    // Guarded by lock
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER);
+    private final List<Long> segmentStarts;
+    private long lastSequence;
+    private long durableSequence;
+    private long appendedPosition;
+    private long durablePosition;
+    private boolean rollRequested;
+    private boolean closed;
+    private IOException failure;
+
+    private final int replayedRecords;
+
+    private MutationJournal(Path path, FileChannel channel, List<Long> segmentStarts, boolean syncCommits,
+                            long segmentBytes, long lastSequence, long position, int replayedRecords) {
+        this.path = path;
+        this.channel = channel;
+        this.segmentStarts = segmentStarts;
+        this.segmentStart = segmentStarts.get(segmentStarts.size() - 1);
+        this.syncCommits = syncCommits;
+        this.segmentBytes = segmentBytes;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        this.appendedPosition = position;
+        this.durablePosition = position;
+        this.replayedRecords = replayedRecords;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Opens (or creates) a journal, replays its records into the service and
+     * positions it for appending. Register the returned journal with
+     * {@link MutationEvents} only after this returns, so replay is not re-journaled.
+     * @param path journal path; the segments are the files {@code <path>.<position>} next to it
+     * @param service service to restore into
+     * @param syncCommits true to make every mutation wait until its record is fsynced
+     * @throws IOException if the file cannot be read or written
+     * @throws IllegalStateException if a valid record cannot be applied
+     */
+    public static MutationJournal open(Path path, HospitalService service, boolean syncCommits) throws IOException {
+        return open(path, service, syncCommits, null);
+    }
+
+    /**
+     * Opens a journal whose earlier records are already contained in a snapshot.
+     * Replay starts at the checkpoint position and skips records up to its sequence.
+     * Records written while the snapshot was being captured may or may not be in it,
+     * so they are re-applied leniently: ones that no longer apply are ignored.
+     * @param from checkpoint stored with the loaded snapshot, or null to replay everything
+     * @throws IOException also if segments the replay needs were deleted
+     */
+    public static MutationJournal open(Path path, HospitalService service, boolean syncCommits, Checkpoint from)
+            throws IOException {
+        return open(path, service, syncCommits, from, SEGMENT_BYTES);
+    }
+
+    static MutationJournal open(Path path, HospitalService service, boolean syncCommits, Checkpoint from,
+                                long segmentBytes) throws IOException {
+        List<Long> starts = segmentStarts(path);
+        if (Files.isRegularFile(path)) {
+            if (!starts.isEmpty()) {
+                throw new IOException("Both a single-file journal and journal segments exist: " + path);
+            }
+            // Written by a version without segments: its positions are already journal positions
+            Files.move(path, segmentPath(path, 0));
+            starts.add(0L);
+        }
+        if (starts.isEmpty()) {
+            // A snapshot without a journal continues at its checkpoint, so later checkpoints stay comparable
+            starts.add(from != null ? from.position : 0L);
+            Files.createFile(segmentPath(path, starts.get(0)));
+        }
+        long first = starts.get(0);
+        long last = starts.get(starts.size() - 1);
+        long startPosition = from != null ? from.position : first;
+        if (startPosition > last + Files.size(segmentPath(path, last))) {
+            // Checkpoint past the end of the journal (lost or replaced): replay all of it,
+            // the sequence check skips what the snapshot already has
+            startPosition = first;
+        }
+        if (startPosition < first) {
+            throw new IOException("Journal records from position " + startPosition + " were deleted; the oldest segment"
+                    + " starts at " + first + (from == null ? " and no snapshot was loaded" : ""));
+        }
+        int segment = Collections.binarySearch(starts, startPosition);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        Replay replay = new Replay(service, from);
+        long validEnd = startPosition;
+        for (; segment < starts.size(); segment++) {
+            long base = starts.get(segment);
+            try (FileChannel in = FileChannel.open(segmentPath(path, base), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                long end = readRecords(in, Math.max(startPosition, base) - base, replay);
+                validEnd = base + end;
+                if (end < in.size()) {
+                    // Torn or corrupt tail: drop it and everything written after it
+                    in.truncate(end);
+                    while (starts.size() > segment + 1) {
+                        Files.deleteIfExists(segmentPath(path, starts.remove(starts.size() - 1)));
+                    }
+                }
+            }
+        }
+        long lastSequence = replay.lastSequence;
+        if (from != null) {
+            // Never reuse sequence numbers the snapshot already covers
+            lastSequence = Math.max(lastSequence, from.capturedSequence);
+        }
+        long current = starts.get(starts.size() - 1);
+        FileChannel channel = FileChannel.open(segmentPath(path, current), StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            channel.position(validEnd - current);
+            return new MutationJournal(path, channel, new ArrayList<>(starts), syncCommits, segmentBytes,
+                    lastSequence, validEnd, replay.records);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Applies each replayed record to the service, skipping those the checkpoint covers.
+     */
+    private static final class Replay implements Consumer<ByteBuffer> {
+        final HospitalService service;
+        final Checkpoint from;
+        long lastSequence;
+        int records;
+
+        Replay(HospitalService service, Checkpoint from) {
+            this.service = service;
+            this.from = from;
+        }
+
+        @Override
+        public void accept(ByteBuffer body) {
+            byte type = body.get();
+            lastSequence = body.getLong();
+            if (from == null || lastSequence > from.sequence) {
+                apply(type, body, service, from != null && lastSequence <= from.capturedSequence);
+                records++;
+            }
+        }
+    }
+
+    /**
+     * Reads the complete, valid records of a segment from an offset through a
+     * bounded window, passing each body (positioned at its type byte) to the visitor.
+     * @return the offset just past the last valid record
+     */
+    static long readRecords(FileChannel in, long offset, Consumer<ByteBuffer> visitor) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(READ_WINDOW);
+        CRC32 check = new CRC32();
+        long readPosition = offset;
+        long validEnd = offset;
+        while (true) {
+            int n = in.read(window, readPosition);
+            if (n > 0) {
+                readPosition += n;
+            }
+            window.flip();
+            ByteBuffer body;
+            while ((body = nextRecord(window, check)) != null) {
+                visitor.accept(body);
+            }
+            validEnd += window.position();
+            if (n < 0 || window.remaining() >= 4 && window.getInt(window.position()) + 4L <= window.remaining()) {
+                return validEnd; // end of segment, or a complete record that failed its check
+            }
+            if (window.remaining() >= 4 && window.position() == 0 && window.limit() == window.capacity()) {
+                // One record larger than the window; a length beyond the segment's end is a torn tail
+                long needed = window.getInt(0) + 4L;
+                if (needed < 0 || validEnd + needed > in.size()) {
+                    return validEnd;
+                }
+                ByteBuffer bigger = ByteBuffer.allocate((int) needed);
+                bigger.put(window);
+                window = bigger;
+            } else {
+                window.compact();
+            }
+        }
+    }
+
+    /**
+     * Applies the complete, valid records at the buffer's position to a service,
+     * as a replica does with records streamed from the leader's journal. Stops
+     * before a partial or corrupt record; the buffer is left positioned there.
+     * @return the number of records applied
+     * @throws IllegalStateException or IllegalArgumentException if a record cannot be applied
+     */
+    static int applyRecords(ByteBuffer data, HospitalService service) {
+        CRC32 check = new CRC32();
+        int applied = 0;
+        ByteBuffer body;
+        while ((body = nextRecord(data, check)) != null) {
+            byte type = body.get();
+            body.getLong();
+            apply(type, body, service);
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * Reads the record at the buffer's position and moves past it.
+     * @return the record body positioned at its type byte, or null (position
+     *         unchanged) if the record is incomplete or fails its CRC
+     */
+    private static ByteBuffer nextRecord(ByteBuffer data, CRC32 check) {
+        if (data.remaining() < 4) {
+            return null;
+        }
+        int start = data.position();
+        int length = data.getInt();
+        if (length < HEADER_BYTES - 4 + CRC_BYTES || length > data.remaining()) {
+            data.position(start);
+            return null; // torn tail
+        }
+        int bodyLength = length - CRC_BYTES;
+        ByteBuffer body = data.slice();
+        body.limit(bodyLength);
+        check.reset();
+        check.update(body.duplicate());
+        data.position(data.position() + bodyLength);
+        if ((int) check.getValue() != data.getInt()) {
+            data.position(start);
+            return null; // corrupt tail
+        }
+        return body;
+    }
+
+    /**
+     * Waits until the journal holds durable records beyond a file position,
+     * for shipping them to a replica.
+     * @return the durable end of the file, which is {@code after} or less if the wait timed out
+     */
+    public long awaitDurablePosition(long after, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            while (durablePosition <= after && !closed && failure == null) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                lock.wait(remaining);
+            }
+            return durablePosition;
+        }
+    }
+
+    /** Number of records replayed when the journal was opened. */
+    public int getReplayedRecords() { return replayedRecords; }
+
+    /** Journal position up to which every record is on disk. */
+    public long getDurablePosition() {
+        synchronized (lock) {
+            return durablePosition;
+        }
+    }
+
+    /** Number of segment files the journal currently consists of. */
+    public int getSegmentCount() {
+        synchronized (lock) {
+            return segmentStarts.size();
+        }
+    }
+
+    /**
+     * Returns the segment holding a journal position, for reading it directly.
+     * @return the segment, or null if the position is before the oldest segment
+     */
+    Segment segmentAt(long position) {
+        synchronized (lock) {
+            int i = Collections.binarySearch(segmentStarts, position);
+            if (i < 0) {
+                i = -i - 2;
+            }
+            if (i < 0) {
+                return null;
+            }
+            long start = segmentStarts.get(i);
+            long end = i + 1 < segmentStarts.size() ? segmentStarts.get(i + 1) : Long.MAX_VALUE;
+            return new Segment(segmentPath(path, start), start, end);
+        }
+    }
+
+    /**
+     * Keeps the segments from the position the reader reports onwards until the
+     * reader is removed, for a reader that follows the journal files directly.
+     */
+    void addReader(LongSupplier oldestNeededPosition) {
+        readers.add(oldestNeededPosition);
+    }
+
+    void removeReader(LongSupplier oldestNeededPosition) {
+        readers.remove(oldestNeededPosition);
+    }
+
+    /**
+     * Deletes the segments a snapshot has made unnecessary. Call it only once the
+     * snapshot taken at the checkpoint is durably in place. Starts a new segment,
+     * so the one holding the checkpoint can go at the next compaction, then deletes
+     * every segment that ends at or before the checkpoint position and before the
+     * oldest position a reader still needs.
+     * @return the number of segments deleted
+     * @throws IOException if a segment cannot be deleted
+     */
+    public int compact(Checkpoint covered) throws IOException {
+        synchronized (lock) {
+            rollRequested = true;
+            lock.notifyAll();
+            while (rollRequested && !closed && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return 0;
+                }
+            }
+        }
+        long keepFrom = covered.position;
+        for (LongSupplier reader : readers) {
+            keepFrom = Math.min(keepFrom, reader.getAsLong());
+        }
+        List<Path> unneeded = new ArrayList<>();
+        synchronized (lock) {
+            // A segment ends where the next one starts; the current one is always kept
+            while (segmentStarts.size() > 1 && segmentStarts.get(1) <= keepFrom) {
+                unneeded.add(segmentPath(path, segmentStarts.remove(0)));
+            }
+        }
+        for (Path segment : unneeded) {
+            Files.deleteIfExists(segment);
+        }
+        return unneeded.size();
+    }
+
+    /** Sequence number of the last record appended. */
+    public long getLastSequence() {
+        synchronized (lock) {
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Returns the last durable record boundary. Everything up to it is already
+     * applied in memory, so a snapshot started afterwards contains it.
+     */
+    public Checkpoint checkpoint() {
+        synchronized (lock) {
+            return new Checkpoint(durablePosition, durableSequence, durableSequence);
+        }
+    }
+
+    private static void apply(byte type, ByteBuffer in, HospitalService service, boolean lenient) {
+        try {
+            apply(type, in, service);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            if (!lenient) {
+                throw e;
+            }
+            // Already reflected in the snapshot (duplicate add, closed appointment, ...)
+        }
+    }
+
+    private static void apply(byte type, ByteBuffer in, HospitalService service) {
+        switch (type) {
+            case PATIENT_ADDED -> service.restorePatient(in.getInt(), getString(in), in.getInt());
+            case DOCTOR_ADDED -> service.restoreDoctor(in.getInt(), getString(in), getString(in));
+            case PATIENT_ASSIGNED -> {
+                int doctorId = in.getInt();
+                service.assignPatient(in.getInt(), doctorId);
+            }
+            case DIAGNOSIS_CHANGED -> service.updateDiagnosis(in.getInt(), getString(in));
+            case APPOINTMENT_CREATED -> service.restoreAppointment(in.getInt(), in.getInt(), in.getInt(),
+                    getTime(in), getString(in));
+            case STATUS_CHANGED -> service.restoreAppointmentStatus(in.getInt(), AppointmentStatus.fromLabel(getString(in)));
+            case APPOINTMENT_RESCHEDULED -> service.restoreReschedule(in.getInt(), getTime(in));
+            case PATIENT_REMOVED -> {
+                int doctorId = in.getInt();
+                service.unassignPatient(in.getInt(), doctorId);
+            }
+            default -> throw new IllegalStateException("Unknown journal record type: " + type);
+        }
+    }
+
+    // Listener callbacks: one record per mutation
+
+    @Override
+    public void patientAdded(Patient patient) {
+        commit(scratch.get().begin(PATIENT_ADDED)
+                .putInt(patient.getId()).putString(patient.getName()).putInt(patient.getAge()));
+    }
+
+    @Override
+    public void doctorAdded(Doctor doctor) {
+        commit(scratch.get().begin(DOCTOR_ADDED)
+                .putInt(doctor.getId()).putString(doctor.getName()).putString(doctor.getSpecialization()));
+    }
+
+    @Override
+    public void patientAssigned(Doctor doctor, Patient patient) {
+        commit(scratch.get().begin(PATIENT_ASSIGNED).putInt(doctor.getId()).putInt(patient.getId()));
+    }
+
+    @Override
+    public void patientRemoved(Doctor doctor, Patient patient) {
+        commit(scratch.get().begin(PATIENT_REMOVED).putInt(doctor.getId()).putInt(patient.getId()));
+    }
+
+    @Override
+    public void diagnosisChanged(Patient patient, String oldDiagnosis) {
+        commit(scratch.get().begin(DIAGNOSIS_CHANGED).putInt(patient.getId()).putString(patient.getDiagnosis()));
+    }
+
+    @Override
+    public void appointmentCreated(Appointment appointment) {
+        commit(scratch.get().begin(APPOINTMENT_CREATED)
+                .putInt(appointment.getId())
+                .putInt(appointment.getPatient().getId())
+                .putInt(appointment.getDoctor().getId())
+                .putTime(appointment.getAppointmentTime())
+                .putString(appointment.getPurpose()));
+    }
+
+    @Override
+    public void statusChanged(Appointment appointment, AppointmentStatus oldStatus) {
+        commit(scratch.get().begin(STATUS_CHANGED).putInt(appointment.getId()).putString(appointment.getStatus().getLabel()));
+    }
+
+    @Override
+    public void appointmentRescheduled(Appointment appointment, LocalDateTime oldTime) {
+        commit(scratch.get().begin(APPOINTMENT_RESCHEDULED)
+                .putInt(appointment.getId()).putTime(appointment.getAppointmentTime()));
+    }
+
+    /**
+     * Appends an encoded record to the group-commit buffer.
+     * @return the record's sequence number
+     */
+    private long commit(Record record) {
+        ByteBuffer buf = record.buf;
+        long sequence;
+        synchronized (lock) {
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed earlier", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            sequence = ++lastSequence;
+            buf.putLong(5, sequence);
+            buf.putInt(0, buf.position() - 4 + CRC_BYTES);
+            crc.reset();
+            crc.update(buf.array(), 4, buf.position() - 4);
+            if (pending.remaining() < buf.position() + CRC_BYTES) {
+                pending = grow(pending, buf.position() + CRC_BYTES);
+            }
+            pending.put(buf.array(), 0, buf.position());
+            pending.putInt((int) crc.getValue());
+            appendedPosition += buf.position() + CRC_BYTES;
+            lock.notifyAll();
+        }
+        if (syncCommits) {
+            if (record.batchDepth > 0) {
+                record.batchSequence = sequence;
+            } else {
+                awaitDurable(sequence);
+            }
+        }
+        return sequence;
+    }
+
+    @Override
+    public void batchStarted() {
+        scratch.get().batchDepth++;
+    }
+
+    /**
+     * Ends a batch; when the outermost batch ends in synchronous mode, waits
+     * until every record the thread wrote in it is durable.
+     */
+    @Override
+    public void batchFinished() {
+        Record record = scratch.get();
+        if (record.batchDepth > 0 && --record.batchDepth == 0 && record.batchSequence > 0) {
+            long sequence = record.batchSequence;
+            record.batchSequence = 0;
+            awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Appends complete records copied from another journal, as a replica does
+     * with its leader's, and waits until they are on disk. Their sequence
+     * numbers are kept; nothing is applied to a service.
+     * @return the journal position after the records
+     * @throws IOException if the journal failed or is closed
+     */
+    public long appendRecords(ByteBuffer records) throws IOException {
+        long end;
+        synchronized (lock) {
+            if (failure != null) {
+                throw new IOException("Journal write failed earlier", failure);
+            }
+            if (closed) {
+                throw new IOException("Journal is closed");
+            }
+            int length = records.remaining();
+            if (pending.remaining() < length) {
+                pending = grow(pending, length);
+            }
+            pending.put(records);
+            appendedPosition += length;
+            end = appendedPosition;
+            lock.notifyAll();
+            while (durablePosition < end && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal");
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Journal write failed", failure);
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Blocks until every record up to the given sequence has been fsynced.
+     */
+    public void awaitDurable(long sequence) {
+        synchronized (lock) {
+            while (durableSequence < sequence && failure == null) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal write failed", failure);
+            }
+        }
+    }
+
+    // Flusher: drain everything buffered so far with one write and one fsync,
+    // then start a new segment if the current one is full or compaction asked for one
+    private void flushLoop() {
+        ByteBuffer writing = ByteBuffer.allocate(INITIAL_BUFFER);
+        while (true) {
+            long batchEnd;
+            long batchEndPosition;
+            boolean roll;
+            synchronized (lock) {
+                while (pending.position() == 0 && !closed && !rollRequested) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.position() == 0 && closed) {
+                    return; // closed and drained
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                batchEnd = lastSequence;
+                batchEndPosition = appendedPosition;
+                roll = rollRequested;
+            }
+            Long newSegment = null;
+            try {
+                writing.flip();
+                if (writing.hasRemaining()) {
+                    while (writing.hasRemaining()) {
+                        channel.write(writing);
+                    }
+                    channel.force(false);
+                }
+                writing.clear();
+                if (batchEndPosition - segmentStart >= segmentBytes || roll && batchEndPosition > segmentStart) {
+                    newSegment = batchEndPosition;
+                    startSegment(batchEndPosition);
+                }
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                if (newSegment != null) {
+                    segmentStarts.add(newSegment);
+                }
+                durableSequence = batchEnd;
+                durablePosition = batchEndPosition;
+                if (roll) {
+                    rollRequested = false;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Flusher only: closes the full segment and continues in a new, empty one
+    private void startSegment(long start) throws IOException {
+        FileChannel next = FileChannel.open(segmentPath(path, start), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel full = channel;
+        channel = next;
+        segmentStart = start;
+        full.close();
+    }
+
+    /**
+     * Flushes every buffered record and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < needed) {
+            capacity <<= 1;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    /** Path of the segment whose first byte is at the given journal position. */
+    static Path segmentPath(Path journal, long start) {
+        String digits = Long.toString(start);
+        StringBuilder name = new StringBuilder(journal.getFileName().toString()).append('.');
+        for (int i = digits.length(); i < POSITION_DIGITS; i++) {
+            name.append('0');
+        }
+        return journal.resolveSibling(name.append(digits).toString());
+    }
+
+    /** Start positions of the journal's segment files, oldest first. */
+    static List<Long> segmentStarts(Path journal) throws IOException {
+        Path dir = journal.toAbsolutePath().getParent();
+        String prefix = journal.getFileName().toString() + '.';
+        List<Long> starts = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (suffix.length() == POSITION_DIGITS && suffix.chars().allMatch(c -> c >= '0' && c <= '9')) {
+                    starts.add(Long.parseLong(suffix));
+                }
+            }
+        }
+        Collections.sort(starts);
+        return starts;
+    }
+
+    static String getString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static LocalDateTime getTime(ByteBuffer in) {
+        return LocalDateTime.ofEpochSecond(in.getLong(), 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * One segment file and the journal positions [start, end) it holds; the
+     * current segment's end is {@link Long#MAX_VALUE}.
+     */
+    static final class Segment {
+        final Path path;
+        final long start;
+        final long end;
+
+        Segment(Path path, long start, long end) {
+            this.path = path;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Position in the journal together with the sequence numbers a snapshot covers.
+     * Records up to {@code sequence} are definitely in the snapshot; records up to
+     * {@code capturedSequence} may be.
+     */
+    public static final class Checkpoint {
+        final long position;
+        final long sequence;
+        final long capturedSequence;
+
+        Checkpoint(long position, long sequence, long capturedSequence) {
+            this.position = position;
+            this.sequence = sequence;
+            this.capturedSequence = capturedSequence;
+        }
+
+        Checkpoint withCapturedSequence(long captured) {
+            return new Checkpoint(position, sequence, captured);
+        }
+    }
+
+    /**
+     * Per-thread scratch buffer for encoding one record outside the commit lock.
+     */
+    private static final class Record {
+        ByteBuffer buf = ByteBuffer.allocate(256);
+        // Per-thread batch state: nesting depth and the last sequence written in the batch
+        int batchDepth;
+        long batchSequence;
+
+        Record begin(byte type) {
+            buf.clear();
+            buf.putInt(0);          // length, patched on commit
+            buf.put(type);
+            buf.putLong(0);         // sequence, patched on commit
+            return this;
+        }
+
+        Record putInt(int value) {
+            ensure(4);
+            buf.putInt(value);
+            return this;
+        }
+
+        Record putTime(LocalDateTime time) {
+            ensure(8);
+            buf.putLong(time.toEpochSecond(ZoneOffset.UTC));
+            return this;
+        }
+
+        Record putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            buf.putInt(bytes.length);
+            buf.put(bytes);
+            return this;
+        }
+
+        private void ensure(int needed) {
+            if (buf.remaining() < needed) {
+                buf = grow(buf, needed);
+            }
+        }
+    }
+}
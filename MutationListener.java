@@ -0,0 +1,57 @@
+package com.example;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receives notifications about state changes in the hospital data.
+ * Events fire after the change has been applied, on the mutating thread.
+ * All methods default to no-ops so listeners only override what they need.
+ */
+public interface MutationListener {
+    default void patientAdded(Patient patient) {}
+
+    default void doctorAdded(Doctor doctor) {}
+
+    default void patientAssigned(Doctor doctor, Patient patient) {}
+
+    default void patientRemoved(Doctor doctor, Patient patient) {}
+
+    default void diagnosisChanged(Patient patient, String oldDiagnosis) {}
+
+    default void appointmentCreated(Appointment appointment) {}
+
+    default void statusChanged(Appointment appointment, AppointmentStatus oldStatus) {}
+
+    default void appointmentRescheduled(Appointment appointment, LocalDateTime oldTime) {}
+
+    /**
+     * A patient's contact number was edited. Not journaled, like the edit itself.
+     */
+    default void patientDetailsChanged(Patient patient) {}
+
+    /**
+     * A doctor's license, contact number or experience was edited. Not journaled.
+     */
+    default void doctorDetailsChanged(Doctor doctor) {}
+
+    /**
+     * A patient's medical history was replaced; read the new text from the patient. Not journaled.
+     */
+    default void medicalHistoryChanged(Patient patient) {}
+
+    /**
+     * An appointment's notes were replaced; read the new text from the appointment. Not journaled.
+     */
+    default void notesChanged(Appointment appointment) {}
+
+    /**
+     * Marks the start of a group of mutations applied by the current thread
+     * as one unit, such as a bulk import chunk. Batches may nest.
+     */
+    default void batchStarted() {}
+
+    /**
+     * Marks the end of a batch started on the current thread.
+     */
+    default void batchFinished() {}
+}
@@ -0,0 +1,252 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Trigram inverted index over patient names for case-insensitive substring search.
+ *
+ * Every lower-cased name is split into overlapping 3-character grams and the
+ * patient id is appended to each gram's sorted posting list. A query of three or
+ * more characters intersects the posting lists of its grams, starting from the
+ * shortest, and only the surviving candidates are checked with {@code contains}.
+ * Shorter queries, and queries whose rarest gram still matches a large share of
+ * all names, fall back to a scan over the pre-lowered names, which still avoids
+ * allocating a lowercase copy per patient per search.
+ */
+public class NameIndex {
+    private static final int GRAM = 3;
+    // Scan instead of intersecting when the rarest gram covers more than 1/SCAN_RATIO of all names
+    private static final int SCAN_RATIO = 8;
+
+    private final IntObjectMap<PostingList> postings = new IntObjectMap<>();
+    private final IntObjectMap<Entry> entries = new IntObjectMap<>();
+    // Lowered names as a dense column so fallback scans stream through memory
+    private String[] scanNames = new String[1024];
+    private Entry[] scanEntries = new Entry[1024];
+    private int scanSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes a patient's name. Names are immutable, so each patient is added once.
+     */
+    public void add(Patient patient) {
+        Entry entry = new Entry(patient, patient.getName().toLowerCase(Locale.ROOT));
+        lock.writeLock().lock();
+        try {
+            insert(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes many patients under one write-lock acquisition, e.g. after a
+     * snapshot load or a bulk import.
+     */
+    public void addAll(List<Patient> patients) {
+        Entry[] batch = new Entry[patients.size()];
+        for (int i = 0; i < batch.length; i++) {
+            Patient patient = patients.get(i);
+            batch[i] = new Entry(patient, patient.getName().toLowerCase(Locale.ROOT));
+        }
+        lock.writeLock().lock();
+        try {
+            entries.ensureCapacity(entries.size() + batch.length);
+            for (Entry entry : batch) {
+                insert(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void insert(Entry entry) {
+        Patient patient = entry.patient;
+        if (entries.put(patient.getId(), entry) != null) {
+            return; // already indexed
+        }
+        if (scanSize == scanNames.length) {
+            scanNames = Arrays.copyOf(scanNames, scanSize * 2);
+            scanEntries = Arrays.copyOf(scanEntries, scanSize * 2);
+        }
+        scanNames[scanSize] = entry.lowerName;
+        scanEntries[scanSize++] = entry;
+        String name = entry.lowerName;
+        for (int i = 0; i + GRAM <= name.length(); i++) {
+            int key = gramKey(name, i);
+            PostingList list = postings.get(key);
+            if (list == null) {
+                list = new PostingList();
+                postings.put(key, list);
+            }
+            list.add(patient.getId());
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds all patients whose name contains the term, ignoring case.
+     * @return matches in ascending id order
+     */
+    public List<Patient> search(String term) {
+        List<Patient> results = new ArrayList<>();
+        forEachMatch(term.trim().toLowerCase(Locale.ROOT), e -> results.add(e.patient));
+        // The fallback scan visits patients in the order they were indexed; linear if already sorted
+        results.sort(Comparator.comparingInt(Patient::getId));
+        return results;
+    }
+
+    /**
+     * Finds the best matches first: exact name, then name prefix, then word
+     * prefix, then any other substring; ties go to shorter names, then lower ids.
+     * @param limit maximum number of results
+     */
+    public List<Patient> searchRanked(String term, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String needle = term.trim().toLowerCase(Locale.ROOT);
+        Comparator<Match> best = Comparator.<Match>comparingInt(m -> m.rank)
+                .thenComparingInt(m -> m.entry.lowerName.length())
+                .thenComparingInt(m -> m.entry.patient.getId());
+        // Max-heap on "worst" so the top N are kept in O(n log N)
+        PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, best.reversed());
+        forEachMatch(needle, e -> {
+            int rank = rank(e.lowerName, needle);
+            if (top.size() == limit) {
+                // Skip anything that cannot beat the current worst of the top N
+                Match worst = top.peek();
+                if (rank > worst.rank || (rank == worst.rank && e.lowerName.length() >= worst.entry.lowerName.length())) {
+                    return;
+                }
+            }
+            top.add(new Match(e, rank));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        Match[] sorted = top.toArray(new Match[0]);
+        Arrays.sort(sorted, best);
+        List<Patient> results = new ArrayList<>(sorted.length);
+        for (Match m : sorted) {
+            results.add(m.entry.patient);
+        }
+        return results;
+    }
+
+    private void forEachMatch(String needle, Consumer<Entry> action) {
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = needle.length() < GRAM ? null : postingLists(needle);
+            if (lists != null && lists.length == 0) {
+                return; // some gram never occurs
+            }
+            if (lists == null || lists[0].size > entries.size() / SCAN_RATIO) {
+                String[] names = scanNames;
+                for (int i = 0, n = scanSize; i < n; i++) {
+                    if (names[i].contains(needle)) {
+                        action.accept(scanEntries[i]);
+                    }
+                }
+                return;
+            }
+            for (int id : intersect(lists)) {
+                Entry e = entries.get(id);
+                if (e.lowerName.contains(needle)) {
+                    action.accept(e);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Posting lists of every gram in the needle, rarest first; empty if a gram is unknown
+    private PostingList[] postingLists(String needle) {
+        int grams = needle.length() - GRAM + 1;
+        PostingList[] lists = new PostingList[grams];
+        for (int i = 0; i < grams; i++) {
+            PostingList list = postings.get(gramKey(needle, i));
+            if (list == null) {
+                return new PostingList[0];
+            }
+            lists[i] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(l -> l.size));
+        return lists;
+    }
+
+    // Intersect sorted posting lists, starting from the shortest
+    private static int[] intersect(PostingList[] lists) {
+        int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int count = result.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            int kept = 0;
+            for (int j = 0; j < count; j++) {
+                if (lists[i].contains(result[j])) {
+                    result[kept++] = result[j];
+                }
+            }
+            count = kept;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // 0 exact, 1 prefix, 2 word start, 3 elsewhere; ShardRouter merges shard results with it too
+    static int rank(String name, String needle) {
+        if (name.equals(needle)) {
+            return 0;
+        }
+        if (name.startsWith(needle)) {
+            return 1;
+        }
+        int at = name.indexOf(needle);
+        return at > 0 && name.charAt(at - 1) == ' ' ? 2 : 3;
+    }
+
+    // Pack three chars into one int; exact for chars below 1024, hashed otherwise
+    // (hash collisions only add candidates, which the contains check filters out)
+    private static int gramKey(String s, int at) {
+        char a = s.charAt(at), b = s.charAt(at + 1), c = s.charAt(at + 2);
+        if ((a | b | c) < 1024) {
+            return (a << 20) | (b << 10) | c;
+        }
+        return 0x80000000 | ((a * 31 + b) * 31 + c);
+    }
+
+    private static final class Entry {
+        final Patient patient;
+        final String lowerName;
+
+        Entry(Patient patient, String lowerName) {
+            this.patient = patient;
+            this.lowerName = lowerName;
+        }
+    }
+
+    private static final class Match {
+        final Entry entry;
+        final int rank;
+
+        Match(Entry entry, int rank) {
+            this.entry = entry;
+            this.rank = rank;
+        }
+    }
+}
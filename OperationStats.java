@@ -0,0 +1,46 @@
+package com.example;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency histogram of one operation.
+ *
+ * Typical use, cheap enough for every call on a hot path:
+ * <pre>
+ *   long start = System.nanoTime();
+ *   try {
+ *       ...
+ *   } catch (RuntimeException e) {
+ *       stats.recordError();
+ *       throw e;
+ *   } finally {
+ *       stats.record(start);
+ *   }
+ * </pre>
+ */
+public class OperationStats {
+    private final String name;
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one call that started at the given {@link System#nanoTime()}.
+     */
+    public void record(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+
+    /** Counts a failed call; the call itself is still recorded by {@link #record}. */
+    public void recordError() {
+        errors.increment();
+    }
+
+    public String getName() { return name; }
+    public long getCalls() { return latency.getCount(); }
+    public long getErrors() { return errors.sum(); }
+    public LatencyHistogram getLatency() { return latency; }
+}
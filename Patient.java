@@ -5,22 +5,34 @@ package com.example;
  * Provides validation for patient data and manages patient information.
  */
 public class Patient {
-    private static int idCounter = 1;
+    private static final IdAllocator IDS = new IdAllocator("patient");
     private final int id;
     private final String name;
     private final int age;
     private String diagnosis;
-    private String assignedDoctor;
+    // Written under the patient's lock; read without it for the optimistic move in HospitalService
+    private volatile Doctor assignedDoctor;
     private String contactNumber;
-    private String medicalHistory;
+    // Handle of the history in the shared off-heap TextStore; 0 = no history
+    private int historyHandle;
 
     /**
      * Constructs a Patient with validation.
      * @param name Patient's name (non-empty)
      * @param age Patient's age (0-150)
      * @throws IllegalArgumentException if name is empty or age is invalid
+     * @throws IllegalStateException if this node has no patient IDs left
      */
     public Patient(String name, int age) {
+        this(0, name, age);
+    }
+
+    /**
+     * Constructs a Patient with an explicit ID, used when restoring persisted data.
+     * The ID counter is advanced past the given ID so new patients never reuse it.
+     * @param id the ID to use, or 0 to allocate the next one
+     */
+    Patient(int id, String name, int age) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Patient name cannot be null or empty");
         }
@@ -28,13 +40,33 @@ public class Patient {
             throw new IllegalArgumentException("Patient age must be between 0 and 150");
         }
 
-        this.id = idCounter++;
+        this.id = id > 0 ? IDS.claim(id) : IDS.reserve(1);
         this.name = name.trim();
         this.age = age;
         this.diagnosis = "Pending";
-        this.assignedDoctor = "Unassigned";
         this.contactNumber = "";
-        this.medicalHistory = "";
+    }
+
+    /**
+     * Constructs a patient from stored values without validation, id allocation
+     * or change events; used by {@link PatientStore} to materialize its flyweights,
+     * which read the medical history from the store.
+     */
+    Patient(int id, String name, int age, String diagnosis, Doctor assignedDoctor, String contactNumber) {
+        this.id = id;
+        this.name = name;
+        this.age = age;
+        this.diagnosis = diagnosis;
+        this.assignedDoctor = assignedDoctor;
+        this.contactNumber = contactNumber;
+    }
+
+    /**
+     * Makes new patient IDs start at {@code first} or later and stay below {@code limit};
+     * a shard node uses it to allocate from its own ID range.
+     */
+    static void startIdsAt(int first, int limit) {
+        IDS.startAt(first, limit);
     }
 
     // Getters and setters
@@ -42,41 +74,89 @@ public class Patient {
     public String getName() { return name; }
     public int getAge() { return age; }
     public String getDiagnosis() { return diagnosis; }
-    public String getAssignedDoctor() { return assignedDoctor; }
+    /** The doctor whose roster holds this patient, or null if unassigned. */
+    public Doctor getAssignedDoctor() { return assignedDoctor; }
+    public String getAssignedDoctorName() {
+        // One read: a concurrent unassignment may clear the field between two
+        Doctor doctor = assignedDoctor;
+        return doctor == null ? "Unassigned" : doctor.getName();
+    }
     public String getContactNumber() { return contactNumber; }
-    public String getMedicalHistory() { return medicalHistory; }
+    /** Read from the off-heap text store on every call; not cached. */
+    public String getMedicalHistory() { return TextStore.readShared(historyHandle); }
+    int historyHandle() { return historyHandle; }
 
     public void setDiagnosis(String diagnosis) {
         if (diagnosis == null || diagnosis.trim().isEmpty()) {
             throw new IllegalArgumentException("Diagnosis cannot be null or empty");
         }
+        String oldDiagnosis = this.diagnosis;
+        // Free text, so not interned: a dictionary that never shrinks would keep every value ever typed
         this.diagnosis = diagnosis.trim();
-    }
-
-    public void setAssignedDoctor(String doctor) {
-        if (doctor == null || doctor.trim().isEmpty()) {
-            throw new IllegalArgumentException("Doctor name cannot be null or empty");
-        }
-        this.assignedDoctor = doctor.trim();
+        MutationEvents.diagnosisChanged(this, oldDiagnosis);
     }
 
     public void setContactNumber(String contactNumber) {
-        if (contactNumber == null || !contactNumber.matches("^[\\d\\s\\-\\+\\(\\)]{10,}$")) {
+        if (!InputValidator.isValidContactNumber(contactNumber)) {
             throw new IllegalArgumentException("Invalid contact number format");
         }
         this.contactNumber = contactNumber.trim();
+        MutationEvents.patientDetailsChanged(this);
     }
 
-    public void setMedicalHistory(String history) {
+    /**
+     * Replaces the medical history; the text is kept off-heap.
+     */
+    public synchronized void setMedicalHistory(String history) {
         if (history == null || history.trim().isEmpty()) {
             throw new IllegalArgumentException("Medical history cannot be null or empty");
         }
-        this.medicalHistory = history.trim();
+        historyHandle = TextStore.writeShared(historyHandle, history.trim());
+        MutationEvents.medicalHistoryChanged(this);
+    }
+
+    /**
+     * Restores persisted details without validation or change events.
+     */
+    void restoreDetails(String diagnosis, String contactNumber, String medicalHistory) {
+        this.diagnosis = diagnosis;
+        this.contactNumber = contactNumber;
+        this.historyHandle = TextStore.writeShared(historyHandle, medicalHistory);
+    }
+
+    /**
+     * Updates the cached diagnosis and contact number of a {@link PatientStore}
+     * flyweight after its store was written.
+     */
+    void refreshDetails(String diagnosis, String contactNumber) {
+        this.diagnosis = diagnosis;
+        this.contactNumber = contactNumber;
+    }
+
+    /**
+     * Points the patient at the doctor whose roster now holds it (null when removed).
+     * Only the roster operations in {@link Doctor} call this, keeping both sides in step.
+     */
+    void linkDoctor(Doctor doctor) {
+        this.assignedDoctor = doctor;
     }
 
     @Override
     public String toString() {
-        return String.format("Patient ID: %d | Name: %s | Age: %d | Diagnosis: %s | Doctor: %s | Contact: %s",
-                id, name, age, diagnosis, assignedDoctor, contactNumber.isEmpty() ? "N/A" : contactNumber);
+        return appendTo(new StringBuilder(128)).toString();
+    }
+
+    /**
+     * Appends the same text as {@link #toString()} to a caller-owned builder,
+     * so listings can reuse one buffer instead of allocating a string per row.
+     * @return the builder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        return sb.append("Patient ID: ").append(id)
+                .append(" | Name: ").append(name)
+                .append(" | Age: ").append(age)
+                .append(" | Diagnosis: ").append(diagnosis)
+                .append(" | Doctor: ").append(getAssignedDoctorName())
+                .append(" | Contact: ").append(contactNumber.isEmpty() ? "N/A" : contactNumber);
     }
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.example;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the heap used per patient by the object model ({@link Patient}
+ * objects in an {@link EntityRegistry}) against the columnar {@link PatientStore},
+ * on the same data, plus the cost of materializing a flyweight and of a
+ * column scan.
+ *
+ * Diagnoses are drawn from a small set and 30% of patients are assigned to a
+ * doctor, as in a real population; contact numbers and histories stay empty.
+ *
+ * Run: java -Xmx4g -cp bin com.example.PatientFootprint
+ * Options (system properties):
+ *   -Dfootprint.patients=5000000 -Dfootprint.doctors=5000
+ */
+public class PatientFootprint {
+    private static final String[] DIAGNOSES = {
+        "Pending", "Hypertension", "Type 2 diabetes", "Asthma", "Influenza", "Migraine",
+        "Fracture", "Bronchitis", "Anemia", "Arthritis", "Dermatitis", "Healthy"
+    };
+    private static final String[] SPECIALIZATIONS = {"Cardiology", "Pediatrics", "Neurology", "General"};
+
+    public static void main(String[] args) {
+        int patientCount = Integer.getInteger("footprint.patients", 5_000_000);
+        int doctorCount = Integer.getInteger("footprint.doctors", 5_000);
+        Random random = new Random(42);
+
+        Doctor[] doctors = new Doctor[doctorCount];
+        for (int i = 0; i < doctorCount; i++) {
+            doctors[i] = new Doctor("Dr. Footprint " + i, SPECIALIZATIONS[i % SPECIALIZATIONS.length]);
+        }
+        int firstDoctorId = doctors[0].getId();
+
+        long before = usedHeap();
+        EntityRegistry<Patient> registry = new EntityRegistry<>(Patient::getId);
+        List<Patient> generated = SearchBenchmark.generate(patientCount, random);
+        for (Patient patient : generated) {
+            // Diagnoses arrive as separate strings, as they do from input; only the store shares them
+            patient.setDiagnosis(new String(DIAGNOSES[random.nextInt(DIAGNOSES.length)]));
+            if (random.nextInt(10) < 3) {
+                patient.linkDoctor(doctors[random.nextInt(doctorCount)]);
+            }
+            registry.add(patient);
+        }
+        generated = null;
+        long objectBytes = usedHeap() - before;
+        System.out.printf("Object model:  %,d patients, %,d MB, %.1f bytes/patient%n",
+                patientCount, objectBytes >> 20, (double) objectBytes / patientCount);
+
+        PatientStore store = new PatientStore(id -> doctors[id - firstDoctorId], patientCount);
+        registry.forEach(store::add);
+        int sampleId = registry.snapshot().get(patientCount / 2).getId();
+        registry = null;
+        long storeBytes = usedHeap() - before;
+        System.out.printf("PatientStore:  %,d patients, %,d MB, %.1f bytes/patient (columns %,d MB)%n",
+                store.size(), storeBytes >> 20, (double) storeBytes / patientCount, store.getColumnBytes() >> 20);
+        System.out.printf("Reduction:     %.1fx%n", (double) objectBytes / storeBytes);
+
+        // Access costs: materializing flyweights at random and scanning the diagnosis column
+        int[] picks = new int[1_000_000];
+        for (int i = 0; i < picks.length; i++) {
+            picks[i] = sampleId - patientCount / 2 + random.nextInt(patientCount);
+        }
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int id : picks) {
+            Patient p = store.get(id);
+            checksum += p == null ? 0 : p.getAge() + p.getName().length();
+        }
+        long getNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        int influenza = store.countByDiagnosis("Influenza");
+        long scanNanos = System.nanoTime() - start;
+        System.out.printf("get(id):       %.0f ns/op (checksum %d)%n", (double) getNanos / picks.length, checksum);
+        System.out.printf("countByDiagnosis: %,d patients in %d ms%n", influenza, TimeUnit.NANOSECONDS.toMillis(scanNanos));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
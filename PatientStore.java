@@ -0,0 +1,369 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Compact columnar storage for large patient populations.
+ *
+ * Instead of one {@link Patient} object per record (object header, five
+ * references and a {@code String} per name), patients are kept in parallel
+ * primitive arrays:
+ * <ul>
+ *   <li>names as UTF-8 bytes in one shared arena with an offset per row</li>
+ *   <li>ages as bytes</li>
+ *   <li>diagnoses dictionary-encoded through a {@link StringDictionary}</li>
+ *   <li>assigned doctors as doctor ids, resolved through the doctor registry on access</li>
+ *   <li>contact numbers, empty for most patients, in a sparse map</li>
+ *   <li>medical histories as handles into the off-heap {@link TextStore}, also sparse</li>
+ * </ul>
+ * {@link #get(int)} materializes a short-lived {@link Patient} flyweight with the
+ * usual getters. Its setters write through to the store; roster operations on it
+ * are not supported, as stored patients are not on a live {@link Doctor} roster.
+ *
+ * Ids map to rows through a primitive hash map, so a store holding a few rows
+ * of a shard whose ids start at {@code shard << 24} stays small. Reads share a
+ * read lock; writes take the write lock.
+ */
+public class PatientStore {
+    private static final int UNASSIGNED = 0;
+
+    private final IntFunction<Doctor> doctors;
+    private final StringDictionary diagnoses = new StringDictionary();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int size;
+    private int[] ids;
+    private int[] nameStart;
+    private byte[] names;
+    private int namesLength;
+    private byte[] ages;
+    private int[] diagnosisCodes;
+    private int[] doctorIds;
+    private final IntIntMap rowById;
+    private final IntObjectMap<String> contactNumbers = new IntObjectMap<>();
+    // Text store handle per patient id, for the patients that have a history
+    private final IntIntMap historyHandles = new IntIntMap();
+
+    /**
+     * Creates an empty store.
+     * @param doctors resolves assigned doctor ids on access, e.g. {@code service::findDoctor}
+     */
+    public PatientStore(IntFunction<Doctor> doctors) {
+        this(doctors, 1024);
+    }
+
+    public PatientStore(IntFunction<Doctor> doctors, int expectedSize) {
+        if (doctors == null) {
+            throw new IllegalArgumentException("Doctor lookup cannot be null");
+        }
+        int capacity = Math.max(16, expectedSize);
+        this.doctors = doctors;
+        this.ids = new int[capacity];
+        this.nameStart = new int[capacity + 1];
+        this.names = new byte[capacity * 16];
+        this.ages = new byte[capacity];
+        this.diagnosisCodes = new int[capacity];
+        this.doctorIds = new int[capacity];
+        this.rowById = new IntIntMap(capacity);
+        diagnoses.encode("Pending");
+    }
+
+    /**
+     * Copies every patient of a service into a new store.
+     */
+    public static PatientStore copyOf(HospitalService service) {
+        PatientStore store = new PatientStore(service::findDoctor, service.getPatients().size());
+        service.getPatients().forEach(store::add);
+        return store;
+    }
+
+    /**
+     * Stores a copy of a patient's current values.
+     * @throws IllegalArgumentException if the patient is null or its id is already stored
+     */
+    public void add(Patient patient) {
+        if (patient == null) {
+            throw new IllegalArgumentException("Patient cannot be null");
+        }
+        byte[] name = patient.getName().getBytes(StandardCharsets.UTF_8);
+        int diagnosis = diagnoses.encode(patient.getDiagnosis());
+        Doctor doctor = patient.getAssignedDoctor();
+        // The store's own copy, so the patient and the stored row can change independently
+        int history = copyHistory(patient);
+        lock.writeLock().lock();
+        try {
+            int id = patient.getId();
+            if (rowById.get(id, -1) >= 0) {
+                throw new IllegalArgumentException("Duplicate id: " + id);
+            }
+            ensureCapacity(size + 1, name.length);
+            int row = size++;
+            ids[row] = id;
+            System.arraycopy(name, 0, names, namesLength, name.length);
+            namesLength += name.length;
+            nameStart[row + 1] = namesLength;
+            ages[row] = (byte) patient.getAge();
+            diagnosisCodes[row] = diagnosis;
+            doctorIds[row] = doctor == null ? UNASSIGNED : doctor.getId();
+            rowById.put(id, row);
+            if (!patient.getContactNumber().isEmpty()) {
+                contactNumbers.put(id, patient.getContactNumber());
+            }
+            if (history != TextStore.EMPTY) {
+                historyHandles.put(id, history);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Materializes a patient.
+     * @return a flyweight with the stored values, or null if the id is not stored
+     */
+    public Patient get(int id) {
+        lock.readLock().lock();
+        try {
+            int row = rowById.get(id, -1);
+            return row < 0 ? null : materialize(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return rowById.get(id, -1) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every patient in insertion order, materializing one flyweight at a
+     * time, while holding the read lock. The action must not write to this store.
+     */
+    public void forEach(Consumer<? super Patient> action) {
+        lock.readLock().lock();
+        try {
+            for (int row = 0; row < size; row++) {
+                action.accept(materialize(row));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts patients with a diagnosis by scanning the code column only.
+     */
+    public int countByDiagnosis(String diagnosis) {
+        int code = diagnoses.codeOf(diagnosis == null ? null : diagnosis.trim());
+        if (code < 0) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int row = 0; row < size; row++) {
+                if (diagnosisCodes[row] == code) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Updates a stored patient's diagnosis.
+     * @throws IllegalArgumentException if the id is not stored or the diagnosis is empty
+     */
+    public void setDiagnosis(int id, String diagnosis) {
+        if (diagnosis == null || diagnosis.trim().isEmpty()) {
+            throw new IllegalArgumentException("Diagnosis cannot be null or empty");
+        }
+        int code = diagnoses.encode(diagnosis.trim());
+        lock.writeLock().lock();
+        try {
+            diagnosisCodes[requireRow(id)] = code;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records which doctor a stored patient is assigned to (0 for none).
+     * @throws IllegalArgumentException if the patient id is not stored
+     */
+    public void setAssignedDoctor(int id, int doctorId) {
+        lock.writeLock().lock();
+        try {
+            doctorIds[requireRow(id)] = Math.max(UNASSIGNED, doctorId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the id is not stored or the number is invalid
+     */
+    public void setContactNumber(int id, String contactNumber) {
+        if (!InputValidator.isValidContactNumber(contactNumber)) {
+            throw new IllegalArgumentException("Invalid contact number format");
+        }
+        lock.writeLock().lock();
+        try {
+            requireRow(id);
+            contactNumbers.put(id, contactNumber.trim());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the id is not stored or the history is empty
+     */
+    public void setMedicalHistory(int id, String history) {
+        if (history == null || history.trim().isEmpty()) {
+            throw new IllegalArgumentException("Medical history cannot be null or empty");
+        }
+        lock.writeLock().lock();
+        try {
+            requireRow(id);
+            int handle = historyHandles.get(id, TextStore.EMPTY);
+            historyHandles.put(id, TextStore.writeShared(handle, history.trim()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads a stored patient's medical history from the text store.
+     * @return the history, "" if there is none
+     * @throws IllegalArgumentException if the id is not stored
+     */
+    public String getMedicalHistory(int id) {
+        int handle;
+        lock.readLock().lock();
+        try {
+            if (rowById.get(id, -1) < 0) {
+                throw new IllegalArgumentException("Patient not found: " + id);
+            }
+            handle = historyHandles.get(id, TextStore.EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return TextStore.readShared(handle);
+    }
+
+    /**
+     * Approximate heap used by the dense columns and the id index, excluding the
+     * sparse contact and history maps and the diagnosis dictionary.
+     */
+    public long getColumnBytes() {
+        lock.readLock().lock();
+        try {
+            return 4L * (ids.length + nameStart.length + diagnosisCodes.length + doctorIds.length)
+                    + 8L * rowById.capacity()
+                    + names.length + ages.length;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Caller holds the lock
+    private Patient materialize(int row) {
+        int id = ids[row];
+        int start = nameStart[row];
+        String name = new String(names, start, nameStart[row + 1] - start, StandardCharsets.UTF_8);
+        int doctorId = doctorIds[row];
+        String contact = contactNumbers.get(id);
+        return new View(this, id, name, ages[row] & 0xFF, diagnoses.decode(diagnosisCodes[row]),
+                doctorId == UNASSIGNED ? null : doctors.apply(doctorId), contact == null ? "" : contact);
+    }
+
+    private static int copyHistory(Patient patient) {
+        int handle = patient.historyHandle();
+        return handle == TextStore.EMPTY ? TextStore.EMPTY : TextStore.shared().copy(handle);
+    }
+
+    // Caller holds the write lock
+    private int requireRow(int id) {
+        int row = rowById.get(id, -1);
+        if (row < 0) {
+            throw new IllegalArgumentException("Patient not found: " + id);
+        }
+        return row;
+    }
+
+    // Caller holds the write lock
+    private void ensureCapacity(int rows, int nameBytes) {
+        if (rows > ids.length) {
+            int capacity = Math.max(rows, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, capacity);
+            nameStart = Arrays.copyOf(nameStart, capacity + 1);
+            ages = Arrays.copyOf(ages, capacity);
+            diagnosisCodes = Arrays.copyOf(diagnosisCodes, capacity);
+            doctorIds = Arrays.copyOf(doctorIds, capacity);
+        }
+        long needed = (long) namesLength + nameBytes;
+        if (needed > names.length) {
+            if (needed > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Name storage is full");
+            }
+            long grown = Math.max(needed, names.length + (long) (names.length >> 1));
+            names = Arrays.copyOf(names, (int) Math.min(Integer.MAX_VALUE - 8, grown));
+        }
+    }
+
+    /**
+     * A materialized patient whose setters write through to the store. The
+     * medical history is read from the store on each call.
+     */
+    private static final class View extends Patient {
+        private final PatientStore store;
+
+        View(PatientStore store, int id, String name, int age, String diagnosis, Doctor doctor, String contactNumber) {
+            super(id, name, age, diagnosis, doctor, contactNumber);
+            this.store = store;
+        }
+
+        @Override
+        public String getMedicalHistory() {
+            return store.getMedicalHistory(getId());
+        }
+
+        @Override
+        public void setDiagnosis(String diagnosis) {
+            store.setDiagnosis(getId(), diagnosis);
+            refreshDetails(diagnosis.trim(), getContactNumber());
+        }
+
+        @Override
+        public void setContactNumber(String contactNumber) {
+            store.setContactNumber(getId(), contactNumber);
+            refreshDetails(getDiagnosis(), contactNumber.trim());
+        }
+
+        @Override
+        public void setMedicalHistory(String history) {
+            store.setMedicalHistory(getId(), history);
+        }
+    }
+}
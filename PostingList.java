@@ -0,0 +1,57 @@
+package com.example;
+
+import java.util.Arrays;
+
+/**
+ * Sorted, growable array of entity ids, the posting list of one key in an
+ * inverted index ({@link NameIndex}, {@link FullTextIndex}). IDs usually arrive
+ * in increasing order, so adds are appends; out-of-order ids are inserted in place.
+ * Not thread-safe; the owning index guards it.
+ */
+final class PostingList {
+    int[] ids = new int[4];
+    int size;
+
+    void add(int id) {
+        if (size > 0 && ids[size - 1] == id) {
+            return; // key repeated within one document
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        if (size == 0 || ids[size - 1] < id) {
+            ids[size++] = id;
+            return;
+        }
+        int at = Arrays.binarySearch(ids, 0, size, id);
+        if (at >= 0) {
+            return;
+        }
+        at = -at - 1;
+        System.arraycopy(ids, at, ids, at + 1, size - at);
+        ids[at] = id;
+        size++;
+    }
+
+    /**
+     * @return true if the id was present
+     */
+    boolean remove(int id) {
+        int at = Arrays.binarySearch(ids, 0, size, id);
+        if (at < 0) {
+            return false;
+        }
+        System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(int id) {
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /** The ids in ascending order, as a new array. */
+    int[] toArray() {
+        return Arrays.copyOf(ids, size);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Read-through caches for what the front desk looks up over and over: the
+ * rendered text of patients, doctors and appointments, patient name searches
+ * and doctors' rosters.
+ *
+ * Entries are dropped by the {@link MutationListener} callbacks as soon as the
+ * data behind them changes:
+ * <ul>
+ *   <li>a patient's text on a diagnosis, contact or doctor change</li>
+ *   <li>a doctor's text and roster when a patient joins or leaves the roster,
+ *       and the text when the doctor's details are edited</li>
+ *   <li>an appointment's text on a status change or reschedule</li>
+ *   <li>every search result when a patient is registered</li>
+ * </ul>
+ * Names never change, so search results and the names shown in other records
+ * stay valid. Records are keyed by identity and a search result or roster holds
+ * the live entities, so rendering its rows goes through the record cache.
+ *
+ * The size bounds keep memory flat however skewed the lookups are; the time to
+ * live is a backstop for changes that raise no event, such as a snapshot restore.
+ *
+ * Like {@link HospitalStatistics}, register the cache with {@link MutationEvents}
+ * right after creating it.
+ */
+public class RecordCache implements MutationListener {
+    private final HospitalService service;
+    private final LruCache<Object, String> records;
+    private final LruCache<Query, List<Patient>> searches;
+    private final LruCache<Doctor, List<Patient>> rosters;
+
+    /**
+     * @param recordCapacity maximum number of rendered records
+     * @param queryCapacity maximum number of search results, and separately of rosters
+     * @param ttl how long an entry is served after it was loaded
+     */
+    public RecordCache(HospitalService service, int recordCapacity, int queryCapacity, Duration ttl) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+        this.service = service;
+        this.records = new LruCache<>(recordCapacity, ttl);
+        this.searches = new LruCache<>(queryCapacity, ttl);
+        this.rosters = new LruCache<>(queryCapacity, ttl);
+    }
+
+    /** Same text as {@link Patient#toString()}. */
+    public String render(Patient patient) {
+        return records.get(patient, Object::toString);
+    }
+
+    /** Same text as {@link Doctor#toString()}. */
+    public String render(Doctor doctor) {
+        return records.get(doctor, Object::toString);
+    }
+
+    /** Same text as {@link Appointment#toString()}. */
+    public String render(Appointment appointment) {
+        return records.get(appointment, Object::toString);
+    }
+
+    /**
+     * Cached {@link HospitalService#searchPatients}; the list is read-only.
+     */
+    public List<Patient> searchPatients(String term) {
+        return searches.get(new Query(term, -1), q -> Collections.unmodifiableList(service.searchPatients(q.term)));
+    }
+
+    /**
+     * Cached {@link HospitalService#searchPatientsRanked}; the list is read-only.
+     */
+    public List<Patient> searchPatientsRanked(String term, int limit) {
+        return searches.get(new Query(term, limit),
+                q -> Collections.unmodifiableList(service.searchPatientsRanked(q.term, q.limit)));
+    }
+
+    /**
+     * Cached {@link HospitalService#getAssignedPatients}; the list is read-only.
+     */
+    public List<Patient> getAssignedPatients(Doctor doctor) {
+        return rosters.get(doctor, d -> Collections.unmodifiableList(service.getAssignedPatients(d)));
+    }
+
+    public LruCache<Object, String> getRecords() { return records; }
+    public LruCache<Query, List<Patient>> getSearches() { return searches; }
+    public LruCache<Doctor, List<Patient>> getRosters() { return rosters; }
+
+    /**
+     * Exposes the statistics of the three caches as {@code cache.records.*},
+     * {@code cache.searches.*} and {@code cache.rosters.*} gauges.
+     */
+    public void registerMetrics(MetricsRegistry metrics) {
+        records.registerGauges(metrics, "cache.records");
+        searches.registerGauges(metrics, "cache.searches");
+        rosters.registerGauges(metrics, "cache.rosters");
+    }
+
+    /** Drops every entry. */
+    public void clear() {
+        records.invalidateAll();
+        searches.invalidateAll();
+        rosters.invalidateAll();
+    }
+
+    @Override
+    public void patientAdded(Patient patient) {
+        searches.invalidateAll();
+    }
+
+    @Override
+    public void patientAssigned(Doctor doctor, Patient patient) {
+        rosterChanged(doctor, patient);
+    }
+
+    @Override
+    public void patientRemoved(Doctor doctor, Patient patient) {
+        rosterChanged(doctor, patient);
+    }
+
+    // The patient shows the doctor's name, the doctor the roster size
+    private void rosterChanged(Doctor doctor, Patient patient) {
+        records.invalidate(patient);
+        records.invalidate(doctor);
+        rosters.invalidate(doctor);
+    }
+
+    @Override
+    public void diagnosisChanged(Patient patient, String oldDiagnosis) {
+        records.invalidate(patient);
+    }
+
+    @Override
+    public void patientDetailsChanged(Patient patient) {
+        records.invalidate(patient);
+    }
+
+    @Override
+    public void doctorDetailsChanged(Doctor doctor) {
+        records.invalidate(doctor);
+    }
+
+    @Override
+    public void statusChanged(Appointment appointment, AppointmentStatus oldStatus) {
+        records.invalidate(appointment);
+    }
+
+    @Override
+    public void appointmentRescheduled(Appointment appointment, LocalDateTime oldTime) {
+        records.invalidate(appointment);
+    }
+
+    /** Search term with its result limit; -1 for an unranked search. */
+    public static final class Query {
+        private final String term;
+        private final int limit;
+
+        Query(String term, int limit) {
+            this.term = term;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Query && ((Query) o).limit == limit && Objects.equals(((Query) o).term, term);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(term, limit);
+        }
+    }
+}
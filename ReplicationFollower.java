@@ -0,0 +1,153 @@
+package com.example;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Keeps a read-only copy of a shard on a follower node by tailing the leader's
+ * journal through its {@link ReplicationServer}.
+ *
+ * Incoming bytes are buffered until they form complete records, applied to the
+ * local service and then appended to a local copy of the journal, so a
+ * restarted follower replays its copy and asks the leader only for what it
+ * has not seen. The copy is a {@link MutationJournal} of its own, split into
+ * segments the same way, and its positions are the leader's. When the connection drops the follower keeps serving what it
+ * has and reconnects in the background.
+ */
+public class ReplicationFollower implements AutoCloseable {
+    private static final long RECONNECT_MILLIS = 500;
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int INITIAL_BUFFER = 64 * 1024;
+
+    private final HospitalService service;
+    private final InetSocketAddress leader;
+    private final MutationJournal copy;
+    private final Thread receiver;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER);
+    private volatile Socket socket;
+    private volatile long appliedPosition;
+    private volatile long appliedRecords;
+    private volatile boolean connected;
+    private volatile boolean closed;
+
+    /**
+     * Restores the service from the local journal copy (truncating a torn tail)
+     * and starts following the leader.
+     * @param journalPath local copy of the leader's journal
+     * @param leader address of the leader's replication port
+     * @throws IOException if the local copy cannot be read or written
+     */
+    public ReplicationFollower(HospitalService service, Path journalPath, InetSocketAddress leader) throws IOException {
+        if (service == null || journalPath == null || leader == null) {
+            throw new IllegalArgumentException("Service, journal and leader cannot be null");
+        }
+        this.service = service;
+        this.leader = leader;
+        // Replays and trims the copy; it is not registered, so only records from the leader are added to it
+        this.copy = MutationJournal.open(journalPath, service, false);
+        this.appliedRecords = copy.getReplayedRecords();
+        this.appliedPosition = copy.getDurablePosition();
+        this.receiver = new Thread(this::receiveLoop, "replication-follower");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /** Position in the leader's journal up to which this follower has applied records. */
+    public long getAppliedPosition() { return appliedPosition; }
+
+    /** Records applied, including those replayed from the local copy at startup. */
+    public long getAppliedRecords() { return appliedRecords; }
+
+    /** True while connected to the leader. */
+    public boolean isConnected() { return connected; }
+
+    private void receiveLoop() {
+        while (!closed) {
+            try (Socket s = new Socket()) {
+                s.connect(leader, CONNECT_TIMEOUT_MILLIS);
+                s.setTcpNoDelay(true);
+                socket = s;
+                DataOutputStream out = new DataOutputStream(s.getOutputStream());
+                out.writeLong(appliedPosition);
+                out.flush();
+                connected = true;
+                pending.clear();
+                receive(s.getInputStream());
+            } catch (IOException e) {
+                // Leader down or restarting; retry below
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // The copy no longer matches the leader; keep serving it but stop following
+                System.err.println("Replication stopped, record at " + appliedPosition + " could not be applied: "
+                        + e.getMessage());
+                closed = true;
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Reads until the stream ends, applying and persisting each run of complete records
+    private void receive(InputStream in) throws IOException {
+        byte[] chunk = new byte[INITIAL_BUFFER];
+        int n;
+        while ((n = in.read(chunk)) > 0) {
+            if (pending.remaining() < n) {
+                pending = grow(pending, n);
+            }
+            pending.put(chunk, 0, n);
+            pending.flip();
+            int start = pending.position();
+            int applied = MutationJournal.applyRecords(pending, service);
+            if (applied > 0) {
+                ByteBuffer complete = pending.duplicate();
+                complete.limit(pending.position()).position(start);
+                appliedPosition = copy.appendRecords(complete);
+                appliedRecords += applied;
+            }
+            pending.compact();
+        }
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        int capacity = buffer.capacity();
+        while (capacity - buffer.position() < needed) {
+            capacity <<= 1;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        bigger.put(buffer);
+        return bigger;
+    }
+
+    /**
+     * Disconnects from the leader and closes the local copy.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket s = socket;
+        if (s != null) {
+            s.close();
+        }
+        receiver.interrupt();
+        try {
+            receiver.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        copy.close();
+    }
+}
@@ -0,0 +1,169 @@
+package com.example;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Ships a shard leader's {@link MutationJournal} to its followers over TCP.
+ *
+ * The journal is append-only, so a follower's copy is simply a prefix of it.
+ * A follower connects, sends the journal position its copy ends at as a
+ * big-endian long, and from then on receives the leader's journal bytes from
+ * that position onwards, as they become durable. The sender reads each bytes
+ * range from the segment file holding it and moves on to the next segment
+ * when one is full. Only fsynced bytes are sent, so a follower never holds a
+ * record the leader could lose in a crash. Each follower is served by its own
+ * thread, which sleeps on the journal between group commits. While a follower
+ * is connected, journal compaction keeps the segments it has not received yet.
+ */
+public class ReplicationServer implements AutoCloseable {
+    // How long a sender waits for new records before checking for shutdown
+    private static final long POLL_MILLIS = 1000;
+
+    private final MutationJournal journal;
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    // Connected followers and the journal position each has been sent up to
+    private final Map<Socket, AtomicLong> followers = new ConcurrentHashMap<>();
+    private final LongSupplier oldestFollowerPosition = this::oldestFollowerPosition;
+    private volatile boolean closed;
+
+    /**
+     * Binds the replication port on the loopback interface and starts accepting followers.
+     * @param port the port, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ReplicationServer(MutationJournal journal, int port) throws IOException {
+        if (journal == null) {
+            throw new IllegalArgumentException("Journal cannot be null");
+        }
+        this.journal = journal;
+        journal.addReader(oldestFollowerPosition);
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() { return serverSocket.getLocalPort(); }
+
+    /** Number of followers currently connected. */
+    public int getFollowerCount() { return followers.size(); }
+
+    private long oldestFollowerPosition() {
+        long oldest = Long.MAX_VALUE;
+        for (AtomicLong position : followers.values()) {
+            oldest = Math.min(oldest, position.get());
+        }
+        return oldest;
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                // Holds every segment until the follower says where its copy ends
+                followers.put(socket, new AtomicLong(0));
+                Thread sender = new Thread(() -> serve(socket), "replication-" + socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Replication accept failed: " + e);
+                }
+            }
+        }
+    }
+
+    // Streams the journal to one follower until it disconnects or the server closes
+    private void serve(Socket socket) {
+        FileChannel file = null;
+        try (socket) {
+            InputStream in = socket.getInputStream();
+            long offset = new DataInputStream(in).readLong();
+            AtomicLong sentUpTo = followers.get(socket);
+            sentUpTo.set(offset);
+            if (offset < 0 || offset > journal.getDurablePosition()) {
+                System.err.println("Follower " + socket.getRemoteSocketAddress() + " is ahead of this leader (position "
+                        + offset + "); disconnecting");
+                return;
+            }
+            WritableByteChannel out = Channels.newChannel(socket.getOutputStream());
+            MutationJournal.Segment segment = null;
+            while (!closed) {
+                long end = journal.awaitDurablePosition(offset, POLL_MILLIS);
+                // A follower that went away shows up as a failed write here
+                while (offset < end) {
+                    if (segment == null || offset >= segment.end) {
+                        segment = journal.segmentAt(offset);
+                        if (segment == null) {
+                            System.err.println("Follower " + socket.getRemoteSocketAddress() + " needs position "
+                                    + offset + ", which is no longer in the journal; disconnecting");
+                            return;
+                        }
+                        if (file != null) {
+                            file.close();
+                        }
+                        file = FileChannel.open(segment.path, StandardOpenOption.READ);
+                    }
+                    long sent = file.transferTo(offset - segment.start, Math.min(end, segment.end) - offset, out);
+                    offset += sent;
+                    sentUpTo.set(offset);
+                    if (sent == 0) {
+                        // The segment was full before it was looked up as the current one; look it up again
+                        segment = null;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Follower disconnected; it reconnects with its new offset
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(socket);
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // Nothing to release
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting followers and disconnects the connected ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Nothing to release
+        }
+        journal.removeReader(oldestFollowerPosition);
+        for (Socket socket : followers.keySet()) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Shows that {@link HospitalStatistics} reads stay flat as the dataset grows:
+ * each figure is read from the incremental counters and, for comparison,
+ * computed by scanning the registries as callers had to before, and the
+ * fork-join {@link HospitalStatistics#recompute()} is timed once per size.
+ * Every size ends with {@link HospitalStatistics#verify()}.
+ *
+ * Run: java -Xmx4g -cp bin com.example.ReportBenchmark
+ * Accepts the same -Dbench.* options as {@link HotPathBenchmark}
+ * (sizes default to 10000,100000,1000000); results go to report-results.json by default.
+ */
+public class ReportBenchmark {
+    private static final String[] DIAGNOSES = {"Flu", "Asthma", "Diabetes", "Hypertension", "Migraine", "Fracture"};
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkHarness harness = new BenchmarkHarness(
+                Integer.getInteger("bench.warmup", 3),
+                Integer.getInteger("bench.rounds", 5),
+                Long.getLong("bench.roundMillis", 200L));
+        for (String size : System.getProperty("bench.sizes", "10000,100000,1000000").split(",")) {
+            run(harness, Integer.parseInt(size.trim()));
+        }
+        Path out = Paths.get(System.getProperty("bench.out", "report-results.json"));
+        harness.writeJson(out);
+        System.out.println("\nResults written to " + out);
+    }
+
+    private static void run(BenchmarkHarness harness, int size) {
+        Random random = new Random(42);
+        HospitalService service = new HospitalService();
+        List<Patient> patients = HotPathBenchmark.populate(service, size, random);
+        HospitalStatistics statistics = new HospitalStatistics(service);
+        MutationEvents.register(statistics);
+        try {
+            // Diagnoses change after registration so they go through the incremental path
+            for (Patient p : patients) {
+                service.updateDiagnosis(p.getId(), DIAGNOSES[random.nextInt(DIAGNOSES.length)]);
+            }
+            Doctor doctor = service.getDoctors().snapshot().get(0);
+            Map<String, String> params = Map.of("patients", Integer.toString(size));
+
+            harness.run("countByDiagnosis.scan", params, () -> {
+                int count = 0;
+                for (Patient p : service.getPatients()) {
+                    if (p.getDiagnosis().equals("Asthma")) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+            harness.run("countByDiagnosis.incremental", params, () -> statistics.countByDiagnosis("Asthma"));
+
+            harness.run("averageAge.scan", params, () -> {
+                long sum = 0;
+                int count = 0;
+                for (Patient p : service.getPatients()) {
+                    sum += p.getAge();
+                    count++;
+                }
+                return (int) (sum / Math.max(1, count));
+            });
+            harness.run("averageAge.incremental", params, () -> (int) statistics.getAverageAge());
+
+            harness.run("doctorAppointmentsByStatus.scan", params, () -> {
+                int count = 0;
+                for (Appointment a : service.getAppointments()) {
+                    if (a.getDoctor() == doctor && a.getStatus() == AppointmentStatus.SCHEDULED) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+            harness.run("doctorAppointmentsByStatus.incremental", params,
+                    () -> statistics.countAppointments(doctor.getId(), AppointmentStatus.SCHEDULED));
+
+            harness.run("countBySpecialization.scan", params, () -> {
+                int count = 0;
+                for (Doctor d : service.getDoctors()) {
+                    if (d.getSpecialization().equals("Cardiology")) {
+                        count++;
+                    }
+                }
+                return count;
+            });
+            harness.run("countBySpecialization.incremental", params, () -> statistics.countBySpecialization("Cardiology"));
+
+            long start = System.nanoTime();
+            HospitalStatistics.Report recomputed = statistics.recompute();
+            System.out.printf("recompute (fork-join) of %d patients: %d ms%n",
+                    recomputed.getPatients(), (System.nanoTime() - start) / 1_000_000);
+            List<String> differences = statistics.verify();
+            System.out.println(differences.isEmpty() ? "verify: incremental figures match the recompute"
+                    : "verify: " + differences.size() + " differences, e.g. " + differences.get(0));
+        } finally {
+            MutationEvents.unregister(statistics);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares patient name search through {@link NameIndex} with the original
+ * full scan ({@code toLowerCase().contains()} on every patient) at
+ * 10k, 100k and 1M patients, and checks that search results come back in
+ * ascending id order. Exits with status 1 if they do not. The JMH version
+ * of the timings is {@code SearchJmh} in jmh/.
+ *
+ * Run: java -Xmx4g -cp bin com.example.SearchBenchmark
+ */
+public class SearchBenchmark {
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final String[] QUERIES = {"smith", "an", "Olivia Ngu", "zzzz", "son"};
+    private static final String[] FIRST = {"Olivia", "Liam", "Emma", "Noah", "Ava", "Thabo", "Sipho", "Lerato",
+            "Nomthandazo", "Mia", "Lucas", "Amara", "Kwame", "Zanele", "Ethan", "Isabella", "Mateo", "Aisha"};
+    private static final String[] LAST = {"Smith", "Johnson", "Nguyen", "Dlamini", "Naidoo", "Mokoena", "Garcia",
+            "Brown", "Khumalo", "Patel", "Williams", "Anderson", "Botha", "Mensah", "Okafor", "Larsen", "Jackson"};
+
+    public static void main(String[] args) {
+        System.out.printf("%-10s %-12s %14s %14s %14s %10s%n",
+                "patients", "query", "scan ns/op", "index ns/op", "ranked ns/op", "matches");
+        for (int size : SIZES) {
+            List<Patient> patients = generate(size, new Random(42));
+            NameIndex index = new NameIndex();
+            for (Patient p : patients) {
+                index.add(p);
+            }
+            for (String query : QUERIES) {
+                int iterations = Math.max(5, 2_000_000 / size);
+                long scan = time(iterations, () -> scan(patients, query).size());
+                long indexed = time(iterations, () -> index.search(query).size());
+                long ranked = time(iterations, () -> index.searchRanked(query, 10).size());
+                System.out.printf("%-10d %-12s %14d %14d %14d %10d%n",
+                        size, query, scan, indexed, ranked, index.search(query).size());
+            }
+        }
+        if (!checkIdOrder()) {
+            System.exit(1);
+        }
+    }
+
+    // search() promises ascending ids on both the scan and the posting-list path,
+    // even when patients were indexed out of id order (e.g. after a merge of imports)
+    private static boolean checkIdOrder() {
+        List<Patient> patients = generate(10_000, new Random(7));
+        NameIndex index = new NameIndex();
+        for (int i = patients.size() - 1; i >= 0; i--) {
+            index.add(patients.get(i));
+        }
+        boolean ok = true;
+        for (String query : QUERIES) {
+            List<Patient> found = index.search(query);
+            for (int i = 1; i < found.size(); i++) {
+                if (found.get(i - 1).getId() >= found.get(i).getId()) {
+                    System.out.println("✗ search(\"" + query + "\") is not in ascending id order");
+                    ok = false;
+                    break;
+                }
+            }
+        }
+        if (ok) {
+            System.out.println("✓ search results are in ascending id order");
+        }
+        return ok;
+    }
+
+    // The original HospitalManagementSystem.searchPatient matching loop
+    static List<Patient> scan(List<Patient> patients, String term) {
+        String needle = term.toLowerCase();
+        List<Patient> results = new ArrayList<>();
+        for (Patient p : patients) {
+            if (p.getName().toLowerCase().contains(needle)) {
+                results.add(p);
+            }
+        }
+        return results;
+    }
+
+    static List<Patient> generate(int count, Random random) {
+        List<Patient> patients = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)]
+                    + (random.nextInt(4) == 0 ? "-" + LAST[random.nextInt(LAST.length)] : "");
+            patients.add(new Patient(name, random.nextInt(100)));
+        }
+        return patients;
+    }
+
+    /**
+     * Runs a warm-up round, then returns the mean time per call in nanoseconds.
+     */
+    static long time(int iterations, IntSupplier body) {
+        int sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += body.getAsInt();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += body.getAsInt();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.print(""); // keep results live
+        }
+        return elapsed / iterations;
+    }
+}
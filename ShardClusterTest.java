@@ -0,0 +1,364 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end test of a sharded deployment on one machine. Starts a leader and
+ * a follower {@link ShardNode} process for each of two shards, all on loopback
+ * with ephemeral ports, and drives them through a {@link ShardRouter}:
+ * round-robin registration, routed lookups, same-shard assignment and booking,
+ * scatter-gather search, follower catch-up across journal segments, reads
+ * while a leader is down, a leader restart that replays its journal and
+ * resumes replication, and a leader refusing new entities at the end of its
+ * id range.
+ *
+ * Run: java -cp bin com.example.ShardClusterTest [patients]
+ * Exits with status 1 if any check fails.
+ */
+public class ShardClusterTest {
+    private static final int SHARDS = 2;
+    private static final String HOST = InetAddress.getLoopbackAddress().getHostAddress();
+    private static final int SEGMENT_BYTES = 2048;
+    private static final String[] NAMES = {"Smith", "Smithson", "Anna Smith", "Goldsmith", "Brown", "Garcia"};
+
+    private static final List<Process> processes = new ArrayList<>();
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        int patientCount = args.length > 0 ? InputValidator.parseInteger(args[0]) : 300;
+        if (patientCount < SHARDS) {
+            System.out.println("❌ patients must be an integer of at least " + SHARDS);
+            System.exit(1);
+        }
+        Path dir = Files.createTempDirectory("hms-shards");
+        try {
+            run(dir, patientCount);
+        } finally {
+            for (Process p : processes) {
+                p.destroyForcibly();
+            }
+            for (Process p : processes) {
+                p.waitFor(5, TimeUnit.SECONDS);
+            }
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(dir);
+        }
+        if (failures > 0) {
+            System.out.println("❌ " + failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("✓ All sharding checks passed");
+    }
+
+    private static void run(Path dir, int patientCount) throws Exception {
+        Node[] leaders = new Node[SHARDS];
+        Node[] followers = new Node[SHARDS];
+        for (int s = 0; s < SHARDS; s++) {
+            leaders[s] = start(s, "--journal", dir.resolve("shard" + s + ".journal").toString(),
+                    "--replication-port", "0");
+        }
+        for (int s = 0; s < SHARDS; s++) {
+            followers[s] = start(s, "--journal", dir.resolve("shard" + s + "-replica.journal").toString(),
+                    "--follow", HOST + ":" + leaders[s].replicationPort);
+        }
+        ShardRouter router = router(leaders, followers);
+        System.out.println("Cluster up: " + SHARDS + " shards, each a leader and a follower process");
+
+        // Routing by id range
+        int[][] doctorIds = new int[SHARDS][2];
+        for (int s = 0; s < SHARDS; s++) {
+            for (int d = 0; d < 2; d++) {
+                doctorIds[s][d] = id(router.registerDoctor(s, "Dr. Shard " + s + "-" + d, "General"));
+                check(ShardRouter.shardOf(doctorIds[s][d]) == s, "doctor " + doctorIds[s][d] + " not in shard " + s);
+            }
+        }
+        Map<Integer, String> names = new HashMap<>();
+        for (int i = 0; i < patientCount; i++) {
+            String name = NAMES[i % NAMES.length] + " " + i;
+            int id = id(router.registerPatient(name, i % 90));
+            check(ShardRouter.shardOf(id) == i % SHARDS, "patient " + i + " got id " + id + " outside shard " + i % SHARDS);
+            names.put(id, name);
+        }
+        int mismatched = 0;
+        for (Map.Entry<Integer, String> e : names.entrySet()) {
+            Map<String, String> patient = router.findPatient(e.getKey());
+            if (patient == null || !e.getValue().equals(patient.get("name"))) {
+                mismatched++;
+            }
+        }
+        check(mismatched == 0, mismatched + " routed lookups returned the wrong patient");
+        Map<String, String> doctor = router.findDoctor(doctorIds[1][0]);
+        check(doctor != null && "Dr. Shard 1-0".equals(doctor.get("name")), "routed doctor lookup failed");
+        check(router.findPatient(ShardRouter.firstId(1) + 1_000_000) == null, "lookup of an unknown id found something");
+        check(router.countPatients() == patientCount, "cluster counts " + router.countPatients() + " patients");
+
+        // Same-shard assignment and booking; cross-shard requests are refused
+        int shard0Patient = ShardRouter.firstId(0);
+        int shard1Patient = ShardRouter.firstId(1);
+        router.assignPatient(shard0Patient, doctorIds[0][0]);
+        check(String.valueOf(doctorIds[0][0]).equals(router.findPatient(shard0Patient).get("doctorId")),
+                "assignment not visible through the router");
+        check(throwsIllegalArgument(() -> router.assignPatient(shard1Patient, doctorIds[0][0])),
+                "cross-shard assignment was not refused");
+        LocalDateTime slot = LocalDateTime.now().plusDays(2).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        int appointmentId = id(router.scheduleAppointment(shard1Patient, doctorIds[1][1], slot, "Checkup"));
+        check(ShardRouter.shardOf(appointmentId) == 1, "appointment " + appointmentId + " not in shard 1");
+        Map<String, String> appointment = router.findAppointment(appointmentId);
+        check(appointment != null && String.valueOf(shard1Patient).equals(appointment.get("patientId")),
+                "routed appointment lookup failed");
+
+        // Scatter-gather search against the merged expectation
+        for (String term : new String[] {"smith", "Smith 1", "garcia", "nobody"}) {
+            List<Integer> expected = expectedSearch(names, term, 10);
+            List<Integer> actual = ids(router.searchPatients(term, 10));
+            check(actual.equals(expected), "search \"" + term + "\" returned " + actual + ", expected " + expected);
+        }
+
+        // Followers catch up and refuse writes
+        for (int s = 0; s < SHARDS; s++) {
+            check(awaitTotal(followers[s], total(leaders[s])), "follower of shard " + s + " did not catch up");
+        }
+        check(String.valueOf(doctorIds[0][0]).equals(get(followers[0], "/patients/" + shard0Patient).get("doctorId")),
+                "assignment not replicated to the follower");
+        check(post(followers[1], "/patients", "{\"name\":\"Nope\",\"age\":1}") == 405,
+                "follower accepted a write");
+
+        int segments = MutationJournal.segmentStarts(dir.resolve("shard0.journal")).size();
+        int copySegments = MutationJournal.segmentStarts(dir.resolve("shard0-replica.journal")).size();
+        check(segments > 1 && copySegments > 1, "journal of shard 0 has " + segments + " segments, its copy "
+                + copySegments + "; expected several of " + SEGMENT_BYTES + " bytes");
+
+        // Reads fall back to the follower while a leader is down
+        List<Integer> searchBefore = ids(router.searchPatients("smith", 10));
+        leaders[0].process.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+        Map<String, String> fromFollower = router.findPatient(shard0Patient);
+        check(fromFollower != null && names.get(shard0Patient).equals(fromFollower.get("name")),
+                "lookup did not fall back to the follower");
+        check(ids(router.searchPatients("smith", 10)).equals(searchBefore), "search did not fall back to the follower");
+
+        // A restarted leader replays its journal, keeps its id range and resumes shipping
+        leaders[0] = start(0, "--journal", dir.resolve("shard0.journal").toString(),
+                "--replication-port", String.valueOf(leaders[0].replicationPort));
+        check(leaders[0].records > patientCount / SHARDS, "restarted leader replayed " + leaders[0].records + " records");
+        ShardRouter restarted = router(leaders, followers);
+        int maxShard0 = names.keySet().stream().filter(id -> ShardRouter.shardOf(id) == 0).max(Integer::compare).orElse(0);
+        int newId = id(restarted.registerPatient(0, "After Restart", 40));
+        check(newId > maxShard0 && ShardRouter.shardOf(newId) == 0, "restarted leader issued id " + newId);
+        check(awaitTotal(followers[0], total(leaders[0])), "follower did not resume after the leader restarted");
+        check(get(followers[0], "/patients/" + newId) != null, "follower is missing the post-restart patient");
+
+        checkRangeBoundary(dir, slot);
+    }
+
+    // A leader that has issued the last ids of its range refuses new entities rather
+    // than handing out the next shard's ids
+    private static void checkRangeBoundary(Path dir, LocalDateTime slot) throws Exception {
+        int endId = ShardRouter.endId(1);
+        Path journalPath = dir.resolve("edge.journal");
+        HospitalService service = new HospitalService();
+        Patient.startIdsAt(endId - 2, endId);
+        Doctor.startIdsAt(endId - 1, endId);
+        Appointment.startIdsAt(endId - 1, endId);
+        try (MutationJournal journal = MutationJournal.open(journalPath, service, true)) {
+            MutationEvents.register(journal);
+            try {
+                Patient patient = service.registerPatient("Edge Patient", 50);
+                Doctor doctor = service.registerDoctor("Dr. Edge", "General");
+                service.scheduleAppointment(patient.getId(), doctor.getId(), slot, "Checkup");
+            } finally {
+                MutationEvents.unregister(journal);
+            }
+        }
+        Node edge = start(1, "--journal", journalPath.toString(), "--replication-port", "0");
+        check(post(edge, "/patients", "{\"name\":\"Last\",\"age\":1}") / 100 == 2
+                && get(edge, "/patients/" + (endId - 1)) != null, "the last id of shard 1 was not issued");
+        check(post(edge, "/patients", "{\"name\":\"Too Many\",\"age\":1}") == 409,
+                "a patient past the end of shard 1's range was not refused");
+        check(post(edge, "/doctors", "{\"name\":\"Dr. Too Many\",\"specialization\":\"General\"}") == 409,
+                "a doctor past the end of shard 1's range was not refused");
+        check(post(edge, "/appointments", "{\"patientId\":" + (endId - 2) + ",\"doctorId\":" + (endId - 1)
+                        + ",\"time\":\"" + slot.plusHours(1).format(Appointment.TIME_FORMAT) + "\",\"purpose\":\"Checkup\"}") == 409,
+                "an appointment past the end of shard 1's range was not refused");
+    }
+
+    private static List<Integer> expectedSearch(Map<Integer, String> names, String term, int limit) {
+        String needle = term.trim().toLowerCase(Locale.ROOT);
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<Integer, String> e : names.entrySet()) {
+            if (e.getValue().toLowerCase(Locale.ROOT).contains(needle)) {
+                ids.add(e.getKey());
+            }
+        }
+        ids.sort(Comparator.<Integer>comparingInt(id -> NameIndex.rank(names.get(id).toLowerCase(Locale.ROOT), needle))
+                .thenComparingInt(id -> names.get(id).length())
+                .thenComparingInt(id -> id));
+        return ids.size() > limit ? ids.subList(0, limit) : ids;
+    }
+
+    // --- Processes ---
+
+    private static final class Node {
+        final Process process;
+        final int httpPort;
+        final int replicationPort;
+        final int records;
+
+        Node(Process process, Map<String, String> ready) {
+            this.process = process;
+            this.httpPort = Integer.parseInt(ready.get("http"));
+            this.replicationPort = ready.containsKey("replication") ? Integer.parseInt(ready.get("replication")) : -1;
+            this.records = Integer.parseInt(ready.get("records"));
+        }
+
+        String url() { return "http://" + HOST + ":" + httpPort; }
+    }
+
+    private static Node start(int shard, String... options) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                // Small segments, so replication and replay cross segment boundaries
+                "-Dhms.journalSegmentBytes=" + SEGMENT_BYTES,
+                ShardNode.class.getName(), "--shard", String.valueOf(shard), "--http", "0"));
+        command.addAll(List.of(options));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        processes.add(process);
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        CompletableFuture<Map<String, String>> ready = CompletableFuture.supplyAsync(() -> {
+            try {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    if (line.startsWith("READY ")) {
+                        Map<String, String> fields = new HashMap<>();
+                        for (String field : line.substring(6).split(" ")) {
+                            int eq = field.indexOf('=');
+                            fields.put(field.substring(0, eq), field.substring(eq + 1));
+                        }
+                        return fields;
+                    }
+                    System.out.println("  [shard " + shard + "] " + line);
+                }
+                throw new IllegalStateException("Shard " + shard + " exited before it was ready");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Node node = new Node(process, ready.get(30, TimeUnit.SECONDS));
+        // Keep draining the output so the child never blocks on a full pipe
+        Thread drain = new Thread(() -> {
+            try {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    System.out.println("  [shard " + shard + "] " + line);
+                }
+            } catch (IOException e) {
+                // Process gone
+            }
+        });
+        drain.setDaemon(true);
+        drain.start();
+        return node;
+    }
+
+    private static ShardRouter router(Node[] leaders, Node[] followers) {
+        List<String> leaderUrls = new ArrayList<>();
+        List<String> followerUrls = new ArrayList<>();
+        for (int s = 0; s < SHARDS; s++) {
+            leaderUrls.add(leaders[s].url());
+            followerUrls.add(followers[s].url());
+        }
+        return new ShardRouter(leaderUrls, followerUrls);
+    }
+
+    // --- Direct node access ---
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private static Map<String, String> get(Node node, String path) throws Exception {
+        HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(URI.create(node.url() + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        return response.statusCode() == 200 ? BulkImporter.JsonLine.parseObject(response.body()) : null;
+    }
+
+    private static int post(Node node, String path, String body) throws Exception {
+        return CLIENT.send(HttpRequest.newBuilder(URI.create(node.url() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build(), HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+
+    private static long total(Node node) throws Exception {
+        String json = CLIENT.send(HttpRequest.newBuilder(URI.create(node.url() + "/patients?limit=0")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        return Long.parseLong(json.substring(json.indexOf(':') + 1, json.indexOf(',')));
+    }
+
+    private static boolean awaitTotal(Node follower, long expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            if (total(follower) == expected) {
+                return true;
+            }
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    // --- Checks ---
+
+    private interface Call {
+        void run() throws Exception;
+    }
+
+    private static boolean throwsIllegalArgument(Call call) throws Exception {
+        try {
+            call.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static List<Integer> ids(List<Map<String, String>> entities) {
+        List<Integer> ids = new ArrayList<>(entities.size());
+        for (Map<String, String> entity : entities) {
+            ids.add(id(entity));
+        }
+        return ids;
+    }
+
+    private static int id(Map<String, String> entity) {
+        return Integer.parseInt(entity.get("id"));
+    }
+
+    private static void check(boolean ok, String message) {
+        if (ok) {
+            return;
+        }
+        failures++;
+        System.out.println("❌ " + message);
+    }
+}
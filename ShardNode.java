@@ -0,0 +1,140 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One process of a sharded deployment: the leader or the follower of one shard.
+ *
+ * A leader issues ids from its shard's range only (see {@link ShardRouter}), journals
+ * every mutation with synchronous commits, serves the HTTP API and streams its
+ * journal to followers over a {@link ReplicationServer}. A follower applies
+ * the leader's journal as it arrives ({@link ReplicationFollower}) and serves
+ * the same API read-only. Both print one line
+ * {@code READY shard=<i> http=<port> [replication=<port>]} once serving, so a
+ * script can start a whole cluster with port 0 and pick up the real ports.
+ *
+ * Run:
+ * <pre>
+ *   java -cp bin com.example.ShardNode --shard 0 --http 8100 --journal shard0.journal --replication-port 8200
+ *   java -cp bin com.example.ShardNode --shard 0 --http 8101 --journal shard0-replica.journal --follow localhost:8200
+ * </pre>
+ */
+public class ShardNode {
+
+    public static void main(String[] args) {
+        int shard = -1;
+        int httpPort = 0;
+        int replicationPort = 0;
+        String journal = null;
+        String follow = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--shard" -> shard = number(value, "--shard", ShardRouter.MAX_SHARDS - 1);
+                    case "--http" -> httpPort = port(value, "--http");
+                    case "--replication-port" -> replicationPort = port(value, "--replication-port");
+                    case "--journal" -> journal = value;
+                    case "--follow" -> follow = value;
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+                i++;
+            }
+            if (shard < 0) {
+                throw new IllegalArgumentException("--shard is required");
+            }
+            if (!InputValidator.isValidString(journal)) {
+                throw new IllegalArgumentException("--journal is required");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.err.println("Usage: ShardNode --shard <i> --http <port> --journal <file>"
+                    + " [--replication-port <port> | --follow <host:port>]");
+            System.exit(2);
+            return;
+        }
+
+        try {
+            if (follow == null) {
+                runLeader(shard, httpPort, Paths.get(journal), replicationPort);
+            } else {
+                runFollower(shard, httpPort, Paths.get(journal), address(follow));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ Shard " + shard + " could not start: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void runLeader(int shard, int httpPort, Path journalPath, int replicationPort) throws IOException {
+        int firstId = ShardRouter.firstId(shard);
+        int endId = ShardRouter.endId(shard);
+        Patient.startIdsAt(firstId, endId);
+        Doctor.startIdsAt(firstId, endId);
+        Appointment.startIdsAt(firstId, endId);
+
+        HospitalService service = new HospitalService();
+        MutationJournal journal = MutationJournal.open(journalPath, service, true);
+        MutationEvents.register(journal);
+        ReplicationServer replication = new ReplicationServer(journal, replicationPort);
+        HospitalHttpServer http = new HospitalHttpServer(service, httpPort);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            http.close();
+            service.stopSweeper();
+            replication.close();
+            MutationEvents.unregister(journal);
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("❌ Error closing journal: " + e.getMessage());
+            }
+        }, "shard-shutdown"));
+        service.startSweeper(1, TimeUnit.MINUTES);
+        http.start();
+        System.out.println("READY shard=" + shard + " http=" + http.getPort() + " replication=" + replication.getPort()
+                + " records=" + journal.getReplayedRecords());
+    }
+
+    private static void runFollower(int shard, int httpPort, Path journalPath, InetSocketAddress leader)
+            throws IOException {
+        HospitalService service = new HospitalService();
+        ReplicationFollower follower = new ReplicationFollower(service, journalPath, leader);
+        HospitalHttpServer http = new HospitalHttpServer(service, httpPort);
+        http.setReadOnly(true);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            http.close();
+            try {
+                follower.close();
+            } catch (IOException e) {
+                System.err.println("❌ Error closing journal copy: " + e.getMessage());
+            }
+        }, "shard-shutdown"));
+        http.start();
+        System.out.println("READY shard=" + shard + " http=" + http.getPort()
+                + " records=" + follower.getAppliedRecords());
+    }
+
+    private static int port(String value, String option) {
+        return number(value, option, 65535);
+    }
+
+    private static int number(String value, String option, int max) {
+        long parsed = InputValidator.tryParseIntInRange(value, 0, max);
+        if (parsed == InputValidator.INVALID) {
+            throw new IllegalArgumentException(option + " needs a number between 0 and " + max);
+        }
+        return (int) parsed;
+    }
+
+    private static InetSocketAddress address(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("--follow needs host:port");
+        }
+        return new InetSocketAddress(hostPort.substring(0, colon), port(hostPort.substring(colon + 1), "--follow"));
+    }
+}
@@ -0,0 +1,369 @@
+package com.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Client-side router over a cluster of {@link ShardNode}s.
+ *
+ * Patients, doctors and appointments are partitioned by id range: shard
+ * {@code s} issues ids from {@code s * 2^24 + 1} to {@code (s + 1) * 2^24}, so
+ * the owning shard of any id is known without a lookup table and ids stay
+ * unique across the cluster. A shard whose range is used up refuses new
+ * entities with 409. Lookups by id go to the owning shard only; a name search is sent to
+ * every shard at once and the partial top-N lists are merged with the same
+ * ordering {@link NameIndex#searchRanked} uses. A shard is one hospital: a
+ * patient can only be assigned to, or booked with, a doctor of the same shard.
+ *
+ * Reads fall back to the shard's follower when the leader cannot be reached.
+ * Replication is asynchronous, so such a read may miss the latest writes.
+ * Results are the API's JSON objects as flat field maps (see {@link HospitalHttpServer}).
+ */
+public class ShardRouter {
+    /** Ids per shard: 2^24, about 16.7 million. */
+    static final int ID_RANGE_BITS = 24;
+    public static final int MAX_SHARDS = Integer.MAX_VALUE >>> ID_RANGE_BITS;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final URI[] leaders;
+    private final URI[] followers;
+    private final HttpClient client;
+    private final AtomicInteger nextShard = new AtomicInteger();
+
+    /**
+     * @param leaderUrls base URL of each shard's leader, in shard order
+     * @param followerUrls base URL of each shard's follower, in shard order; may be empty
+     *                     or hold nulls for shards without one
+     */
+    public ShardRouter(List<String> leaderUrls, List<String> followerUrls) {
+        if (leaderUrls == null || leaderUrls.isEmpty() || leaderUrls.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("Between 1 and " + MAX_SHARDS + " shards are required");
+        }
+        if (followerUrls != null && followerUrls.size() > leaderUrls.size()) {
+            throw new IllegalArgumentException("More followers than shards");
+        }
+        this.leaders = new URI[leaderUrls.size()];
+        this.followers = new URI[leaderUrls.size()];
+        for (int i = 0; i < leaders.length; i++) {
+            leaders[i] = baseUri(leaderUrls.get(i));
+            if (followerUrls != null && i < followerUrls.size() && followerUrls.get(i) != null) {
+                followers[i] = baseUri(followerUrls.get(i));
+            }
+        }
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(TIMEOUT).build();
+    }
+
+    public int getShardCount() { return leaders.length; }
+
+    /** Shard that owns an id. */
+    public static int shardOf(int id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Invalid id: " + id);
+        }
+        return (id - 1) >>> ID_RANGE_BITS;
+    }
+
+    /** First id a shard issues. */
+    public static int firstId(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Invalid shard: " + shard);
+        }
+        return (shard << ID_RANGE_BITS) + 1;
+    }
+
+    /** First id after a shard's range, where the next shard's ids begin. */
+    public static int endId(int shard) {
+        return firstId(shard) + (1 << ID_RANGE_BITS);
+    }
+
+    // --- Writes (leaders only) ---
+
+    /**
+     * Registers a patient on the next shard in round-robin order.
+     */
+    public Map<String, String> registerPatient(String name, int age) throws IOException {
+        return registerPatient(Math.floorMod(nextShard.getAndIncrement(), leaders.length), name, age);
+    }
+
+    public Map<String, String> registerPatient(int shard, String name, int age) throws IOException {
+        StringBuilder body = HospitalHttpServer.string(new StringBuilder("{\"name\":"), name)
+                .append(",\"age\":").append(age).append('}');
+        return object(send(leaders[checkShard(shard)], "POST", "/patients", body.toString()));
+    }
+
+    public Map<String, String> registerDoctor(int shard, String name, String specialization) throws IOException {
+        StringBuilder body = HospitalHttpServer.string(new StringBuilder("{\"name\":"), name).append(",\"specialization\":");
+        HospitalHttpServer.string(body, specialization).append('}');
+        return object(send(leaders[checkShard(shard)], "POST", "/doctors", body.toString()));
+    }
+
+    /**
+     * Assigns a patient to a doctor of the same shard.
+     * @return the patient's updated fields
+     * @throws IllegalArgumentException if they belong to different shards or the shard rejects the input
+     * @throws IllegalStateException if the shard refuses the change
+     */
+    public Map<String, String> assignPatient(int patientId, int doctorId) throws IOException {
+        int shard = sameShard(patientId, doctorId);
+        String reply = send(leaders[shard], "PUT", "/patients/" + patientId + "/doctor", "{\"doctorId\":" + doctorId + "}");
+        return objects(reply, "patient").get(0);
+    }
+
+    /**
+     * Books an appointment with a doctor of the patient's shard.
+     * @throws IllegalArgumentException if they belong to different shards or the shard rejects the input
+     * @throws IllegalStateException if the slot is taken
+     */
+    public Map<String, String> scheduleAppointment(int patientId, int doctorId, LocalDateTime time, String purpose)
+            throws IOException {
+        int shard = sameShard(patientId, doctorId);
+        StringBuilder body = new StringBuilder("{\"patientId\":").append(patientId)
+                .append(",\"doctorId\":").append(doctorId).append(",\"time\":");
+        HospitalHttpServer.string(body, time.format(Appointment.TIME_FORMAT)).append(",\"purpose\":");
+        HospitalHttpServer.string(body, purpose).append('}');
+        return object(send(leaders[shard], "POST", "/appointments", body.toString()));
+    }
+
+    // --- Reads (leader, else follower) ---
+
+    /** @return the patient's fields, or null if no shard has it */
+    public Map<String, String> findPatient(int id) throws IOException {
+        return find("/patients/", id);
+    }
+
+    /** @return the doctor's fields (without the roster), or null if no shard has it */
+    public Map<String, String> findDoctor(int id) throws IOException {
+        return find("/doctors/", id);
+    }
+
+    /** @return the appointment's fields, or null if no shard has it */
+    public Map<String, String> findAppointment(int id) throws IOException {
+        return find("/appointments/", id);
+    }
+
+    /**
+     * Searches every shard in parallel and merges the results: exact name
+     * matches first, then prefixes, then word starts, then other substrings;
+     * shorter names first within a group, then by id.
+     * @throws IOException if neither the leader nor the follower of some shard answers
+     */
+    public List<Map<String, String>> searchPatients(String term, int limit) throws IOException {
+        if (!InputValidator.isValidString(term)) {
+            throw new IllegalArgumentException("Search term cannot be empty");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        String path = "/patients/search?q=" + URLEncoder.encode(term, StandardCharsets.UTF_8) + "&limit=" + limit;
+        List<CompletableFuture<String>> replies = new ArrayList<>(leaders.length);
+        for (int shard = 0; shard < leaders.length; shard++) {
+            replies.add(readAsync(shard, path));
+        }
+        String needle = term.trim().toLowerCase(Locale.ROOT);
+        List<Map<String, String>> merged = new ArrayList<>();
+        for (CompletableFuture<String> reply : replies) {
+            merged.addAll(objects(join(reply), "patients"));
+        }
+        merged.sort(Comparator.<Map<String, String>>comparingInt(p -> NameIndex.rank(lowerName(p), needle))
+                .thenComparingInt(p -> lowerName(p).length())
+                .thenComparingInt(p -> Integer.parseInt(p.get("id"))));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /** Total patients across all shards. */
+    public long countPatients() throws IOException {
+        List<CompletableFuture<String>> replies = new ArrayList<>(leaders.length);
+        for (int shard = 0; shard < leaders.length; shard++) {
+            replies.add(readAsync(shard, "/patients?limit=0"));
+        }
+        long total = 0;
+        for (CompletableFuture<String> reply : replies) {
+            total += Long.parseLong(fieldsBefore(join(reply), "patients").get("total"));
+        }
+        return total;
+    }
+
+    private Map<String, String> find(String resource, int id) throws IOException {
+        if (id <= 0) {
+            return null;
+        }
+        int shard = shardOf(id);
+        if (shard >= leaders.length) {
+            return null;
+        }
+        String json = join(readAsync(shard, resource + id));
+        return json == null ? null : fieldsBefore(json, "patientIds");
+    }
+
+    // GET from the leader, retried on the follower if the leader is unreachable; null body on 404
+    private CompletableFuture<String> readAsync(int shard, String path) {
+        CompletableFuture<String> reply = sendAsync(leaders[shard], "GET", path, null);
+        URI follower = followers[shard];
+        if (follower == null) {
+            return reply;
+        }
+        return reply.exceptionallyCompose(e -> cause(e) instanceof IOException
+                ? sendAsync(follower, "GET", path, null)
+                : CompletableFuture.failedFuture(e));
+    }
+
+    private String send(URI base, String method, String path, String body) throws IOException {
+        String reply = join(sendAsync(base, method, path, body));
+        if (reply == null) {
+            throw new IllegalArgumentException("Not found: " + path);
+        }
+        return reply;
+    }
+
+    private CompletableFuture<String> sendAsync(URI base, String method, String path, String body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(base.resolve(path)).timeout(TIMEOUT);
+        if (body == null) {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body));
+        }
+        return client.sendAsync(request.build(), HttpResponse.BodyHandlers.ofString())
+                .thenApply(ShardRouter::check);
+    }
+
+    // Maps the API's status codes back onto the service's exception types
+    private static String check(HttpResponse<String> response) {
+        int status = response.statusCode();
+        if (status / 100 == 2) {
+            return response.body();
+        }
+        if (status == 404 && response.request().method().equals("GET")) {
+            return null;
+        }
+        String message = errorMessage(response.body());
+        if (status == 409) {
+            throw new IllegalStateException(message);
+        }
+        if (status == 400 || status == 404) {
+            throw new IllegalArgumentException(message);
+        }
+        throw new IllegalStateException("Shard answered " + status + ": " + message);
+    }
+
+    private static String errorMessage(String body) {
+        try {
+            String error = BulkImporter.JsonLine.parseObject(body).get("error");
+            return error != null ? error : body;
+        } catch (IllegalArgumentException e) {
+            return body;
+        }
+    }
+
+    // Waits for a reply, unwrapping the exception the request failed with
+    private static String join(CompletableFuture<String> reply) throws IOException {
+        try {
+            return reply.join();
+        } catch (CompletionException e) {
+            Throwable cause = cause(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static Throwable cause(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+
+    private int checkShard(int shard) {
+        if (shard < 0 || shard >= leaders.length) {
+            throw new IllegalArgumentException("No such shard: " + shard);
+        }
+        return shard;
+    }
+
+    private int sameShard(int patientId, int doctorId) {
+        int shard = shardOf(patientId);
+        if (shard != shardOf(doctorId)) {
+            throw new IllegalArgumentException("Patient " + patientId + " and doctor " + doctorId
+                    + " belong to different shards");
+        }
+        return checkShard(shard);
+    }
+
+    private static String lowerName(Map<String, String> patient) {
+        return patient.get("name").toLowerCase(Locale.ROOT);
+    }
+
+    private static URI baseUri(String url) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalArgumentException("Shard URL cannot be empty");
+        }
+        return URI.create(url.endsWith("/") ? url : url + "/");
+    }
+
+    private static Map<String, String> object(String json) {
+        return BulkImporter.JsonLine.parseObject(json);
+    }
+
+    // The flat fields of a reply object up to an array field, or all of them if it has none
+    private static Map<String, String> fieldsBefore(String json, String arrayField) {
+        int at = json.indexOf(",\"" + arrayField + "\":[");
+        return object(at < 0 ? json : json.substring(0, at) + "}");
+    }
+
+    /**
+     * Extracts the flat objects under a field of a reply: each element of an
+     * array, or the one object the field holds.
+     */
+    static List<Map<String, String>> objects(String json, String field) {
+        String key = "\"" + field + "\":";
+        int at = json.indexOf(key);
+        if (at < 0) {
+            throw new IllegalArgumentException("No \"" + field + "\" in reply");
+        }
+        List<Map<String, String>> result = new ArrayList<>();
+        boolean inString = false;
+        int start = -1;
+        for (int i = at + key.length(); i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                start = i;
+            } else if (c == '}') {
+                result.add(object(json.substring(start, i + 1)));
+                if (json.charAt(at + key.length()) == '{') {
+                    break;
+                }
+            } else if (c == ']') {
+                break;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,403 @@
+package com.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Writes and loads compact binary snapshots of all patients, doctors and appointments.
+ *
+ * The layout is columnar: each field is stored as one contiguous int/long column,
+ * and every string is replaced by an index into a de-duplicated string table,
+ * so repeated values such as specialization, diagnosis and status are stored once.
+ * Snapshots are loaded through a {@link MappedByteBuffer} with bulk column reads.
+ *
+ * Snapshots are written on a background thread to a temporary file that is
+ * atomically renamed into place. Each snapshot stores the journal
+ * {@link MutationJournal.Checkpoint} it was taken at, so startup only replays
+ * journal records written after it. Once the rename is durable, the journal
+ * segments before the checkpoint are deleted ({@link MutationJournal#compact}),
+ * so neither the journal nor the replay on startup grows without bound.
+ *
+ * Layout (big-endian):
+ * header: magic, version, checkpoint position/sequence/captured sequence
+ * string table: count, a column of UTF-8 byte lengths, then all bytes concatenated
+ * patients: count, then columns id, age, name, diagnosis, assignedDoctor, contact, history
+ *           (assignedDoctor is the display name only; links are restored from the rosters)
+ * doctors: count, then columns id, name, specialization, license, contact, experience,
+ *          rosterSize, then the flattened roster patient IDs
+ * appointments: count, then columns id, patientId, doctorId, epochSecond, purpose, status, notes
+ * trailer: CRC32 of everything before it
+ */
+public class SnapshotManager implements AutoCloseable {
+    private static final int MAGIC = 0x484D5353; // "HMSS"
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final HospitalService service;
+    private final MutationJournal journal;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private volatile long lastSnapshotSequence = -1;
+
+    /**
+     * @param path snapshot file
+     * @param service service to snapshot
+     * @param journal journal to checkpoint against, may be null if persistence is off
+     */
+    public SnapshotManager(Path path, HospitalService service, MutationJournal journal) {
+        this.path = path;
+        this.service = service;
+        this.journal = journal;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Writes a snapshot in the background every interval, skipping rounds
+     * in which nothing was journaled.
+     */
+    public void schedulePeriodic(long interval, TimeUnit unit) {
+        executor.scheduleWithFixedDelay(this::writeIfChanged, interval, interval, unit);
+    }
+
+    /**
+     * Requests a snapshot on the background thread and returns immediately.
+     */
+    public void requestSnapshot() {
+        executor.execute(this::writeIfChanged);
+    }
+
+    private void writeIfChanged() {
+        if (journal != null && journal.getLastSequence() == lastSnapshotSequence) {
+            return;
+        }
+        if (!writing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Snapshot failed: " + e);
+        } finally {
+            writing.set(false);
+        }
+    }
+
+    /**
+     * Captures and writes a snapshot on the calling thread, then compacts the journal.
+     * Concurrent mutations are allowed; any the capture misses are replayed
+     * from the journal on the next startup.
+     */
+    public void write() throws IOException {
+        MutationJournal.Checkpoint checkpoint = journal != null
+                ? journal.checkpoint()
+                : new MutationJournal.Checkpoint(0, 0, 0);
+        List<Patient> patientList = service.getPatients().snapshot();
+        List<Doctor> doctorList = service.getDoctors().snapshot();
+        List<Appointment> appointmentList = service.getAppointments().snapshot();
+        StringTable strings = new StringTable();
+
+        int np = patientList.size();
+        int[] pId = new int[np], pAge = new int[np], pName = new int[np], pDiagnosis = new int[np];
+        int[] pDoctor = new int[np], pContact = new int[np], pHistory = new int[np];
+        for (int i = 0; i < np; i++) {
+            Patient p = patientList.get(i);
+            pId[i] = p.getId();
+            pAge[i] = p.getAge();
+            pName[i] = strings.ref(p.getName());
+            pDiagnosis[i] = strings.ref(p.getDiagnosis());
+            pDoctor[i] = strings.ref(p.getAssignedDoctorName());
+            pContact[i] = strings.ref(p.getContactNumber());
+            pHistory[i] = strings.ref(p.getMedicalHistory());
+        }
+
+        int nd = doctorList.size();
+        int[] dId = new int[nd], dName = new int[nd], dSpec = new int[nd], dLicense = new int[nd];
+        int[] dContact = new int[nd], dExperience = new int[nd], dRosterSize = new int[nd];
+        IntList roster = new IntList();
+        for (int i = 0; i < nd; i++) {
+            Doctor d = doctorList.get(i);
+            dId[i] = d.getId();
+            dName[i] = strings.ref(d.getName());
+            dSpec[i] = strings.ref(d.getSpecialization());
+            dLicense[i] = strings.ref(d.getLicenseNumber());
+            dContact[i] = strings.ref(d.getContactNumber());
+            dExperience[i] = d.getYearsOfExperience();
+            int before = roster.size;
+            service.forEachAssignedPatient(d, p -> roster.add(p.getId()));
+            dRosterSize[i] = roster.size - before;
+        }
+
+        int na = appointmentList.size();
+        int[] aId = new int[na], aPatient = new int[na], aDoctor = new int[na];
+        long[] aTime = new long[na];
+        int[] aPurpose = new int[na], aStatus = new int[na], aNotes = new int[na];
+        for (int i = 0; i < na; i++) {
+            Appointment a = appointmentList.get(i);
+            aId[i] = a.getId();
+            aPatient[i] = a.getPatient().getId();
+            aDoctor[i] = a.getDoctor().getId();
+            aTime[i] = a.getAppointmentTime().toEpochSecond(ZoneOffset.UTC);
+            aPurpose[i] = strings.ref(a.getPurpose());
+            aStatus[i] = strings.ref(a.getStatus().getLabel());
+            aNotes[i] = strings.ref(a.getNotes());
+        }
+        long captured = journal != null ? journal.getLastSequence() : 0;
+        checkpoint = checkpoint.withCapturedSequence(captured);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream file = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checkpoint.position);
+            out.writeLong(checkpoint.sequence);
+            out.writeLong(checkpoint.capturedSequence);
+            strings.writeTo(out);
+
+            out.writeInt(np);
+            writeColumns(out, pId, pAge, pName, pDiagnosis, pDoctor, pContact, pHistory);
+
+            out.writeInt(nd);
+            writeColumns(out, dId, dName, dSpec, dLicense, dContact, dExperience, dRosterSize);
+            out.writeInt(roster.size);
+            writeColumns(out, roster.toArray());
+
+            out.writeInt(na);
+            writeColumns(out, aId, aPatient, aDoctor);
+            for (long t : aTime) {
+                out.writeLong(t);
+            }
+            writeColumns(out, aPurpose, aStatus, aNotes);
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        }
+        try (FileChannel ch = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastSnapshotSequence = captured;
+        if (journal != null) {
+            // The old snapshot must not come back after a crash once its journal records are gone
+            forceDirectory(path.toAbsolutePath().getParent());
+            journal.compact(checkpoint);
+        }
+    }
+
+    private static void forceDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException e) {
+            // Not supported for directories on this platform; the rename is as durable as it gets
+        }
+    }
+
+    /**
+     * Loads the snapshot file, if present, into an empty service.
+     * @return the journal checkpoint to resume replay from, or null if there is no snapshot
+     * @throws IOException if the file is unreadable, corrupt or of an unknown version
+     */
+    public static MutationJournal.Checkpoint load(Path path, HospitalService service) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = ch.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large: " + size + " bytes");
+            }
+            MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < 8 || in.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + path);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            CRC32 crc = new CRC32();
+            ByteBuffer body = in.duplicate();
+            body.position(0).limit((int) size - 4);
+            crc.update(body);
+            if ((int) crc.getValue() != in.getInt((int) size - 4)) {
+                throw new IOException("Snapshot checksum mismatch: " + path);
+            }
+
+            MutationJournal.Checkpoint checkpoint =
+                    new MutationJournal.Checkpoint(in.getLong(), in.getLong(), in.getLong());
+            int[] lengths = column(in, in.getInt());
+            long total = 0;
+            for (int length : lengths) {
+                total += length;
+            }
+            byte[] blob = new byte[(int) total];
+            in.get(blob);
+            String[] strings = new String[lengths.length];
+            for (int i = 0, offset = 0; i < strings.length; offset += lengths[i], i++) {
+                strings[i] = new String(blob, offset, lengths[i], StandardCharsets.UTF_8);
+            }
+
+            int np = in.getInt();
+            int[] pId = column(in, np), pAge = column(in, np), pName = column(in, np);
+            int[] pDiagnosis = column(in, np);
+            column(in, np); // assignedDoctor names
+            int[] pContact = column(in, np), pHistory = column(in, np);
+            Patient[] patients = new Patient[np];
+            IntObjectMap<Patient> patientsById = new IntObjectMap<>(np);
+            for (int i = 0; i < np; i++) {
+                Patient p = new Patient(pId[i], strings[pName[i]], pAge[i]);
+                p.restoreDetails(strings[pDiagnosis[i]], strings[pContact[i]], strings[pHistory[i]]);
+                patients[i] = p;
+                patientsById.put(p.getId(), p);
+            }
+            service.restorePatients(Arrays.asList(patients));
+
+            int nd = in.getInt();
+            int[] dId = column(in, nd), dName = column(in, nd), dSpec = column(in, nd);
+            int[] dLicense = column(in, nd), dContact = column(in, nd);
+            int[] dExperience = column(in, nd), dRosterSize = column(in, nd);
+            int[] roster = column(in, in.getInt());
+            Doctor[] doctors = new Doctor[nd];
+            for (int i = 0; i < nd; i++) {
+                Doctor d = new Doctor(dId[i], strings[dName[i]], strings[dSpec[i]]);
+                d.restoreDetails(strings[dLicense[i]], strings[dContact[i]], dExperience[i]);
+                doctors[i] = d;
+            }
+            service.restoreDoctors(Arrays.asList(doctors));
+            // A capture racing with registrations can reference entities it did not include;
+            // their creation records come after the checkpoint and are replayed from the journal
+            int r = 0;
+            for (int i = 0; i < nd; i++) {
+                for (int k = 0; k < dRosterSize[i]; k++) {
+                    Patient p = patientsById.get(roster[r++]);
+                    if (p != null) {
+                        service.restoreAssignment(doctors[i], p);
+                    }
+                }
+            }
+
+            int na = in.getInt();
+            int[] aId = column(in, na), aPatient = column(in, na), aDoctor = column(in, na);
+            long[] aTime = new long[na];
+            in.asLongBuffer().get(aTime);
+            in.position(in.position() + na * 8);
+            int[] aPurpose = column(in, na), aStatus = column(in, na), aNotes = column(in, na);
+            for (int i = 0; i < na; i++) {
+                Patient patient = patientsById.get(aPatient[i]);
+                Doctor doctor = service.findDoctor(aDoctor[i]);
+                if (patient == null || doctor == null) {
+                    continue;
+                }
+                Appointment a = new Appointment(aId[i], patient, doctor,
+                        LocalDateTime.ofEpochSecond(aTime[i], 0, ZoneOffset.UTC), strings[aPurpose[i]]);
+                a.restoreState(AppointmentStatus.fromLabel(strings[aStatus[i]]), strings[aNotes[i]]);
+                service.restoreAppointment(a);
+            }
+            return checkpoint;
+        }
+    }
+
+    /**
+     * Stops the background writer, waiting for a snapshot in progress to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int[] column(MappedByteBuffer in, int count) {
+        int[] values = new int[count];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + count * 4);
+        return values;
+    }
+
+    private static void writeColumns(DataOutputStream out, int[]... columns) throws IOException {
+        for (int[] column : columns) {
+            for (int value : column) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    /**
+     * De-duplicating string table built while capturing.
+     */
+    private static final class StringTable {
+        private final HashMap<String, Integer> index = new HashMap<>();
+        private final ArrayList<String> values = new ArrayList<>();
+
+        int ref(String value) {
+            Integer existing = index.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            int ref = values.size();
+            values.add(value);
+            index.put(value, ref);
+            return ref;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            byte[][] encoded = new byte[values.size()][];
+            out.writeInt(encoded.length);
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = values.get(i).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded[i].length);
+            }
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Growable int array for the flattened roster column.
+     */
+    private static final class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only dictionary assigning each distinct string a small int code.
+ *
+ * Used to dictionary-encode low-cardinality text (specializations, a store's diagnoses)
+ * so that a value repeated across millions of records is stored once: either
+ * as a code in a primitive column ({@link PatientStore}) or as the one shared
+ * canonical {@link String} returned by {@link #intern}. Entries are never
+ * removed, so it is meant for values that repeat, not for free text.
+ *
+ * Lookups by string are lock-free; adding a new string takes the dictionary's lock.
+ */
+public class StringDictionary {
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Guarded by this for writes; published through the volatile array reference
+    private volatile String[] values = new String[16];
+    private int size;
+
+    /**
+     * Returns the code of a string, adding it if it is new. Codes are dense,
+     * starting at 0 in insertion order.
+     * @throws IllegalArgumentException if the value is null
+     */
+    public int encode(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        Integer code = codes.get(value);
+        return code != null ? code : add(value);
+    }
+
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        String[] current = values;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = value;
+        values = current;
+        codes.put(value, size);
+        return size++;
+    }
+
+    /**
+     * Returns the string of a code.
+     * @throws IllegalArgumentException if the code was never assigned
+     */
+    public String decode(int code) {
+        String[] current = values;
+        String value = code >= 0 && code < current.length ? current[code] : null;
+        if (value == null) {
+            throw new IllegalArgumentException("Unknown dictionary code: " + code);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the canonical instance of an equal string, adding it if new.
+     * Null is returned unchanged.
+     */
+    public String intern(String value) {
+        return value == null ? null : decode(encode(value));
+    }
+
+    /**
+     * @return the code of a string, or -1 if it is not in the dictionary
+     */
+    public int codeOf(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    public int size() {
+        return codes.size();
+    }
+}
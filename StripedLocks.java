@@ -0,0 +1,81 @@
+package com.example;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks indexed by entity id.
+ * Operations on different doctors (or patients) mostly take different locks,
+ * so they run in parallel, while operations on the same entity are serialized.
+ */
+public class StripedLocks {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    /**
+     * @param minimumStripes minimum number of locks; rounded up to a power of two
+     */
+    public StripedLocks(int minimumStripes) {
+        if (minimumStripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int count = Integer.highestOneBit(minimumStripes);
+        if (count < minimumStripes) {
+            count <<= 1;
+        }
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = count - 1;
+    }
+
+    /**
+     * Returns the lock guarding the given id.
+     */
+    public ReentrantLock lockFor(int id) {
+        return stripes[stripe(id)];
+    }
+
+    /**
+     * Returns the locks guarding two ids in a fixed global order, so threads
+     * locking the same pair in opposite directions cannot deadlock.
+     * Both entries are the same lock when the ids share a stripe.
+     */
+    public ReentrantLock[] lockPair(int first, int second) {
+        int a = stripe(first), b = stripe(second);
+        return a <= b ? new ReentrantLock[] {stripes[a], stripes[b]} : new ReentrantLock[] {stripes[b], stripes[a]};
+    }
+
+    /**
+     * Returns the distinct locks guarding the first {@code count} ids, in stripe
+     * order, for an operation that touches a known set of entities. Taking them
+     * in that order cannot deadlock with the other lock orders used here.
+     */
+    public ReentrantLock[] locksFor(int[] ids, int count) {
+        boolean[] used = new boolean[stripes.length];
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            int s = stripe(ids[i]);
+            if (!used[s]) {
+                used[s] = true;
+                distinct++;
+            }
+        }
+        ReentrantLock[] locks = new ReentrantLock[distinct];
+        for (int s = 0, n = 0; n < distinct; s++) {
+            if (used[s]) {
+                locks[n++] = stripes[s];
+            }
+        }
+        return locks;
+    }
+
+    private int stripe(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,428 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Off-heap store for large free text (medical histories, appointment notes).
+ *
+ * Text lives as UTF-8 in fixed-size memory-mapped segment files, outside the
+ * Java heap, so millions of multi-KB texts add nothing to GC marking or copying
+ * and cold text can be paged out by the OS. Owners keep only an int handle;
+ * handle 0 is the empty text and uses no storage.
+ *
+ * A handle is an index into a slot table holding the text's current position.
+ * Updates append a new record and repoint the slot, leaving the old record as
+ * garbage. {@link #compact()} (run periodically in the background) copies the
+ * live records out of mostly-garbage segments and recycles them, repointing
+ * the slots; handles never change.
+ *
+ * Each record is [slot, length, bytes]. Reads take a shared lock only to copy
+ * the bytes out; text is decoded on every read and never cached.
+ * The segment files are scratch space: persistence stays with the journal and
+ * snapshots.
+ */
+public class TextStore implements AutoCloseable {
+    static final int EMPTY = 0;
+    private static final int HEADER = 8;
+    private static final double COMPACT_BELOW_LIVE_RATIO = 0.5;
+    // Records moved per write-lock hold during compaction, to keep reader pauses short
+    private static final int COMPACT_BATCH_BYTES = 1 << 20;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Segment> segments = new ArrayList<>();
+    private final ArrayDeque<Segment> freeSegments = new ArrayDeque<>();
+    private Segment active;
+    // Slot -> (segment index + 1) << 32 | offset; 0 = no record
+    private long[] positions = new long[1024];
+    private int slotCount = 1;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+    private ScheduledExecutorService compactor;
+    private final Object compactionLock = new Object();
+
+    /**
+     * Opens a store whose segment files are created in the given directory.
+     * @param segmentSize bytes per segment file; also the largest text that fits
+     */
+    public TextStore(Path directory, int segmentSize) throws IOException {
+        if (segmentSize < 4096) {
+            throw new IllegalArgumentException("Segment size must be at least 4096 bytes");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        this.active = newSegment();
+    }
+
+    /**
+     * The store shared by {@link Patient} and {@link Appointment}, created on first
+     * use in {@code -Dhms.textDir} (default: a temporary directory removed on exit)
+     * with {@code -Dhms.textSegmentMB} MB segments (default 64), compacting every
+     * 30 seconds.
+     */
+    static TextStore shared() {
+        return Shared.STORE;
+    }
+
+    /**
+     * Reads through the shared store; handle 0 never touches it.
+     */
+    static String readShared(int handle) {
+        return handle == EMPTY ? "" : shared().read(handle);
+    }
+
+    /**
+     * Writes through the shared store, which is only created once there is
+     * non-empty text to keep.
+     * @return the handle to keep, 0 for empty text
+     */
+    static int writeShared(int handle, String text) {
+        if (handle == EMPTY && (text == null || text.isEmpty())) {
+            return EMPTY;
+        }
+        return shared().write(handle, text);
+    }
+
+    private static final class Shared {
+        static final TextStore STORE = create();
+
+        private static TextStore create() {
+            try {
+                String dir = System.getProperty("hms.textDir");
+                Path path = dir != null ? Paths.get(dir) : Files.createTempDirectory("hms-text");
+                if (dir == null) {
+                    path.toFile().deleteOnExit();
+                }
+                TextStore store = new TextStore(path, Integer.getInteger("hms.textSegmentMB", 64) << 20);
+                store.scheduleCompaction(30, TimeUnit.SECONDS);
+                return store;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create the text store", e);
+            }
+        }
+    }
+
+    /**
+     * Reads a text.
+     * @return the text, or "" for handle 0
+     * @throws IllegalArgumentException if the handle was never issued
+     */
+    public String read(int handle) {
+        if (handle == EMPTY) {
+            return "";
+        }
+        byte[] bytes;
+        lock.readLock().lock();
+        try {
+            long position = position(handle);
+            if (position == 0) {
+                return "";
+            }
+            MappedByteBuffer buffer = segmentOf(position).buffer;
+            int offset = (int) position;
+            bytes = new byte[buffer.getInt(offset + 4)];
+            buffer.get(offset + HEADER, bytes, 0, bytes.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Stores a new value for a handle, or for a new handle if 0 is passed.
+     * Writing null or "" releases the handle.
+     * @return the handle to keep: the same one, a new one, or 0 for empty text
+     * @throws IllegalArgumentException if the text is larger than a segment or the handle was never issued
+     */
+    public int write(int handle, String text) {
+        if (text == null || text.isEmpty()) {
+            release(handle);
+            return EMPTY;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > segmentSize - HEADER) {
+            throw new IllegalArgumentException("Text of " + bytes.length + " bytes exceeds the segment size");
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = handle == EMPTY ? newSlot() : handle;
+            long old = position(slot);
+            if (old != 0) {
+                kill(old);
+            }
+            positions[slot] = append(slot, bytes, 0, bytes.length);
+            return slot;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies a text under a new handle, so the two owners can change independently.
+     * @return the new handle, or 0 if the text is empty
+     */
+    public int copy(int handle) {
+        return handle == EMPTY ? EMPTY : write(EMPTY, read(handle));
+    }
+
+    /**
+     * Frees a handle and its text; 0 is ignored.
+     */
+    public void release(int handle) {
+        if (handle == EMPTY) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long old = position(handle);
+            if (old != 0) {
+                kill(old);
+                positions[handle] = 0;
+            }
+            if (freeSlotCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+            }
+            freeSlots[freeSlotCount++] = handle;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the live records out of every full segment that is mostly garbage
+     * and recycles those segments. Runs one at a time; reads and writes continue
+     * between batches of moved records.
+     * @return the number of segments recycled
+     */
+    public int compact() {
+        synchronized (compactionLock) {
+            return compactSegments();
+        }
+    }
+
+    private int compactSegments() {
+        List<Segment> candidates = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Segment segment : segments) {
+                if (segment != active && segment.end > 0 && !freeSegments.contains(segment)
+                        && segment.live < segment.end * COMPACT_BELOW_LIVE_RATIO) {
+                    candidates.add(segment);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (Segment segment : candidates) {
+            evacuate(segment);
+        }
+        return candidates.size();
+    }
+
+    private void evacuate(Segment segment) {
+        int offset = 0;
+        while (offset < segment.end) {
+            lock.writeLock().lock();
+            try {
+                int batchEnd = Math.min(segment.end, offset + COMPACT_BATCH_BYTES);
+                while (offset < segment.end && offset < batchEnd) {
+                    int slot = segment.buffer.getInt(offset);
+                    int length = segment.buffer.getInt(offset + 4);
+                    long position = segment.positionOf(offset);
+                    if (slot < slotCount && positions[slot] == position) {
+                        byte[] bytes = new byte[length];
+                        segment.buffer.get(offset + HEADER, bytes, 0, length);
+                        kill(position);
+                        positions[slot] = append(slot, bytes, 0, length);
+                    }
+                    offset += HEADER + length;
+                }
+                if (offset >= segment.end) {
+                    segment.end = 0;
+                    segment.live = 0;
+                    freeSegments.add(segment);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs {@link #compact()} in the background every interval until {@link #close()}.
+     */
+    public synchronized void scheduleCompaction(long interval, TimeUnit unit) {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "text-compactor");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        compactor.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                System.err.println("Text compaction failed: " + e);
+            }
+        }, interval, interval, unit);
+    }
+
+    /** Bytes of live records, headers included. */
+    public long getLiveBytes() {
+        lock.readLock().lock();
+        try {
+            long live = 0;
+            for (Segment segment : segments) {
+                live += segment.live;
+            }
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Bytes written into segments, live or garbage. */
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            long used = 0;
+            for (Segment segment : segments) {
+                used += segment.end;
+            }
+            return used;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stops compaction and closes the segment files; the mappings are released
+     * by the GC. Handles must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (compactor != null) {
+                compactor.shutdownNow();
+                compactor = null;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (Segment segment : segments) {
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    // Scratch file, nothing to save
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds a lock
+    private long position(int handle) {
+        if (handle <= 0 || handle >= slotCount) {
+            throw new IllegalArgumentException("Unknown text handle: " + handle);
+        }
+        return positions[handle];
+    }
+
+    // Caller holds the write lock
+    private int newSlot() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (slotCount == positions.length) {
+            positions = Arrays.copyOf(positions, slotCount * 2);
+        }
+        return slotCount++;
+    }
+
+    // Caller holds the write lock
+    private void kill(long position) {
+        Segment segment = segmentOf(position);
+        segment.live -= HEADER + segment.buffer.getInt((int) position + 4);
+    }
+
+    // Caller holds the write lock
+    private long append(int slot, byte[] bytes, int from, int length) {
+        if (active.end + HEADER + length > segmentSize) {
+            Segment recycled = freeSegments.poll();
+            active = recycled != null ? recycled : newSegment();
+        }
+        int offset = active.end;
+        active.buffer.putInt(offset, slot);
+        active.buffer.putInt(offset + 4, length);
+        active.buffer.put(offset + HEADER, bytes, from, length);
+        active.end += HEADER + length;
+        active.live += HEADER + length;
+        return active.positionOf(offset);
+    }
+
+    // Caller holds a lock
+    private Segment segmentOf(long position) {
+        return segments.get((int) (position >>> 32) - 1);
+    }
+
+    // Caller holds the write lock (or is the constructor)
+    private Segment newSegment() {
+        Path file = directory.resolve("text-" + segments.size() + ".seg");
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            file.toFile().deleteOnExit();
+            Segment segment = new Segment(segments.size(), channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create text segment " + file, e);
+        }
+    }
+
+    private static final class Segment {
+        final int index;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int end;
+        long live;
+
+        Segment(int index, FileChannel channel, MappedByteBuffer buffer) {
+            this.index = index;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        long positionOf(int offset) {
+            return (long) (index + 1) << 32 | offset;
+        }
+    }
+}
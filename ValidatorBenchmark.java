@@ -0,0 +1,106 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares {@link InputValidator} with its original implementation
+ * ({@code String.matches} for contact numbers, {@code Integer.parseInt} with a
+ * caught {@code NumberFormatException}, and the formatter for date-times) on
+ * valid and invalid input.
+ *
+ * Run: java -cp bin com.example.ValidatorBenchmark
+ * Accepts the same -Dbench.* options as {@link HotPathBenchmark};
+ * results go to validator-results.json by default. The JMH version is
+ * {@code ValidatorJmh} in jmh/.
+ */
+public class ValidatorBenchmark {
+    static final String[] NUMBERS = {"42", " 1234 ", "-17", "99999"};
+    static final String[] BAD_NUMBERS = {"abc", "12x", "", "99999999999"};
+    static final String[] CONTACTS = {"+1-555-123-4567", "(555) 123-4567", "0821234567", "+27 82 123 4567"};
+    static final String[] BAD_CONTACTS = {"555-1234", "call me maybe", "+1-555-123-456x", "          "};
+    static final String[] TIMES = {"2030-01-15 09:30", " 2031-12-31 23:00 ", "2030-06-01 14:00", "2032-02-29 08:00"};
+    static final String[] BAD_TIMES = {"2030-13-01 10:00", "tomorrow", "2030-01-15", "15/01/2030 09:30"};
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkHarness harness = new BenchmarkHarness(
+                Integer.getInteger("bench.warmup", 3),
+                Integer.getInteger("bench.rounds", 5),
+                Long.getLong("bench.roundMillis", 200L));
+        int[] i = new int[1];
+
+        compare(harness, "parseInteger.valid",
+                () -> legacyParseInteger(NUMBERS[i[0]++ & 3]),
+                () -> (int) InputValidator.tryParseInt(NUMBERS[i[0]++ & 3]));
+        compare(harness, "parseInteger.invalid",
+                () -> legacyParseInteger(BAD_NUMBERS[i[0]++ & 3]),
+                () -> (int) InputValidator.tryParseInt(BAD_NUMBERS[i[0]++ & 3]));
+        compare(harness, "isValidContactNumber.valid",
+                () -> legacyIsValidContactNumber(CONTACTS[i[0]++ & 3]) ? 1 : 0,
+                () -> InputValidator.isValidContactNumber(CONTACTS[i[0]++ & 3]) ? 1 : 0);
+        compare(harness, "isValidContactNumber.invalid",
+                () -> legacyIsValidContactNumber(BAD_CONTACTS[i[0]++ & 3]) ? 1 : 0,
+                () -> InputValidator.isValidContactNumber(BAD_CONTACTS[i[0]++ & 3]) ? 1 : 0);
+        compare(harness, "parseDateTime.valid",
+                () -> legacyParseDateTime(TIMES[i[0]++ & 3]) == null ? 0 : 1,
+                () -> InputValidator.parseDateTime(TIMES[i[0]++ & 3]) == null ? 0 : 1);
+        compare(harness, "parseDateTime.invalid",
+                () -> legacyParseDateTime(BAD_TIMES[i[0]++ & 3]) == null ? 0 : 1,
+                () -> InputValidator.parseDateTime(BAD_TIMES[i[0]++ & 3]) == null ? 0 : 1);
+
+        // Raw byte input, e.g. a field sliced out of an import buffer without decoding it
+        byte[][] contactBytes = new byte[CONTACTS.length][];
+        for (int c = 0; c < CONTACTS.length; c++) {
+            contactBytes[c] = CONTACTS[c].getBytes(StandardCharsets.US_ASCII);
+        }
+        harness.run("isValidContactNumber.bytes", Map.of("impl", "engine"), () -> {
+            byte[] b = contactBytes[i[0]++ & 3];
+            return InputValidator.isValidContactNumber(b, 0, b.length) ? 1 : 0;
+        });
+
+        Path out = Paths.get(System.getProperty("bench.out", "validator-results.json"));
+        harness.writeJson(out);
+        System.out.println("\nResults written to " + out);
+        String baseline = System.getProperty("bench.baseline");
+        if (baseline != null && harness.compareWithBaseline(Paths.get(baseline),
+                Double.parseDouble(System.getProperty("bench.tolerance", "0.10"))) > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void compare(BenchmarkHarness harness, String name,
+                                IntSupplier legacy, IntSupplier engine) {
+        harness.run(name, Map.of("impl", "legacy"), legacy);
+        harness.run(name, Map.of("impl", "engine"), engine);
+    }
+
+    // The implementations InputValidator replaced
+
+    static int legacyParseInteger(String input) {
+        try {
+            return Integer.parseInt(input.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    static boolean legacyIsValidContactNumber(String contactNumber) {
+        if (contactNumber == null || contactNumber.trim().isEmpty()) {
+            return false;
+        }
+        return contactNumber.matches("^[\\d\\s\\-\\+\\(\\)]{10,}$");
+    }
+
+    static LocalDateTime legacyParseDateTime(String input) {
+        try {
+            return LocalDateTime.parse(input.trim(), Appointment.TIME_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
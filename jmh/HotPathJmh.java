@@ -0,0 +1,189 @@
+package com.example;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@link HotPathBenchmark}: id lookups, status counts, patient
+ * name search, doctor roster assignment, listing rendering and the cost of
+ * recording a metric, at each dataset size.
+ *
+ * Run: mvn -Pjmh package, then
+ * java -jar target/benchmarks.jar HotPathJmh -rf json -rff hotpath-jmh.json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HotPathJmh {
+    // Random ids are drawn from a fixed table so the benchmarks do not time Random
+    private static final int PICKS = 4096;
+
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"10000", "100000"})
+        int patients;
+
+        HospitalService service;
+        List<Patient> patientList;
+        Patient[] patientArray;
+        Doctor[] doctors;
+        Appointment[] appointments;
+        int[] patientPicks;
+        int[] doctorPicks;
+        int[] appointmentPicks;
+        int cursor;
+
+        // A doctor whose roster holds a copy of every patient, the worst case for roster
+        // membership checks (copies, so the registered patients keep their doctors)
+        Doctor busy;
+        Patient lastOnRoster;
+        Patient outsider;
+
+        final StringBuilder line = new StringBuilder(160);
+        final OperationStats stats = new MetricsRegistry().operation("bench");
+
+        @Setup(Level.Trial)
+        public void populate() {
+            Random random = new Random(42);
+            service = new HospitalService();
+            patientList = HotPathBenchmark.populate(service, patients, random);
+            patientArray = patientList.toArray(new Patient[0]);
+            doctors = service.getDoctors().snapshot().toArray(new Doctor[0]);
+            appointments = service.getAppointments().snapshot().toArray(new Appointment[0]);
+            patientPicks = picks(patientArray.length, random);
+            doctorPicks = picks(doctors.length, random);
+            appointmentPicks = picks(appointments.length, random);
+
+            busy = new Doctor("Dr. Busy", "General");
+            for (Patient p : patientArray) {
+                lastOnRoster = new Patient(p.getName(), p.getAge());
+                busy.restoreAssignment(lastOnRoster);
+            }
+            outsider = new Patient("Outside Patient", 30);
+        }
+
+        int next() {
+            return cursor = (cursor + 1) & (PICKS - 1);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Query {
+        @Param({"smith", "an", "zzzz"})
+        String query;
+    }
+
+    @Benchmark
+    public int findPatientById(Dataset d) {
+        return d.service.findPatient(d.patientArray[d.patientPicks[d.next()]].getId()).getAge();
+    }
+
+    @Benchmark
+    public int findDoctorById(Dataset d) {
+        return d.service.findDoctor(d.doctors[d.doctorPicks[d.next()]].getId()).getId();
+    }
+
+    @Benchmark
+    public int findAppointmentById(Dataset d) {
+        return d.service.findAppointment(d.appointments[d.appointmentPicks[d.next()]].getId()).getId();
+    }
+
+    /** "How many open appointments" by a full scan. */
+    @Benchmark
+    public int countByStatusScan(Dataset d) {
+        int open = 0;
+        for (Appointment a : d.appointments) {
+            if (a.getStatus() == AppointmentStatus.SCHEDULED) {
+                open++;
+            }
+        }
+        return open;
+    }
+
+    /** The same count from the per-status index. */
+    @Benchmark
+    public int countByStatusIndex(Dataset d) {
+        return d.service.countAppointments(AppointmentStatus.SCHEDULED);
+    }
+
+    @Benchmark
+    public int searchPatientScan(Dataset d, Query q) {
+        return SearchBenchmark.scan(d.patientList, q.query).size();
+    }
+
+    @Benchmark
+    public int searchPatientIndex(Dataset d, Query q) {
+        return d.service.searchPatients(q.query).size();
+    }
+
+    @Benchmark
+    public int assignPatientDuplicate(Dataset d) {
+        d.busy.assignPatient(d.lastOnRoster);
+        return d.busy.getAssignedPatients().size();
+    }
+
+    @Benchmark
+    public int assignPatientNewThenRemove(Dataset d) {
+        d.busy.assignPatient(d.outsider);
+        d.busy.removePatient(d.outsider);
+        return d.busy.getAssignedPatients().size();
+    }
+
+    @Benchmark
+    public int patientToString(Dataset d) {
+        return d.patientArray[d.patientPicks[d.next()]].toString().length();
+    }
+
+    @Benchmark
+    public int doctorToString(Dataset d) {
+        return d.doctors[d.doctorPicks[d.next()]].toString().length();
+    }
+
+    @Benchmark
+    public int appointmentToString(Dataset d) {
+        return d.appointments[d.appointmentPicks[d.next()]].toString().length();
+    }
+
+    /** The listing renderer's path: append into one reused builder. */
+    @Benchmark
+    public int patientAppendTo(Dataset d) {
+        d.line.setLength(0);
+        return d.patientArray[d.patientPicks[d.next()]].appendTo(d.line).length();
+    }
+
+    @Benchmark
+    public int appointmentAppendTo(Dataset d) {
+        d.line.setLength(0);
+        return d.appointments[d.appointmentPicks[d.next()]].appendTo(d.line).length();
+    }
+
+    /** What instrumentation adds to every service call: a clock read and one recording. */
+    @Benchmark
+    public long operationStatsRecord(Dataset d) {
+        d.stats.record(System.nanoTime());
+        return d.stats.getCalls();
+    }
+
+    private static int[] picks(int bound, Random random) {
+        int[] picks = new int[PICKS];
+        for (int i = 0; i < PICKS; i++) {
+            picks[i] = random.nextInt(bound);
+        }
+        return picks;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@link SearchBenchmark}: patient name search through
+ * {@link NameIndex}, plain and ranked, against the original full scan.
+ *
+ * Run: mvn -Pjmh package, then
+ * java -jar target/benchmarks.jar SearchJmh -rf json -rff search-jmh.json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchJmh {
+    @Param({"10000", "100000", "1000000"})
+    int patients;
+
+    @Param({"smith", "an", "Olivia Ngu", "zzzz", "son"})
+    String query;
+
+    private List<Patient> patientList;
+    private NameIndex index;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        patientList = SearchBenchmark.generate(patients, new Random(42));
+        index = new NameIndex();
+        index.addAll(patientList);
+    }
+
+    @Benchmark
+    public int scan() {
+        return SearchBenchmark.scan(patientList, query).size();
+    }
+
+    @Benchmark
+    public int index() {
+        return index.search(query).size();
+    }
+
+    @Benchmark
+    public int ranked() {
+        return index.searchRanked(query, 10).size();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH version of {@link ValidatorBenchmark}: {@link InputValidator} against the
+ * implementations it replaced, on valid and invalid input.
+ *
+ * Run: mvn -Pjmh package, then
+ * java -jar target/benchmarks.jar ValidatorJmh -rf json -rff validator-jmh.json
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidatorJmh {
+    @Param({"valid", "invalid"})
+    String input;
+
+    private String[] numbers;
+    private String[] contacts;
+    private String[] times;
+    // Raw byte input, e.g. a field sliced out of an import buffer without decoding it
+    private byte[][] contactBytes;
+    private int i;
+
+    @Setup
+    public void pickInputs() {
+        boolean valid = input.equals("valid");
+        numbers = valid ? ValidatorBenchmark.NUMBERS : ValidatorBenchmark.BAD_NUMBERS;
+        contacts = valid ? ValidatorBenchmark.CONTACTS : ValidatorBenchmark.BAD_CONTACTS;
+        times = valid ? ValidatorBenchmark.TIMES : ValidatorBenchmark.BAD_TIMES;
+        contactBytes = new byte[contacts.length][];
+        for (int c = 0; c < contacts.length; c++) {
+            contactBytes[c] = contacts[c].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Benchmark
+    public int parseIntegerLegacy() {
+        return ValidatorBenchmark.legacyParseInteger(numbers[i++ & 3]);
+    }
+
+    @Benchmark
+    public long parseIntegerEngine() {
+        return InputValidator.tryParseInt(numbers[i++ & 3]);
+    }
+
+    @Benchmark
+    public boolean isValidContactNumberLegacy() {
+        return ValidatorBenchmark.legacyIsValidContactNumber(contacts[i++ & 3]);
+    }
+
+    @Benchmark
+    public boolean isValidContactNumberEngine() {
+        return InputValidator.isValidContactNumber(contacts[i++ & 3]);
+    }
+
+    @Benchmark
+    public boolean isValidContactNumberBytes() {
+        byte[] b = contactBytes[i++ & 3];
+        return InputValidator.isValidContactNumber(b, 0, b.length);
+    }
+
+    @Benchmark
+    public LocalDateTime parseDateTimeLegacy() {
+        return ValidatorBenchmark.legacyParseDateTime(times[i++ & 3]);
+    }
+
+    @Benchmark
+    public LocalDateTime parseDateTimeEngine() {
+        return InputValidator.parseDateTime(times[i++ & 3]);
+    }
+}